@@ -0,0 +1,111 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.id.uuid;
+
+import java.time.Clock;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free source of strictly increasing values made up of a millisecond timestamp followed by a counter. The
+ * counter starts from a random seed at the beginning of each millisecond and is incremented for each value
+ * generated within the same millisecond. When the counter is exhausted or the clock moves backwards the timestamp
+ * is advanced past the clock so the values keep increasing.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+final class MillisecondCounter {
+
+    /**
+     * The number of bits used for the counter.
+     */
+    private final int counterBits;
+
+    /**
+     * Used to extract the random seed for the counter. The seed has fewer bits than the counter so that there is
+     * room to increment it.
+     */
+    private final long seedMask;
+
+    /**
+     * The source of the current time.
+     */
+    private final Clock clock;
+
+    /**
+     * The last value that was generated.
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * Initialise the counter.
+     *
+     * @param counterBits The number of bits used for the counter.
+     * @param seedBits    The number of bits in the random seed or {@code 0} if the counter starts at zero.
+     * @param clock       The source of the current time.
+     */
+    MillisecondCounter(final int counterBits, final int seedBits, final Clock clock) {
+        if (clock == null) {
+            throw new IllegalArgumentException("clock must not be null");
+        }
+        this.counterBits = counterBits;
+        this.seedMask = (1L << seedBits) - 1;
+        this.clock = clock;
+    }
+
+    /**
+     * Get the timestamp from a value.
+     *
+     * @param value The value.
+     * @return The timestamp in milliseconds since 1970-01-01T00:00:00Z.
+     */
+    long getTimestamp(final long value) {
+        return value >>> counterBits;
+    }
+
+    /**
+     * Get the counter from a value.
+     *
+     * @param value The value.
+     * @return The counter.
+     */
+    long getCounter(final long value) {
+        return value & (1L << counterBits) - 1;
+    }
+
+    /**
+     * Generate the next value.
+     *
+     * @return The timestamp shifted left by the number of counter bits combined with the counter.
+     */
+    long next() {
+        for (;;) {
+            final long current = state.get();
+            final long now = clock.millis();
+            final long next;
+            if (now > current >>> counterBits) {
+                next = now << counterBits | ThreadLocalRandom.current().nextLong() & seedMask;
+            } else {
+                next = current + 1;
+            }
+            if (state.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.id.uuid;
+
+import com.btmatthews.atlas.core.id.IdentifierGenerator;
+import com.fasterxml.uuid.EthernetAddress;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates version 1 (time-based) UUIDs. Every UUID generated for a node is given a distinct timestamp by a clock
+ * that is advanced with a single compare-and-set, so threads never block each other and never produce the same
+ * UUID. The clock can issue 10,000 timestamps per millisecond before it starts borrowing time from the future.
+ * <p>
+ * By default the node identifier is a random multicast address as permitted by section 4.5 of RFC 4122 so that
+ * the network interfaces do not need to be probed. Generators created with the same address share the clock for
+ * that address, so they can be used side by side. The clock sequence of a node is chosen at random when its clock
+ * is created, which distinguishes the UUIDs from those generated for the same address by other class loaders or
+ * processes unless they happen to choose the same one of the 16,384 clock sequences.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public final class TimeBasedUUIDGenerator implements IdentifierGenerator<UUID> {
+
+    /**
+     * The number of 100 nanosecond intervals between 1582-10-15T00:00:00Z and 1970-01-01T00:00:00Z.
+     */
+    static final long GREGORIAN_OFFSET = 0x01B21DD213814000L;
+
+    /**
+     * The number of 100 nanosecond intervals in a millisecond.
+     */
+    static final long INTERVALS_PER_MILLISECOND = 10000L;
+
+    /**
+     * Used to extract the 14-bit clock sequence.
+     */
+    private static final int CLOCK_SEQUENCE_MASK = 0x3FFF;
+
+    /**
+     * Used to extract the 48-bit node identifier.
+     */
+    private static final long NODE_MASK = 0xFFFFFFFFFFFFL;
+
+    /**
+     * Used to choose the clock sequences and random node identifiers.
+     */
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * The clocks of the node identifiers that were specified as addresses. Random node identifiers are not shared so
+     * their clocks are not kept here.
+     */
+    private static final ConcurrentMap<Long, Clock> CLOCKS = new ConcurrentHashMap<>();
+
+    /**
+     * Issues the timestamps for the node.
+     */
+    private final Clock clock;
+
+    /**
+     * The variant, clock sequence and node identifier that are common to all the UUIDs.
+     */
+    private final long leastSignificantBits;
+
+    /**
+     * Initialise the generator with a random node identifier.
+     */
+    public TimeBasedUUIDGenerator() {
+        this(EthernetAddress.constructMulticastAddress(RANDOM), new Clock());
+    }
+
+    /**
+     * Initialise the generator with a node identifier specified as an Ethernet address.
+     *
+     * @param address The Ethernet address formatted as six pairs of hexadecimal digits separated by colons.
+     */
+    public TimeBasedUUIDGenerator(final String address) {
+        this(EthernetAddress.valueOf(address));
+    }
+
+    /**
+     * Initialise the generator with a node identifier. The generator shares its clock with the other generators
+     * for the same address.
+     *
+     * @param address The Ethernet address.
+     */
+    public TimeBasedUUIDGenerator(final EthernetAddress address) {
+        this(address, null);
+    }
+
+    /**
+     * Initialise the generator with a node identifier and the clock that issues its timestamps.
+     *
+     * @param address The Ethernet address.
+     * @param clock   The clock or {@code null} to use the clock shared by the generators for the address.
+     */
+    private TimeBasedUUIDGenerator(final EthernetAddress address,
+                                   final Clock clock) {
+        if (address == null) {
+            throw new IllegalArgumentException("address must not be null");
+        }
+        final long node = address.toLong() & NODE_MASK;
+        this.clock = clock == null ? CLOCKS.computeIfAbsent(node, key -> new Clock()) : clock;
+        leastSignificantBits = (0x8000L | this.clock.clockSequence) << 48 | node;
+    }
+
+    /**
+     * Create a generator whose node identifier is the address of one of the network interfaces. The network
+     * interfaces are probed the first time this method is called and the result is shared. A random node
+     * identifier is used if there are no suitable network interfaces.
+     *
+     * @return The generator.
+     */
+    public static TimeBasedUUIDGenerator withInterfaceAddress() {
+        return new TimeBasedUUIDGenerator(InterfaceAddress.ADDRESS);
+    }
+
+    /**
+     * Generate a UUID.
+     *
+     * @return The UUID.
+     */
+    @Override
+    public UUID generate() {
+        return new UUID(toMostSignificantBits(clock.next(1)), leastSignificantBits);
+    }
+
+    /**
+     * Generate UUIDs as pairs of long values without creating any objects. The most significant bits of each UUID
+     * are stored at even positions and the least significant bits at the following odd positions. The timestamps
+     * of all the UUIDs are taken from the clock at once.
+     *
+     * @param bits The buffer that receives the UUIDs. Its length must be even.
+     */
+    public void generate(final long[] bits) {
+        if ((bits.length & 1) != 0) {
+            throw new IllegalArgumentException("bits must have an even length");
+        }
+        if (bits.length == 0) {
+            return;
+        }
+        final long first = clock.next(bits.length / 2);
+        for (int i = 0; i < bits.length; i += 2) {
+            bits[i] = toMostSignificantBits(first + i / 2);
+            bits[i + 1] = leastSignificantBits;
+        }
+    }
+
+    /**
+     * Generate a UUID in its 16-byte big-endian binary representation.
+     *
+     * @return The binary representation.
+     */
+    public byte[] generateBytes() {
+        final byte[] bytes = new byte[UUIDFormat.BYTES_LENGTH];
+        generateBytes(bytes, 0);
+        return bytes;
+    }
+
+    /**
+     * Generate a UUID and write its 16-byte big-endian binary representation to a buffer.
+     *
+     * @param buffer The buffer.
+     * @param offset The position in the buffer of the first byte.
+     */
+    public void generateBytes(final byte[] buffer, final int offset) {
+        UUIDFormat.toBytes(toMostSignificantBits(clock.next(1)), leastSignificantBits, buffer, offset);
+    }
+
+    /**
+     * Generate a UUID in its canonical string representation.
+     *
+     * @return The string representation.
+     */
+    public String generateString() {
+        return UUIDFormat.toString(toMostSignificantBits(clock.next(1)), leastSignificantBits);
+    }
+
+    /**
+     * Issues distinct timestamps for a node.
+     */
+    private static final class Clock {
+
+        /**
+         * The clock sequence chosen for the node.
+         */
+        private final int clockSequence = RANDOM.nextInt() & CLOCK_SEQUENCE_MASK;
+
+        /**
+         * The last timestamp that was issued.
+         */
+        private final AtomicLong lastTimestamp = new AtomicLong();
+
+        /**
+         * Issue a run of consecutive timestamps that starts at the current time or, if the current time has already
+         * been issued, just after the last timestamp that was issued.
+         *
+         * @param count The number of timestamps.
+         * @return The first timestamp.
+         */
+        long next(final int count) {
+            final long now = System.currentTimeMillis() * INTERVALS_PER_MILLISECOND + GREGORIAN_OFFSET;
+            while (true) {
+                final long last = lastTimestamp.get();
+                final long first = now > last ? now : last + 1;
+                if (lastTimestamp.compareAndSet(last, first + count - 1)) {
+                    return first;
+                }
+            }
+        }
+    }
+
+    /**
+     * Format a 60-bit timestamp with the version number as the most significant bits of a version 1 UUID.
+     *
+     * @param timestamp The number of 100 nanosecond intervals since 1582-10-15T00:00:00Z.
+     * @return The most significant bits.
+     */
+    static long toMostSignificantBits(final long timestamp) {
+        return timestamp << 32
+                | (timestamp >>> 16 & 0xFFFF0000L)
+                | 0x1000L
+                | timestamp >>> 48 & 0x0FFFL;
+    }
+
+    /**
+     * Probes the network interfaces the first time it is used.
+     */
+    private static final class InterfaceAddress {
+
+        /**
+         * The address of a network interface or a random multicast address.
+         */
+        static final EthernetAddress ADDRESS;
+
+        static {
+            final EthernetAddress address = EthernetAddress.fromInterface();
+            ADDRESS = address == null ? EthernetAddress.constructMulticastAddress(RANDOM) : address;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.id.uuid;
+
+/**
+ * Converts 128-bit identifiers to and from the 26 character Crockford base 32 representation used by ULIDs. The
+ * string representation sorts in the same order as the binary representation.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public final class ULIDFormat {
+
+    /**
+     * The number of characters in the string representation.
+     */
+    public static final int STRING_LENGTH = 26;
+
+    /**
+     * The Crockford base 32 digits.
+     */
+    private static final char[] DIGITS = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    /**
+     * Maps characters to their values or {@code -1} if they are not valid. Lower case letters are accepted and
+     * I, L and O are treated as 1, 1 and 0.
+     */
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        for (int i = 0; i < VALUES.length; ++i) {
+            VALUES[i] = -1;
+        }
+        for (int i = 0; i < DIGITS.length; ++i) {
+            VALUES[DIGITS[i]] = (byte) i;
+            VALUES[Character.toLowerCase(DIGITS[i])] = (byte) i;
+        }
+        VALUES['I'] = VALUES['i'] = VALUES['L'] = VALUES['l'] = 1;
+        VALUES['O'] = VALUES['o'] = 0;
+    }
+
+    /**
+     * The constructor is private to prevent instantiation.
+     */
+    private ULIDFormat() {
+    }
+
+    /**
+     * Convert a 128-bit identifier to its string representation.
+     *
+     * @param mostSignificantBits  The most significant 64 bits.
+     * @param leastSignificantBits The least significant 64 bits.
+     * @return The string representation.
+     */
+    public static String toString(final long mostSignificantBits, final long leastSignificantBits) {
+        final char[] chars = new char[STRING_LENGTH];
+        for (int i = 0; i < STRING_LENGTH; ++i) {
+            final int shift = (STRING_LENGTH - 1 - i) * 5;
+            final long bits;
+            if (shift >= 64) {
+                bits = mostSignificantBits >>> shift - 64;
+            } else if (shift > 59) {
+                bits = leastSignificantBits >>> shift | mostSignificantBits << 64 - shift;
+            } else {
+                bits = leastSignificantBits >>> shift;
+            }
+            chars[i] = DIGITS[(int) bits & 0x1F];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Parse the string representation of a 128-bit identifier.
+     *
+     * @param value The string representation.
+     * @return The most significant 64 bits followed by the least significant 64 bits.
+     */
+    public static long[] parse(final CharSequence value) {
+        if (value == null || value.length() != STRING_LENGTH) {
+            throw new IllegalArgumentException("A ULID must have " + STRING_LENGTH + " characters");
+        }
+        long mostSignificantBits = 0;
+        long leastSignificantBits = 0;
+        for (int i = 0; i < STRING_LENGTH; ++i) {
+            final char ch = value.charAt(i);
+            final int digit = ch < VALUES.length ? VALUES[ch] : -1;
+            if (digit < 0 || i == 0 && digit > 7) {
+                throw new IllegalArgumentException("Invalid ULID: " + value);
+            }
+            mostSignificantBits = mostSignificantBits << 5 | leastSignificantBits >>> 59;
+            leastSignificantBits = leastSignificantBits << 5 | digit;
+        }
+        return new long[]{mostSignificantBits, leastSignificantBits};
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.id.uuid;
+
+import com.btmatthews.atlas.core.id.IdentifierGenerator;
+
+import java.time.Clock;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates ULIDs which begin with a 48-bit millisecond timestamp followed by 80 random bits. ULIDs generated within
+ * the same millisecond are kept in order by treating the first 16 of the random bits as a counter that starts from
+ * a random value. The identifiers can be generated as 26 character strings or in a 128-bit binary form carried by a
+ * {@link UUID} which sorts in the same order. The random bits come from {@link ThreadLocalRandom} so the ULIDs should
+ * not be used where they must be hard to guess.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public final class ULIDGenerator implements IdentifierGenerator<String> {
+
+    /**
+     * The number of random bits used as a counter.
+     */
+    private static final int COUNTER_BITS = 16;
+
+    /**
+     * Generates the timestamp and counter.
+     */
+    private final MillisecondCounter counter;
+
+    /**
+     * Initialise the generator using the system clock.
+     */
+    public ULIDGenerator() {
+        this(Clock.systemUTC());
+    }
+
+    /**
+     * Initialise the generator.
+     *
+     * @param clock The source of the current time.
+     */
+    public ULIDGenerator(final Clock clock) {
+        counter = new MillisecondCounter(COUNTER_BITS, COUNTER_BITS - 1, clock);
+    }
+
+    /**
+     * Generate a ULID in its string representation.
+     *
+     * @return The string representation.
+     */
+    @Override
+    public String generate() {
+        return ULIDFormat.toString(counter.next(), ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Generate a ULID in its 128-bit binary form. The result is not a valid RFC 4122 UUID and is only used to hold
+     * the bits.
+     *
+     * @return The binary form.
+     */
+    public UUID generateUUID() {
+        return new UUID(counter.next(), ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Generate a ULID in its 16-byte big-endian binary representation.
+     *
+     * @return The binary representation.
+     */
+    public byte[] generateBytes() {
+        final byte[] bytes = new byte[UUIDFormat.BYTES_LENGTH];
+        UUIDFormat.toBytes(counter.next(), ThreadLocalRandom.current().nextLong(), bytes, 0);
+        return bytes;
+    }
+
+    /**
+     * Get the time at which a ULID was generated.
+     *
+     * @param ulid The string representation of the ULID.
+     * @return The time in milliseconds since 1970-01-01T00:00:00Z.
+     */
+    public static long getTimestamp(final String ulid) {
+        return ULIDFormat.parse(ulid)[0] >>> COUNTER_BITS;
+    }
+
+    /**
+     * Convert the string representation of a ULID to its binary form.
+     *
+     * @param ulid The string representation.
+     * @return The binary form.
+     */
+    public static UUID toUUID(final String ulid) {
+        final long[] bits = ULIDFormat.parse(ulid);
+        return new UUID(bits[0], bits[1]);
+    }
+
+    /**
+     * Convert the binary form of a ULID to its string representation.
+     *
+     * @param uuid The binary form.
+     * @return The string representation.
+     */
+    public static String fromUUID(final UUID uuid) {
+        return ULIDFormat.toString(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+}
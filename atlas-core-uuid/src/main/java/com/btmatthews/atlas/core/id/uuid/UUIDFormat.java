@@ -0,0 +1,167 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.id.uuid;
+
+import java.util.UUID;
+
+/**
+ * Converts UUIDs to and from their canonical string and 16-byte binary representations without the intermediate
+ * strings and boxing used by {@link UUID#toString()}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public final class UUIDFormat {
+
+    /**
+     * The number of characters in the canonical string representation.
+     */
+    public static final int STRING_LENGTH = 36;
+
+    /**
+     * The number of bytes in the binary representation.
+     */
+    public static final int BYTES_LENGTH = 16;
+
+    /**
+     * The lower case hexadecimal digits.
+     */
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * The constructor is private to prevent instantiation.
+     */
+    private UUIDFormat() {
+    }
+
+    /**
+     * Convert a UUID to its canonical string representation.
+     *
+     * @param uuid The UUID.
+     * @return The string representation.
+     */
+    public static String toString(final UUID uuid) {
+        return toString(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * Convert the most and least significant bits of a UUID to its canonical string representation.
+     *
+     * @param mostSignificantBits  The most significant 64 bits.
+     * @param leastSignificantBits The least significant 64 bits.
+     * @return The string representation.
+     */
+    public static String toString(final long mostSignificantBits, final long leastSignificantBits) {
+        final char[] chars = new char[STRING_LENGTH];
+        writeHex(chars, 0, mostSignificantBits >>> 32, 8);
+        chars[8] = '-';
+        writeHex(chars, 9, mostSignificantBits >>> 16, 4);
+        chars[13] = '-';
+        writeHex(chars, 14, mostSignificantBits, 4);
+        chars[18] = '-';
+        writeHex(chars, 19, leastSignificantBits >>> 48, 4);
+        chars[23] = '-';
+        writeHex(chars, 24, leastSignificantBits, 12);
+        return new String(chars);
+    }
+
+    /**
+     * Convert a UUID to its 16-byte big-endian binary representation.
+     *
+     * @param uuid The UUID.
+     * @return The binary representation.
+     */
+    public static byte[] toBytes(final UUID uuid) {
+        final byte[] bytes = new byte[BYTES_LENGTH];
+        toBytes(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), bytes, 0);
+        return bytes;
+    }
+
+    /**
+     * Write the 16-byte big-endian binary representation of a UUID to a buffer.
+     *
+     * @param mostSignificantBits  The most significant 64 bits.
+     * @param leastSignificantBits The least significant 64 bits.
+     * @param buffer               The buffer.
+     * @param offset               The position in the buffer of the first byte.
+     */
+    public static void toBytes(final long mostSignificantBits,
+                               final long leastSignificantBits,
+                               final byte[] buffer,
+                               final int offset) {
+        writeLong(buffer, offset, mostSignificantBits);
+        writeLong(buffer, offset + 8, leastSignificantBits);
+    }
+
+    /**
+     * Read a UUID from its 16-byte big-endian binary representation.
+     *
+     * @param buffer The buffer.
+     * @param offset The position in the buffer of the first byte.
+     * @return The UUID.
+     */
+    public static UUID fromBytes(final byte[] buffer, final int offset) {
+        if (buffer.length - offset < BYTES_LENGTH) {
+            throw new IllegalArgumentException("A UUID requires " + BYTES_LENGTH + " bytes");
+        }
+        return new UUID(readLong(buffer, offset), readLong(buffer, offset + 8));
+    }
+
+    /**
+     * Write the low order bits of a value as hexadecimal digits.
+     *
+     * @param chars  The output buffer.
+     * @param offset The position of the first digit.
+     * @param value  The value.
+     * @param digits The number of digits to write.
+     */
+    private static void writeHex(final char[] chars, final int offset, final long value, final int digits) {
+        long remaining = value;
+        for (int i = offset + digits - 1; i >= offset; --i) {
+            chars[i] = DIGITS[(int) remaining & 0xF];
+            remaining >>>= 4;
+        }
+    }
+
+    /**
+     * Write a long value in big-endian order.
+     *
+     * @param buffer The output buffer.
+     * @param offset The position of the first byte.
+     * @param value  The value.
+     */
+    private static void writeLong(final byte[] buffer, final int offset, final long value) {
+        for (int i = 7; i >= 0; --i) {
+            buffer[offset + 7 - i] = (byte) (value >>> (i * 8));
+        }
+    }
+
+    /**
+     * Read a long value in big-endian order.
+     *
+     * @param buffer The input buffer.
+     * @param offset The position of the first byte.
+     * @return The value.
+     */
+    private static long readLong(final byte[] buffer, final int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; ++i) {
+            value = value << 8 | buffer[offset + i] & 0xFF;
+        }
+        return value;
+    }
+}
@@ -16,35 +16,57 @@
 
 package com.btmatthews.atlas.core.id.uuid;
 
-import java.util.UUID;
-
 import com.btmatthews.atlas.core.id.IdentifierGenerator;
-import com.fasterxml.uuid.EthernetAddress;
-import com.fasterxml.uuid.Generators;
-import com.fasterxml.uuid.impl.TimeBasedGenerator;
 
 /**
+ * Generates version 1 (time-based) UUIDs formatted as strings. The UUIDs are generated by a
+ * {@link TimeBasedUUIDGenerator} so threads do not block each other.
+ *
  * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
  * @since 1.0.0
  */
 public final class UUIDIdentifierGenerator implements IdentifierGenerator<String> {
 
-	private final TimeBasedGenerator generator;
+    /**
+     * Generates the UUIDs.
+     */
+    private final TimeBasedUUIDGenerator generator;
 
-	public UUIDIdentifierGenerator() {
-		this(EthernetAddress.fromInterface());
-	}
+    /**
+     * Initialise the generator with a random node identifier. The network interfaces are not probed.
+     */
+    public UUIDIdentifierGenerator() {
+        this(new TimeBasedUUIDGenerator());
+    }
 
+    /**
+     * Initialise the generator with a node identifier specified as an Ethernet address.
+     *
+     * @param address The Ethernet address formatted as six pairs of hexadecimal digits separated by colons.
+     */
     public UUIDIdentifierGenerator(final String address) {
-        this(EthernetAddress.valueOf(address));
+        this(new TimeBasedUUIDGenerator(address));
     }
 
-    private UUIDIdentifierGenerator(final EthernetAddress address) {
-        generator = Generators.timeBasedGenerator(address);
+    /**
+     * Initialise the generator.
+     *
+     * @param generator Generates the UUIDs.
+     */
+    public UUIDIdentifierGenerator(final TimeBasedUUIDGenerator generator) {
+        if (generator == null) {
+            throw new IllegalArgumentException("generator must not be null");
+        }
+        this.generator = generator;
     }
 
-	public String generate() {
-		final UUID uuid = this.generator.generate();
-		return uuid.toString();
-	}
+    /**
+     * Generate a UUID formatted as a string.
+     *
+     * @return The UUID string.
+     */
+    @Override
+    public String generate() {
+        return generator.generateString();
+    }
 }
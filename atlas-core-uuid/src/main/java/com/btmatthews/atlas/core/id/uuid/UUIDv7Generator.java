@@ -0,0 +1,183 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.id.uuid;
+
+import com.btmatthews.atlas.core.id.IdentifierGenerator;
+
+import java.time.Clock;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates version 7 UUIDs which begin with a 48-bit millisecond timestamp so that they sort in the order they
+ * were created. The 12 bits following the timestamp are a counter that keeps the UUIDs generated within the same
+ * millisecond in order, and the remaining 62 bits are random. The random bits come from
+ * {@link ThreadLocalRandom} so the UUIDs should not be used where they must be hard to guess.
+ * <p>
+ * Cassandra {@code timeuuid} columns only accept version 1 UUIDs, so {@link #toTimeUUID(UUID)} and
+ * {@link #fromTimeUUID(UUID)} convert between the two versions without losing any bits or changing the order.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public final class UUIDv7Generator implements IdentifierGenerator<UUID> {
+
+    /**
+     * The number of bits used for the counter.
+     */
+    private static final int COUNTER_BITS = 12;
+
+    /**
+     * The variant bits.
+     */
+    private static final long VARIANT = 0x8000000000000000L;
+
+    /**
+     * Used to extract the random bits that follow the variant.
+     */
+    private static final long RANDOM_MASK = 0x3FFFFFFFFFFFFFFFL;
+
+    /**
+     * Generates the timestamp and counter.
+     */
+    private final MillisecondCounter counter;
+
+    /**
+     * Initialise the generator using the system clock.
+     */
+    public UUIDv7Generator() {
+        this(Clock.systemUTC());
+    }
+
+    /**
+     * Initialise the generator.
+     *
+     * @param clock The source of the current time.
+     */
+    public UUIDv7Generator(final Clock clock) {
+        counter = new MillisecondCounter(COUNTER_BITS, 0, clock);
+    }
+
+    /**
+     * Generate a UUID.
+     *
+     * @return The UUID.
+     */
+    @Override
+    public UUID generate() {
+        return new UUID(nextMostSignificantBits(), nextLeastSignificantBits());
+    }
+
+    /**
+     * Generate a UUID in its 16-byte big-endian binary representation.
+     *
+     * @return The binary representation.
+     */
+    public byte[] generateBytes() {
+        final byte[] bytes = new byte[UUIDFormat.BYTES_LENGTH];
+        UUIDFormat.toBytes(nextMostSignificantBits(), nextLeastSignificantBits(), bytes, 0);
+        return bytes;
+    }
+
+    /**
+     * Generate a UUID in its canonical string representation.
+     *
+     * @return The string representation.
+     */
+    public String generateString() {
+        return UUIDFormat.toString(nextMostSignificantBits(), nextLeastSignificantBits());
+    }
+
+    /**
+     * Get the time at which a version 7 UUID was generated.
+     *
+     * @param uuid The UUID.
+     * @return The time in milliseconds since 1970-01-01T00:00:00Z.
+     */
+    public static long getTimestamp(final UUID uuid) {
+        checkVersion(uuid, 7);
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+
+    /**
+     * Convert a version 7 UUID to a version 1 UUID that can be stored in a Cassandra {@code timeuuid} column. The
+     * millisecond timestamp and counter become the version 1 timestamp and the random bits become the clock
+     * sequence and node identifier.
+     *
+     * @param uuid The version 7 UUID.
+     * @return The version 1 UUID.
+     */
+    public static UUID toTimeUUID(final UUID uuid) {
+        checkVersion(uuid, 7);
+        final long mostSignificantBits = uuid.getMostSignificantBits();
+        final long timestamp = (mostSignificantBits >>> 16) * TimeBasedUUIDGenerator.INTERVALS_PER_MILLISECOND
+                + TimeBasedUUIDGenerator.GREGORIAN_OFFSET
+                + (mostSignificantBits & 0x0FFFL);
+        return new UUID(TimeBasedUUIDGenerator.toMostSignificantBits(timestamp), uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * Convert a version 1 UUID that was created by {@link #toTimeUUID(UUID)} back to a version 7 UUID.
+     *
+     * @param uuid The version 1 UUID.
+     * @return The version 7 UUID.
+     */
+    public static UUID fromTimeUUID(final UUID uuid) {
+        checkVersion(uuid, 1);
+        final long intervals = uuid.timestamp() - TimeBasedUUIDGenerator.GREGORIAN_OFFSET;
+        final long millis = intervals / TimeBasedUUIDGenerator.INTERVALS_PER_MILLISECOND;
+        final long count = intervals % TimeBasedUUIDGenerator.INTERVALS_PER_MILLISECOND;
+        if (intervals < 0 || count >= 1L << COUNTER_BITS) {
+            throw new IllegalArgumentException("The UUID was not converted from a version 7 UUID");
+        }
+        return new UUID(millis << 16 | 0x7000L | count, uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * Generate the timestamp, version and counter.
+     *
+     * @return The most significant bits.
+     */
+    private long nextMostSignificantBits() {
+        final long value = counter.next();
+        return counter.getTimestamp(value) << 16 | 0x7000L | counter.getCounter(value);
+    }
+
+    /**
+     * Generate the variant and random bits.
+     *
+     * @return The least significant bits.
+     */
+    private static long nextLeastSignificantBits() {
+        return VARIANT | ThreadLocalRandom.current().nextLong() & RANDOM_MASK;
+    }
+
+    /**
+     * Make sure a UUID has the expected version.
+     *
+     * @param uuid    The UUID.
+     * @param version The expected version.
+     */
+    private static void checkVersion(final UUID uuid, final int version) {
+        if (uuid == null) {
+            throw new IllegalArgumentException("uuid must not be null");
+        }
+        if (uuid.version() != version) {
+            throw new IllegalArgumentException("uuid must be a version " + version + " UUID");
+        }
+    }
+}
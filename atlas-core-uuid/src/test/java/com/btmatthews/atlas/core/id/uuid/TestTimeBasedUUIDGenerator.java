@@ -0,0 +1,163 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.id.uuid;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.Matchers.greaterThan;
+
+/**
+ * Unit test the {@link TimeBasedUUIDGenerator} object.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class TestTimeBasedUUIDGenerator {
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+
+    @Test
+    public void generatesVersionOneUUIDs() {
+        final long before = System.currentTimeMillis();
+        final UUID uuid = new TimeBasedUUIDGenerator("df:bc:b7:3f:91:17").generate();
+        collector.checkThat(uuid.version(), is(equalTo(1)));
+        collector.checkThat(uuid.variant(), is(equalTo(2)));
+        collector.checkThat(uuid.node(), is(equalTo(0xdfbcb73f9117L)));
+        collector.checkThat((uuid.timestamp() - 0x01B21DD213814000L) / 10000L >= before, is(true));
+    }
+
+    @Test
+    public void randomNodeIsMulticast() {
+        final UUID uuid = new TimeBasedUUIDGenerator().generate();
+        collector.checkThat(uuid.node() & 0x010000000000L, is(not(equalTo(0L))));
+    }
+
+    @Test
+    public void timestampsIncreaseWithinAThread() {
+        final TimeBasedUUIDGenerator generator = new TimeBasedUUIDGenerator();
+        long last = generator.generate().timestamp();
+        for (int i = 0; i < 20000; ++i) {
+            final long timestamp = generator.generate().timestamp();
+            collector.checkThat(timestamp, is(greaterThan(last)));
+            last = timestamp;
+        }
+    }
+
+    @Test
+    public void binaryAndStringFormsAgree() {
+        final TimeBasedUUIDGenerator generator = new TimeBasedUUIDGenerator();
+        final long[] bits = new long[4];
+        generator.generate(bits);
+        collector.checkThat(bits[1], is(equalTo(bits[3])));
+        collector.checkThat(bits[2], is(not(equalTo(bits[0]))));
+        final UUID fromBytes = UUIDFormat.fromBytes(generator.generateBytes(), 0);
+        collector.checkThat(fromBytes.version(), is(equalTo(1)));
+        collector.checkThat(fromBytes.getLeastSignificantBits(), is(equalTo(bits[1])));
+        final UUID fromString = UUID.fromString(generator.generateString());
+        collector.checkThat(fromString.getLeastSignificantBits(), is(equalTo(bits[1])));
+    }
+
+    @Test
+    public void uuidsAreUniqueAcrossThreads() throws Exception {
+        final TimeBasedUUIDGenerator generator = new TimeBasedUUIDGenerator();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<List<UUID>>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; ++i) {
+                futures.add(executor.submit(new Callable<List<UUID>>() {
+                    @Override
+                    public List<UUID> call() {
+                        final List<UUID> uuids = new ArrayList<>();
+                        for (int j = 0; j < 10000; ++j) {
+                            uuids.add(generator.generate());
+                        }
+                        return uuids;
+                    }
+                }));
+            }
+            final Set<UUID> unique = new HashSet<>();
+            for (final Future<List<UUID>> future : futures) {
+                unique.addAll(future.get());
+            }
+            collector.checkThat(unique.size(), is(equalTo(40000)));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void uuidsAreUniqueAcrossMoreThreadsThanClockSequences() throws Exception {
+        final TimeBasedUUIDGenerator generator = new TimeBasedUUIDGenerator();
+        final Set<UUID> unique = ConcurrentHashMap.newKeySet();
+        final int threadCount = 20000;
+        final int uuidsPerThread = 5;
+        final List<Thread> running = new ArrayList<>();
+        for (int i = 0; i < threadCount; ++i) {
+            final Thread thread = new Thread(() -> {
+                for (int j = 0; j < uuidsPerThread; ++j) {
+                    unique.add(generator.generate());
+                }
+            });
+            thread.start();
+            running.add(thread);
+            if (running.size() == 64) {
+                for (final Thread started : running) {
+                    started.join();
+                }
+                running.clear();
+            }
+        }
+        for (final Thread started : running) {
+            started.join();
+        }
+        collector.checkThat(unique.size(), is(equalTo(threadCount * uuidsPerThread)));
+    }
+
+    @Test
+    public void generatorsForTheSameAddressDoNotCollide() {
+        final TimeBasedUUIDGenerator first = new TimeBasedUUIDGenerator("02:00:5e:10:00:01");
+        final TimeBasedUUIDGenerator second = new TimeBasedUUIDGenerator("02:00:5e:10:00:01");
+        final Set<UUID> unique = new HashSet<>();
+        final long[] bits = new long[20];
+        for (int i = 0; i < 10000; ++i) {
+            unique.add(first.generate());
+            unique.add(second.generate());
+            second.generate(bits);
+            for (int j = 0; j < bits.length; j += 2) {
+                unique.add(new UUID(bits[j], bits[j + 1]));
+            }
+        }
+        collector.checkThat(unique.size(), is(equalTo(10000 * 12)));
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.id.uuid;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import static com.btmatthews.hamcrest.regex.PatternMatcher.matches;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThan;
+
+/**
+ * Unit test the {@link ULIDGenerator} object.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class TestULIDGenerator {
+
+    private static final long NOW = 1469922850259L;
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+    private final ULIDGenerator generator = new ULIDGenerator(Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC));
+
+    @Test
+    public void generatesCrockfordBase32Strings() {
+        final String ulid = generator.generate();
+        collector.checkThat(ulid, matches("[0-7][0-9A-HJKMNP-TV-Z]{25}"));
+        collector.checkThat(ulid.substring(0, 10), is(equalTo("01ARZ3NDEK")));
+        collector.checkThat(ULIDGenerator.getTimestamp(ulid), is(equalTo(NOW)));
+    }
+
+    @Test
+    public void ulidsInTheSameMillisecondAreOrdered() {
+        String last = generator.generate();
+        UUID lastBinary = ULIDGenerator.toUUID(last);
+        for (int i = 0; i < 10000; ++i) {
+            final UUID nextBinary = generator.generateUUID();
+            final String next = ULIDGenerator.fromUUID(nextBinary);
+            collector.checkThat(next.compareTo(last), is(greaterThan(0)));
+            collector.checkThat(Long.compareUnsigned(nextBinary.getMostSignificantBits(), lastBinary.getMostSignificantBits()), is(greaterThan(0)));
+            last = next;
+            lastBinary = nextBinary;
+        }
+    }
+
+    @Test
+    public void stringAndBinaryFormsRoundTrip() {
+        final String ulid = "01ARZ3NDEKTSV4RRFFQ69G5FAV";
+        collector.checkThat(ULIDGenerator.fromUUID(ULIDGenerator.toUUID(ulid)), is(equalTo(ulid)));
+        collector.checkThat(ULIDGenerator.fromUUID(ULIDGenerator.toUUID(ulid.toLowerCase())), is(equalTo(ulid)));
+        collector.checkThat(ULIDFormat.toString(-1L, -1L), is(equalTo("7ZZZZZZZZZZZZZZZZZZZZZZZZZ")));
+        final byte[] bytes = generator.generateBytes();
+        collector.checkThat(ULIDGenerator.getTimestamp(ULIDGenerator.fromUUID(UUIDFormat.fromBytes(bytes, 0))), is(equalTo(NOW)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void overflowingULIDsAreRejected() {
+        ULIDFormat.parse("80000000000000000000000000");
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.id.uuid;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import java.util.UUID;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+
+/**
+ * Unit test the {@link UUIDFormat} utility.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class TestUUIDFormat {
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+
+    @Test
+    public void toStringMatchesUUID() {
+        collector.checkThat(UUIDFormat.toString(new UUID(0L, 0L)), is(equalTo("00000000-0000-0000-0000-000000000000")));
+        collector.checkThat(UUIDFormat.toString(new UUID(-1L, -1L)), is(equalTo("ffffffff-ffff-ffff-ffff-ffffffffffff")));
+        for (int i = 0; i < 100; ++i) {
+            final UUID uuid = UUID.randomUUID();
+            collector.checkThat(UUIDFormat.toString(uuid), is(equalTo(uuid.toString())));
+        }
+    }
+
+    @Test
+    public void bytesAreBigEndian() {
+        final UUID uuid = UUID.fromString("00112233-4455-6677-8899-aabbccddeeff");
+        final byte[] bytes = UUIDFormat.toBytes(uuid);
+        for (int i = 0; i < bytes.length; ++i) {
+            collector.checkThat(bytes[i], is(equalTo((byte) (i * 0x11))));
+        }
+        collector.checkThat(UUIDFormat.fromBytes(bytes, 0), is(equalTo(uuid)));
+    }
+
+    @Test
+    public void bytesCanBeWrittenAtAnOffset() {
+        final UUID uuid = UUID.randomUUID();
+        final byte[] buffer = new byte[20];
+        UUIDFormat.toBytes(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), buffer, 4);
+        collector.checkThat(UUIDFormat.fromBytes(buffer, 4), is(equalTo(uuid)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fromBytesRequiresSixteenBytes() {
+        UUIDFormat.fromBytes(new byte[16], 1);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.id.uuid;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ * Unit test the {@link UUIDv7Generator} object.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class TestUUIDv7Generator {
+
+    private static final long NOW = 1412100296789L;
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+    private final UUIDv7Generator generator = new UUIDv7Generator(Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC));
+
+    @Test
+    public void generatesVersionSevenUUIDs() {
+        final UUID uuid = generator.generate();
+        collector.checkThat(uuid.version(), is(equalTo(7)));
+        collector.checkThat(uuid.variant(), is(equalTo(2)));
+        collector.checkThat(UUIDv7Generator.getTimestamp(uuid), is(equalTo(NOW)));
+    }
+
+    @Test
+    public void uuidsInTheSameMillisecondAreOrdered() {
+        String last = generator.generateString();
+        for (int i = 0; i < 10000; ++i) {
+            final String next = UUIDFormat.toString(generator.generate());
+            collector.checkThat(next.compareTo(last), is(greaterThan(0)));
+            last = next;
+        }
+    }
+
+    @Test
+    public void bytesAreBigEndian() {
+        final byte[] bytes = generator.generateBytes();
+        collector.checkThat(bytes[6] & 0xF0, is(equalTo(0x70)));
+        collector.checkThat(UUIDv7Generator.getTimestamp(UUIDFormat.fromBytes(bytes, 0)), is(equalTo(NOW)));
+    }
+
+    @Test
+    public void timeUUIDConversionIsLossless() {
+        final UUID first = generator.generate();
+        final UUID second = generator.generate();
+        final UUID firstTimeUUID = UUIDv7Generator.toTimeUUID(first);
+        final UUID secondTimeUUID = UUIDv7Generator.toTimeUUID(second);
+        collector.checkThat(firstTimeUUID.version(), is(equalTo(1)));
+        collector.checkThat((firstTimeUUID.timestamp() - 0x01B21DD213814000L) / 10000L, is(equalTo(NOW)));
+        collector.checkThat(firstTimeUUID.timestamp(), is(lessThan(secondTimeUUID.timestamp())));
+        collector.checkThat(UUIDv7Generator.fromTimeUUID(firstTimeUUID), is(equalTo(first)));
+        collector.checkThat(UUIDv7Generator.fromTimeUUID(secondTimeUUID), is(equalTo(second)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void toTimeUUIDRequiresVersionSeven() {
+        UUIDv7Generator.toTimeUUID(UUID.randomUUID());
+    }
+}
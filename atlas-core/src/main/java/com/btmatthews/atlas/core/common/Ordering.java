@@ -16,13 +16,14 @@
 
 package com.btmatthews.atlas.core.common;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
+import java.util.Objects;
+
 /**
- * An individual sort ordering.
+ * An individual sort ordering. Sort orderings are immutable and their hash code is calculated once.
  *
  * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
  * @since 1.0.0
@@ -31,11 +32,15 @@ public final class Ordering {
     /**
      * The field name.
      */
-    private String sortField;
+    private final String sortField;
     /**
      * The sort direction.
      */
-    private SortDirection sortDirection;
+    private final SortDirection sortDirection;
+    /**
+     * The pre-calculated hash code.
+     */
+    private final int hash;
 
     /**
      * Initialize the ordering object.
@@ -46,6 +51,10 @@ public final class Ordering {
     public Ordering(final String field, final SortDirection direction) {
         sortField = field;
         sortDirection = direction;
+        hash = new HashCodeBuilder()
+                .append(sortField)
+                .append(sortDirection.ordinal())
+                .toHashCode();
     }
 
     /**
@@ -74,7 +83,16 @@ public final class Ordering {
      */
     @Override
     public boolean equals(final Object obj) {
-        return EqualsBuilder.reflectionEquals(this, obj);
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Ordering)) {
+            return false;
+        }
+        final Ordering other = (Ordering) obj;
+        return hash == other.hash
+                && sortDirection == other.sortDirection
+                && Objects.equals(sortField, other.sortField);
     }
 
     /**
@@ -84,10 +102,7 @@ public final class Ordering {
      */
     @Override
     public int hashCode() {
-        return new HashCodeBuilder()
-                .append(sortField)
-                .append(sortDirection.ordinal())
-                .toHashCode();
+        return hash;
     }
 
     /**
@@ -16,10 +16,7 @@
 
 package com.btmatthews.atlas.core.common;
 
-import com.google.common.base.Predicate;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
-import org.apache.commons.lang3.builder.EqualsBuilder;
+import com.google.common.collect.ImmutableList;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
@@ -28,7 +25,8 @@ import java.util.List;
 
 /**
  * A paging object describes the page number, page size and sort ordering to use when returning
- * large result sets.
+ * large result sets. Paging objects are immutable and their hash code is calculated once so they can be used as
+ * cache keys.
  *
  * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
  * @since 1.0.0
@@ -38,15 +36,19 @@ public final class Paging {
     /**
      * The page number.
      */
-    private int pageNumber;
+    private final int pageNumber;
     /**
      * The page size.
      */
-    private int pageSize;
+    private final int pageSize;
     /**
      * The sort fields and directions.
      */
-    private List<Ordering> sortOrderings;
+    private final ImmutableList<Ordering> sortOrderings;
+    /**
+     * The pre-calculated hash code.
+     */
+    private final int hash;
 
     /**
      * Initialise the paging object.
@@ -58,7 +60,12 @@ public final class Paging {
     public Paging(final int number, final int size, final Ordering... sorts) {
         pageNumber = number;
         pageSize = size;
-        sortOrderings = Lists.newArrayList(sorts);
+        sortOrderings = ImmutableList.copyOf(sorts);
+        hash = new HashCodeBuilder()
+                .append(pageNumber)
+                .append(pageSize)
+                .append(sortOrderings)
+                .toHashCode();
     }
 
     /**
@@ -82,7 +89,7 @@ public final class Paging {
     /**
      * Get the sort orderings.
      *
-     * @return The sort orderings.
+     * @return The sort orderings. The list cannot be modified.
      */
     public List<Ordering> getSortOrderings() {
         return sortOrderings;
@@ -96,7 +103,17 @@ public final class Paging {
      */
     @Override
     public boolean equals(final Object obj) {
-        return EqualsBuilder.reflectionEquals(this, obj);
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Paging)) {
+            return false;
+        }
+        final Paging other = (Paging) obj;
+        return hash == other.hash
+                && pageNumber == other.pageNumber
+                && pageSize == other.pageSize
+                && sortOrderings.equals(other.sortOrderings);
     }
 
     /**
@@ -106,11 +123,7 @@ public final class Paging {
      */
     @Override
     public int hashCode() {
-        return new HashCodeBuilder()
-                .append(pageNumber)
-                .append(pageSize)
-                .append(sortOrderings)
-                .toHashCode();
+        return hash;
     }
 
     /**
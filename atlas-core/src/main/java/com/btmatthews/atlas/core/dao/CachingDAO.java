@@ -0,0 +1,228 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.dao;
+
+import com.btmatthews.atlas.core.common.Paging;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A data access object that caches the pages of results returned by {@link DAO#find(Paging)} for another data
+ * access object. All the cached pages are discarded whenever an entity is created, updated or destroyed through
+ * this data access object. Changes made to the data store by other means will only be seen once the cached pages
+ * expire, so a maximum staleness should be specified if the data store is shared.
+ * <p>
+ * The lists returned by {@link #find(Paging)} are shared between callers and cannot be modified.
+ *
+ * @param <ID> The identifier type.
+ * @param <I>  The interface that describes the persistent entity.
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public final class CachingDAO<ID, I> implements DAO<ID, I> {
+
+    /**
+     * The data access object whose results are being cached.
+     */
+    private final DAO<ID, I> delegate;
+
+    /**
+     * The cached pages of results.
+     */
+    private final Cache<Paging, List<I>> pages;
+
+    /**
+     * Incremented after each write so that a page loaded while a write was in progress is not cached.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Initialise the data access object without a limit on the staleness of the cached pages.
+     *
+     * @param delegate    The data access object whose results are being cached.
+     * @param maximumSize The maximum number of pages to cache.
+     */
+    public CachingDAO(final DAO<ID, I> delegate,
+                      final long maximumSize) {
+        this(delegate, maximumSize, 0L, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Initialise the data access object with a limit on the staleness of the cached pages.
+     *
+     * @param delegate     The data access object whose results are being cached.
+     * @param maximumSize  The maximum number of pages to cache.
+     * @param maxStaleness The maximum length of time a page can be cached or {@code 0} if there is no limit.
+     * @param unit         The unit of {@code maxStaleness}.
+     */
+    public CachingDAO(final DAO<ID, I> delegate,
+                      final long maximumSize,
+                      final long maxStaleness,
+                      final TimeUnit unit) {
+        checkNotNull(delegate, "delegate must not be null");
+        checkNotNull(unit, "unit must not be null");
+        checkArgument(maximumSize >= 0, "maximumSize must not be negative");
+        checkArgument(maxStaleness >= 0, "maxStaleness must not be negative");
+        this.delegate = delegate;
+        final CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats();
+        if (maxStaleness > 0) {
+            builder.expireAfterWrite(maxStaleness, unit);
+        }
+        pages = builder.build();
+    }
+
+    /**
+     * Get the hit and miss statistics for the cached pages.
+     *
+     * @return The statistics.
+     */
+    public CacheStats getStats() {
+        return pages.stats();
+    }
+
+    /**
+     * Discard all the cached pages. This should be used when the data store has been modified without using this
+     * data access object.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        pages.invalidateAll();
+    }
+
+    /**
+     * Count the number of entities in the data source. The count is not cached.
+     *
+     * @return The number of entities.
+     */
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    /**
+     * Retrieve a page of entities from the cache, loading it from the underlying data access object if necessary.
+     *
+     * @param paging Describes the portion of the result set to return.
+     * @return An ordered list of {@code I} entities that cannot be modified.
+     */
+    @Override
+    public List<I> find(final Paging paging) {
+        List<I> page = pages.getIfPresent(paging);
+        if (page == null) {
+            final long loadGeneration = generation.get();
+            page = ImmutableList.copyOf(delegate.find(paging));
+            pages.put(paging, page);
+            if (loadGeneration != generation.get()) {
+                pages.invalidate(paging);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Lookup an entity using the underlying data access object.
+     *
+     * @param key   The name of the lookup key.
+     * @param value The value of the lookup key.
+     * @return The entity, if found.
+     */
+    @Override
+    public Optional<I> lookup(final String key,
+                              final Object value) {
+        return delegate.lookup(key, value);
+    }
+
+    /**
+     * Persist a newly created entity and discard the cached pages.
+     *
+     * @param id     The object identifier of the persistent entity.
+     * @param entity The newly created entity.
+     */
+    @Override
+    public void create(final ID id, final I entity) {
+        try {
+            delegate.create(id, entity);
+        } finally {
+            invalidate();
+        }
+    }
+
+    /**
+     * Retrieve a persistent entity using the underlying data access object.
+     *
+     * @param id The object identifier of the persistent entity.
+     * @return The persistent entity.
+     */
+    @Override
+    public Optional<I> read(final ID id) {
+        return delegate.read(id);
+    }
+
+    /**
+     * Retrieve a list of persistent entities using the underlying data access object.
+     *
+     * @param ids The object identifiers of the persistent entities.
+     * @return An ordered list of {@code I} entities.
+     */
+    @Override
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public final List<Optional<I>> read(final ID... ids) {
+        return delegate.read(ids);
+    }
+
+    /**
+     * Update a persistent entity and discard the cached pages.
+     *
+     * @param id     The object identifier of the persistent entity.
+     * @param entity The persistent entity.
+     */
+    @Override
+    public void update(final ID id, final I entity) {
+        try {
+            delegate.update(id, entity);
+        } finally {
+            invalidate();
+        }
+    }
+
+    /**
+     * Delete a persistent entity and discard the cached pages.
+     *
+     * @param id The object identifier of the persistent entity.
+     */
+    @Override
+    public void destroy(final ID id) {
+        try {
+            delegate.destroy(id);
+        } finally {
+            invalidate();
+        }
+    }
+}
@@ -1,13 +1,50 @@
 package com.btmatthews.atlas.core.domain.i18n;
 
 import com.fasterxml.jackson.core.Version;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.deser.Deserializers;
 import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.Serializers;
 
 public class I18NModule extends SimpleModule {
 
     public I18NModule() {
         super("I18NModule", new Version(1, 0, 0, null));
-        addDeserializer(Localized.class, new LocalizedDeserializer());
-        addSerializer(Localized.class, new LocalizedSerializer());
+    }
+
+    @Override
+    public void setupModule(final SetupContext context) {
+        super.setupModule(context);
+        context.addSerializers(new Serializers.Base() {
+            @Override
+            public JsonSerializer<?> findSerializer(final SerializationConfig config,
+                                                    final JavaType type,
+                                                    final BeanDescription beanDesc) {
+                if (type.getRawClass() == Localized.class) {
+                    return new LocalizedSerializer(getValueType(type));
+                }
+                return null;
+            }
+        });
+        context.addDeserializers(new Deserializers.Base() {
+            @Override
+            public JsonDeserializer<?> findBeanDeserializer(final JavaType type,
+                                                            final DeserializationConfig config,
+                                                            final BeanDescription beanDesc) {
+                if (type.getRawClass() == Localized.class) {
+                    return new LocalizedDeserializer(getValueType(type));
+                }
+                return null;
+            }
+        });
+    }
+
+    private static JavaType getValueType(final JavaType type) {
+        return type.containedTypeCount() == 1 ? type.containedType(0) : null;
     }
 }
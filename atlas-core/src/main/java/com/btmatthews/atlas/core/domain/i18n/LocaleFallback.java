@@ -0,0 +1,135 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.domain.i18n;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import java.util.Locale;
+import java.util.ResourceBundle;
+
+/**
+ * Computes and caches the fallback chains used to resolve localized values. The chain for a locale such as
+ * {@code en-GB} is {@code en-GB}, {@code en} and finally {@link Locale#ROOT} which acts as the default. Chains
+ * and parsed language tags are shared by all {@link Localized} objects so they are only calculated once per
+ * distinct locale.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public final class LocaleFallback {
+
+    /**
+     * The maximum number of distinct locales, language tags or Accept-Language headers that will be cached.
+     */
+    private static final int MAXIMUM_CACHE_SIZE = 1024;
+
+    /**
+     * Used to calculate the candidate locales using the same rules as {@link ResourceBundle}.
+     */
+    private static final ResourceBundle.Control CONTROL =
+            ResourceBundle.Control.getNoFallbackControl(ResourceBundle.Control.FORMAT_DEFAULT);
+
+    /**
+     * Maps a requested locale to its fallback chain.
+     */
+    private static final LoadingCache<Locale, ImmutableList<Locale>> CHAINS = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_CACHE_SIZE)
+            .build(new CacheLoader<Locale, ImmutableList<Locale>>() {
+                @Override
+                public ImmutableList<Locale> load(final Locale locale) {
+                    return ImmutableList.copyOf(CONTROL.getCandidateLocales("", locale));
+                }
+            });
+
+    /**
+     * Maps an IETF BCP 47 language tag to the Java locale.
+     */
+    private static final LoadingCache<String, Locale> TAGS = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_CACHE_SIZE)
+            .build(new CacheLoader<String, Locale>() {
+                @Override
+                public Locale load(final String tag) {
+                    return Locale.forLanguageTag(tag);
+                }
+            });
+
+    /**
+     * Maps the value of an Accept-Language header to the locales in priority order.
+     */
+    private static final LoadingCache<String, ImmutableList<Locale>> PRIORITIES = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_CACHE_SIZE)
+            .build(new CacheLoader<String, ImmutableList<Locale>>() {
+                @Override
+                public ImmutableList<Locale> load(final String header) {
+                    final ImmutableList.Builder<Locale> locales = ImmutableList.builder();
+                    for (final Locale.LanguageRange range : Locale.LanguageRange.parse(header)) {
+                        if (range.getWeight() > 0.0 && !range.getRange().contains("*")) {
+                            locales.add(forLanguageTag(range.getRange()));
+                        }
+                    }
+                    return locales.build();
+                }
+            });
+
+    /**
+     * The constructor is private to prevent instantiation.
+     */
+    private LocaleFallback() {
+    }
+
+    /**
+     * Get the fallback chain for a locale. The first element is always the locale itself and the last element
+     * is always {@link Locale#ROOT}. The returned list is shared and cannot be modified.
+     *
+     * @param locale The requested locale.
+     * @return The fallback chain.
+     */
+    public static ImmutableList<Locale> getFallbackChain(final Locale locale) {
+        return CHAINS.getUnchecked(locale);
+    }
+
+    /**
+     * Get the Java locale for an IETF BCP 47 language tag using a cached instance if possible.
+     *
+     * @param tag The language tag.
+     * @return The Java locale.
+     */
+    public static Locale forLanguageTag(final String tag) {
+        return TAGS.getUnchecked(tag);
+    }
+
+    /**
+     * Get the locales from an Accept-Language header in priority order. Wildcard ranges and ranges with a weight
+     * of zero are excluded. The returned list is shared and cannot be modified.
+     *
+     * @param header The value of the Accept-Language header.
+     * @return The locales in priority order.
+     * @throws IllegalArgumentException If the header is not well formed.
+     */
+    public static ImmutableList<Locale> getPriorityList(final String header) {
+        try {
+            return PRIORITIES.getUnchecked(header);
+        } catch (final UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.domain.i18n;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * The set of locales used by a {@link Localized} object. The locales are held in language tag order and the
+ * locale-specific values of the {@link Localized} object are stored in a flat array in the same order. Shapes
+ * are interned so that all {@link Localized} objects with the same set of locales share a single shape.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+final class LocaleShape {
+
+    /**
+     * Shapes with up to this many locales use a linear scan instead of an index.
+     */
+    private static final int LINEAR_SCAN_LIMIT = 8;
+
+    /**
+     * Shapes with more than this many locales are unlikely to be repeated so they are not interned.
+     */
+    private static final int INTERN_LIMIT = 32;
+
+    /**
+     * The shape used by {@link Localized} objects without any values.
+     */
+    static final LocaleShape EMPTY = new LocaleShape(new Locale[0]);
+
+    /**
+     * Used to sort the locales by language tag.
+     */
+    private static final Comparator<Locale> LANGUAGE_TAG_ORDER = new Comparator<Locale>() {
+        @Override
+        public int compare(final Locale first, final Locale second) {
+            return first.toLanguageTag().compareTo(second.toLanguageTag());
+        }
+    };
+
+    /**
+     * The shared shapes.
+     */
+    private static final Interner<LocaleShape> INTERNER = Interners.newWeakInterner();
+
+    /**
+     * The locales in language tag order.
+     */
+    private final Locale[] locales;
+
+    /**
+     * The IETF BCP 47 language tags of the locales.
+     */
+    private final String[] languageTags;
+
+    /**
+     * Maps locales to their position in {@link #locales} or {@code null} if a linear scan is used.
+     */
+    private final ImmutableMap<Locale, Integer> index;
+
+    /**
+     * The pre-calculated hash code.
+     */
+    private final int hash;
+
+    /**
+     * Construct a shape from locales that are already in language tag order.
+     *
+     * @param locales The locales.
+     */
+    private LocaleShape(final Locale[] locales) {
+        this.locales = locales;
+        languageTags = new String[locales.length];
+        for (int i = 0; i < locales.length; ++i) {
+            languageTags[i] = locales[i].toLanguageTag();
+        }
+        if (locales.length > LINEAR_SCAN_LIMIT) {
+            final ImmutableMap.Builder<Locale, Integer> builder = ImmutableMap.builder();
+            for (int i = 0; i < locales.length; ++i) {
+                builder.put(locales[i], i);
+            }
+            index = builder.build();
+        } else {
+            index = null;
+        }
+        hash = Arrays.hashCode(locales);
+    }
+
+    /**
+     * Get the shape for a set of locales. Small shapes are interned and large shapes are private to the caller.
+     *
+     * @param keys The locales.
+     * @return The shape.
+     */
+    static LocaleShape of(final Collection<Locale> keys) {
+        if (keys.isEmpty()) {
+            return EMPTY;
+        }
+        final Locale[] sorted = keys.toArray(new Locale[keys.size()]);
+        Arrays.sort(sorted, LANGUAGE_TAG_ORDER);
+        final LocaleShape shape = new LocaleShape(sorted);
+        if (sorted.length > INTERN_LIMIT) {
+            return shape;
+        }
+        return INTERNER.intern(shape);
+    }
+
+    /**
+     * Get the number of locales in the shape.
+     *
+     * @return The number of locales.
+     */
+    int size() {
+        return locales.length;
+    }
+
+    /**
+     * Get the locale at a position.
+     *
+     * @param position The position.
+     * @return The locale.
+     */
+    Locale getLocale(final int position) {
+        return locales[position];
+    }
+
+    /**
+     * Get the IETF BCP 47 language tag of the locale at a position.
+     *
+     * @param position The position.
+     * @return The language tag.
+     */
+    String getLanguageTag(final int position) {
+        return languageTags[position];
+    }
+
+    /**
+     * Get the position of a locale.
+     *
+     * @param locale The locale.
+     * @return The position or {@code -1} if the locale is not part of the shape.
+     */
+    int indexOf(final Locale locale) {
+        if (index == null) {
+            for (int i = 0; i < locales.length; ++i) {
+                if (locales[i] == locale || locales[i].equals(locale)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        final Integer position = index.get(locale);
+        return position == null ? -1 : position;
+    }
+
+    /**
+     * Compare two shapes.
+     *
+     * @param obj The other shape.
+     * @return {@code true} if both shapes have the same locales. Otherwise, {@code false}.
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof LocaleShape)) {
+            return false;
+        }
+        final LocaleShape other = (LocaleShape) obj;
+        return hash == other.hash && Arrays.equals(locales, other.locales);
+    }
+
+    /**
+     * Get the hash code for this shape.
+     *
+     * @return The hash code.
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -16,19 +16,24 @@
 
 package com.btmatthews.atlas.core.domain.i18n;
 
-import com.google.common.base.Function;
 import com.google.common.collect.ImmutableMap;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
-import static com.google.common.collect.Ordering.natural;
+import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * A localized value. Maps Java locales to the locale-specific value.
+ * <p>
+ * The set of locales is held in a {@link LocaleShape} that is shared by all localized values with the same
+ * locales and the locale-specific values are held in a flat array ordered by the shape. Equal locale-specific
+ * values are stored as a single reference.
+ * </p>
  *
  * @param <T> The value type.
  * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
@@ -37,9 +42,14 @@ import static com.google.common.collect.Ordering.natural;
 public final class Localized<T> {
 
     /**
-     * Maps the Java locale to the locale-specific value.
+     * The set of locales.
      */
-    private ImmutableMap<Locale, T> values;
+    private final LocaleShape shape;
+
+    /**
+     * The locale-specific values in the same order as the locales in {@link #shape}.
+     */
+    private final Object[] values;
 
     /**
      * Construct a localized value with a single entry.
@@ -48,8 +58,10 @@ public final class Localized<T> {
      * @param val    The value.
      */
     public Localized(final Locale locale, T val) {
-        final ImmutableMap.Builder<Locale, T> builder = ImmutableMap.builder();
-        values = builder.put(locale, val).build();
+        checkNotNull(locale);
+        checkNotNull(val);
+        shape = LocaleShape.of(Collections.singleton(locale));
+        values = new Object[]{val};
     }
 
     /**
@@ -58,8 +70,18 @@ public final class Localized<T> {
      * @param vals Maps locales to values.
      */
     public Localized(final Map<Locale, T> vals) {
-        final ImmutableMap.Builder<Locale, T> builder = ImmutableMap.builder();
-        values = builder.putAll(vals).build();
+        shape = LocaleShape.of(vals.keySet());
+        values = new Object[shape.size()];
+        final Map<Object, Object> distinct = values.length > 1 ? new HashMap<>() : null;
+        for (int i = 0; i < values.length; ++i) {
+            final Object value = checkNotNull(vals.get(shape.getLocale(i)));
+            if (distinct == null) {
+                values[i] = value;
+            } else {
+                final Object existing = distinct.putIfAbsent(value, value);
+                values[i] = existing == null ? value : existing;
+            }
+        }
     }
 
     /**
@@ -69,11 +91,133 @@ public final class Localized<T> {
      * @return The locale specific value.
      */
     public T getValue(final Locale locale) {
-        return values.get(locale);
+        final int position = shape.indexOf(locale);
+        return position < 0 ? null : getValueAt(position);
     }
 
+    /**
+     * Resolve the best value for a locale by walking its fallback chain. For example, a request for {@code en-GB}
+     * will try {@code en-GB}, {@code en} and finally {@link Locale#ROOT}.
+     *
+     * @param locale The requested locale.
+     * @return The best matching value or {@code null} if there is no match.
+     */
+    public T resolveValue(final Locale locale) {
+        final List<Locale> chain = LocaleFallback.getFallbackChain(locale);
+        for (int i = 0; i < chain.size(); ++i) {
+            final T value = getValue(chain.get(i));
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Resolve the best value for a list of locales in priority order. The fallback chain of each locale is
+     * exhausted, excluding {@link Locale#ROOT}, before the next locale is tried. {@link Locale#ROOT} is only
+     * used if none of the locales match.
+     *
+     * @param locales The requested locales in priority order.
+     * @return The best matching value or {@code null} if there is no match.
+     */
+    public T resolveValue(final List<Locale> locales) {
+        for (int i = 0; i < locales.size(); ++i) {
+            final T value = resolveSpecificValue(locales.get(i));
+            if (value != null) {
+                return value;
+            }
+        }
+        return getValue(Locale.ROOT);
+    }
+
+    /**
+     * Resolve the best value for the locales described by the value of an HTTP Accept-Language header.
+     *
+     * @param acceptLanguage The Accept-Language header value (e.g. {@code en-GB,en;q=0.8,de;q=0.5}).
+     * @return The best matching value or {@code null} if there is no match.
+     * @see #resolveValue(List)
+     */
+    public T resolveValue(final String acceptLanguage) {
+        final List<Locale> locales = LocaleFallback.getPriorityList(acceptLanguage);
+        for (int i = 0; i < locales.size(); ++i) {
+            final T value = resolveSpecificValue(locales.get(i));
+            if (value != null) {
+                return value;
+            }
+        }
+        return getValue(Locale.ROOT);
+    }
+
+    /**
+     * Walk the fallback chain of a locale stopping short of {@link Locale#ROOT}.
+     *
+     * @param locale The requested locale.
+     * @return The best matching value or {@code null} if there is no match.
+     */
+    private T resolveSpecificValue(final Locale locale) {
+        final List<Locale> chain = LocaleFallback.getFallbackChain(locale);
+        for (int i = 0; i < chain.size() - 1; ++i) {
+            final T value = getValue(chain.get(i));
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the number of locale-specific values.
+     *
+     * @return The number of values.
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Get the locale at a position. Locales are ordered by language tag.
+     *
+     * @param position The position.
+     * @return The locale.
+     */
+    Locale getLocaleAt(final int position) {
+        return shape.getLocale(position);
+    }
+
+    /**
+     * Get the IETF BCP 47 language tag of the locale at a position.
+     *
+     * @param position The position.
+     * @return The language tag.
+     */
+    String getLanguageTagAt(final int position) {
+        return shape.getLanguageTag(position);
+    }
+
+    /**
+     * Get the locale-specific value at a position.
+     *
+     * @param position The position.
+     * @return The locale-specific value.
+     */
+    @SuppressWarnings("unchecked")
+    T getValueAt(final int position) {
+        return (T) values[position];
+    }
+
+    /**
+     * Get all the locale-specific values. The map is created on demand so {@link #getValue(Locale)},
+     * {@link #size()} or the {@code resolveValue} methods should be preferred where possible.
+     *
+     * @return Maps locales to the locale-specific values.
+     */
     public ImmutableMap<Locale, T> getValues() {
-        return values;
+        final ImmutableMap.Builder<Locale, T> builder = ImmutableMap.builder();
+        for (int i = 0; i < values.length; ++i) {
+            builder.put(getLocaleAt(i), getValueAt(i));
+        }
+        return builder.build();
     }
 
     /**
@@ -84,17 +228,29 @@ public final class Localized<T> {
      */
     @Override
     public boolean equals(final Object obj) {
-        return EqualsBuilder.reflectionEquals(this, obj);
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Localized)) {
+            return false;
+        }
+        final Localized<?> other = (Localized<?>) obj;
+        return shape.equals(other.shape) && Arrays.equals(values, other.values);
     }
 
     /**
-     * Calculate a hash code for this localized value.
+     * Calculate a hash code for this localized value. The result is the same as hashing the map returned by
+     * {@link #getValues()} with a {@link org.apache.commons.lang3.builder.HashCodeBuilder}.
      *
      * @return The hash code.
      */
     @Override
     public int hashCode() {
-        return new HashCodeBuilder().append(values).toHashCode();
+        int hash = 0;
+        for (int i = 0; i < values.length; ++i) {
+            hash += getLocaleAt(i).hashCode() ^ values[i].hashCode();
+        }
+        return 17 * 37 + hash;
     }
 
     /**
@@ -105,24 +261,13 @@ public final class Localized<T> {
     @Override
     public String toString() {
         final StringBuilder builder = new StringBuilder("Localized[{");
-        boolean first = true;
-        final List<Locale> keys = natural()
-                .onResultOf(new Function<Locale, Comparable>() {
-                    @Override
-                    public Comparable apply(Locale o) {
-                        return o.toLanguageTag();
-                    }
-                })
-                .sortedCopy(values.keySet());
-        for (final Locale locale : keys) {
-            if (first) {
-                first = false;
-            } else {
+        for (int i = 0; i < values.length; ++i) {
+            if (i > 0) {
                 builder.append(", ");
             }
-            builder.append(locale.toLanguageTag());
+            builder.append(getLanguageTagAt(i));
             builder.append('=');
-            builder.append(values.get(locale));
+            builder.append(values[i]);
         }
         builder.append("}]");
         return builder.toString();
@@ -46,7 +46,7 @@ public final class LocalizedBuilder<T> {
      * @param original The original {@link Localized} object.
      */
     public LocalizedBuilder(final Localized<T> original) {
-        values.putAll(original.getValues());
+        copyValues(original);
     }
 
     /**
@@ -55,10 +55,21 @@ public final class LocalizedBuilder<T> {
      */
     public LocalizedBuilder<T> setValues(final Localized<T> values) {
         this.values.clear();
-        this.values.putAll(values.getValues());
+        copyValues(values);
         return this;
     }
 
+    /**
+     * Copy the locale-specific values from an existing {@link Localized} object.
+     *
+     * @param original The existing {@link Localized} object.
+     */
+    private void copyValues(final Localized<T> original) {
+        for (int i = 0; i < original.size(); ++i) {
+            values.put(original.getLocaleAt(i), original.getValueAt(i));
+        }
+    }
+
     /**
      * Set a locale specific value.
      *
@@ -83,7 +94,8 @@ public final class LocalizedBuilder<T> {
     }
 
     /**
-     * Construct an immutable {@link Localized} object.
+     * Construct an immutable {@link Localized} object. The set of locales is shared with other {@link Localized}
+     * objects that have the same locales unless it is too large to be worth sharing.
      *
      * @return The {@link Localized} object.
      */
@@ -17,35 +17,124 @@
 package com.btmatthews.atlas.core.domain.i18n;
 
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanProperty;
 import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
+import com.fasterxml.jackson.databind.type.TypeFactory;
 
 import java.io.IOException;
-import java.util.Iterator;
 import java.util.Locale;
-import java.util.Map;
 
 /**
+ * Deserializes a {@link Localized} value from a JSON object that maps IETF BCP 47 language tags to the
+ * locale-specific values. The JSON object is read token by token and the locale-specific values are read by the
+ * deserializer for the value type. If the value type is not known then the locale-specific values are read as
+ * untyped values.
  *
  * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
  * @since 1.0.1
  */
-public class LocalizedDeserializer extends JsonDeserializer<Localized> {
+public class LocalizedDeserializer extends JsonDeserializer<Localized> implements ContextualDeserializer {
+
+    /**
+     * The declared type of the locale-specific values or {@code null} if it is not known.
+     */
+    private final JavaType valueType;
+
+    /**
+     * The deserializer for the locale-specific values.
+     */
+    private final JsonDeserializer<Object> valueDeserializer;
+
+    /**
+     * Construct a deserializer for which the value type will be determined from the property being deserialized.
+     */
+    public LocalizedDeserializer() {
+        this(null, null);
+    }
+
+    /**
+     * Construct a deserializer for a known value type.
+     *
+     * @param valueType The declared type of the locale-specific values.
+     * @since 1.0.2
+     */
+    public LocalizedDeserializer(final JavaType valueType) {
+        this(valueType, null);
+    }
+
+    /**
+     * Construct a contextual deserializer.
+     *
+     * @param valueType         The declared type of the locale-specific values.
+     * @param valueDeserializer The deserializer for the locale-specific values.
+     */
+    private LocalizedDeserializer(final JavaType valueType,
+                                  final JsonDeserializer<Object> valueDeserializer) {
+        this.valueType = valueType;
+        this.valueDeserializer = valueDeserializer;
+    }
+
+    /**
+     * Resolve the deserializer for the locale-specific values.
+     *
+     * @param context  The deserialization context.
+     * @param property The property being deserialized.
+     * @return The contextual deserializer.
+     * @throws JsonMappingException If there was a problem resolving the value deserializer.
+     */
+    @Override
+    public JsonDeserializer<?> createContextual(final DeserializationContext context,
+                                                final BeanProperty property)
+            throws JsonMappingException {
+        if (valueDeserializer != null) {
+            return this;
+        }
+        JavaType type = valueType;
+        if (type == null && property != null) {
+            final JavaType propertyType = property.getType();
+            if (propertyType.getRawClass() == Localized.class && propertyType.containedTypeCount() == 1) {
+                type = propertyType.containedType(0);
+            }
+        }
+        if (type == null) {
+            type = TypeFactory.unknownType();
+        }
+        return new LocalizedDeserializer(type, context.findContextualValueDeserializer(type, property));
+    }
+
+    /**
+     * Read the localized value from a JSON object.
+     *
+     * @param parser  The JSON parser.
+     * @param context The deserialization context.
+     * @return The localized value.
+     * @throws IOException If there was a problem reading the JSON object.
+     */
     @Override
     public Localized deserialize(final JsonParser parser,
-                                         final DeserializationContext context)
+                                 final DeserializationContext context)
             throws IOException {
+        final JsonDeserializer<Object> deserializer = valueDeserializer == null
+                ? context.findRootValueDeserializer(TypeFactory.unknownType())
+                : valueDeserializer;
         final LocalizedBuilder<Object> builder = new LocalizedBuilder<>();
-        final ObjectCodec codec = parser.getCodec();
-        final JsonNode node = codec.readTree(parser);
-        final Iterator<Map.Entry<String, JsonNode>> iterator = node.fields();
-        while (iterator.hasNext()) {
-            final Map.Entry<String, JsonNode> entry = iterator.next();
-            builder.setValue(
-                    Locale.forLanguageTag(entry.getKey()),
-                    entry.getValue().textValue());
+        JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.START_OBJECT) {
+            token = parser.nextToken();
+        }
+        for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+            final Locale locale = LocaleFallback.forLanguageTag(parser.getCurrentName());
+            if (parser.nextToken() != JsonToken.VALUE_NULL) {
+                builder.setValue(locale, deserializer.deserialize(parser, context));
+            }
+        }
+        if (token != JsonToken.END_OBJECT) {
+            throw context.mappingException(Localized.class, token);
         }
         return builder.build();
     }
@@ -17,32 +17,144 @@
 package com.btmatthews.atlas.core.domain.i18n;
 
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
 
 import java.io.IOException;
-import java.util.Locale;
 
 /**
+ * Serializes a {@link Localized} value as a JSON object that maps IETF BCP 47 language tags to the
+ * locale-specific values. The locale-specific values are written by the serializer for the value type if it is
+ * known and final. Otherwise, the serializer is looked up using the runtime class of each value.
+ *
  * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
  * @since 1.0.1
  */
-public class LocalizedSerializer extends JsonSerializer<Localized> {
+public class LocalizedSerializer extends JsonSerializer<Localized> implements ContextualSerializer {
+
+    /**
+     * The declared type of the locale-specific values or {@code null} if it is not known.
+     */
+    private final JavaType valueType;
+
+    /**
+     * The serializer for the locale-specific values or {@code null} if it is determined dynamically.
+     */
+    private final JsonSerializer<Object> valueSerializer;
+
+    /**
+     * The property being serialized or {@code null} for root values.
+     */
+    private final BeanProperty property;
+
+    /**
+     * Construct a serializer for which the value type will be determined from the property being serialized.
+     */
+    public LocalizedSerializer() {
+        this(null, null, null);
+    }
+
+    /**
+     * Construct a serializer for a known value type.
+     *
+     * @param valueType The declared type of the locale-specific values.
+     * @since 1.0.2
+     */
+    public LocalizedSerializer(final JavaType valueType) {
+        this(valueType, null, null);
+    }
+
+    /**
+     * Construct a contextual serializer.
+     *
+     * @param valueType       The declared type of the locale-specific values.
+     * @param valueSerializer The serializer for the locale-specific values.
+     * @param property        The property being serialized.
+     */
+    private LocalizedSerializer(final JavaType valueType,
+                                final JsonSerializer<Object> valueSerializer,
+                                final BeanProperty property) {
+        this.valueType = valueType;
+        this.valueSerializer = valueSerializer;
+        this.property = property;
+    }
+
+    /**
+     * Resolve the serializer for the locale-specific values if the value type is known and final.
+     *
+     * @param provider The serializer provider.
+     * @param property The property being serialized.
+     * @return The contextual serializer.
+     * @throws JsonMappingException If there was a problem resolving the value serializer.
+     */
+    @Override
+    public JsonSerializer<?> createContextual(final SerializerProvider provider,
+                                              final BeanProperty property)
+            throws JsonMappingException {
+        JavaType type = valueType;
+        if (type == null && property != null) {
+            final JavaType propertyType = property.getType();
+            if (propertyType.getRawClass() == Localized.class && propertyType.containedTypeCount() == 1) {
+                type = propertyType.containedType(0);
+            }
+        }
+        JsonSerializer<Object> serializer = valueSerializer;
+        if (serializer == null && type != null && type.isFinal()) {
+            serializer = provider.findValueSerializer(type, property);
+        }
+        return new LocalizedSerializer(type, serializer, property);
+    }
+
+    /**
+     * Get the class of values handled by this serializer.
+     *
+     * @return Always returns {@link Localized}.
+     */
+    @Override
+    public Class<Localized> handledType() {
+        return Localized.class;
+    }
+
+    /**
+     * Determine if a localized value is empty.
+     *
+     * @param value The localized value.
+     * @return {@code true} if there are no locale-specific values. Otherwise, {@code false}.
+     */
+    @Override
+    public boolean isEmpty(final Localized value) {
+        return value == null || value.size() == 0;
+    }
+
+    /**
+     * Write the localized value as a JSON object.
+     *
+     * @param value     The localized value.
+     * @param generator The JSON generator.
+     * @param provider  The serializer provider.
+     * @throws IOException If there was a problem writing the JSON object.
+     */
     @Override
     public void serialize(final Localized value,
                           final JsonGenerator generator,
                           final SerializerProvider provider) throws
             IOException {
         generator.writeStartObject();
-        value.getValues().forEach((itemKey, itemValue) -> {
-            try {
-                generator.writeStringField(
-                        ((Locale) itemKey).toLanguageTag(),
-                        (String) itemValue);
-            } catch (final IOException e) {
+        for (int i = 0; i < value.size(); ++i) {
+            generator.writeFieldName(value.getLanguageTagAt(i));
+            final Object item = value.getValueAt(i);
+            if (valueSerializer != null) {
+                valueSerializer.serialize(item, generator, provider);
+            } else if (item instanceof String) {
+                generator.writeString((String) item);
+            } else {
+                provider.findValueSerializer(item.getClass(), property).serialize(item, generator, provider);
             }
-        });
+        }
         generator.writeEndObject();
-
     }
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.domain.jsr310;
+
+import java.time.Duration;
+
+/**
+ * Serializes a {@link Duration} as an ISO-8601 duration string such as {@code PT8H6M12.345S} or as a number of
+ * milliseconds. Durations do not have a fixed-width format so they are always formatted by {@link Duration#toString()}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class DurationSerializer extends JSR310Serializer<Duration> {
+
+    /**
+     * Construct a serializer that writes values as ISO-8601 strings.
+     */
+    public DurationSerializer() {
+        this(false);
+    }
+
+    /**
+     * Construct a serializer.
+     *
+     * @param epochMillis If {@code true} values are written as numbers of milliseconds. Otherwise, they are
+     *                    written as ISO-8601 strings.
+     */
+    public DurationSerializer(final boolean epochMillis) {
+        super(Duration.class, epochMillis);
+    }
+
+    /**
+     * Convert the value to a number of milliseconds.
+     *
+     * @param value The value.
+     * @return The number of milliseconds.
+     */
+    @Override
+    protected long toEpochMillis(final Duration value) {
+        return value.toMillis();
+    }
+
+    /**
+     * Format the value in the fixed-width ISO-8601 format.
+     *
+     * @param value  The value.
+     * @param buffer The output buffer.
+     * @return The number of characters written or {@code -1} if the value cannot be represented in the
+     * fixed-width format.
+     */
+    @Override
+    protected int format(final Duration value, final char[] buffer) {
+        return -1;
+    }
+
+    /**
+     * Format a value that cannot be represented in the fixed-width ISO-8601 format.
+     *
+     * @param value The value.
+     * @return The formatted value.
+     */
+    @Override
+    protected String formatText(final Duration value) {
+        return value.toString();
+    }
+}
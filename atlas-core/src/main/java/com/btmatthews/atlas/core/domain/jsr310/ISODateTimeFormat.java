@@ -0,0 +1,385 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.domain.jsr310;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+
+/**
+ * Hand-written writers and parsers for the fixed-width ISO-8601 formats used by the {@link JSR310Module}. Dates
+ * are written as {@code yyyy-MM-dd} and times as {@code HH:mm:ss.SSS}, with the fraction of a second extended to
+ * six or nine digits when the value has microsecond or nanosecond precision so that no precision is lost. The
+ * writers only handle years in the range 0 to 9999 and the callers fall back to
+ * {@link java.time.format.DateTimeFormatter} for other years. The parsers return {@code null} if the text is not in
+ * the fixed-width format so that the callers can also fall back to {@link java.time.format.DateTimeFormatter}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+final class ISODateTimeFormat {
+
+    /**
+     * The largest year that can be written in the fixed-width format.
+     */
+    static final int MAX_YEAR = 9999;
+
+    /**
+     * The number of nanoseconds in a millisecond.
+     */
+    private static final int NANOS_PER_MILLI = 1000000;
+
+    /**
+     * The number of nanoseconds in a microsecond.
+     */
+    private static final int NANOS_PER_MICRO = 1000;
+
+    /**
+     * The number of seconds in a day.
+     */
+    static final int SECONDS_PER_DAY = 86400;
+
+    /**
+     * Used to scale a fraction of a second with fewer than nine digits to nanoseconds.
+     */
+    private static final int[] NANO_SCALE = {
+            1000000000, 100000000, 10000000, 1000000, 100000, 10000, 1000, 100, 10, 1
+    };
+
+    /**
+     * The constructor is private to prevent instantiation.
+     */
+    private ISODateTimeFormat() {
+    }
+
+    /**
+     * Determine if a year can be written in the fixed-width format.
+     *
+     * @param year The year.
+     * @return {@code true} if the year can be written in the fixed-width format. Otherwise, {@code false}.
+     */
+    static boolean isFixedWidthYear(final int year) {
+        return year >= 0 && year <= MAX_YEAR;
+    }
+
+    /**
+     * Write a date in {@code yyyy-MM-dd} format.
+     *
+     * @param buffer   The output buffer.
+     * @param position The position in the output buffer.
+     * @param year     The year.
+     * @param month    The month of the year.
+     * @param day      The day of the month.
+     * @return The position after the date.
+     */
+    static int writeDate(final char[] buffer, final int position, final int year, final int month, final int day) {
+        int p = writeDigits(buffer, position, year, 4);
+        buffer[p++] = '-';
+        p = writeDigits(buffer, p, month, 2);
+        buffer[p++] = '-';
+        return writeDigits(buffer, p, day, 2);
+    }
+
+    /**
+     * Write the date for a day relative to the epoch in {@code yyyy-MM-dd} format without constructing a
+     * {@link LocalDate}.
+     *
+     * @param buffer   The output buffer.
+     * @param position The position in the output buffer.
+     * @param epochDay The number of days since 1970-01-01.
+     * @return The position after the date or {@code -1} if the year cannot be written in the fixed-width format.
+     */
+    static int writeEpochDay(final char[] buffer, final int position, final long epochDay) {
+        final long z = epochDay + 719468;
+        final long era = Math.floorDiv(z, 146097);
+        final long dayOfEra = z - era * 146097;
+        final long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        final long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        final long monthIndex = (5 * dayOfYear + 2) / 153;
+        final int day = (int) (dayOfYear - (153 * monthIndex + 2) / 5 + 1);
+        final int month = (int) (monthIndex < 10 ? monthIndex + 3 : monthIndex - 9);
+        final long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 0 || year > MAX_YEAR) {
+            return -1;
+        }
+        return writeDate(buffer, position, (int) year, month, day);
+    }
+
+    /**
+     * Write a time in {@code HH:mm:ss.SSS}, {@code HH:mm:ss.SSSSSS} or {@code HH:mm:ss.SSSSSSSSS} format using the
+     * shortest fraction that represents the nanosecond of the second exactly.
+     *
+     * @param buffer   The output buffer.
+     * @param position The position in the output buffer.
+     * @param hour     The hour of the day.
+     * @param minute   The minute of the hour.
+     * @param second   The second of the minute.
+     * @param nanos    The nanosecond of the second.
+     * @return The position after the time.
+     */
+    static int writeTime(final char[] buffer,
+                         final int position,
+                         final int hour,
+                         final int minute,
+                         final int second,
+                         final int nanos) {
+        int p = writeDigits(buffer, position, hour, 2);
+        buffer[p++] = ':';
+        p = writeDigits(buffer, p, minute, 2);
+        buffer[p++] = ':';
+        p = writeDigits(buffer, p, second, 2);
+        buffer[p++] = '.';
+        if (nanos % NANOS_PER_MILLI == 0) {
+            return writeDigits(buffer, p, nanos / NANOS_PER_MILLI, 3);
+        } else if (nanos % NANOS_PER_MICRO == 0) {
+            return writeDigits(buffer, p, nanos / NANOS_PER_MICRO, 6);
+        }
+        return writeDigits(buffer, p, nanos, 9);
+    }
+
+    /**
+     * Write a date and time in {@code yyyy-MM-dd'T'HH:mm:ss.SSS} format, extending the fraction as described by
+     * {@link #writeTime(char[], int, int, int, int, int)}.
+     *
+     * @param buffer   The output buffer.
+     * @param position The position in the output buffer.
+     * @param year     The year.
+     * @param month    The month of the year.
+     * @param day      The day of the month.
+     * @param hour     The hour of the day.
+     * @param minute   The minute of the hour.
+     * @param second   The second of the minute.
+     * @param nanos    The nanosecond of the second.
+     * @return The position after the date and time.
+     */
+    static int writeDateTime(final char[] buffer,
+                             final int position,
+                             final int year,
+                             final int month,
+                             final int day,
+                             final int hour,
+                             final int minute,
+                             final int second,
+                             final int nanos) {
+        int p = writeDate(buffer, position, year, month, day);
+        buffer[p++] = 'T';
+        return writeTime(buffer, p, hour, minute, second, nanos);
+    }
+
+    /**
+     * Write a zone offset as {@code Z} or {@code +HH:mm}.
+     *
+     * @param buffer   The output buffer.
+     * @param position The position in the output buffer.
+     * @param offset   The zone offset.
+     * @return The position after the zone offset or {@code -1} if the offset includes seconds.
+     */
+    static int writeOffset(final char[] buffer, final int position, final ZoneOffset offset) {
+        final int totalSeconds = offset.getTotalSeconds();
+        if (totalSeconds == 0) {
+            buffer[position] = 'Z';
+            return position + 1;
+        }
+        if (totalSeconds % 60 != 0) {
+            return -1;
+        }
+        final int absoluteMinutes = Math.abs(totalSeconds / 60);
+        buffer[position] = totalSeconds < 0 ? '-' : '+';
+        int p = writeDigits(buffer, position + 1, absoluteMinutes / 60, 2);
+        buffer[p++] = ':';
+        return writeDigits(buffer, p, absoluteMinutes % 60, 2);
+    }
+
+    /**
+     * Write a non-negative number padded with leading zeros.
+     *
+     * @param buffer   The output buffer.
+     * @param position The position in the output buffer.
+     * @param value    The number.
+     * @param width    The number of digits.
+     * @return The position after the number.
+     */
+    private static int writeDigits(final char[] buffer, final int position, final int value, final int width) {
+        int remainder = value;
+        for (int i = position + width - 1; i >= position; --i) {
+            buffer[i] = (char) ('0' + remainder % 10);
+            remainder /= 10;
+        }
+        return position + width;
+    }
+
+    /**
+     * Parse a date in {@code yyyy-MM-dd} format.
+     *
+     * @param text   The input buffer.
+     * @param offset The position of the date in the input buffer.
+     * @param end    The end of the text in the input buffer.
+     * @return The date or {@code null} if the text is not in the expected format.
+     */
+    static LocalDate parseDate(final char[] text, final int offset, final int end) {
+        if (end - offset < 10 || text[offset + 4] != '-' || text[offset + 7] != '-') {
+            return null;
+        }
+        final int year = parseDigits(text, offset, 4);
+        final int month = parseDigits(text, offset + 5, 2);
+        final int day = parseDigits(text, offset + 8, 2);
+        if (year < 0 || month < 0 || day < 0) {
+            return null;
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    /**
+     * Calculate the length of a time in {@code HH:mm:ss} format with an optional fraction of up to nine digits.
+     *
+     * @param text   The input buffer.
+     * @param offset The position of the time in the input buffer.
+     * @param end    The end of the text in the input buffer.
+     * @return The length of the time or {@code -1} if the text is not in the expected format.
+     */
+    static int timeLength(final char[] text, final int offset, final int end) {
+        if (end - offset < 8 || text[offset + 2] != ':' || text[offset + 5] != ':') {
+            return -1;
+        }
+        int p = offset + 8;
+        if (p < end && text[p] == '.') {
+            int q = p + 1;
+            while (q < end && q - p <= 9 && isDigit(text[q])) {
+                ++q;
+            }
+            if (q == p + 1) {
+                return -1;
+            }
+            p = q;
+        }
+        return p - offset;
+    }
+
+    /**
+     * Parse a time in {@code HH:mm:ss} format with an optional fraction of up to nine digits.
+     *
+     * @param text   The input buffer.
+     * @param offset The position of the time in the input buffer.
+     * @param length The length of the time as calculated by {@link #timeLength(char[], int, int)}.
+     * @return The time or {@code null} if the text is not in the expected format.
+     */
+    static LocalTime parseTime(final char[] text, final int offset, final int length) {
+        final int hour = parseDigits(text, offset, 2);
+        final int minute = parseDigits(text, offset + 3, 2);
+        final int second = parseDigits(text, offset + 6, 2);
+        if (hour < 0 || minute < 0 || second < 0) {
+            return null;
+        }
+        int nanos = 0;
+        if (length > 8) {
+            final int digits = length - 9;
+            nanos = parseDigits(text, offset + 9, digits) * NANO_SCALE[digits];
+        }
+        return LocalTime.of(hour, minute, second, nanos);
+    }
+
+    /**
+     * Calculate the length of a date and time in {@code yyyy-MM-dd'T'HH:mm:ss} format with an optional fraction
+     * of up to nine digits.
+     *
+     * @param text   The input buffer.
+     * @param offset The position of the date and time in the input buffer.
+     * @param end    The end of the text in the input buffer.
+     * @return The length of the date and time or {@code -1} if the text is not in the expected format.
+     */
+    static int dateTimeLength(final char[] text, final int offset, final int end) {
+        if (end - offset < 11 || text[offset + 10] != 'T') {
+            return -1;
+        }
+        final int timeLength = timeLength(text, offset + 11, end);
+        return timeLength < 0 ? -1 : 11 + timeLength;
+    }
+
+    /**
+     * Parse a date and time in {@code yyyy-MM-dd'T'HH:mm:ss} format with an optional fraction of up to nine
+     * digits.
+     *
+     * @param text   The input buffer.
+     * @param offset The position of the date and time in the input buffer.
+     * @param length The length of the date and time as calculated by {@link #dateTimeLength(char[], int, int)}.
+     * @return The date and time or {@code null} if the text is not in the expected format.
+     */
+    static LocalDateTime parseDateTime(final char[] text, final int offset, final int length) {
+        final LocalDate date = parseDate(text, offset, offset + length);
+        if (date == null) {
+            return null;
+        }
+        final LocalTime time = parseTime(text, offset + 11, length - 11);
+        return time == null ? null : LocalDateTime.of(date, time);
+    }
+
+    /**
+     * Parse a zone offset in {@code Z} or {@code +HH:mm} format.
+     *
+     * @param text   The input buffer.
+     * @param offset The position of the zone offset in the input buffer.
+     * @param end    The end of the zone offset in the input buffer.
+     * @return The zone offset or {@code null} if the text is not in the expected format.
+     */
+    static ZoneOffset parseOffset(final char[] text, final int offset, final int end) {
+        final int length = end - offset;
+        if (length == 1 && (text[offset] == 'Z' || text[offset] == 'z')) {
+            return ZoneOffset.UTC;
+        }
+        if (length != 6 || text[offset + 3] != ':' || (text[offset] != '+' && text[offset] != '-')) {
+            return null;
+        }
+        final int hours = parseDigits(text, offset + 1, 2);
+        final int minutes = parseDigits(text, offset + 4, 2);
+        if (hours < 0 || minutes < 0) {
+            return null;
+        }
+        final int sign = text[offset] == '-' ? -1 : 1;
+        return ZoneOffset.ofHoursMinutes(sign * hours, sign * minutes);
+    }
+
+    /**
+     * Parse a fixed number of decimal digits.
+     *
+     * @param text   The input buffer.
+     * @param offset The position of the digits in the input buffer.
+     * @param width  The number of digits.
+     * @return The value or {@code -1} if any of the characters is not a decimal digit.
+     */
+    private static int parseDigits(final char[] text, final int offset, final int width) {
+        int value = 0;
+        for (int i = offset; i < offset + width; ++i) {
+            final char ch = text[i];
+            if (!isDigit(ch)) {
+                return -1;
+            }
+            value = value * 10 + (ch - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Determine if a character is an ASCII decimal digit.
+     *
+     * @param ch The character.
+     * @return {@code true} if the character is a decimal digit. Otherwise, {@code false}.
+     */
+    private static boolean isDigit(final char ch) {
+        return ch >= '0' && ch <= '9';
+    }
+}
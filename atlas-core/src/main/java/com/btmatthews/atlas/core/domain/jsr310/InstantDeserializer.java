@@ -0,0 +1,83 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.domain.jsr310;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Deserializes an {@link Instant} from an ISO-8601 string with a zone offset or from the number of milliseconds
+ * since the epoch.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class InstantDeserializer extends JSR310Deserializer<Instant> {
+
+    /**
+     * Construct a deserializer.
+     */
+    public InstantDeserializer() {
+        super(Instant.class);
+    }
+
+    /**
+     * Convert a number of milliseconds to a value.
+     *
+     * @param millis The number of milliseconds.
+     * @return The value.
+     */
+    @Override
+    protected Instant fromEpochMillis(final long millis) {
+        return Instant.ofEpochMilli(millis);
+    }
+
+    /**
+     * Parse text in the fixed-width ISO-8601 format.
+     *
+     * @param text   The input buffer.
+     * @param offset The start of the text in the input buffer.
+     * @param end    The end of the text in the input buffer.
+     * @return The value or {@code null} if the text is not in the fixed-width format.
+     */
+    @Override
+    protected Instant parse(final char[] text, final int offset, final int end) {
+        final int length = ISODateTimeFormat.dateTimeLength(text, offset, end);
+        if (length < 0) {
+            return null;
+        }
+        final ZoneOffset zoneOffset = ISODateTimeFormat.parseOffset(text, offset + length, end);
+        if (zoneOffset == null) {
+            return null;
+        }
+        final LocalDateTime dateTime = ISODateTimeFormat.parseDateTime(text, offset, length);
+        return dateTime == null ? null : dateTime.toInstant(zoneOffset);
+    }
+
+    /**
+     * Parse text that is not in the fixed-width ISO-8601 format.
+     *
+     * @param text The text.
+     * @return The value.
+     */
+    @Override
+    protected Instant parseText(final String text) {
+        return DateTimeFormatter.ISO_OFFSET_DATE_TIME.parse(text, Instant::from);
+    }
+}
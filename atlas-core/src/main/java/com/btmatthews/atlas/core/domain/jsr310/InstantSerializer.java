@@ -0,0 +1,92 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.domain.jsr310;
+
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Serializes an {@link Instant} as a {@code yyyy-MM-dd'T'HH:mm:ss.SSS'Z'} string or as the number of milliseconds
+ * since the epoch. The fraction of a second in the string has three, six or nine digits, whichever is the shortest
+ * that holds the value.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class InstantSerializer extends JSR310Serializer<Instant> {
+
+    /**
+     * Construct a serializer that writes values as ISO-8601 strings.
+     */
+    public InstantSerializer() {
+        this(false);
+    }
+
+    /**
+     * Construct a serializer.
+     *
+     * @param epochMillis If {@code true} values are written as numbers of milliseconds. Otherwise, they are
+     *                    written as ISO-8601 strings.
+     */
+    public InstantSerializer(final boolean epochMillis) {
+        super(Instant.class, epochMillis);
+    }
+
+    /**
+     * Convert the value to a number of milliseconds.
+     *
+     * @param value The value.
+     * @return The number of milliseconds.
+     */
+    @Override
+    protected long toEpochMillis(final Instant value) {
+        return value.toEpochMilli();
+    }
+
+    /**
+     * Format the value in the fixed-width ISO-8601 format.
+     *
+     * @param value  The value.
+     * @param buffer The output buffer.
+     * @return The number of characters written or {@code -1} if the value cannot be represented in the
+     * fixed-width format.
+     */
+    @Override
+    protected int format(final Instant value, final char[] buffer) {
+        final long seconds = value.getEpochSecond();
+        final int secondOfDay = (int) Math.floorMod(seconds, (long) ISODateTimeFormat.SECONDS_PER_DAY);
+        int p = ISODateTimeFormat.writeEpochDay(buffer, 0, Math.floorDiv(seconds, (long) ISODateTimeFormat.SECONDS_PER_DAY));
+        if (p < 0) {
+            return -1;
+        }
+        buffer[p++] = 'T';
+        p = ISODateTimeFormat.writeTime(buffer, p, secondOfDay / 3600, secondOfDay / 60 % 60, secondOfDay % 60, value.getNano());
+        buffer[p++] = 'Z';
+        return p;
+    }
+
+    /**
+     * Format a value that cannot be represented in the fixed-width ISO-8601 format.
+     *
+     * @param value The value.
+     * @return The formatted value.
+     */
+    @Override
+    protected String formatText(final Instant value) {
+        return DateTimeFormatter.ISO_INSTANT.format(value);
+    }
+}
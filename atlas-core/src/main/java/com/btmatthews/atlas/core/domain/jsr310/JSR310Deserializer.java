@@ -0,0 +1,120 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.domain.jsr310;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+
+import java.io.IOException;
+import java.time.DateTimeException;
+
+/**
+ * Base class for deserializers that read {@code java.time} values from either ISO-8601 strings or numbers of
+ * milliseconds. Strings are parsed directly from the text buffer of the current token using the fixed-width
+ * format and {@link #parseText(String)} is only used when the text is not in the fixed-width format.
+ *
+ * @param <T> The value type.
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public abstract class JSR310Deserializer<T> extends JsonDeserializer<T> {
+
+    /**
+     * The class of values handled by this deserializer.
+     */
+    private final Class<T> valueClass;
+
+    /**
+     * Initialise the deserializer.
+     *
+     * @param valueClass The class of values handled by this deserializer.
+     */
+    protected JSR310Deserializer(final Class<T> valueClass) {
+        this.valueClass = valueClass;
+    }
+
+    /**
+     * Get the class of values handled by this deserializer.
+     *
+     * @return The value class.
+     */
+    @Override
+    public final Class<T> handledType() {
+        return valueClass;
+    }
+
+    /**
+     * Read the value from the current token.
+     *
+     * @param parser  The JSON parser.
+     * @param context The deserialization context.
+     * @return The value.
+     * @throws IOException If the current token could not be converted to a value.
+     */
+    @Override
+    public final T deserialize(final JsonParser parser,
+                               final DeserializationContext context)
+            throws IOException {
+        final JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return fromEpochMillis(parser.getLongValue());
+        }
+        if (token != JsonToken.VALUE_STRING) {
+            throw context.mappingException(valueClass, token);
+        }
+        final char[] text = parser.getTextCharacters();
+        final int offset = parser.getTextOffset();
+        final int length = parser.getTextLength();
+        try {
+            final T value = parse(text, offset, offset + length);
+            if (value != null) {
+                return value;
+            }
+            return parseText(new String(text, offset, length));
+        } catch (final DateTimeException e) {
+            throw context.weirdStringException(new String(text, offset, length), valueClass, e.getMessage());
+        }
+    }
+
+    /**
+     * Convert a number of milliseconds to a value.
+     *
+     * @param millis The number of milliseconds.
+     * @return The value.
+     */
+    protected abstract T fromEpochMillis(long millis);
+
+    /**
+     * Parse text in the fixed-width ISO-8601 format.
+     *
+     * @param text   The input buffer.
+     * @param offset The start of the text in the input buffer.
+     * @param end    The end of the text in the input buffer.
+     * @return The value or {@code null} if the text is not in the fixed-width format.
+     */
+    protected abstract T parse(char[] text, int offset, int end);
+
+    /**
+     * Parse text that is not in the fixed-width ISO-8601 format.
+     *
+     * @param text The text.
+     * @return The value.
+     */
+    protected abstract T parseText(String text);
+}
@@ -3,13 +3,35 @@ package com.btmatthews.atlas.core.domain.jsr310;
 import com.fasterxml.jackson.core.Version;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
 
 public class JSR310Module extends SimpleModule {
 
     public JSR310Module() {
+        this(false);
+    }
+
+    public JSR310Module(final boolean epochMillis) {
         super("JSR310Module", new Version(1, 0, 0, null));
+        addDeserializer(Instant.class, new InstantDeserializer());
+        addSerializer(Instant.class, new InstantSerializer(epochMillis));
+        addDeserializer(LocalDate.class, new LocalDateDeserializer());
+        addSerializer(LocalDate.class, new LocalDateSerializer(epochMillis));
+        addDeserializer(LocalTime.class, new LocalTimeDeserializer());
+        addSerializer(LocalTime.class, new LocalTimeSerializer(epochMillis));
         addDeserializer(LocalDateTime.class, new LocalDateTimeDeserializer());
-        addSerializer(LocalDateTime.class, new LocalDateTimeSerializer());
+        addSerializer(LocalDateTime.class, new LocalDateTimeSerializer(epochMillis));
+        addDeserializer(OffsetDateTime.class, new OffsetDateTimeDeserializer());
+        addSerializer(OffsetDateTime.class, new OffsetDateTimeSerializer(epochMillis));
+        addDeserializer(ZonedDateTime.class, new ZonedDateTimeDeserializer());
+        addSerializer(ZonedDateTime.class, new ZonedDateTimeSerializer(epochMillis));
+        addDeserializer(Duration.class, new DurationDeserializer());
+        addSerializer(Duration.class, new DurationSerializer(epochMillis));
     }
 }
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.domain.jsr310;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+
+/**
+ * Base class for serializers that write {@code java.time} values either as ISO-8601 strings or as
+ * numbers of milliseconds. Strings are formatted into a per-thread buffer and written directly to the
+ * {@link JsonGenerator}. Values that cannot be represented in the fixed-width format are formatted by
+ * {@link #formatText(Object)} instead. Strings keep the full precision of the value; only the numbers of
+ * milliseconds are truncated.
+ *
+ * @param <T> The value type.
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public abstract class JSR310Serializer<T> extends JsonSerializer<T> {
+
+    /**
+     * The size of the per-thread buffer. This is large enough for any of the fixed-width formats including a
+     * zone identifier.
+     */
+    private static final int BUFFER_SIZE = 128;
+
+    /**
+     * The per-thread buffer used to format values.
+     */
+    private static final ThreadLocal<char[]> BUFFER = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[BUFFER_SIZE];
+        }
+    };
+
+    /**
+     * The class of values handled by this serializer.
+     */
+    private final Class<T> valueClass;
+
+    /**
+     * If {@code true} values are written as numbers of milliseconds. Otherwise, they are written as strings.
+     */
+    private final boolean epochMillis;
+
+    /**
+     * Initialise the serializer.
+     *
+     * @param valueClass  The class of values handled by this serializer.
+     * @param epochMillis If {@code true} values are written as numbers of milliseconds.
+     */
+    protected JSR310Serializer(final Class<T> valueClass, final boolean epochMillis) {
+        this.valueClass = valueClass;
+        this.epochMillis = epochMillis;
+    }
+
+    /**
+     * Get the class of values handled by this serializer.
+     *
+     * @return The value class.
+     */
+    @Override
+    public final Class<T> handledType() {
+        return valueClass;
+    }
+
+    /**
+     * Write the value as a string or a number of milliseconds.
+     *
+     * @param value     The value.
+     * @param generator The JSON generator.
+     * @param provider  The serializer provider.
+     * @throws IOException If there was a problem writing the value.
+     */
+    @Override
+    public final void serialize(final T value,
+                                final JsonGenerator generator,
+                                final SerializerProvider provider) throws
+            IOException {
+        if (epochMillis) {
+            generator.writeNumber(toEpochMillis(value));
+        } else {
+            final char[] buffer = BUFFER.get();
+            final int length = format(value, buffer);
+            if (length < 0) {
+                generator.writeString(formatText(value));
+            } else {
+                generator.writeString(buffer, 0, length);
+            }
+        }
+    }
+
+    /**
+     * Convert the value to a number of milliseconds.
+     *
+     * @param value The value.
+     * @return The number of milliseconds.
+     */
+    protected abstract long toEpochMillis(T value);
+
+    /**
+     * Format the value in the fixed-width ISO-8601 format.
+     *
+     * @param value  The value.
+     * @param buffer The output buffer.
+     * @return The number of characters written or {@code -1} if the value cannot be represented in the
+     * fixed-width format.
+     */
+    protected abstract int format(T value, char[] buffer);
+
+    /**
+     * Format a value that cannot be represented in the fixed-width ISO-8601 format.
+     *
+     * @param value The value.
+     * @return The formatted value.
+     */
+    protected abstract String formatText(T value);
+}
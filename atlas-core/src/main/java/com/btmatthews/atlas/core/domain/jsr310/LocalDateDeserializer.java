@@ -0,0 +1,74 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.domain.jsr310;
+
+import java.time.LocalDate;
+
+/**
+ * Deserializes a {@link LocalDate} from an ISO-8601 string or from the number of milliseconds since the epoch in
+ * UTC.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class LocalDateDeserializer extends JSR310Deserializer<LocalDate> {
+
+    /**
+     * Construct a deserializer.
+     */
+    public LocalDateDeserializer() {
+        super(LocalDate.class);
+    }
+
+    /**
+     * Convert a number of milliseconds to a value.
+     *
+     * @param millis The number of milliseconds.
+     * @return The value.
+     */
+    @Override
+    protected LocalDate fromEpochMillis(final long millis) {
+        return LocalDate.ofEpochDay(Math.floorDiv(millis, ISODateTimeFormat.SECONDS_PER_DAY * 1000L));
+    }
+
+    /**
+     * Parse text in the fixed-width ISO-8601 format.
+     *
+     * @param text   The input buffer.
+     * @param offset The start of the text in the input buffer.
+     * @param end    The end of the text in the input buffer.
+     * @return The value or {@code null} if the text is not in the fixed-width format.
+     */
+    @Override
+    protected LocalDate parse(final char[] text, final int offset, final int end) {
+        if (end - offset != 10) {
+            return null;
+        }
+        return ISODateTimeFormat.parseDate(text, offset, end);
+    }
+
+    /**
+     * Parse text that is not in the fixed-width ISO-8601 format.
+     *
+     * @param text The text.
+     * @return The value.
+     */
+    @Override
+    protected LocalDate parseText(final String text) {
+        return LocalDate.parse(text);
+    }
+}
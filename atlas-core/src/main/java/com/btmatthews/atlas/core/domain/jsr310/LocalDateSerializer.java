@@ -0,0 +1,85 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.domain.jsr310;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Serializes a {@link LocalDate} as a {@code yyyy-MM-dd} string or as the number of milliseconds since the epoch
+ * at midnight UTC.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class LocalDateSerializer extends JSR310Serializer<LocalDate> {
+
+    /**
+     * Construct a serializer that writes values as ISO-8601 strings.
+     */
+    public LocalDateSerializer() {
+        this(false);
+    }
+
+    /**
+     * Construct a serializer.
+     *
+     * @param epochMillis If {@code true} values are written as numbers of milliseconds. Otherwise, they are
+     *                    written as ISO-8601 strings.
+     */
+    public LocalDateSerializer(final boolean epochMillis) {
+        super(LocalDate.class, epochMillis);
+    }
+
+    /**
+     * Convert the value to a number of milliseconds.
+     *
+     * @param value The value.
+     * @return The number of milliseconds.
+     */
+    @Override
+    protected long toEpochMillis(final LocalDate value) {
+        return value.toEpochDay() * ISODateTimeFormat.SECONDS_PER_DAY * 1000L;
+    }
+
+    /**
+     * Format the value in the fixed-width ISO-8601 format.
+     *
+     * @param value  The value.
+     * @param buffer The output buffer.
+     * @return The number of characters written or {@code -1} if the value cannot be represented in the
+     * fixed-width format.
+     */
+    @Override
+    protected int format(final LocalDate value, final char[] buffer) {
+        if (!ISODateTimeFormat.isFixedWidthYear(value.getYear())) {
+            return -1;
+        }
+        return ISODateTimeFormat.writeDate(buffer, 0, value.getYear(), value.getMonthValue(), value.getDayOfMonth());
+    }
+
+    /**
+     * Format a value that cannot be represented in the fixed-width ISO-8601 format.
+     *
+     * @param value The value.
+     * @return The formatted value.
+     */
+    @Override
+    protected String formatText(final LocalDate value) {
+        return value.format(DateTimeFormatter.ISO_LOCAL_DATE);
+    }
+}
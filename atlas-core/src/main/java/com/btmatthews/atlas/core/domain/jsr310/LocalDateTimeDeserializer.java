@@ -16,30 +16,64 @@
 
 package com.btmatthews.atlas.core.domain.jsr310;
 
-import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.ObjectCodec;
-import com.fasterxml.jackson.databind.DeserializationContext;
-import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-
-import java.io.IOException;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.ZoneOffset;
 
 /**
+ * Deserializes a {@link LocalDateTime} from an ISO-8601 string or from the number of milliseconds since the epoch
+ * in UTC.
+ *
  * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
- * @since 1.0.2
+ * @since 1.0.1
  */
-public class LocalDateTimeDeserializer extends JsonDeserializer<LocalDateTime> {
+public class LocalDateTimeDeserializer extends JSR310Deserializer<LocalDateTime> {
 
-    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
+    /**
+     * Construct a deserializer.
+     */
+    public LocalDateTimeDeserializer() {
+        super(LocalDateTime.class);
+    }
+
+    /**
+     * Convert a number of milliseconds to a value.
+     *
+     * @param millis The number of milliseconds.
+     * @return The value.
+     */
+    @Override
+    protected LocalDateTime fromEpochMillis(final long millis) {
+        return LocalDateTime.ofEpochSecond(
+                Math.floorDiv(millis, 1000L),
+                (int) Math.floorMod(millis, 1000L) * 1000000,
+                ZoneOffset.UTC);
+    }
+
+    /**
+     * Parse text in the fixed-width ISO-8601 format.
+     *
+     * @param text   The input buffer.
+     * @param offset The start of the text in the input buffer.
+     * @param end    The end of the text in the input buffer.
+     * @return The value or {@code null} if the text is not in the fixed-width format.
+     */
+    @Override
+    protected LocalDateTime parse(final char[] text, final int offset, final int end) {
+        final int length = ISODateTimeFormat.dateTimeLength(text, offset, end);
+        if (length != end - offset) {
+            return null;
+        }
+        return ISODateTimeFormat.parseDateTime(text, offset, length);
+    }
 
+    /**
+     * Parse text that is not in the fixed-width ISO-8601 format.
+     *
+     * @param text The text.
+     * @return The value.
+     */
     @Override
-    public LocalDateTime deserialize(final JsonParser parser,
-                                     final DeserializationContext context)
-            throws IOException {
-        final ObjectCodec codec = parser.getCodec();
-        final JsonNode node = codec.readTree(parser);
-        return LocalDateTime.parse(node.asText(), DATE_TIME_FORMATTER);
+    protected LocalDateTime parseText(final String text) {
+        return LocalDateTime.parse(text);
     }
 }
@@ -16,27 +16,83 @@
 
 package com.btmatthews.atlas.core.domain.jsr310;
 
-import com.fasterxml.jackson.core.JsonGenerator;
-import com.fasterxml.jackson.databind.JsonSerializer;
-import com.fasterxml.jackson.databind.SerializerProvider;
-
-import java.io.IOException;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
 
 /**
+ * Serializes a {@link LocalDateTime} as a {@code yyyy-MM-dd'T'HH:mm:ss.SSS} string or as the number of milliseconds
+ * since the epoch in UTC. Values with microseconds or nanoseconds are written with six or nine fraction digits.
+ *
  * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
- * @since 1.0.2
+ * @since 1.0.1
  */
-public class LocalDateTimeSerializer extends JsonSerializer<LocalDateTime> {
+public class LocalDateTimeSerializer extends JSR310Serializer<LocalDateTime> {
+
+    /**
+     * Used to format dates with years that cannot be represented in the fixed-width format.
+     */
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = new DateTimeFormatterBuilder()
+            .appendPattern("uuuu-MM-dd'T'HH:mm:ss")
+            .appendFraction(ChronoField.NANO_OF_SECOND, 3, 9, true)
+            .toFormatter();
+
+    /**
+     * Construct a serializer that writes values as ISO-8601 strings.
+     */
+    public LocalDateTimeSerializer() {
+        this(false);
+    }
+
+    /**
+     * Construct a serializer.
+     *
+     * @param epochMillis If {@code true} values are written as numbers of milliseconds. Otherwise, they are
+     *                    written as ISO-8601 strings.
+     */
+    public LocalDateTimeSerializer(final boolean epochMillis) {
+        super(LocalDateTime.class, epochMillis);
+    }
+
+    /**
+     * Convert the value to a number of milliseconds.
+     *
+     * @param value The value.
+     * @return The number of milliseconds.
+     */
+    @Override
+    protected long toEpochMillis(final LocalDateTime value) {
+        return value.toEpochSecond(ZoneOffset.UTC) * 1000L + value.getNano() / 1000000;
+    }
 
-    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
+    /**
+     * Format the value in the fixed-width ISO-8601 format.
+     *
+     * @param value  The value.
+     * @param buffer The output buffer.
+     * @return The number of characters written or {@code -1} if the value cannot be represented in the
+     * fixed-width format.
+     */
+    @Override
+    protected int format(final LocalDateTime value, final char[] buffer) {
+        if (!ISODateTimeFormat.isFixedWidthYear(value.getYear())) {
+            return -1;
+        }
+        return ISODateTimeFormat.writeDateTime(buffer, 0,
+                value.getYear(), value.getMonthValue(), value.getDayOfMonth(),
+                value.getHour(), value.getMinute(), value.getSecond(), value.getNano());
+    }
 
+    /**
+     * Format a value that cannot be represented in the fixed-width ISO-8601 format.
+     *
+     * @param value The value.
+     * @return The formatted value.
+     */
     @Override
-    public void serialize(final LocalDateTime value,
-                          final JsonGenerator generator,
-                          final SerializerProvider provider) throws
-            IOException {
-        generator.writeString(value.format(DATE_TIME_FORMATTER));
+    protected String formatText(final LocalDateTime value) {
+        return value.format(DATE_TIME_FORMATTER);
     }
 }
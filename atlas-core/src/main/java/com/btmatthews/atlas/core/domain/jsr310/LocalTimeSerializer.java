@@ -0,0 +1,82 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.domain.jsr310;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Serializes a {@link LocalTime} as a {@code HH:mm:ss.SSS} string or as the number of milliseconds since midnight.
+ * The fraction of a second is extended to six or nine digits when the value is more precise than a millisecond.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class LocalTimeSerializer extends JSR310Serializer<LocalTime> {
+
+    /**
+     * Construct a serializer that writes values as ISO-8601 strings.
+     */
+    public LocalTimeSerializer() {
+        this(false);
+    }
+
+    /**
+     * Construct a serializer.
+     *
+     * @param epochMillis If {@code true} values are written as numbers of milliseconds. Otherwise, they are
+     *                    written as ISO-8601 strings.
+     */
+    public LocalTimeSerializer(final boolean epochMillis) {
+        super(LocalTime.class, epochMillis);
+    }
+
+    /**
+     * Convert the value to a number of milliseconds.
+     *
+     * @param value The value.
+     * @return The number of milliseconds.
+     */
+    @Override
+    protected long toEpochMillis(final LocalTime value) {
+        return value.toNanoOfDay() / 1000000L;
+    }
+
+    /**
+     * Format the value in the fixed-width ISO-8601 format.
+     *
+     * @param value  The value.
+     * @param buffer The output buffer.
+     * @return The number of characters written or {@code -1} if the value cannot be represented in the
+     * fixed-width format.
+     */
+    @Override
+    protected int format(final LocalTime value, final char[] buffer) {
+        return ISODateTimeFormat.writeTime(buffer, 0, value.getHour(), value.getMinute(), value.getSecond(), value.getNano());
+    }
+
+    /**
+     * Format a value that cannot be represented in the fixed-width ISO-8601 format.
+     *
+     * @param value The value.
+     * @return The formatted value.
+     */
+    @Override
+    protected String formatText(final LocalTime value) {
+        return value.format(DateTimeFormatter.ISO_LOCAL_TIME);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.domain.jsr310;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Deserializes an {@link OffsetDateTime} from an ISO-8601 string or from the number of milliseconds since the epoch
+ * in which case the offset is UTC.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class OffsetDateTimeDeserializer extends JSR310Deserializer<OffsetDateTime> {
+
+    /**
+     * Construct a deserializer.
+     */
+    public OffsetDateTimeDeserializer() {
+        super(OffsetDateTime.class);
+    }
+
+    /**
+     * Convert a number of milliseconds to a value.
+     *
+     * @param millis The number of milliseconds.
+     * @return The value.
+     */
+    @Override
+    protected OffsetDateTime fromEpochMillis(final long millis) {
+        return OffsetDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+
+    /**
+     * Parse text in the fixed-width ISO-8601 format.
+     *
+     * @param text   The input buffer.
+     * @param offset The start of the text in the input buffer.
+     * @param end    The end of the text in the input buffer.
+     * @return The value or {@code null} if the text is not in the fixed-width format.
+     */
+    @Override
+    protected OffsetDateTime parse(final char[] text, final int offset, final int end) {
+        final int length = ISODateTimeFormat.dateTimeLength(text, offset, end);
+        if (length < 0) {
+            return null;
+        }
+        final ZoneOffset zoneOffset = ISODateTimeFormat.parseOffset(text, offset + length, end);
+        if (zoneOffset == null) {
+            return null;
+        }
+        final LocalDateTime dateTime = ISODateTimeFormat.parseDateTime(text, offset, length);
+        return dateTime == null ? null : OffsetDateTime.of(dateTime, zoneOffset);
+    }
+
+    /**
+     * Parse text that is not in the fixed-width ISO-8601 format.
+     *
+     * @param text The text.
+     * @return The value.
+     */
+    @Override
+    protected OffsetDateTime parseText(final String text) {
+        return OffsetDateTime.parse(text);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.domain.jsr310;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+/**
+ * Deserializes a {@link ZonedDateTime} from an ISO-8601 string or from the number of milliseconds since the epoch
+ * in which case the zone is UTC.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class ZonedDateTimeDeserializer extends JSR310Deserializer<ZonedDateTime> {
+
+    /**
+     * Construct a deserializer.
+     */
+    public ZonedDateTimeDeserializer() {
+        super(ZonedDateTime.class);
+    }
+
+    /**
+     * Convert a number of milliseconds to a value.
+     *
+     * @param millis The number of milliseconds.
+     * @return The value.
+     */
+    @Override
+    protected ZonedDateTime fromEpochMillis(final long millis) {
+        return ZonedDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+
+    /**
+     * Parse text in the fixed-width ISO-8601 format.
+     *
+     * @param text   The input buffer.
+     * @param offset The start of the text in the input buffer.
+     * @param end    The end of the text in the input buffer.
+     * @return The value or {@code null} if the text is not in the fixed-width format.
+     */
+    @Override
+    protected ZonedDateTime parse(final char[] text, final int offset, final int end) {
+        final int length = ISODateTimeFormat.dateTimeLength(text, offset, end);
+        if (length < 0) {
+            return null;
+        }
+        int offsetEnd = offset + length;
+        while (offsetEnd < end && text[offsetEnd] != '[') {
+            ++offsetEnd;
+        }
+        final ZoneOffset zoneOffset = ISODateTimeFormat.parseOffset(text, offset + length, offsetEnd);
+        if (zoneOffset == null) {
+            return null;
+        }
+        final LocalDateTime dateTime = ISODateTimeFormat.parseDateTime(text, offset, length);
+        if (dateTime == null) {
+            return null;
+        }
+        if (offsetEnd == end) {
+            return ZonedDateTime.of(dateTime, zoneOffset);
+        }
+        if (text[end - 1] != ']') {
+            return null;
+        }
+        final ZoneId zone = ZoneId.of(new String(text, offsetEnd + 1, end - offsetEnd - 2));
+        return ZonedDateTime.ofLocal(dateTime, zone, zoneOffset);
+    }
+
+    /**
+     * Parse text that is not in the fixed-width ISO-8601 format.
+     *
+     * @param text The text.
+     * @return The value.
+     */
+    @Override
+    protected ZonedDateTime parseText(final String text) {
+        return ZonedDateTime.parse(text);
+    }
+}
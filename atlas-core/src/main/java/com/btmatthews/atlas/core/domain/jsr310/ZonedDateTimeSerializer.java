@@ -0,0 +1,104 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.domain.jsr310;
+
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Serializes a {@link ZonedDateTime} as a {@code yyyy-MM-dd'T'HH:mm:ss.SSSXXX'['VV']'} string or as the number of
+ * milliseconds since the epoch. The zone identifier is omitted if the zone is a fixed offset, and the fraction of a
+ * second has six or nine digits if the value has microsecond or nanosecond precision.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class ZonedDateTimeSerializer extends JSR310Serializer<ZonedDateTime> {
+
+    /**
+     * Construct a serializer that writes values as ISO-8601 strings.
+     */
+    public ZonedDateTimeSerializer() {
+        this(false);
+    }
+
+    /**
+     * Construct a serializer.
+     *
+     * @param epochMillis If {@code true} values are written as numbers of milliseconds. Otherwise, they are
+     *                    written as ISO-8601 strings.
+     */
+    public ZonedDateTimeSerializer(final boolean epochMillis) {
+        super(ZonedDateTime.class, epochMillis);
+    }
+
+    /**
+     * Convert the value to a number of milliseconds.
+     *
+     * @param value The value.
+     * @return The number of milliseconds.
+     */
+    @Override
+    protected long toEpochMillis(final ZonedDateTime value) {
+        return value.toEpochSecond() * 1000L + value.getNano() / 1000000;
+    }
+
+    /**
+     * Format the value in the fixed-width ISO-8601 format.
+     *
+     * @param value  The value.
+     * @param buffer The output buffer.
+     * @return The number of characters written or {@code -1} if the value cannot be represented in the
+     * fixed-width format.
+     */
+    @Override
+    protected int format(final ZonedDateTime value, final char[] buffer) {
+        if (!ISODateTimeFormat.isFixedWidthYear(value.getYear())) {
+            return -1;
+        }
+        int p = ISODateTimeFormat.writeDateTime(buffer, 0,
+                value.getYear(), value.getMonthValue(), value.getDayOfMonth(),
+                value.getHour(), value.getMinute(), value.getSecond(), value.getNano());
+        p = ISODateTimeFormat.writeOffset(buffer, p, value.getOffset());
+        final ZoneId zone = value.getZone();
+        if (p < 0 || zone instanceof ZoneOffset) {
+            return p;
+        }
+        final String id = zone.getId();
+        if (p + id.length() + 2 > buffer.length) {
+            return -1;
+        }
+        buffer[p++] = '[';
+        id.getChars(0, id.length(), buffer, p);
+        p += id.length();
+        buffer[p++] = ']';
+        return p;
+    }
+
+    /**
+     * Format a value that cannot be represented in the fixed-width ISO-8601 format.
+     *
+     * @param value The value.
+     * @return The formatted value.
+     */
+    @Override
+    protected String formatText(final ZonedDateTime value) {
+        return value.format(DateTimeFormatter.ISO_ZONED_DATE_TIME);
+    }
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.id;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Generates 64-bit identifiers that are unique across a cluster by reserving blocks of identifiers from a shared
+ * counter and handing them out locally. Identifiers are taken from the current block with a single atomic
+ * increment. When three quarters of the current block has been used the next block is reserved in the background
+ * so that it is usually ready before the current block runs out.
+ * <p>
+ * The block size adapts to the rate at which identifiers are used. When the next block is reserved, the time the
+ * current block will last is projected from how long it took to reach three quarters. If that is less than half of
+ * the target interval the block size is doubled and if it is more than twice the target interval the block size is
+ * halved, within the configured limits. Identifiers in a block that has not been used up when the application
+ * stops are lost, so smaller limits waste fewer identifiers.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public final class HiLoIdentifierGenerator implements LongIdentifierGenerator {
+
+    /**
+     * Used to log the blocks that could not be reserved in the background.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(HiLoIdentifierGenerator.class);
+
+    /**
+     * A block with no identifiers that forces the first block to be reserved when the first identifier is needed.
+     */
+    private static final Block EMPTY = new Block(0L, 0);
+
+    /**
+     * Reserves the blocks of identifiers.
+     */
+    private final IdentifierBlockAllocator allocator;
+
+    /**
+     * Used to reserve the next block in the background.
+     */
+    private final Executor executor;
+
+    /**
+     * The smallest block size.
+     */
+    private final int minBlockSize;
+
+    /**
+     * The largest block size.
+     */
+    private final int maxBlockSize;
+
+    /**
+     * How long a block should last in nanoseconds.
+     */
+    private final long targetInterval;
+
+    /**
+     * Held while switching to the next block.
+     */
+    private final Object lock = new Object();
+
+    /**
+     * The next block if it is being reserved in the background.
+     */
+    private final AtomicReference<CompletableFuture<Block>> prefetch = new AtomicReference<>();
+
+    /**
+     * The block from which identifiers are being handed out.
+     */
+    private volatile Block current = EMPTY;
+
+    /**
+     * The size of the next block that will be reserved.
+     */
+    private volatile int blockSize;
+
+    /**
+     * Initialise the generator with a fixed block size. The next block is reserved using the common fork/join
+     * pool.
+     *
+     * @param allocator Reserves the blocks of identifiers.
+     * @param blockSize The number of identifiers in each block.
+     */
+    public HiLoIdentifierGenerator(final IdentifierBlockAllocator allocator,
+                                   final int blockSize) {
+        this(allocator, ForkJoinPool.commonPool(), blockSize, blockSize, 1L, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Initialise the generator with an adaptive block size. The first block is the smallest size.
+     *
+     * @param allocator      Reserves the blocks of identifiers.
+     * @param executor       Used to reserve the next block in the background.
+     * @param minBlockSize   The smallest block size.
+     * @param maxBlockSize   The largest block size.
+     * @param targetInterval How long a block should last.
+     * @param unit           The unit of {@code targetInterval}.
+     */
+    public HiLoIdentifierGenerator(final IdentifierBlockAllocator allocator,
+                                   final Executor executor,
+                                   final int minBlockSize,
+                                   final int maxBlockSize,
+                                   final long targetInterval,
+                                   final TimeUnit unit) {
+        if (allocator == null) {
+            throw new IllegalArgumentException("allocator must not be null");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("executor must not be null");
+        }
+        if (minBlockSize < 1 || maxBlockSize < minBlockSize) {
+            throw new IllegalArgumentException("minBlockSize must be positive and no larger than maxBlockSize");
+        }
+        if (targetInterval <= 0 || unit == null) {
+            throw new IllegalArgumentException("targetInterval must be positive");
+        }
+        this.allocator = allocator;
+        this.executor = executor;
+        this.minBlockSize = minBlockSize;
+        this.maxBlockSize = maxBlockSize;
+        this.targetInterval = unit.toNanos(targetInterval);
+        this.blockSize = minBlockSize;
+    }
+
+    /**
+     * Get the size of the next block that will be reserved.
+     *
+     * @return The block size.
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Generate an object identifier without boxing.
+     *
+     * @return The object identifier.
+     */
+    @Override
+    public long generateLong() {
+        for (;;) {
+            final Block block = current;
+            final long id = block.cursor.getAndIncrement();
+            if (id < block.end) {
+                if (id == block.lowWaterMark) {
+                    startPrefetch(block);
+                }
+                return id;
+            }
+            nextBlock(block);
+        }
+    }
+
+    /**
+     * Generate a batch of object identifiers. The identifiers are taken from the current block with a single
+     * atomic operation unless the block runs out.
+     *
+     * @param count The number of object identifiers to generate.
+     * @return The object identifiers in ascending order.
+     */
+    @Override
+    public long[] generate(final int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("count must be positive");
+        }
+        final long[] ids = new long[count];
+        int filled = 0;
+        while (filled < count) {
+            final Block block = current;
+            final int wanted = count - filled;
+            final long first = block.cursor.getAndAdd(wanted);
+            final long available = Math.min(block.end - first, wanted);
+            for (long i = 0; i < available; ++i) {
+                ids[filled++] = first + i;
+            }
+            if (available > 0 && first <= block.lowWaterMark && block.lowWaterMark < first + available) {
+                startPrefetch(block);
+            }
+            if (filled < count) {
+                nextBlock(block);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Adapt the block size to the projected lifetime of the current block and start reserving the next block in
+     * the background unless that has already been started. The future is published while holding {@link #lock} but
+     * submitted after releasing it, so a thread in {@link #nextBlock(Block)} that is waiting for the future never
+     * blocks the thread that submits it. If the executor rejects the task the future is completed exceptionally so
+     * that a thread that has already taken it reserves the block itself.
+     *
+     * @param block The block whose low water mark has been reached.
+     */
+    private void startPrefetch(final Block block) {
+        final CompletableFuture<Block> future = new CompletableFuture<>();
+        final int size;
+        synchronized (lock) {
+            if (current != block || prefetch.get() != null) {
+                return;
+            }
+            adaptBlockSize(block, System.nanoTime());
+            size = blockSize;
+            prefetch.set(future);
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(reserve(size));
+                } catch (final Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            LOGGER.warn("Could not start reserving the next block of identifiers", e);
+            prefetch.compareAndSet(future, null);
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Switch to the next block unless another thread has already done so. The block that was reserved in the
+     * background is used if it is available, otherwise a block is reserved immediately.
+     *
+     * @param exhausted The block that has been used up.
+     */
+    private void nextBlock(final Block exhausted) {
+        synchronized (lock) {
+            if (current != exhausted) {
+                return;
+            }
+            final long now = System.nanoTime();
+            adaptBlockSize(exhausted, now);
+            Block next = null;
+            final CompletableFuture<Block> future = prefetch.getAndSet(null);
+            if (future != null) {
+                try {
+                    next = future.join();
+                } catch (final CompletionException e) {
+                    LOGGER.warn("Could not reserve the next block of identifiers in the background", e.getCause());
+                    next = null;
+                }
+            }
+            if (next == null) {
+                next = reserve(blockSize);
+            }
+            next.activated = now;
+            current = next;
+        }
+    }
+
+    /**
+     * Grow or shrink the block size depending on how long a block lasted or, if it has not been used up, how long it
+     * is projected to last from the number of identifiers that have been handed out. The block size is adapted at
+     * most once for each block. The caller must hold {@link #lock}.
+     *
+     * @param block The block.
+     * @param now   The current value of {@link System#nanoTime()}.
+     */
+    private void adaptBlockSize(final Block block,
+                                final long now) {
+        if (block == EMPTY || block.adapted) {
+            return;
+        }
+        block.adapted = true;
+        final long used = Math.min(block.cursor.get(), block.end) - block.start;
+        long elapsed = now - block.activated;
+        if (used > 0 && used < block.size) {
+            elapsed = (long) ((double) elapsed * block.size / used);
+        }
+        if (elapsed < targetInterval / 2) {
+            blockSize = (int) Math.min(2L * blockSize, maxBlockSize);
+        } else if (elapsed > targetInterval * 2) {
+            blockSize = Math.max(blockSize / 2, minBlockSize);
+        }
+    }
+
+    /**
+     * Reserve a block of identifiers from the shared counter.
+     *
+     * @param size The number of identifiers to reserve.
+     * @return The block.
+     */
+    private Block reserve(final int size) {
+        return new Block(allocator.allocate(size), size);
+    }
+
+    /**
+     * A block of identifiers that have been reserved.
+     */
+    private static final class Block {
+
+        /**
+         * The first identifier in the block.
+         */
+        private final long start;
+
+        /**
+         * The number of identifiers in the block.
+         */
+        private final int size;
+
+        /**
+         * The next identifier to hand out.
+         */
+        private final AtomicLong cursor;
+
+        /**
+         * The first identifier after the end of the block.
+         */
+        private final long end;
+
+        /**
+         * Handing out this identifier starts reserving the next block.
+         */
+        private final long lowWaterMark;
+
+        /**
+         * When the block started being used. This is published by the write to {@link #current}.
+         */
+        private long activated;
+
+        /**
+         * Set once the block size has been adapted to how long this block lasted. Guarded by the generator's lock.
+         */
+        private boolean adapted;
+
+        /**
+         * Initialise the block.
+         *
+         * @param start The first identifier in the block.
+         * @param size  The number of identifiers in the block.
+         */
+        Block(final long start, final int size) {
+            this.start = start;
+            this.size = size;
+            cursor = new AtomicLong(start);
+            end = start + size;
+            lowWaterMark = end - Math.max(1, size / 4);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.id;
+
+/**
+ * This interface describes components that reserve blocks of identifiers from a counter that is shared by all the
+ * nodes in a cluster. Implementations must advance the counter atomically so that no two callers are given
+ * overlapping blocks.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public interface IdentifierBlockAllocator {
+
+    /**
+     * Reserve a block of identifiers.
+     *
+     * @param size The number of identifiers to reserve.
+     * @return The first identifier in the block. The block contains {@code size} consecutive identifiers starting
+     * with this one.
+     */
+    long allocate(int size);
+}
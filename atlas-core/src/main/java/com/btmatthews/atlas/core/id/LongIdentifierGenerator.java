@@ -0,0 +1,52 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.id;
+
+/**
+ * This interface describes components that generate unique identifiers that are 64-bit integers. The
+ * identifiers can be generated without boxing and can be allocated in batches.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public interface LongIdentifierGenerator extends IdentifierGenerator<Long> {
+
+    /**
+     * Generate an object identifier.
+     *
+     * @return The object identifier.
+     */
+    @Override
+    default Long generate() {
+        return generateLong();
+    }
+
+    /**
+     * Generate an object identifier without boxing.
+     *
+     * @return The object identifier.
+     */
+    long generateLong();
+
+    /**
+     * Generate a batch of object identifiers.
+     *
+     * @param count The number of object identifiers to generate.
+     * @return The object identifiers in the order they were allocated.
+     */
+    long[] generate(int count);
+}
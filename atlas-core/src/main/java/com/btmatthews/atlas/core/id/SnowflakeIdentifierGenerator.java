@@ -0,0 +1,240 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.id;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generates time ordered 64-bit identifiers. Each identifier is made up of a 41-bit timestamp measured in
+ * milliseconds since a custom epoch, a worker identifier and a sequence number. The worker identifier and sequence
+ * number share 22 bits and the number of bits used for the worker identifier is configurable.
+ * <p>
+ * The last allocated timestamp and sequence number are held in a single {@link AtomicLong} and updated by
+ * compare-and-set so the generator never blocks. When the sequence number is exhausted the generator borrows
+ * from the next millisecond and when the clock moves backwards it continues from the last timestamp it used. The
+ * generator will only run up to one second ahead of the clock. If that limit is reached because of a burst of
+ * requests the generator waits for the clock to catch up. If the clock moves back by more than one second an
+ * {@link IllegalStateException} is thrown.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public final class SnowflakeIdentifierGenerator implements LongIdentifierGenerator {
+
+    /**
+     * The default epoch is 2014-01-01T00:00:00Z.
+     */
+    public static final long DEFAULT_EPOCH = 1388534400000L;
+
+    /**
+     * By default 10 bits are used for the worker identifier leaving 12 bits for the sequence number.
+     */
+    public static final int DEFAULT_WORKER_BITS = 10;
+
+    /**
+     * The number of bits used for the timestamp.
+     */
+    private static final int TIMESTAMP_BITS = 41;
+
+    /**
+     * The number of bits shared by the worker identifier and the sequence number.
+     */
+    private static final int WORKER_AND_SEQUENCE_BITS = Long.SIZE - 1 - TIMESTAMP_BITS;
+
+    /**
+     * The largest timestamp that can be represented.
+     */
+    private static final long MAX_TIMESTAMP = (1L << TIMESTAMP_BITS) - 1;
+
+    /**
+     * The maximum number of milliseconds the generator can run ahead of the clock.
+     */
+    private static final long MAX_DRIFT = 1000L;
+
+    /**
+     * How long to wait for the clock to catch up.
+     */
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /**
+     * The worker identifier shifted into position.
+     */
+    private final long worker;
+
+    /**
+     * The number of bits used for the sequence number.
+     */
+    private final int sequenceBits;
+
+    /**
+     * Used to extract the sequence number.
+     */
+    private final long sequenceMask;
+
+    /**
+     * The largest batch of identifiers that can be generated at once.
+     */
+    private final long maxBatchSize;
+
+    /**
+     * The epoch from which the timestamps are measured in milliseconds since 1970-01-01T00:00:00Z.
+     */
+    private final long epoch;
+
+    /**
+     * The source of the current time.
+     */
+    private final Clock clock;
+
+    /**
+     * The timestamp and sequence number of the last identifier that was allocated.
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * Initialise the generator using the default number of worker bits.
+     *
+     * @param workerId The worker identifier.
+     */
+    public SnowflakeIdentifierGenerator(final long workerId) {
+        this(workerId, DEFAULT_WORKER_BITS);
+    }
+
+    /**
+     * Initialise the generator.
+     *
+     * @param workerId   The worker identifier.
+     * @param workerBits The number of bits used for the worker identifier.
+     */
+    public SnowflakeIdentifierGenerator(final long workerId, final int workerBits) {
+        this(workerId, workerBits, DEFAULT_EPOCH, Clock.systemUTC());
+    }
+
+    /**
+     * Initialise the generator.
+     *
+     * @param workerId   The worker identifier.
+     * @param workerBits The number of bits used for the worker identifier. Must be between 0 and 21.
+     * @param epoch      The epoch from which the timestamps are measured in milliseconds since
+     *                   1970-01-01T00:00:00Z.
+     * @param clock      The source of the current time.
+     */
+    public SnowflakeIdentifierGenerator(final long workerId,
+                                        final int workerBits,
+                                        final long epoch,
+                                        final Clock clock) {
+        if (workerBits < 0 || workerBits >= WORKER_AND_SEQUENCE_BITS) {
+            throw new IllegalArgumentException("workerBits must be between 0 and " + (WORKER_AND_SEQUENCE_BITS - 1));
+        }
+        if (workerId < 0 || workerId >= 1L << workerBits) {
+            throw new IllegalArgumentException("workerId must be between 0 and " + ((1L << workerBits) - 1));
+        }
+        if (clock == null) {
+            throw new IllegalArgumentException("clock must not be null");
+        }
+        this.sequenceBits = WORKER_AND_SEQUENCE_BITS - workerBits;
+        this.sequenceMask = (1L << sequenceBits) - 1;
+        this.maxBatchSize = Math.min(Integer.MAX_VALUE, (MAX_DRIFT + 1) << sequenceBits);
+        this.worker = workerId << sequenceBits;
+        this.epoch = epoch;
+        this.clock = clock;
+    }
+
+    /**
+     * Get the time at which an identifier was generated.
+     *
+     * @param id The identifier.
+     * @return The time in milliseconds since 1970-01-01T00:00:00Z.
+     */
+    public long getTimestamp(final long id) {
+        return (id >>> WORKER_AND_SEQUENCE_BITS) + epoch;
+    }
+
+    /**
+     * Generate an object identifier without boxing.
+     *
+     * @return The object identifier.
+     */
+    @Override
+    public long generateLong() {
+        return compose(reserve(1));
+    }
+
+    /**
+     * Generate a batch of object identifiers. The identifiers are consecutive in timestamp and sequence number
+     * order so only a single compare-and-set is required for the whole batch.
+     *
+     * @param count The number of object identifiers to generate.
+     * @return The object identifiers in ascending order.
+     */
+    @Override
+    public long[] generate(final int count) {
+        if (count < 1 || count > maxBatchSize) {
+            throw new IllegalArgumentException("count must be between 1 and " + maxBatchSize);
+        }
+        final long first = reserve(count);
+        final long[] ids = new long[count];
+        for (int i = 0; i < count; ++i) {
+            ids[i] = compose(first + i);
+        }
+        return ids;
+    }
+
+    /**
+     * Reserve a range of timestamps and sequence numbers.
+     *
+     * @param count The number of identifiers to reserve.
+     * @return The timestamp and sequence number of the first identifier in the range.
+     */
+    private long reserve(final int count) {
+        for (;;) {
+            final long current = state.get();
+            final long now = clock.millis() - epoch;
+            if (now < 0) {
+                throw new IllegalStateException("The clock is earlier than the epoch");
+            }
+            final long last = current >>> sequenceBits;
+            if (last - now > MAX_DRIFT) {
+                throw new IllegalStateException("The clock moved backwards by " + (last - now) + " milliseconds");
+            }
+            final long first = now > last ? now << sequenceBits : current + 1;
+            final long end = first + count - 1;
+            final long endTimestamp = end >>> sequenceBits;
+            if (endTimestamp > MAX_TIMESTAMP) {
+                throw new IllegalStateException("The timestamp cannot be represented in " + TIMESTAMP_BITS + " bits");
+            }
+            if (endTimestamp - now > MAX_DRIFT) {
+                LockSupport.parkNanos(PARK_NANOS);
+            } else if (state.compareAndSet(current, end)) {
+                return first;
+            }
+        }
+    }
+
+    /**
+     * Insert the worker identifier between the timestamp and sequence number.
+     *
+     * @param value The timestamp and sequence number.
+     * @return The identifier.
+     */
+    private long compose(final long value) {
+        return (value >>> sequenceBits) << WORKER_AND_SEQUENCE_BITS | worker | value & sequenceMask;
+    }
+}
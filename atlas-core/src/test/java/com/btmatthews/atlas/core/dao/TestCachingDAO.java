@@ -0,0 +1,158 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.dao;
+
+import com.btmatthews.atlas.core.common.Ordering;
+import com.btmatthews.atlas.core.common.Paging;
+import com.btmatthews.atlas.core.common.SortDirection;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+
+/**
+ * Unit test the {@link CachingDAO} object.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class TestCachingDAO {
+
+    private static final Paging FIRST_PAGE = new Paging(0, 2, new Ordering("name", SortDirection.ASCENDING));
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+    private CountingDAO target;
+    private CachingDAO<String, String> dao;
+
+    @Before
+    public void setUp() {
+        target = new CountingDAO();
+        target.create("1", "alpha");
+        target.create("2", "beta");
+        target.create("3", "gamma");
+        dao = new CachingDAO<>(target, 100);
+    }
+
+    @Test
+    public void repeatedFindsAreCached() {
+        final List<String> first = dao.find(FIRST_PAGE);
+        final List<String> second = dao.find(new Paging(0, 2, new Ordering("name", SortDirection.ASCENDING)));
+        collector.checkThat(first, is(equalTo(Arrays.asList("alpha", "beta"))));
+        collector.checkThat(second, is(sameInstance(first)));
+        collector.checkThat(target.finds, is(equalTo(1)));
+        collector.checkThat(dao.getStats().hitCount(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void differentPagesAreCachedSeparately() {
+        dao.find(FIRST_PAGE);
+        collector.checkThat(dao.find(new Paging(1, 2)), is(equalTo(Arrays.asList("gamma"))));
+        collector.checkThat(target.finds, is(equalTo(2)));
+    }
+
+    @Test
+    public void createInvalidatesPages() {
+        dao.find(FIRST_PAGE);
+        dao.create("0", "aardvark");
+        collector.checkThat(dao.find(FIRST_PAGE), is(equalTo(Arrays.asList("aardvark", "alpha"))));
+        collector.checkThat(target.finds, is(equalTo(2)));
+    }
+
+    @Test
+    public void updateInvalidatesPages() {
+        dao.find(FIRST_PAGE);
+        dao.update("1", "delta");
+        collector.checkThat(dao.find(FIRST_PAGE), is(equalTo(Arrays.asList("delta", "beta"))));
+        collector.checkThat(target.finds, is(equalTo(2)));
+    }
+
+    @Test
+    public void destroyInvalidatesPages() {
+        dao.find(FIRST_PAGE);
+        dao.destroy("1");
+        collector.checkThat(dao.find(FIRST_PAGE), is(equalTo(Arrays.asList("beta", "gamma"))));
+        collector.checkThat(target.finds, is(equalTo(2)));
+    }
+
+    @Test
+    public void stalePagesExpire() throws Exception {
+        dao = new CachingDAO<>(target, 100, 10, TimeUnit.MILLISECONDS);
+        dao.find(FIRST_PAGE);
+        Thread.sleep(50);
+        dao.find(FIRST_PAGE);
+        collector.checkThat(target.finds, is(equalTo(2)));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void cachedPagesCannotBeModified() {
+        dao.find(FIRST_PAGE).clear();
+    }
+
+    /**
+     * An in-memory data access object that counts the number of times {@link #find(Paging)} is called.
+     */
+    private static final class CountingDAO implements DAO<String, String> {
+
+        private final TreeMap<String, String> entities = new TreeMap<>();
+        private int finds;
+
+        @Override
+        public long count() {
+            return entities.size();
+        }
+
+        @Override
+        public List<String> find(final Paging paging) {
+            ++finds;
+            final List<String> all = new ArrayList<>(entities.values());
+            final int from = Math.min(paging.getPageNumber() * paging.getPageSize(), all.size());
+            final int to = Math.min(from + paging.getPageSize(), all.size());
+            return new ArrayList<>(all.subList(from, to));
+        }
+
+        @Override
+        public void create(final String id, final String entity) {
+            entities.put(id, entity);
+        }
+
+        @Override
+        public Optional<String> read(final String id) {
+            return Optional.ofNullable(entities.get(id));
+        }
+
+        @Override
+        public void update(final String id, final String entity) {
+            entities.put(id, entity);
+        }
+
+        @Override
+        public void destroy(final String id) {
+            entities.remove(id);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.btmatthews.atlas.core.domain.i18n;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class ObjectWithLabels {
+
+    private Localized<String> title;
+
+    private Localized<Integer> rank;
+
+    @JsonCreator
+    public ObjectWithLabels(@JsonProperty("title") final Localized<String> title,
+                            @JsonProperty("rank") final Localized<Integer> rank) {
+        this.title = title;
+        this.rank = rank;
+    }
+
+    public Localized<String> getTitle() {
+        return title;
+    }
+
+    public Localized<Integer> getRank() {
+        return rank;
+    }
+}
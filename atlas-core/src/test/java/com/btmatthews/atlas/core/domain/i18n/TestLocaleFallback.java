@@ -0,0 +1,111 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.domain.i18n;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit test the locale fallback resolution of {@link Localized} objects.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class TestLocaleFallback {
+
+    private static final String COLOUR_DEFAULT = "color";
+    private static final String COLOUR_ENGLISH = "colour";
+    private static final String COLOUR_GERMAN = "Farbe";
+    private static final String COLOUR_AUSTRIAN = "Farbe (AT)";
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+    private Localized<String> localized;
+
+    @Before
+    public void setup() {
+        localized = new LocalizedBuilder<String>()
+                .setValue(Locale.ROOT, COLOUR_DEFAULT)
+                .setValue(Locale.ENGLISH, COLOUR_ENGLISH)
+                .setValue(Locale.GERMAN, COLOUR_GERMAN)
+                .setValue(new Locale("de", "AT"), COLOUR_AUSTRIAN)
+                .build();
+    }
+
+    @Test
+    public void fallbackChainEndsWithRoot() {
+        final List<Locale> chain = LocaleFallback.getFallbackChain(Locale.UK);
+        collector.checkThat(chain, is(equalTo(Arrays.asList(Locale.UK, Locale.ENGLISH, Locale.ROOT))));
+        collector.checkThat(LocaleFallback.getFallbackChain(Locale.UK), is(sameInstance(chain)));
+    }
+
+    @Test
+    public void languageTagsAreCached() {
+        final Locale locale = LocaleFallback.forLanguageTag("en-GB");
+        collector.checkThat(locale, is(equalTo(Locale.UK)));
+        collector.checkThat(LocaleFallback.forLanguageTag("en-GB"), is(sameInstance(locale)));
+    }
+
+    @Test
+    public void priorityListExcludesWildcardsAndZeroWeights() {
+        final List<Locale> locales = LocaleFallback.getPriorityList("fr;q=0, de-AT;q=0.5, en-GB, *;q=0.1");
+        collector.checkThat(locales, is(equalTo(Arrays.asList(Locale.UK, new Locale("de", "AT")))));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void sharedFallbackChainsCannotBeModified() {
+        final List<Locale> chain = LocaleFallback.getFallbackChain(Locale.UK);
+        chain.set(0, Locale.FRANCE);
+    }
+
+    @Test
+    public void resolveFallsBackToLanguage() {
+        collector.checkThat(localized.getValue(Locale.UK), is(nullValue()));
+        collector.checkThat(localized.resolveValue(Locale.UK), is(equalTo(COLOUR_ENGLISH)));
+        collector.checkThat(localized.resolveValue(new Locale("de", "AT")), is(equalTo(COLOUR_AUSTRIAN)));
+        collector.checkThat(localized.resolveValue(new Locale("de", "CH")), is(equalTo(COLOUR_GERMAN)));
+    }
+
+    @Test
+    public void resolveFallsBackToRoot() {
+        collector.checkThat(localized.resolveValue(Locale.FRANCE), is(equalTo(COLOUR_DEFAULT)));
+        collector.checkThat(new Localized<>(Locale.ENGLISH, COLOUR_ENGLISH).resolveValue(Locale.FRANCE), is(nullValue()));
+    }
+
+    @Test
+    public void resolvePriorityList() {
+        collector.checkThat(localized.resolveValue(Arrays.asList(Locale.FRANCE, Locale.UK)), is(equalTo(COLOUR_ENGLISH)));
+        collector.checkThat(localized.resolveValue(Arrays.asList(new Locale("de", "CH"), Locale.UK)), is(equalTo(COLOUR_GERMAN)));
+        collector.checkThat(localized.resolveValue(Collections.singletonList(Locale.FRANCE)), is(equalTo(COLOUR_DEFAULT)));
+        collector.checkThat(localized.resolveValue(Collections.<Locale>emptyList()), is(equalTo(COLOUR_DEFAULT)));
+    }
+
+    @Test
+    public void resolveAcceptLanguage() {
+        collector.checkThat(localized.resolveValue("fr-FR, en-GB;q=0.8, de;q=0.5"), is(equalTo(COLOUR_ENGLISH)));
+        collector.checkThat(localized.resolveValue("de-CH, en;q=0.5"), is(equalTo(COLOUR_GERMAN)));
+        collector.checkThat(localized.resolveValue("fr"), is(equalTo(COLOUR_DEFAULT)));
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.domain.i18n;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit test the {@link LocaleShape} object.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class TestLocaleShape {
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+
+    @Test
+    public void emptyShapeIsShared() {
+        collector.checkThat(LocaleShape.of(Collections.<Locale>emptySet()), is(sameInstance(LocaleShape.EMPTY)));
+        collector.checkThat(LocaleShape.EMPTY.size(), is(equalTo(0)));
+        collector.checkThat(LocaleShape.EMPTY.indexOf(Locale.ENGLISH), is(equalTo(-1)));
+    }
+
+    @Test
+    public void smallShapesAreInterned() {
+        final LocaleShape first = LocaleShape.of(Arrays.asList(Locale.GERMAN, Locale.ENGLISH));
+        final LocaleShape second = LocaleShape.of(Arrays.asList(Locale.ENGLISH, Locale.GERMAN));
+        collector.checkThat(second, is(sameInstance(first)));
+        collector.checkThat(first.getLocale(0), is(equalTo(Locale.GERMAN)));
+        collector.checkThat(first.getLocale(1), is(equalTo(Locale.ENGLISH)));
+        collector.checkThat(first.indexOf(Locale.ENGLISH), is(equalTo(1)));
+        collector.checkThat(first.indexOf(Locale.FRENCH), is(equalTo(-1)));
+    }
+
+    @Test
+    public void largeShapesUseAnIndex() {
+        final Set<Locale> locales = new LinkedHashSet<>();
+        for (final String language : Locale.getISOLanguages()) {
+            locales.add(new Locale(language));
+        }
+        final LocaleShape shape = LocaleShape.of(locales);
+        collector.checkThat(shape.size(), is(equalTo(locales.size())));
+        for (int i = 0; i < shape.size(); ++i) {
+            collector.checkThat(shape.indexOf(shape.getLocale(i)), is(equalTo(i)));
+        }
+        collector.checkThat(shape.indexOf(Locale.UK), is(equalTo(-1)));
+        collector.checkThat(LocaleShape.of(locales), is(equalTo(shape)));
+    }
+
+    @Test
+    public void localizedValuesShareShapes() {
+        final Localized<String> first = new LocalizedBuilder<String>()
+                .setValue(Locale.ENGLISH, "Hello")
+                .setValue(Locale.UK, "Hello")
+                .build();
+        final Localized<String> second = new LocalizedBuilder<String>(first)
+                .setValue(Locale.UK, "Hiya")
+                .build();
+        collector.checkThat(first.getValueAt(0), is(sameInstance(first.getValueAt(1))));
+        collector.checkThat(second.getLocaleAt(0), is(sameInstance(first.getLocaleAt(0))));
+        collector.checkThat(second.getValue(Locale.UK), is(equalTo("Hiya")));
+        collector.checkThat(second.size(), is(equalTo(2)));
+    }
+}
@@ -0,0 +1,75 @@
+package com.btmatthews.atlas.core.domain.i18n;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class TestLocalizedSerialization {
+    private static final String TEST_JSON = "{\"title\":{\"de\":\"Hallo\",\"en\":\"Hello\"},\"rank\":{\"de\":2,\"en-GB\":1}}";
+
+    private ObjectMapper objectMapper;
+
+    @Before
+    public void setup() {
+        objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new I18NModule());
+    }
+
+    @Test
+    public void testDeserializer() throws IOException {
+        final ObjectWithLabels obj = objectMapper.readValue(TEST_JSON, ObjectWithLabels.class);
+        assertEquals("Hello", obj.getTitle().getValue(Locale.ENGLISH));
+        assertEquals("Hallo", obj.getTitle().getValue(Locale.GERMAN));
+        assertEquals(Integer.valueOf(1), obj.getRank().getValue(Locale.UK));
+        assertEquals(Integer.valueOf(2), obj.getRank().getValue(Locale.GERMAN));
+        assertSame(obj.getRank().getLocaleAt(1), LocaleFallback.forLanguageTag("en-GB"));
+    }
+
+    @Test
+    public void testSerializer() throws IOException {
+        final ObjectWithLabels obj = new ObjectWithLabels(
+                new LocalizedBuilder<String>()
+                        .setValue(Locale.ENGLISH, "Hello")
+                        .setValue(Locale.GERMAN, "Hallo")
+                        .build(),
+                new LocalizedBuilder<Integer>()
+                        .setValue(Locale.UK, 1)
+                        .setValue(Locale.GERMAN, 2)
+                        .build());
+        assertEquals(TEST_JSON, objectMapper.writeValueAsString(obj));
+    }
+
+    @Test
+    public void testNestedTypes() throws IOException {
+        final List<Localized<Integer>> list = objectMapper.readValue(
+                "[{\"en\":1,\"fr\":null},{\"de\":2}]",
+                new TypeReference<List<Localized<Integer>>>() {
+                });
+        assertEquals(2, list.size());
+        assertEquals(Integer.valueOf(1), list.get(0).getValue(Locale.ENGLISH));
+        assertEquals(1, list.get(0).size());
+        assertEquals(Integer.valueOf(2), list.get(1).getValue(Locale.GERMAN));
+        assertEquals("[{\"en\":1},{\"de\":2}]", objectMapper.writeValueAsString(list));
+    }
+
+    @Test
+    public void testUntypedRootValue() throws IOException {
+        final Localized<?> localized = objectMapper.readValue("{\"en\":\"Hello\"}", Localized.class);
+        assertEquals("Hello", localized.getValue(Locale.ENGLISH));
+        assertEquals("{\"en\":\"Hello\"}", objectMapper.writeValueAsString(localized));
+    }
+
+    @Test(expected = JsonMappingException.class)
+    public void testInvalidValue() throws IOException {
+        objectMapper.readValue("{\"title\":[\"Hello\"]}", ObjectWithLabels.class);
+    }
+}
@@ -0,0 +1,138 @@
+package com.btmatthews.atlas.core.domain.jsr310;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestJSR310Module {
+
+    private ObjectMapper objectMapper;
+
+    private ObjectMapper epochMapper;
+
+    @Before
+    public void setup() {
+        objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JSR310Module());
+        epochMapper = new ObjectMapper();
+        epochMapper.registerModule(new JSR310Module(true));
+    }
+
+    @Test
+    public void testInstant() throws IOException {
+        final Instant instant = Instant.parse("2014-09-30T12:34:56.789Z");
+        assertEquals("\"2014-09-30T12:34:56.789Z\"", objectMapper.writeValueAsString(instant));
+        assertEquals(instant, objectMapper.readValue("\"2014-09-30T12:34:56.789Z\"", Instant.class));
+        assertEquals(instant, objectMapper.readValue("\"2014-09-30T13:34:56.789+01:00\"", Instant.class));
+        assertEquals("1412080496789", epochMapper.writeValueAsString(instant));
+        assertEquals(instant, objectMapper.readValue("1412080496789", Instant.class));
+        assertEquals("\"1969-12-31T23:59:59.999Z\"", objectMapper.writeValueAsString(Instant.ofEpochMilli(-1)));
+    }
+
+    @Test
+    public void testLocalDate() throws IOException {
+        final LocalDate date = LocalDate.of(2014, 9, 30);
+        assertEquals("\"2014-09-30\"", objectMapper.writeValueAsString(date));
+        assertEquals(date, objectMapper.readValue("\"2014-09-30\"", LocalDate.class));
+        assertEquals("1412035200000", epochMapper.writeValueAsString(date));
+        assertEquals(date, objectMapper.readValue("1412035200000", LocalDate.class));
+    }
+
+    @Test
+    public void testLocalTime() throws IOException {
+        final LocalTime time = LocalTime.of(12, 34, 56, 789000000);
+        assertEquals("\"12:34:56.789\"", objectMapper.writeValueAsString(time));
+        assertEquals(time, objectMapper.readValue("\"12:34:56.789\"", LocalTime.class));
+        assertEquals(LocalTime.of(12, 34, 56, 780000000), objectMapper.readValue("\"12:34:56.78\"", LocalTime.class));
+        assertEquals(LocalTime.of(12, 34), objectMapper.readValue("\"12:34\"", LocalTime.class));
+        assertEquals("45296789", epochMapper.writeValueAsString(time));
+        assertEquals(time, objectMapper.readValue("45296789", LocalTime.class));
+    }
+
+    @Test
+    public void testLocalDateTime() throws IOException {
+        final LocalDateTime dateTime = LocalDateTime.of(2014, 9, 30, 12, 34, 56, 789000000);
+        assertEquals("\"2014-09-30T12:34:56.789\"", objectMapper.writeValueAsString(dateTime));
+        assertEquals(dateTime, objectMapper.readValue("\"2014-09-30T12:34:56.789\"", LocalDateTime.class));
+        assertEquals(LocalDateTime.of(2014, 9, 30, 12, 34, 56), objectMapper.readValue("\"2014-09-30T12:34:56\"", LocalDateTime.class));
+        assertEquals(LocalDateTime.of(2014, 9, 30, 12, 34, 56, 123456789), objectMapper.readValue("\"2014-09-30T12:34:56.123456789\"", LocalDateTime.class));
+        assertEquals("1412080496789", epochMapper.writeValueAsString(dateTime));
+        assertEquals(dateTime, objectMapper.readValue("1412080496789", LocalDateTime.class));
+    }
+
+    @Test
+    public void testLocalDateTimeOutsideFixedWidthYears() throws IOException {
+        final LocalDateTime dateTime = LocalDateTime.of(10000, 1, 1, 0, 0, 0);
+        assertEquals("\"+10000-01-01T00:00:00.000\"", objectMapper.writeValueAsString(dateTime));
+        assertEquals(dateTime, objectMapper.readValue("\"+10000-01-01T00:00:00.000\"", LocalDateTime.class));
+    }
+
+    @Test
+    public void testSubMillisecondPrecision() throws IOException {
+        final Instant micros = Instant.parse("2014-09-30T12:34:56.789012Z");
+        assertEquals("\"2014-09-30T12:34:56.789012Z\"", objectMapper.writeValueAsString(micros));
+        assertEquals(micros, objectMapper.readValue(objectMapper.writeValueAsString(micros), Instant.class));
+        final LocalTime nanos = LocalTime.of(12, 34, 56, 789012345);
+        assertEquals("\"12:34:56.789012345\"", objectMapper.writeValueAsString(nanos));
+        assertEquals(nanos, objectMapper.readValue(objectMapper.writeValueAsString(nanos), LocalTime.class));
+        final OffsetDateTime offset = OffsetDateTime.of(2014, 9, 30, 12, 34, 56, 1000, ZoneOffset.UTC);
+        assertEquals("\"2014-09-30T12:34:56.000001Z\"", objectMapper.writeValueAsString(offset));
+        final ZonedDateTime zoned = ZonedDateTime.of(2014, 9, 30, 12, 34, 56, 1, ZoneId.of("Europe/Dublin"));
+        assertEquals("\"2014-09-30T12:34:56.000000001+01:00[Europe/Dublin]\"", objectMapper.writeValueAsString(zoned));
+        final LocalDateTime farFuture = LocalDateTime.of(10000, 1, 1, 0, 0, 0, 789012000);
+        assertEquals(farFuture, objectMapper.readValue(objectMapper.writeValueAsString(farFuture), LocalDateTime.class));
+    }
+
+    @Test
+    public void testOffsetDateTime() throws IOException {
+        final OffsetDateTime dateTime = OffsetDateTime.of(2014, 9, 30, 12, 34, 56, 789000000, ZoneOffset.ofHoursMinutes(-5, -30));
+        assertEquals("\"2014-09-30T12:34:56.789-05:30\"", objectMapper.writeValueAsString(dateTime));
+        assertEquals(dateTime, objectMapper.readValue("\"2014-09-30T12:34:56.789-05:30\"", OffsetDateTime.class));
+        assertEquals("1412100296789", epochMapper.writeValueAsString(dateTime));
+        assertEquals(dateTime.toInstant(), objectMapper.readValue("1412100296789", OffsetDateTime.class).toInstant());
+    }
+
+    @Test
+    public void testZonedDateTime() throws IOException {
+        final ZonedDateTime dateTime = ZonedDateTime.of(2014, 9, 30, 12, 34, 56, 789000000, ZoneId.of("Europe/Dublin"));
+        assertEquals("\"2014-09-30T12:34:56.789+01:00[Europe/Dublin]\"", objectMapper.writeValueAsString(dateTime));
+        assertEquals(dateTime, objectMapper.readValue("\"2014-09-30T12:34:56.789+01:00[Europe/Dublin]\"", ZonedDateTime.class));
+        final ZonedDateTime utc = ZonedDateTime.of(2014, 9, 30, 12, 34, 56, 789000000, ZoneOffset.UTC);
+        assertEquals("\"2014-09-30T12:34:56.789Z\"", objectMapper.writeValueAsString(utc));
+        assertEquals(utc, objectMapper.readValue("\"2014-09-30T12:34:56.789Z\"", ZonedDateTime.class));
+        assertEquals(utc, objectMapper.readValue("1412080496789", ZonedDateTime.class));
+    }
+
+    @Test
+    public void testDuration() throws IOException {
+        final Duration duration = Duration.ofMillis(29172345);
+        assertEquals("\"PT8H6M12.345S\"", objectMapper.writeValueAsString(duration));
+        assertEquals(duration, objectMapper.readValue("\"PT8H6M12.345S\"", Duration.class));
+        assertEquals("29172345", epochMapper.writeValueAsString(duration));
+        assertEquals(duration, objectMapper.readValue("29172345", Duration.class));
+    }
+
+    @Test(expected = JsonMappingException.class)
+    public void testInvalidDate() throws IOException {
+        objectMapper.readValue("\"2014-02-30\"", LocalDate.class);
+    }
+
+    @Test(expected = JsonMappingException.class)
+    public void testInvalidToken() throws IOException {
+        objectMapper.readValue("true", LocalDate.class);
+    }
+}
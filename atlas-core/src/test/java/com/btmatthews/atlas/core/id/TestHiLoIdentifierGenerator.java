@@ -0,0 +1,212 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.id;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+
+/**
+ * Unit test the {@link HiLoIdentifierGenerator} object.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class TestHiLoIdentifierGenerator {
+
+    private static final Executor DIRECT = Runnable::run;
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+    private final CountingAllocator allocator = new CountingAllocator();
+
+    @Test
+    public void identifiersAreHandedOutFromBlocks() {
+        final HiLoIdentifierGenerator generator = new HiLoIdentifierGenerator(allocator, DIRECT, 8, 8, 1, TimeUnit.HOURS);
+        collector.checkThat(allocator.calls.get(), is(equalTo(0)));
+        for (long i = 1; i <= 20; ++i) {
+            collector.checkThat(generator.generateLong(), is(equalTo(i)));
+        }
+        collector.checkThat(generator.generate(), is(equalTo(21L)));
+    }
+
+    @Test
+    public void nextBlockIsPrefetched() {
+        final HiLoIdentifierGenerator generator = new HiLoIdentifierGenerator(allocator, DIRECT, 8, 8, 1, TimeUnit.HOURS);
+        for (int i = 0; i < 6; ++i) {
+            generator.generateLong();
+        }
+        collector.checkThat(allocator.calls.get(), is(equalTo(1)));
+        generator.generateLong();
+        collector.checkThat(allocator.calls.get(), is(equalTo(2)));
+        generator.generateLong();
+        generator.generateLong();
+        collector.checkThat(allocator.calls.get(), is(equalTo(2)));
+    }
+
+    @Test
+    public void batchesCanSpanBlocks() {
+        final HiLoIdentifierGenerator generator = new HiLoIdentifierGenerator(allocator, DIRECT, 8, 8, 1, TimeUnit.HOURS);
+        generator.generateLong();
+        final long[] ids = generator.generate(20);
+        for (int i = 0; i < ids.length; ++i) {
+            collector.checkThat(ids[i], is(equalTo(i + 2L)));
+        }
+    }
+
+    @Test
+    public void blockSizeGrowsWhenBlocksAreUsedQuickly() {
+        final HiLoIdentifierGenerator generator = new HiLoIdentifierGenerator(allocator, DIRECT, 4, 32, 1, TimeUnit.HOURS);
+        for (int i = 0; i < 200; ++i) {
+            generator.generateLong();
+        }
+        collector.checkThat(generator.getBlockSize(), is(equalTo(32)));
+    }
+
+    @Test
+    public void blockSizeShrinksWhenBlocksAreUsedSlowly() throws Exception {
+        final HiLoIdentifierGenerator generator = new HiLoIdentifierGenerator(allocator, DIRECT, 4, 32, 1, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 1000000 && generator.getBlockSize() < 32; ++i) {
+            generator.generateLong();
+        }
+        collector.checkThat(generator.getBlockSize(), is(equalTo(32)));
+        for (int i = 0; i < 100; ++i) {
+            Thread.sleep(1);
+            generator.generateLong();
+        }
+        collector.checkThat(generator.getBlockSize(), is(equalTo(4)));
+    }
+
+    @Test
+    public void failedPrefetchIsRetried() {
+        final HiLoIdentifierGenerator generator = new HiLoIdentifierGenerator(allocator, DIRECT, 4, 4, 1, TimeUnit.HOURS);
+        for (long i = 1; i <= 3; ++i) {
+            collector.checkThat(generator.generateLong(), is(equalTo(i)));
+        }
+        allocator.failures.set(1);
+        collector.checkThat(generator.generateLong(), is(equalTo(4L)));
+        collector.checkThat(generator.generateLong(), is(equalTo(5L)));
+    }
+
+    @Test(timeout = 10000)
+    public void errorInPrefetchDoesNotBlockTheNextBlock() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final HiLoIdentifierGenerator generator = new HiLoIdentifierGenerator(allocator, executor, 4, 4, 1, TimeUnit.HOURS);
+            collector.checkThat(generator.generateLong(), is(equalTo(1L)));
+            allocator.errors.set(1);
+            for (long i = 2; i <= 6; ++i) {
+                collector.checkThat(generator.generateLong(), is(equalTo(i)));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void prefetchedBlockIsSizedAfterAdapting() {
+        final HiLoIdentifierGenerator generator = new HiLoIdentifierGenerator(allocator, DIRECT, 4, 32, 1, TimeUnit.HOURS);
+        for (int i = 0; i < 4; ++i) {
+            generator.generateLong();
+        }
+        collector.checkThat(allocator.sizes, is(equalTo(Arrays.asList(4, 8))));
+        collector.checkThat(generator.getBlockSize(), is(equalTo(8)));
+    }
+
+    @Test
+    public void identifiersAreUniqueAcrossThreads() throws Exception {
+        final LongIdentifierGenerator generator = new HiLoIdentifierGenerator(allocator, 100);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<long[]>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; ++i) {
+                futures.add(executor.submit(new Callable<long[]>() {
+                    @Override
+                    public long[] call() {
+                        final long[] ids = new long[10000];
+                        for (int j = 0; j < ids.length; j += 10) {
+                            if (j % 20 == 0) {
+                                System.arraycopy(generator.generate(10), 0, ids, j, 10);
+                            } else {
+                                for (int k = 0; k < 10; ++k) {
+                                    ids[j + k] = generator.generateLong();
+                                }
+                            }
+                        }
+                        return ids;
+                    }
+                }));
+            }
+            final Set<Long> unique = new HashSet<>();
+            for (final Future<long[]> future : futures) {
+                for (final long id : future.get()) {
+                    unique.add(id);
+                }
+            }
+            collector.checkThat(unique.size(), is(equalTo(40000)));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void blockSizeMustBePositive() {
+        new HiLoIdentifierGenerator(allocator, 0);
+    }
+
+    /**
+     * An in-memory counter that records how many blocks have been reserved.
+     */
+    private static final class CountingAllocator implements IdentifierBlockAllocator {
+
+        private final AtomicLong counter = new AtomicLong(1L);
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private final AtomicInteger errors = new AtomicInteger();
+        private final List<Integer> sizes = new CopyOnWriteArrayList<>();
+
+        @Override
+        public long allocate(final int size) {
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("Counter unavailable");
+            }
+            if (errors.getAndDecrement() > 0) {
+                throw new AssertionError("Counter corrupt");
+            }
+            calls.incrementAndGet();
+            sizes.add(size);
+            return counter.getAndAdd(size);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.id;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThan;
+
+/**
+ * Unit test the {@link SnowflakeIdentifierGenerator} object.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class TestSnowflakeIdentifierGenerator {
+
+    private static final long EPOCH = SnowflakeIdentifierGenerator.DEFAULT_EPOCH;
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+    private MutableClock clock;
+
+    @Before
+    public void setup() {
+        clock = new MutableClock(EPOCH + 5);
+    }
+
+    @Test
+    public void identifiersContainTimestampWorkerAndSequence() {
+        final SnowflakeIdentifierGenerator generator = new SnowflakeIdentifierGenerator(3, 10, EPOCH, clock);
+        final long first = generator.generateLong();
+        collector.checkThat(first, is(equalTo(5L << 22 | 3L << 12)));
+        collector.checkThat(generator.generateLong(), is(equalTo(first + 1)));
+        collector.checkThat(generator.getTimestamp(first), is(equalTo(EPOCH + 5)));
+        clock.millis = EPOCH + 6;
+        collector.checkThat(generator.generate(), is(equalTo(6L << 22 | 3L << 12)));
+    }
+
+    @Test
+    public void exhaustedSequenceBorrowsNextMillisecond() {
+        final SnowflakeIdentifierGenerator generator = new SnowflakeIdentifierGenerator(1, 21, EPOCH, clock);
+        collector.checkThat(generator.generateLong(), is(equalTo(5L << 22 | 2L)));
+        collector.checkThat(generator.generateLong(), is(equalTo(5L << 22 | 3L)));
+        final long borrowed = generator.generateLong();
+        collector.checkThat(borrowed, is(equalTo(6L << 22 | 2L)));
+        collector.checkThat(generator.getTimestamp(borrowed), is(equalTo(EPOCH + 6)));
+    }
+
+    @Test
+    public void identifiersIncreaseWhenClockMovesBackwards() {
+        final SnowflakeIdentifierGenerator generator = new SnowflakeIdentifierGenerator(0, 10, EPOCH, clock);
+        clock.millis = EPOCH + 100;
+        final long before = generator.generateLong();
+        clock.millis = EPOCH + 90;
+        collector.checkThat(generator.generateLong(), is(greaterThan(before)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void largeClockRegressionIsRejected() {
+        final SnowflakeIdentifierGenerator generator = new SnowflakeIdentifierGenerator(0, 10, EPOCH, clock);
+        clock.millis = EPOCH + 5000;
+        generator.generateLong();
+        clock.millis = EPOCH + 1000;
+        generator.generateLong();
+    }
+
+    @Test
+    public void batchesAreConsecutive() {
+        final SnowflakeIdentifierGenerator generator = new SnowflakeIdentifierGenerator(7, 10, EPOCH, clock);
+        final long[] ids = generator.generate(5000);
+        collector.checkThat(ids.length, is(equalTo(5000)));
+        for (int i = 1; i < ids.length; ++i) {
+            collector.checkThat(ids[i], is(greaterThan(ids[i - 1])));
+        }
+        collector.checkThat(generator.getTimestamp(ids[4999]), is(equalTo(EPOCH + 6)));
+        collector.checkThat(generator.generateLong(), is(greaterThan(ids[4999])));
+    }
+
+    @Test
+    public void identifiersAreUniqueAcrossThreads() throws Exception {
+        final LongIdentifierGenerator generator = new SnowflakeIdentifierGenerator(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<long[]>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; ++i) {
+                futures.add(executor.submit(new Callable<long[]>() {
+                    @Override
+                    public long[] call() {
+                        final long[] ids = new long[10000];
+                        for (int j = 0; j < ids.length; ++j) {
+                            ids[j] = generator.generateLong();
+                        }
+                        return ids;
+                    }
+                }));
+            }
+            final Set<Long> unique = new HashSet<>();
+            for (final Future<long[]> future : futures) {
+                final long[] ids = future.get();
+                for (int i = 0; i < ids.length; ++i) {
+                    unique.add(ids[i]);
+                    if (i > 0) {
+                        collector.checkThat(ids[i], is(greaterThan(ids[i - 1])));
+                    }
+                }
+            }
+            collector.checkThat(unique.size(), is(equalTo(40000)));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void workerIdMustFitInWorkerBits() {
+        new SnowflakeIdentifierGenerator(1024, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void batchSizeMustBePositive() {
+        new SnowflakeIdentifierGenerator(0).generate(0);
+    }
+
+    /**
+     * A clock that only changes when told to.
+     */
+    private static final class MutableClock extends Clock {
+
+        private volatile long millis;
+
+        MutableClock(final long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(final ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}
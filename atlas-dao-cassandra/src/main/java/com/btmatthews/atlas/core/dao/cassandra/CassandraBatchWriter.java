@@ -0,0 +1,286 @@
+package com.btmatthews.atlas.core.dao.cassandra;
+
+import com.btmatthews.atlas.core.dao.DataAccessException;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Writes entities in unlogged batches that each contain the statements for a single partition. Statements are
+ * grouped by their routing key, which is the serialized partition key, and a partition's batch is sent as soon as
+ * it reaches the maximum number of statements or bytes. Every batch therefore touches one partition, so the
+ * coordinator does not have to fan it out to other replicas, and when the cluster uses a token-aware load
+ * balancing policy the batch is sent straight to a replica because it carries the routing key of its statements.
+ * <p>
+ * Batches are sent asynchronously through the in-flight window of the data access object. Failures are reported
+ * by {@link #flush()}, which waits for all the batches to be written. The number of statements and bytes in each
+ * batch are published as histograms in the template's metric registry so the limits can be tuned.
+ * <p>
+ * The statements in a batch share a write timestamp and batches for the same partition may be applied in any order,
+ * so each entity should be written at most once between flushes. Batch writers are not thread-safe.
+ *
+ * @param <ID> The identifier type.
+ * @param <I>  The interface that describes the persistent entity.
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class CassandraBatchWriter<ID, I> implements AutoCloseable {
+
+    /**
+     * The default maximum number of statements in a batch.
+     */
+    public static final int DEFAULT_MAX_BATCH_STATEMENTS = 50;
+
+    /**
+     * The default maximum number of bytes bound to the statements in a batch. This matches the default batch size
+     * warning threshold of Cassandra.
+     */
+    public static final int DEFAULT_MAX_BATCH_BYTES = 5 * 1024;
+
+    /**
+     * The default maximum number of statements waiting to be batched.
+     */
+    public static final int DEFAULT_MAX_PENDING_STATEMENTS = 1000;
+
+    private final CassandraDAOImpl<ID, I> dao;
+    private final Session session;
+    private final Histogram batchStatements;
+    private final Histogram batchBytes;
+    private final Map<ByteBuffer, Batch> pending = new LinkedHashMap<>();
+    private final List<CompletableFuture<Void>> writes = new ArrayList<>();
+    private int maxBatchStatements = DEFAULT_MAX_BATCH_STATEMENTS;
+    private int maxBatchBytes = DEFAULT_MAX_BATCH_BYTES;
+    private int maxPendingStatements = DEFAULT_MAX_PENDING_STATEMENTS;
+    private int pendingStatements;
+    private long batchesSent;
+    private long statementsSent;
+
+    CassandraBatchWriter(final CassandraDAOImpl<ID, I> dao,
+                         final Session session,
+                         final MetricRegistry metricRegistry,
+                         final String keyspace,
+                         final String table) {
+        this.dao = dao;
+        this.session = session;
+        batchStatements = metricRegistry.histogram(
+                MetricRegistry.name(CassandraBatchWriter.class, keyspace, table, "statements"));
+        batchBytes = metricRegistry.histogram(
+                MetricRegistry.name(CassandraBatchWriter.class, keyspace, table, "bytes"));
+    }
+
+    public int getMaxBatchStatements() {
+        return maxBatchStatements;
+    }
+
+    public void setMaxBatchStatements(final int maxBatchStatements) {
+        if (maxBatchStatements < 1) {
+            throw new IllegalArgumentException("maxBatchStatements must be positive");
+        }
+        this.maxBatchStatements = maxBatchStatements;
+    }
+
+    public int getMaxBatchBytes() {
+        return maxBatchBytes;
+    }
+
+    /**
+     * Set the maximum number of bytes bound to the statements in a batch. A statement that is larger than the limit
+     * is sent on its own.
+     *
+     * @param maxBatchBytes The maximum number of bytes.
+     */
+    public void setMaxBatchBytes(final int maxBatchBytes) {
+        if (maxBatchBytes < 1) {
+            throw new IllegalArgumentException("maxBatchBytes must be positive");
+        }
+        this.maxBatchBytes = maxBatchBytes;
+    }
+
+    public int getMaxPendingStatements() {
+        return maxPendingStatements;
+    }
+
+    /**
+     * Set the maximum number of statements waiting to be batched. All the pending batches are sent when the limit
+     * is exceeded, even if they are not full.
+     *
+     * @param maxPendingStatements The maximum number of statements.
+     */
+    public void setMaxPendingStatements(final int maxPendingStatements) {
+        if (maxPendingStatements < 1) {
+            throw new IllegalArgumentException("maxPendingStatements must be positive");
+        }
+        this.maxPendingStatements = maxPendingStatements;
+    }
+
+    /**
+     * Get the number of statements waiting to be batched.
+     *
+     * @return The number of statements.
+     */
+    public int getPendingStatements() {
+        return pendingStatements;
+    }
+
+    /**
+     * Get the number of batches that have been sent.
+     *
+     * @return The number of batches.
+     */
+    public long getBatchesSent() {
+        return batchesSent;
+    }
+
+    /**
+     * Get the number of statements that have been sent.
+     *
+     * @return The number of statements.
+     */
+    public long getStatementsSent() {
+        return statementsSent;
+    }
+
+    /**
+     * Queue the insert of a newly created entity.
+     *
+     * @param id     The object identifier of the persistent entity.
+     * @param entity The newly created entity.
+     */
+    public void create(final ID id,
+                       final I entity) {
+        add(dao.bindCreate(session, id, entity));
+    }
+
+    /**
+     * Queue the update of a persistent entity.
+     *
+     * @param id     The object identifier of the persistent entity.
+     * @param entity The persistent entity.
+     */
+    public void update(final ID id,
+                       final I entity) {
+        final BoundStatement statement = dao.bindUpdate(session, id, entity);
+        if (statement != null) {
+            add(statement);
+        }
+    }
+
+    /**
+     * Send all the pending batches and wait for every batch sent by this writer to be written.
+     *
+     * @throws DataAccessException If any of the batches could not be written.
+     */
+    public void flush() {
+        sendAll();
+        final List<CompletableFuture<Void>> sent = new ArrayList<>(writes);
+        writes.clear();
+        CassandraDAOImpl.awaitAll(sent);
+    }
+
+    /**
+     * Flush the pending batches.
+     *
+     * @throws DataAccessException If any of the batches could not be written.
+     */
+    @Override
+    public void close() {
+        flush();
+    }
+
+    private void add(final BoundStatement statement) {
+        final int bytes = size(statement);
+        final ByteBuffer routingKey = statement.getRoutingKey();
+        if (routingKey == null || bytes >= maxBatchBytes) {
+            send(new Batch(statement, bytes));
+            return;
+        }
+        Batch batch = pending.get(routingKey);
+        if (batch != null && (batch.statements.size() >= maxBatchStatements || batch.bytes + bytes > maxBatchBytes)) {
+            pending.remove(routingKey);
+            pendingStatements -= batch.statements.size();
+            send(batch);
+            batch = null;
+        }
+        if (batch == null) {
+            pending.put(routingKey, new Batch(statement, bytes));
+        } else {
+            batch.add(statement, bytes);
+        }
+        if (++pendingStatements > maxPendingStatements) {
+            sendAll();
+        }
+    }
+
+    private void sendAll() {
+        for (final Batch batch : pending.values()) {
+            send(batch);
+        }
+        pending.clear();
+        pendingStatements = 0;
+    }
+
+    private void send(final Batch batch) {
+        final Statement statement;
+        if (batch.statements.size() == 1) {
+            statement = batch.statements.get(0);
+        } else {
+            final BatchStatement batchStatement = new BatchStatement(BatchStatement.Type.UNLOGGED);
+            batchStatement.addAll(batch.statements);
+            statement = batchStatement;
+        }
+        batchStatements.update(batch.statements.size());
+        batchBytes.update(batch.bytes);
+        batchesSent++;
+        statementsSent += batch.statements.size();
+        writes.removeIf(write -> write.isDone() && !write.isCompletedExceptionally());
+        writes.add(dao.executeAsync(session, statement).thenApply(results -> null));
+    }
+
+    /**
+     * Get the number of bytes bound to a statement.
+     *
+     * @param statement The bound statement.
+     * @return The number of bytes.
+     */
+    private static int size(final BoundStatement statement) {
+        int bytes = 0;
+        final int count = statement.preparedStatement().getVariables().size();
+        for (int i = 0; i < count; i++) {
+            final ByteBuffer value = statement.getBytesUnsafe(i);
+            if (value != null) {
+                bytes += value.remaining();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * The statements waiting to be sent for a partition.
+     */
+    private static final class Batch {
+
+        private final List<BoundStatement> statements = new ArrayList<>();
+        private int bytes;
+
+        Batch(final BoundStatement statement,
+              final int bytes) {
+            add(statement, bytes);
+        }
+
+        void add(final BoundStatement statement,
+                 final int bytes) {
+            statements.add(statement);
+            this.bytes += bytes;
+        }
+    }
+}
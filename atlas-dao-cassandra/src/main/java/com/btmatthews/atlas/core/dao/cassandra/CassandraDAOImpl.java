@@ -2,76 +2,412 @@ package com.btmatthews.atlas.core.dao.cassandra;
 
 import com.btmatthews.atlas.core.common.Paging;
 import com.btmatthews.atlas.core.dao.DAO;
+import com.btmatthews.atlas.core.dao.DataAccessException;
 import com.datastax.driver.core.*;
+import com.datastax.driver.core.exceptions.DriverException;
+import com.datastax.driver.core.querybuilder.Insert;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.datastax.driver.core.querybuilder.Select;
+import com.datastax.driver.core.querybuilder.Update;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static com.datastax.driver.core.querybuilder.QueryBuilder.*;
-import static com.google.common.collect.Lists.transform;
-import static java.util.Arrays.asList;
 
-public class CassandraDAOImpl<ID, I> implements DAO<ID, I> {
+/**
+ * A data access object for entities stored in a Cassandra table whose partition key is a single column called
+ * {@code id}. Columns are mapped to the fields of the entity class with the same names, ignoring case and
+ * underscores, using a mapping plan that is built from the table metadata the first time the table is accessed.
+ * <p>
+ * Statements are executed asynchronously through a window that limits the number of statements the data access
+ * object has in flight. The bulk operations, {@link #read(Object[])}, {@link #createAll(Map)},
+ * {@link #updateAll(Map)} and {@link #destroyAll(Collection)}, send their statements concurrently so they take
+ * about as long as the slowest round trip rather than the sum of them. The asynchronous operations block the caller
+ * while the window is full, so they must not be called from the callbacks of the futures they return.
+ * <p>
+ * Cassandra cannot skip rows on the server, so large tables should be browsed with {@link #find(int, String)},
+ * which continues from the paging state returned with the previous page, or read with {@link #stream()}, which
+ * decodes the rows as the driver fetches them. Pages are ordered by the token of the {@code id} column, which only
+ * identifies a row because {@link CassandraEntityCodec} rejects tables with clustering columns.
+ * <p>
+ * A data access object created from a {@link Cluster} owns the template that holds its session, so it must be
+ * closed with {@link #close()} when it is no longer needed. A template passed to the constructor is not closed.
+ *
+ * @param <ID> The identifier type.
+ * @param <I>  The interface that describes the persistent entity.
+ * @see CassandraEntityCodec
+ */
+public class CassandraDAOImpl<ID, I> implements DAO<ID, I>, AutoCloseable {
+
+    /**
+     * The default maximum number of statements in flight.
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 128;
+
+    /**
+     * The default number of rows fetched in each round trip by {@link #stream()}.
+     */
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    private static final String ID_COLUMN = "id";
 
     private final CassandraTemplate cassandraTemplate;
+    private final boolean ownsTemplate;
+    private final Class<? extends I> entityClass;
     private final String keyspace;
     private final String table;
+    private final Window window = new Window(DEFAULT_MAX_IN_FLIGHT);
+    private volatile CassandraEntityCodec<? extends I> codec;
+    private volatile int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    private volatile int fetchSize = DEFAULT_FETCH_SIZE;
 
+    /**
+     * Initialise the data access object with a template of its own that is closed by {@link #close()}.
+     *
+     * @param cluster     The Cassandra cluster.
+     * @param entityClass The class of the persistent entities.
+     * @param keyspace    The keyspace.
+     * @param table       The table.
+     */
     public CassandraDAOImpl(final Cluster cluster,
+                            final Class<? extends I> entityClass,
                             final String keyspace,
                             final String table) {
-        cassandraTemplate = new CassandraTemplate(cluster);
+        this(new CassandraTemplate(cluster), true, entityClass, keyspace, table);
+    }
+
+    /**
+     * Initialise the data access object with a template whose sessions are shared with other data access objects.
+     *
+     * @param cassandraTemplate The template.
+     * @param entityClass       The class of the persistent entities.
+     * @param keyspace          The keyspace.
+     * @param table             The table.
+     */
+    public CassandraDAOImpl(final CassandraTemplate cassandraTemplate,
+                            final Class<? extends I> entityClass,
+                            final String keyspace,
+                            final String table) {
+        this(cassandraTemplate, false, entityClass, keyspace, table);
+    }
+
+    private CassandraDAOImpl(final CassandraTemplate cassandraTemplate,
+                             final boolean ownsTemplate,
+                             final Class<? extends I> entityClass,
+                             final String keyspace,
+                             final String table) {
+        if (entityClass == null) {
+            throw new IllegalArgumentException("entityClass must not be null");
+        }
+        this.cassandraTemplate = cassandraTemplate;
+        this.ownsTemplate = ownsTemplate;
+        this.entityClass = entityClass;
         this.keyspace = keyspace;
         this.table = table;
     }
 
     @Override
     public long count() {
-        return cassandraTemplate.execute(session -> doCount(session));
+        return cassandraTemplate.execute(keyspace, session -> doCount(session));
     }
 
+    /**
+     * Retrieve a page of entities ordered by the token of their identifiers. The sort orderings are ignored. The
+     * identifiers of all the rows before the page are read to find where it starts, so fetching page {@code N}
+     * reads {@code N * pageSize} rows and browsing a table this way costs time quadratic in the number of pages.
+     * Use {@link #find(int, String)}, which continues from the paging state of the previous page, to browse
+     * large tables.
+     *
+     * @param paging Describes the portion of the result set to return.
+     * @return An ordered list of {@code I} entities.
+     */
     @Override
     public List<I> find(final Paging paging) {
-        return cassandraTemplate.execute(session -> doFind(session, paging));
+        return cassandraTemplate.execute(keyspace, session -> doFind(session, paging));
+    }
+
+    /**
+     * Retrieve a page of entities ordered by the token of their identifiers.
+     *
+     * @param pageSize    The maximum number of entities on the page.
+     * @param pagingState The paging state returned with the previous page or {@code null} for the first page.
+     * @return The page.
+     * @throws IllegalArgumentException If the page size is not positive or the paging state is not valid.
+     */
+    public CassandraPage<I> find(final int pageSize,
+                                 final String pagingState) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        final ByteBuffer after = pagingState == null ? null : decodePagingState(pagingState);
+        return cassandraTemplate.execute(keyspace, session -> doFindPage(session, pageSize, after));
+    }
+
+    /**
+     * Stream all the entities ordered by the token of their identifiers. The rows are fetched in batches of
+     * {@link #getFetchSize()} rows, the next batch being requested in the background while the current one is
+     * consumed, and each row is decoded when the stream reaches it.
+     *
+     * @return The entities.
+     */
+    public Stream<I> stream() {
+        return cassandraTemplate.execute(keyspace, session -> doStream(session));
     }
 
     @Override
     public Optional<I> lookup(final String key,
                     final Object value) {
-          return cassandraTemplate.execute(session -> doLookup(session, key, value));
+          return cassandraTemplate.execute(keyspace, session -> doLookup(session, key, value));
     }
 
     @Override
     public void create(final ID id,
                        final I entity) {
-        cassandraTemplate.executeVoid(session -> doCreate(session, entity));
+        join(createAsync(id, entity));
     }
 
     @Override
     public Optional<I> read(final ID id) {
-        return cassandraTemplate.execute(session -> doRead(session, id));
+        return join(readAsync(id));
     }
 
+    /**
+     * Retrieve a list of persistent entities. The reads are sent concurrently and the entities are returned in the
+     * same order as their identifiers.
+     *
+     * @param ids The object identifiers of the persistent entities.
+     * @return An ordered list of {@code I} entities.
+     */
     @Override
-    public List<Optional<I>> read(final ID... ids) {
-        return cassandraTemplate.execute(session -> transform(asList(ids), id -> doRead(session, id)));
+    @SafeVarargs
+    public final List<Optional<I>> read(final ID... ids) {
+        final List<CompletableFuture<Optional<I>>> futures = cassandraTemplate.execute(keyspace, session -> {
+            final List<CompletableFuture<Optional<I>>> reads = new ArrayList<>(ids.length);
+            for (final ID id : ids) {
+                reads.add(doRead(session, id));
+            }
+            return reads;
+        });
+        final List<Optional<I>> entities = new ArrayList<>(ids.length);
+        for (final CompletableFuture<Optional<I>> future : futures) {
+            entities.add(join(future));
+        }
+        return entities;
     }
 
     @Override
     public void update(final ID id,
                        final I entity) {
-        cassandraTemplate.executeVoid(session -> doUpdate(session, id, entity));
+        join(updateAsync(id, entity));
     }
 
     @Override
     public void destroy(final ID id) {
-        cassandraTemplate.executeVoid(session -> doDestroy(session, id));
+        join(destroyAsync(id));
+    }
+
+    /**
+     * Persist a newly created entity asynchronously.
+     *
+     * @param id     The object identifier of the persistent entity.
+     * @param entity The newly created entity.
+     * @return Completed when the entity has been written.
+     */
+    public CompletableFuture<Void> createAsync(final ID id,
+                                               final I entity) {
+        return cassandraTemplate.execute(keyspace, session -> doCreate(session, id, entity));
+    }
+
+    /**
+     * Retrieve a persistent entity asynchronously.
+     *
+     * @param id The object identifier of the persistent entity.
+     * @return Completed with the persistent entity, if found.
+     */
+    public CompletableFuture<Optional<I>> readAsync(final ID id) {
+        return cassandraTemplate.execute(keyspace, session -> doRead(session, id));
+    }
+
+    /**
+     * Update a persistent entity asynchronously.
+     *
+     * @param id     The object identifier of the persistent entity.
+     * @param entity The persistent entity.
+     * @return Completed when the entity has been written.
+     */
+    public CompletableFuture<Void> updateAsync(final ID id,
+                                               final I entity) {
+        return cassandraTemplate.execute(keyspace, session -> doUpdate(session, id, entity));
+    }
+
+    /**
+     * Delete a persistent entity asynchronously.
+     *
+     * @param id The object identifier of the persistent entity.
+     * @return Completed when the entity has been deleted.
+     */
+    public CompletableFuture<Void> destroyAsync(final ID id) {
+        return cassandraTemplate.execute(keyspace, session -> doDestroy(session, id));
+    }
+
+    /**
+     * Persist newly created entities. The inserts are sent concurrently and all of them are attempted even if some
+     * of them fail.
+     *
+     * @param entities The newly created entities keyed by their object identifiers.
+     * @throws DataAccessException If any of the inserts failed.
+     */
+    public void createAll(final Map<ID, ? extends I> entities) {
+        awaitAll(cassandraTemplate.execute(keyspace, session -> {
+            final List<CompletableFuture<Void>> writes = new ArrayList<>(entities.size());
+            for (final Map.Entry<ID, ? extends I> entry : entities.entrySet()) {
+                writes.add(doCreate(session, entry.getKey(), entry.getValue()));
+            }
+            return writes;
+        }));
+    }
+
+    /**
+     * Update persistent entities. The updates are sent concurrently and all of them are attempted even if some of
+     * them fail.
+     *
+     * @param entities The persistent entities keyed by their object identifiers.
+     * @throws DataAccessException If any of the updates failed.
+     */
+    public void updateAll(final Map<ID, ? extends I> entities) {
+        awaitAll(cassandraTemplate.execute(keyspace, session -> {
+            final List<CompletableFuture<Void>> writes = new ArrayList<>(entities.size());
+            for (final Map.Entry<ID, ? extends I> entry : entities.entrySet()) {
+                writes.add(doUpdate(session, entry.getKey(), entry.getValue()));
+            }
+            return writes;
+        }));
+    }
+
+    /**
+     * Delete persistent entities. The deletes are sent concurrently and all of them are attempted even if some of
+     * them fail.
+     *
+     * @param ids The object identifiers of the persistent entities.
+     * @throws DataAccessException If any of the deletes failed.
+     */
+    public void destroyAll(final Collection<? extends ID> ids) {
+        awaitAll(cassandraTemplate.execute(keyspace, session -> {
+            final List<CompletableFuture<Void>> writes = new ArrayList<>(ids.size());
+            for (final ID id : ids) {
+                writes.add(doDestroy(session, id));
+            }
+            return writes;
+        }));
+    }
+
+    /**
+     * Create a writer that batches inserts and updates by partition.
+     *
+     * @return The batch writer.
+     */
+    public CassandraBatchWriter<ID, I> newBatchWriter() {
+        return new CassandraBatchWriter<>(this, cassandraTemplate.getSession(keyspace),
+                cassandraTemplate.getMetricRegistry(), keyspace, table);
+    }
+
+    /**
+     * Create a scanner that reads the whole table by splitting the token ring into ranges that are read in parallel.
+     *
+     * @return The scanner.
+     */
+    public CassandraTableScanner<ID, I> newTableScanner() {
+        return new CassandraTableScanner<>(this, cassandraTemplate.getSession(keyspace),
+                cassandraTemplate.getMetricRegistry(), keyspace, table);
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(final int fetchSize) {
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException("fetchSize must be positive");
+        }
+        this.fetchSize = fetchSize;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Set the maximum number of statements the data access object can have in flight. The window is resized in
+     * place, so statements already in flight count against the new limit. When the limit is lowered below the
+     * number of statements in flight, new statements wait until enough of them have completed.
+     *
+     * @param maxInFlight The maximum number of statements in flight.
+     */
+    public synchronized void setMaxInFlight(final int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+        final int change = maxInFlight - this.maxInFlight;
+        this.maxInFlight = maxInFlight;
+        if (change > 0) {
+            window.release(change);
+        } else if (change < 0) {
+            window.reducePermits(-change);
+        }
+    }
+
+    /**
+     * Get the number of statements that are in flight.
+     *
+     * @return The number of statements.
+     */
+    public int getInFlight() {
+        return maxInFlight - window.availablePermits();
+    }
+
+    /**
+     * Discard the prepared statements and the mapping plan for the table. This must be called after the columns of
+     * the table have been altered.
+     */
+    public void invalidateStatements() {
+        codec = null;
+        cassandraTemplate.getStatementCache().invalidate(keyspace, table);
+    }
+
+    /**
+     * Shut down the template if it was created by the data access object. A template that was passed to the
+     * constructor is left open because it may be shared with other data access objects.
+     */
+    @Override
+    public void close() {
+        if (ownsTemplate) {
+            cassandraTemplate.shutdown();
+        }
     }
 
     private long doCount(final Session session) {
-        final Statement statement = select().countAll().from(keyspace, table);
-        final ResultSet results = session.execute(statement);
+        final PreparedStatement statement = prepare(session, "count", Collections.emptyList(),
+                () -> select().countAll().from(keyspace, table));
+        final ResultSet results = execute(session, statement.bind());
         final Row row = results.one();
         return row.getLong(0);
     }
@@ -79,62 +415,408 @@ public class CassandraDAOImpl<ID, I> implements DAO<ID, I> {
     private Optional<I> doLookup(final Session session,
                        final String key,
                        final Object value) {
-        final Statement statement = select().from(keyspace, table).where(eq(key, value));
-        return fetchOne(session, statement);
+        final CassandraEntityCodec<? extends I> codec = codec(session);
+        final List<String> columns = codec.getColumns();
+        final List<String> bound = ImmutableList.<String>builder().add(key).addAll(columns).build();
+        final PreparedStatement statement = prepare(session, "lookup", bound,
+                () -> selectColumns(columns).where(eq(key, bindMarker())));
+        return fetchOne(session, codec, statement.bind(value));
     }
 
     private List<I> doFind(final Session session,
                            final Paging paging) {
-        final Statement statement = select().from(keyspace, table).limit(paging.getPageSize());
-        return fetchMany(session, statement);
+        final CassandraEntityCodec<? extends I> codec = codec(session);
+        final long skip = (long) paging.getPageNumber() * paging.getPageSize();
+        if (skip == 0) {
+            return fetchMany(session, codec, findStatement(session, codec, null, paging.getPageSize()));
+        }
+        if (skip > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Cannot skip more than " + Integer.MAX_VALUE + " rows");
+        }
+        final List<String> partitionKeyColumns = codec.getPartitionKeyColumns();
+        final PreparedStatement statement = prepare(session, "skip", partitionKeyColumns,
+                () -> selectColumns(partitionKeyColumns).limit(bindMarker()));
+        final Statement bound = statement.bind((int) skip).setFetchSize(fetchSize);
+        ByteBuffer after = null;
+        long skipped = 0;
+        for (final Row row : execute(session, bound)) {
+            after = row.getBytesUnsafe(0);
+            skipped++;
+        }
+        if (skipped < skip) {
+            return new ArrayList<>();
+        }
+        return fetchMany(session, codec, findStatement(session, codec, after, paging.getPageSize()));
+    }
 
+    private CassandraPage<I> doFindPage(final Session session,
+                                        final int pageSize,
+                                        final ByteBuffer after) {
+        final CassandraEntityCodec<? extends I> codec = codec(session);
+        final ResultSet results = execute(session, findStatement(session, codec, after, pageSize + 1));
+        final List<I> entities = new ArrayList<>(pageSize);
+        ByteBuffer last = null;
+        Row row;
+        while (entities.size() < pageSize && (row = results.one()) != null) {
+            entities.add(codec.decode(row));
+            last = row.getBytesUnsafe(0);
+        }
+        final String pagingState = results.isExhausted() ? null : encodePagingState(last);
+        return new CassandraPage<>(entities, pagingState);
     }
 
-    private void doCreate(final Session session,
-                          final I object) {
-        final Statement statement = insertInto(keyspace, table);
-        encode(statement, object);
-        session.execute(statement);
+    /**
+     * Build the statement that selects a page of rows.
+     *
+     * @param session The session.
+     * @param codec   The mapping plan.
+     * @param after   The serialized identifier of the row before the page or {@code null} for the first page.
+     * @param limit   The maximum number of rows to select.
+     * @return The bound statement.
+     */
+    private Statement findStatement(final Session session,
+                                    final CassandraEntityCodec<? extends I> codec,
+                                    final ByteBuffer after,
+                                    final int limit) {
+        final List<String> columns = codec.getColumns();
+        final String token = partitionToken(codec);
+        final BoundStatement bound;
+        if (after == null) {
+            final PreparedStatement statement = prepare(session, "find", columns,
+                    () -> selectColumns(columns).limit(bindMarker()));
+            bound = statement.bind(limit);
+        } else {
+            final PreparedStatement statement = prepare(session, "findAfter", columns,
+                    () -> selectColumns(columns)
+                            .where(gt(token, fcall("token", bindMarker())))
+                            .limit(bindMarker()));
+            bound = statement.bind();
+            bound.setBytesUnsafe(0, after);
+            bound.setInt(1, limit);
+        }
+        return bound.setFetchSize(limit);
     }
 
-    private Optional<I> doRead(final Session session,
-                     final ID id) {
-        final Statement statement = select().from(keyspace, table).where(eq("id", id));
-        return fetchOne(session, statement);
+    /**
+     * Build the statement that selects the rows whose partition key tokens are in a range. The token of each row is
+     * selected after the columns returned by {@link CassandraEntityCodec#getColumns()}.
+     *
+     * @param session The session.
+     * @param codec   The mapping plan.
+     * @param start   The token at the start of the range, which is excluded.
+     * @param end     The token at the end of the range, which is included.
+     * @return The bound statement.
+     */
+    BoundStatement scanStatement(final Session session,
+                                 final CassandraEntityCodec<? extends I> codec,
+                                 final Object start,
+                                 final Object end) {
+        final String token = partitionToken(codec);
+        final List<String> columns = ImmutableList.<String>builder().addAll(codec.getColumns()).add(token).build();
+        final PreparedStatement statement = prepare(session, "scan", columns,
+                () -> selectColumns(columns).where(gt(token, bindMarker())).and(lte(token, bindMarker())));
+        return statement.bind(start, end);
     }
 
-    private void doUpdate(final Session session,
-                          final ID id,
-                          final I entity) {
-        final Statement statement = QueryBuilder.update(keyspace, table).where(eq("id", id));
-        encode(statement, entity);
-        session.execute(statement);
+    /**
+     * Build the {@code token} function call for the partition key columns. The partition key is the identifier
+     * column alone, so the serialized identifier of a row can be bound as the argument of the same function.
+     *
+     * @param codec The mapping plan.
+     * @return The function call.
+     */
+    private static String partitionToken(final CassandraEntityCodec<?> codec) {
+        return token(codec.getPartitionKeyColumns().toArray(new String[0]));
     }
 
-    private void doDestroy(final Session session,
-                           final ID id) {
-        final Statement statement = delete().from(keyspace, table).where(eq("id", id));
-        session.execute(statement);
+    private Stream<I> doStream(final Session session) {
+        final CassandraEntityCodec<? extends I> codec = codec(session);
+        final List<String> columns = codec.getColumns();
+        final PreparedStatement statement = prepare(session, "stream", columns, () -> selectColumns(columns));
+        final int prefetch = Math.max(1, fetchSize / 4);
+        final ResultSet results = execute(session, statement.bind().setFetchSize(fetchSize));
+        final Iterator<Row> rows = results.iterator();
+        final Iterator<I> entities = new Iterator<I>() {
+            @Override
+            public boolean hasNext() {
+                if (results.getAvailableWithoutFetching() <= prefetch && !results.isFullyFetched()) {
+                    results.fetchMoreResults();
+                }
+                return rows.hasNext();
+            }
+
+            @Override
+            public I next() {
+                return codec.decode(rows.next());
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(entities,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
     }
 
-    private Optional<I> fetchOne(final Session session,
-                       final Statement statement) {
-        final ResultSet results = session.execute(statement);
+    private CompletableFuture<Void> doCreate(final Session session,
+                                             final ID id,
+                                             final I object) {
+        return executeAsync(session, bindCreate(session, id, object)).thenApply(results -> null);
+    }
+
+    private CompletableFuture<Optional<I>> doRead(final Session session,
+                                                  final ID id) {
+        final CassandraEntityCodec<? extends I> codec = codec(session);
+        final List<String> columns = codec.getColumns();
+        final PreparedStatement statement = prepare(session, "read", columns,
+                () -> selectColumns(columns).where(eq(ID_COLUMN, bindMarker())));
+        return executeAsync(session, statement.bind(id)).thenApply(results -> decodeOne(codec, results));
+    }
+
+    private CompletableFuture<Void> doUpdate(final Session session,
+                                             final ID id,
+                                             final I entity) {
+        final BoundStatement statement = bindUpdate(session, id, entity);
+        if (statement == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return executeAsync(session, statement).thenApply(results -> null);
+    }
+
+    /**
+     * Bind the insert statement for an entity.
+     *
+     * @param session The session.
+     * @param id      The object identifier of the persistent entity.
+     * @param object  The newly created entity.
+     * @return The bound statement.
+     */
+    BoundStatement bindCreate(final Session session,
+                              final ID id,
+                              final I object) {
+        final CassandraEntityCodec<? extends I> codec = codec(session);
+        final List<String> columns = codec.getColumns();
+        final PreparedStatement statement = prepare(session, "insert", columns, () -> {
+            final Insert insert = insertInto(keyspace, table);
+            for (final String column : columns) {
+                insert.value(column, bindMarker());
+            }
+            return insert;
+        });
+        return codec.bindInsert(statement.bind(), id, object);
+    }
+
+    /**
+     * Bind the update statement for an entity.
+     *
+     * @param session The session.
+     * @param id      The object identifier of the persistent entity.
+     * @param entity  The persistent entity.
+     * @return The bound statement or {@code null} if the table does not have any columns that can be updated.
+     */
+    BoundStatement bindUpdate(final Session session,
+                              final ID id,
+                              final I entity) {
+        final CassandraEntityCodec<? extends I> codec = codec(session);
+        final List<String> columns = codec.getUpdatedColumns();
+        if (columns.isEmpty()) {
+            return null;
+        }
+        final List<String> keys = codec.getKeyColumns();
+        final List<String> bound = ImmutableList.<String>builder().addAll(columns).addAll(keys).build();
+        final PreparedStatement statement = prepare(session, "update", bound, () -> {
+            final Update update = QueryBuilder.update(keyspace, table);
+            for (final String column : columns) {
+                update.with(set(column, bindMarker()));
+            }
+            final Update.Where where = update.where();
+            for (final String key : keys) {
+                where.and(eq(key, bindMarker()));
+            }
+            return where;
+        });
+        return codec.bindUpdate(statement.bind(), id, entity);
+    }
+
+    private CompletableFuture<Void> doDestroy(final Session session,
+                                              final ID id) {
+        final PreparedStatement statement = prepare(session, "delete", Collections.emptyList(),
+                () -> delete().from(keyspace, table).where(eq(ID_COLUMN, bindMarker())));
+        return executeAsync(session, statement.bind(id)).thenApply(results -> null);
+    }
+
+    private PreparedStatement prepare(final Session session,
+                                      final String kind,
+                                      final List<String> columns,
+                                      final Supplier<RegularStatement> builder) {
+        return cassandraTemplate.getStatementCache().prepare(session, keyspace, table, kind, columns, builder);
+    }
+
+    private Select selectColumns(final List<String> columns) {
+        return QueryBuilder.select(columns.toArray(new String[columns.size()])).from(keyspace, table);
+    }
+
+    /**
+     * Get the mapping plan for the entity class, building it from the table metadata if necessary.
+     *
+     * @param session The session.
+     * @return The codec.
+     */
+    CassandraEntityCodec<? extends I> codec(final Session session) {
+        CassandraEntityCodec<? extends I> result = codec;
+        if (result == null) {
+            result = CassandraEntityCodec.create(session, keyspace, table, ID_COLUMN, entityClass);
+            codec = result;
+        }
+        return result;
+    }
+
+    /**
+     * Execute a statement asynchronously, waiting for room in the window if too many statements are in flight.
+     *
+     * @param session   The session.
+     * @param statement The statement.
+     * @return Completed with the results of the statement.
+     */
+    CompletableFuture<ResultSet> executeAsync(final Session session,
+                                              final Statement statement) {
+        window.acquireUninterruptibly();
+        final ResultSetFuture future;
+        try {
+            future = session.executeAsync(statement);
+        } catch (final RuntimeException e) {
+            window.release();
+            throw e;
+        }
+        final CompletableFuture<ResultSet> result = new CompletableFuture<>();
+        Futures.addCallback(future, new FutureCallback<ResultSet>() {
+            @Override
+            public void onSuccess(final ResultSet results) {
+                window.release();
+                result.complete(results);
+            }
+
+            @Override
+            public void onFailure(final Throwable cause) {
+                window.release();
+                result.completeExceptionally(cause);
+            }
+        });
+        return result;
+    }
+
+    ResultSet execute(final Session session,
+                      final Statement statement) {
+        return join(executeAsync(session, statement));
+    }
+
+    /**
+     * Wait for a future to complete, rethrowing the exception it failed with.
+     *
+     * @param future The future.
+     * @param <T>    The type of the result.
+     * @return The result.
+     */
+    private static <T> T join(final CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (final CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof DriverException) {
+                throw ((DriverException) cause).copy();
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new DataAccessException("Statement failed", cause);
+        }
+    }
+
+    /**
+     * Wait for all the writes to complete.
+     *
+     * @param writes The writes.
+     * @throws DataAccessException If any of the writes failed.
+     */
+    static void awaitAll(final List<CompletableFuture<Void>> writes) {
+        final List<Throwable> failures = new ArrayList<>();
+        for (final CompletableFuture<Void> write : writes) {
+            try {
+                write.join();
+            } catch (final CompletionException e) {
+                failures.add(e.getCause());
+            }
+        }
+        if (!failures.isEmpty()) {
+            final DataAccessException exception = new DataAccessException(
+                    failures.size() + " of " + writes.size() + " writes failed", failures.get(0));
+            for (final Throwable failure : failures.subList(1, failures.size())) {
+                exception.addSuppressed(failure);
+            }
+            throw exception;
+        }
+    }
+
+    /**
+     * Encode the serialized identifier of the last row on a page as a URL-safe paging state.
+     *
+     * @param id The serialized identifier.
+     * @return The paging state.
+     */
+    static String encodePagingState(final ByteBuffer id) {
+        final byte[] bytes = new byte[id.remaining()];
+        id.duplicate().get(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * Decode a paging state returned by {@link #encodePagingState(ByteBuffer)}.
+     *
+     * @param pagingState The paging state.
+     * @return The serialized identifier.
+     * @throws IllegalArgumentException If the paging state is not valid.
+     */
+    static ByteBuffer decodePagingState(final String pagingState) {
+        try {
+            return ByteBuffer.wrap(Base64.getUrlDecoder().decode(pagingState));
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalArgumentException("pagingState is not valid", e);
+        }
+    }
+
+    private Optional<I> decodeOne(final CassandraEntityCodec<? extends I> codec,
+                                  final ResultSet results) {
         final Row row = results.one();
-        return Optional.of(decode(row));
+        return row == null ? Optional.empty() : Optional.of(codec.decode(row));
+    }
+
+    private Optional<I> fetchOne(final Session session,
+                                 final CassandraEntityCodec<? extends I> codec,
+                                 final Statement statement) {
+        return decodeOne(codec, execute(session, statement));
     }
 
     private List<I> fetchMany(final Session session,
+                              final CassandraEntityCodec<? extends I> codec,
                               final Statement statement) {
-        final ResultSet results = session.execute(statement);
-        return transform(results.all(), row -> decode(row));
+        final ResultSet results = execute(session, statement);
+        final List<I> entities = new ArrayList<>(results.getAvailableWithoutFetching());
+        for (final Row row : results) {
+            entities.add(codec.decode(row));
+        }
+        return entities;
     }
 
-    private void encode(final Statement statement,
-                        final I object) {
-    }
+    /**
+     * The window of statements in flight. The number of permits can be reduced below the number of statements in
+     * flight, in which case no permits are available until enough statements have completed.
+     */
+    private static final class Window extends Semaphore {
+
+        Window(final int permits) {
+            super(permits);
+        }
 
-    private I decode(final Row row) {
-        return null;
+        @Override
+        protected void reducePermits(final int reduction) {
+            super.reducePermits(reduction);
+        }
     }
 }
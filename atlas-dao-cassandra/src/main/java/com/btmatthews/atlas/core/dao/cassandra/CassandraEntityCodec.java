@@ -0,0 +1,336 @@
+package com.btmatthews.atlas.core.dao.cassandra;
+
+import com.btmatthews.atlas.core.dao.DataAccessException;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.ColumnMetadata;
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.TableMetadata;
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Primitives;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Converts between entities and the rows of a table using a mapping plan that is built once from the table metadata
+ * held by the driver. A column is mapped to the field of the entity class whose name matches the column name,
+ * ignoring case and underscores, so {@code created_on} is mapped to {@code createdOn}. Columns without a matching
+ * field, other than {@code id}, are not read or written. The primary key of the table must be the {@code id} column
+ * alone, so each entity is a partition of one row. Tables with clustering columns are rejected because the data
+ * access object reads, pages and scans by the token of the {@code id} column and would skip the other rows of a
+ * partition.
+ * <p>
+ * The plan fixes the order of the columns in the statements built by the data access object, so rows are decoded
+ * and statements are bound by column index using the fields and data types resolved when the plan was built.
+ * Values are serialized and deserialized by the driver's codec for the column's data type.
+ *
+ * @param <T> The entity class.
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+final class CassandraEntityCodec<T> {
+
+    private final Constructor<T> constructor;
+    private final int protocolVersion;
+    private final Mapping[] selected;
+    private final Mapping[] updated;
+    private final Mapping[] keys;
+    private final List<String> columns;
+    private final List<String> updatedColumns;
+    private final List<String> keyColumns;
+    private final List<String> partitionKeyColumns;
+
+    private CassandraEntityCodec(final Constructor<T> constructor,
+                                 final int protocolVersion,
+                                 final List<Mapping> selected,
+                                 final List<Mapping> updated,
+                                 final List<Mapping> keys,
+                                 final List<String> partitionKeyColumns) {
+        this.constructor = constructor;
+        this.protocolVersion = protocolVersion;
+        this.selected = selected.toArray(new Mapping[selected.size()]);
+        this.updated = updated.toArray(new Mapping[updated.size()]);
+        this.keys = keys.toArray(new Mapping[keys.size()]);
+        columns = names(selected);
+        updatedColumns = names(updated);
+        keyColumns = names(keys);
+        this.partitionKeyColumns = ImmutableList.copyOf(partitionKeyColumns);
+    }
+
+    /**
+     * Build the mapping plan for an entity class from the metadata of a table.
+     *
+     * @param session     A connected session.
+     * @param keyspace    The keyspace.
+     * @param table       The table.
+     * @param idColumn    The name of the column that holds the object identifier.
+     * @param entityClass The entity class.
+     * @param <T>         The entity class.
+     * @return The codec.
+     * @throws DataAccessException      If the table does not exist.
+     * @throws IllegalArgumentException If the primary key of the table is not the identifier column or the entity
+     *                                  class cannot be mapped to the table.
+     */
+    static <T> CassandraEntityCodec<T> create(final Session session,
+                                              final String keyspace,
+                                              final String table,
+                                              final String idColumn,
+                                              final Class<T> entityClass) {
+        final KeyspaceMetadata keyspaceMetadata = session.getCluster().getMetadata().getKeyspace(keyspace);
+        final TableMetadata tableMetadata = keyspaceMetadata == null ? null : keyspaceMetadata.getTable(table);
+        if (tableMetadata == null) {
+            throw new DataAccessException("Table " + keyspace + "." + table + " does not exist");
+        }
+        final ColumnMetadata idMetadata = tableMetadata.getColumn(idColumn);
+        if (idMetadata == null || !tableMetadata.getPartitionKey().equals(Collections.singletonList(idMetadata))) {
+            throw new IllegalArgumentException("The partition key of table " + keyspace + "." + table
+                    + " must be the " + idColumn + " column");
+        }
+        if (!tableMetadata.getPrimaryKey().equals(Collections.singletonList(idMetadata))) {
+            throw new IllegalArgumentException("Table " + keyspace + "." + table
+                    + " must not have clustering columns");
+        }
+
+        final Map<String, Field> fields = fields(entityClass);
+        final List<Mapping> selected = new ArrayList<>();
+        final List<Mapping> updated = new ArrayList<>();
+        final List<Mapping> keys = new ArrayList<>();
+        final Mapping idMapping = new Mapping(idMetadata, fields.get(normalize(idColumn)));
+        selected.add(idMapping);
+        keys.add(idMapping);
+        for (final ColumnMetadata column : tableMetadata.getColumns()) {
+            if (column.equals(idMetadata)) {
+                continue;
+            }
+            final Field field = fields.get(normalize(column.getName()));
+            if (field != null) {
+                final Mapping mapping = new Mapping(column, field);
+                selected.add(mapping);
+                updated.add(mapping);
+            }
+        }
+
+        final List<String> partitionKeyColumns = new ArrayList<>();
+        for (final ColumnMetadata column : tableMetadata.getPartitionKey()) {
+            partitionKeyColumns.add(column.getName());
+        }
+        final int protocolVersion = session.getCluster().getConfiguration().getProtocolOptions().getProtocolVersion();
+        return new CassandraEntityCodec<>(constructor(entityClass), protocolVersion, selected, updated, keys,
+                partitionKeyColumns);
+    }
+
+    /**
+     * Get the columns that are selected and inserted, in the order they are decoded and bound. The first column is
+     * always the object identifier.
+     *
+     * @return The column names.
+     */
+    List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Get the columns that are set by an update, in the order they are bound.
+     *
+     * @return The column names.
+     */
+    List<String> getUpdatedColumns() {
+        return updatedColumns;
+    }
+
+    /**
+     * Get the primary key columns that identify the row changed by an update, in the order they are bound after the
+     * updated columns. This is always just the object identifier.
+     *
+     * @return The column names.
+     */
+    List<String> getKeyColumns() {
+        return keyColumns;
+    }
+
+    /**
+     * Get the partition key columns in the order they are passed to the {@code token} function.
+     *
+     * @return The column names.
+     */
+    List<String> getPartitionKeyColumns() {
+        return partitionKeyColumns;
+    }
+
+    /**
+     * Decode a row that was selected using the columns returned by {@link #getColumns()}.
+     *
+     * @param row The row.
+     * @return The entity.
+     */
+    T decode(final Row row) {
+        final T entity = newInstance();
+        for (int i = 0; i < selected.length; i++) {
+            final Mapping mapping = selected[i];
+            if (mapping.field != null) {
+                final ByteBuffer bytes = row.getBytesUnsafe(i);
+                if (bytes != null) {
+                    mapping.set(entity, mapping.type.deserialize(bytes, protocolVersion));
+                } else if (!mapping.field.getType().isPrimitive()) {
+                    mapping.set(entity, null);
+                }
+            }
+        }
+        return entity;
+    }
+
+    /**
+     * Bind the values of an entity to an insert statement for the columns returned by {@link #getColumns()}.
+     *
+     * @param statement The bound statement.
+     * @param id        The object identifier.
+     * @param entity    The entity.
+     * @return The bound statement.
+     */
+    BoundStatement bindInsert(final BoundStatement statement,
+                              final Object id,
+                              final Object entity) {
+        statement.setBytesUnsafe(0, serialize(selected[0], id));
+        for (int i = 1; i < selected.length; i++) {
+            statement.setBytesUnsafe(i, serialize(selected[i], selected[i].get(entity)));
+        }
+        return statement;
+    }
+
+    /**
+     * Bind the values of an entity to an update statement that sets the columns returned by
+     * {@link #getUpdatedColumns()} of the row identified by the columns returned by {@link #getKeyColumns()}.
+     *
+     * @param statement The bound statement.
+     * @param id        The object identifier.
+     * @param entity    The entity.
+     * @return The bound statement.
+     */
+    BoundStatement bindUpdate(final BoundStatement statement,
+                              final Object id,
+                              final Object entity) {
+        int index = 0;
+        for (final Mapping mapping : updated) {
+            statement.setBytesUnsafe(index++, serialize(mapping, mapping.get(entity)));
+        }
+        statement.setBytesUnsafe(index++, serialize(keys[0], id));
+        for (int i = 1; i < keys.length; i++) {
+            statement.setBytesUnsafe(index++, serialize(keys[i], keys[i].get(entity)));
+        }
+        return statement;
+    }
+
+    private ByteBuffer serialize(final Mapping mapping,
+                                 final Object value) {
+        return value == null ? null : mapping.type.serialize(value, protocolVersion);
+    }
+
+    private T newInstance() {
+        try {
+            return constructor.newInstance();
+        } catch (final InstantiationException | IllegalAccessException e) {
+            throw new IllegalStateException("Could not create " + constructor.getDeclaringClass().getName(), e);
+        } catch (final InvocationTargetException e) {
+            throw new IllegalStateException("Could not create " + constructor.getDeclaringClass().getName(),
+                    e.getCause());
+        }
+    }
+
+    private static <T> Constructor<T> constructor(final Class<T> entityClass) {
+        try {
+            final Constructor<T> constructor = entityClass.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (final NoSuchMethodException e) {
+            throw new IllegalArgumentException(entityClass.getName() + " does not have a no-argument constructor", e);
+        }
+    }
+
+    /**
+     * Get the instance fields of a class and its superclasses, keyed by their normalized names. Fields declared by
+     * a subclass hide those with the same name declared by a superclass.
+     *
+     * @param entityClass The entity class.
+     * @return The fields.
+     */
+    private static Map<String, Field> fields(final Class<?> entityClass) {
+        final Map<String, Field> fields = new HashMap<>();
+        for (Class<?> current = entityClass; current != null && current != Object.class;
+             current = current.getSuperclass()) {
+            for (final Field field : current.getDeclaredFields()) {
+                final int modifiers = field.getModifiers();
+                if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()) {
+                    fields.putIfAbsent(normalize(field.getName()), field);
+                }
+            }
+        }
+        return fields;
+    }
+
+    private static String normalize(final String name) {
+        return name.replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static List<String> names(final List<Mapping> mappings) {
+        final ImmutableList.Builder<String> names = ImmutableList.builder();
+        for (final Mapping mapping : mappings) {
+            names.add(mapping.column);
+        }
+        return names.build();
+    }
+
+    /**
+     * Maps a column to a field of the entity class.
+     */
+    private static final class Mapping {
+
+        private final String column;
+        private final DataType type;
+        private final Field field;
+
+        Mapping(final ColumnMetadata column,
+                final Field field) {
+            this.column = column.getName();
+            this.type = column.getType();
+            this.field = field;
+            if (field != null) {
+                final Class<?> fieldType = Primitives.wrap(field.getType());
+                if (!fieldType.isAssignableFrom(type.asJavaClass())) {
+                    throw new IllegalArgumentException("Field " + field.getDeclaringClass().getName() + "."
+                            + field.getName() + " of type " + field.getType().getName()
+                            + " cannot hold column " + this.column + " of type " + type);
+                }
+                field.setAccessible(true);
+            }
+        }
+
+        Object get(final Object entity) {
+            try {
+                return field.get(entity);
+            } catch (final IllegalAccessException e) {
+                throw new IllegalStateException("Could not read field " + field.getName(), e);
+            }
+        }
+
+        void set(final Object entity,
+                 final Object value) {
+            try {
+                field.set(entity, value);
+            } catch (final IllegalAccessException e) {
+                throw new IllegalStateException("Could not write field " + field.getName(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.btmatthews.atlas.core.dao.cassandra;
+
+import com.btmatthews.atlas.core.dao.DataAccessException;
+import com.btmatthews.atlas.core.id.IdentifierBlockAllocator;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.datastax.driver.core.querybuilder.QueryBuilder.*;
+
+/**
+ * Reserves blocks of identifiers from a counter row in a Cassandra table using lightweight transactions. The table
+ * must have a {@code text} partition key called {@code name} and a {@code bigint} column called {@code next}:
+ * <pre>
+ * CREATE TABLE identifiers (name text PRIMARY KEY, next bigint);
+ * </pre>
+ * Cassandra counter columns cannot be read and incremented atomically so the row is advanced with a conditional
+ * update that is retried if another node advanced it first. Each retry waits for a random delay of up to
+ * {@link #getRetryDelay()} milliseconds, doubling with every attempt up to {@link #MAX_RETRY_DELAY} milliseconds, so
+ * that nodes contending for the counter do not keep colliding in lock step.
+ * <p>
+ * An allocator created from a {@link Cluster} owns the template that holds its session, so it must be closed with
+ * {@link #close()} when it is no longer needed. A template passed to the constructor is not closed.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class CassandraIdentifierBlockAllocator implements IdentifierBlockAllocator, AutoCloseable {
+
+    /**
+     * The default number of times the counter is read and advanced before giving up.
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 10;
+
+    /**
+     * The default upper bound of the delay before the first retry in milliseconds.
+     */
+    public static final long DEFAULT_RETRY_DELAY = 10L;
+
+    /**
+     * The upper bound of the delay before any retry in milliseconds.
+     */
+    public static final long MAX_RETRY_DELAY = 1000L;
+
+    private static final String NAME = "name";
+    private static final String NEXT = "next";
+    private static final String APPLIED = "[applied]";
+
+    private final CassandraTemplate cassandraTemplate;
+    private final boolean ownsTemplate;
+    private final String keyspace;
+    private final String table;
+    private final String counterName;
+    private final long initialValue;
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private long retryDelay = DEFAULT_RETRY_DELAY;
+
+    /**
+     * Initialise the allocator so that the first identifier is {@code 1} with a template of its own that is closed
+     * by {@link #close()}.
+     *
+     * @param cluster     The Cassandra cluster.
+     * @param keyspace    The keyspace that contains the counters.
+     * @param table       The table that contains the counters.
+     * @param counterName The name of the counter row.
+     */
+    public CassandraIdentifierBlockAllocator(final Cluster cluster,
+                                             final String keyspace,
+                                             final String table,
+                                             final String counterName) {
+        this(cluster, keyspace, table, counterName, 1L);
+    }
+
+    /**
+     * Initialise the allocator with a template of its own that is closed by {@link #close()}.
+     *
+     * @param cluster      The Cassandra cluster.
+     * @param keyspace     The keyspace that contains the counters.
+     * @param table        The table that contains the counters.
+     * @param counterName  The name of the counter row.
+     * @param initialValue The first identifier.
+     */
+    public CassandraIdentifierBlockAllocator(final Cluster cluster,
+                                             final String keyspace,
+                                             final String table,
+                                             final String counterName,
+                                             final long initialValue) {
+        this(new CassandraTemplate(cluster), true, keyspace, table, counterName, initialValue);
+    }
+
+    /**
+     * Initialise the allocator with a template that may be shared with other data access objects.
+     *
+     * @param cassandraTemplate The template used to run the queries.
+     * @param keyspace          The keyspace that contains the counters.
+     * @param table             The table that contains the counters.
+     * @param counterName       The name of the counter row.
+     * @param initialValue      The first identifier.
+     */
+    public CassandraIdentifierBlockAllocator(final CassandraTemplate cassandraTemplate,
+                                             final String keyspace,
+                                             final String table,
+                                             final String counterName,
+                                             final long initialValue) {
+        this(cassandraTemplate, false, keyspace, table, counterName, initialValue);
+    }
+
+    private CassandraIdentifierBlockAllocator(final CassandraTemplate cassandraTemplate,
+                                              final boolean ownsTemplate,
+                                              final String keyspace,
+                                              final String table,
+                                              final String counterName,
+                                              final long initialValue) {
+        if (cassandraTemplate == null) {
+            throw new IllegalArgumentException("cassandraTemplate must not be null");
+        }
+        if (keyspace == null || keyspace.length() == 0) {
+            throw new IllegalArgumentException("keyspace must not be null or empty");
+        }
+        if (table == null || table.length() == 0) {
+            throw new IllegalArgumentException("table must not be null or empty");
+        }
+        if (counterName == null || counterName.length() == 0) {
+            throw new IllegalArgumentException("counterName must not be null or empty");
+        }
+        this.cassandraTemplate = cassandraTemplate;
+        this.ownsTemplate = ownsTemplate;
+        this.keyspace = keyspace;
+        this.table = table;
+        this.counterName = counterName;
+        this.initialValue = initialValue;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(final int maxAttempts) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be positive");
+        }
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getRetryDelay() {
+        return retryDelay;
+    }
+
+    /**
+     * Set the upper bound of the random delay before the first retry. The bound doubles with every further attempt.
+     *
+     * @param retryDelay The delay in milliseconds.
+     */
+    public void setRetryDelay(final long retryDelay) {
+        if (retryDelay < 0) {
+            throw new IllegalArgumentException("retryDelay must not be negative");
+        }
+        this.retryDelay = retryDelay;
+    }
+
+    @Override
+    public long allocate(final int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        return cassandraTemplate.execute(keyspace, session -> doAllocate(session, size));
+    }
+
+    /**
+     * Shut down the template if it was created by the allocator. A template that was passed to the constructor is
+     * left open because it may be shared with other data access objects.
+     */
+    @Override
+    public void close() {
+        if (ownsTemplate) {
+            cassandraTemplate.shutdown();
+        }
+    }
+
+    private long doAllocate(final Session session,
+                            final int size) {
+        for (int attempt = 0; attempt < maxAttempts; ++attempt) {
+            if (attempt > 0) {
+                backOff(attempt);
+            }
+            final Statement read = select(NEXT).from(keyspace, table).where(eq(NAME, counterName))
+                    .setConsistencyLevel(ConsistencyLevel.SERIAL);
+            final Row counter = session.execute(read).one();
+            if (counter == null) {
+                final Statement create = insertInto(keyspace, table)
+                        .value(NAME, counterName)
+                        .value(NEXT, (long) size)
+                        .ifNotExists();
+                if (wasApplied(session, create)) {
+                    return initialValue;
+                }
+            } else {
+                final long next = counter.getLong(NEXT);
+                final Statement advance = update(keyspace, table)
+                        .with(set(NEXT, next + size))
+                        .where(eq(NAME, counterName))
+                        .onlyIf(eq(NEXT, next));
+                if (wasApplied(session, advance)) {
+                    return initialValue + next;
+                }
+            }
+        }
+        throw new DataAccessException("Could not reserve identifiers from counter: " + counterName
+                + " after " + maxAttempts + " attempts");
+    }
+
+    /**
+     * Wait for a random delay before retrying, doubling the upper bound of the delay with every attempt up to
+     * {@link #MAX_RETRY_DELAY}.
+     *
+     * @param attempt The number of the retry, starting at one.
+     * @throws DataAccessException If the thread is interrupted while waiting.
+     */
+    private void backOff(final int attempt) {
+        long bound = Math.min(retryDelay, MAX_RETRY_DELAY);
+        for (int i = 1; i < attempt && bound < MAX_RETRY_DELAY; i++) {
+            bound = Math.min(bound * 2, MAX_RETRY_DELAY);
+        }
+        if (bound > 0) {
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DataAccessException("Interrupted while reserving identifiers from counter: " + counterName,
+                        e);
+            }
+        }
+    }
+
+    private boolean wasApplied(final Session session,
+                               final Statement statement) {
+        final Row result = session.execute(statement).one();
+        return result != null && result.getBool(APPLIED);
+    }
+}
@@ -0,0 +1,52 @@
+package com.btmatthews.atlas.core.dao.cassandra;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A page of entities returned by {@link CassandraDAOImpl#find(int, String)} together with the opaque paging state
+ * that is used to fetch the next page.
+ *
+ * @param <I> The interface that describes the persistent entity.
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public final class CassandraPage<I> {
+
+    private final List<I> entities;
+    private final String pagingState;
+
+    CassandraPage(final List<I> entities,
+                  final String pagingState) {
+        this.entities = Collections.unmodifiableList(entities);
+        this.pagingState = pagingState;
+    }
+
+    /**
+     * Get the entities on the page.
+     *
+     * @return The entities.
+     */
+    public List<I> getEntities() {
+        return entities;
+    }
+
+    /**
+     * Get the paging state that is passed to {@link CassandraDAOImpl#find(int, String)} to fetch the next page.
+     *
+     * @return The paging state or {@link Optional#empty()} if this is the last page.
+     */
+    public Optional<String> getPagingState() {
+        return Optional.ofNullable(pagingState);
+    }
+
+    /**
+     * Determine whether there are more pages after this one.
+     *
+     * @return {@code true} if there are more pages.
+     */
+    public boolean hasNext() {
+        return pagingState != null;
+    }
+}
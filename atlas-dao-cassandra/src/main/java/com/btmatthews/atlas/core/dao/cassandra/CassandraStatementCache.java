@@ -0,0 +1,154 @@
+package com.btmatthews.atlas.core.dao.cassandra;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.Session;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caches the statements prepared by the data access objects that share a {@link CassandraTemplate}. Statements are
+ * keyed by keyspace, table, kind of statement and the columns they bind, so each distinct statement is only prepared
+ * once and the server does not have to parse the CQL again. Bound prepared statements also carry their routing key
+ * so token-aware load balancing can send them straight to a replica.
+ * <p>
+ * The driver does not report schema changes, so the statements for a table must be invalidated when its columns are
+ * altered. A statement that was being prepared when the cache was invalidated is returned to the caller that prepared
+ * it but is not cached.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class CassandraStatementCache {
+
+    private final Map<Key, PreparedStatement> statements = new ConcurrentHashMap<>();
+    /**
+     * Incremented whenever statements are discarded.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Get a prepared statement, preparing it if necessary. The statement is prepared outside the cache, so threads
+     * that ask for the same new statement at the same time may each prepare it, in which case they all get the
+     * statement that was cached first.
+     *
+     * @param session  The session used to prepare the statement.
+     * @param keyspace The keyspace.
+     * @param table    The table.
+     * @param kind     The kind of statement, for example {@code "select"}.
+     * @param columns  The columns bound or selected by the statement.
+     * @param builder  Builds the statement if it has not been prepared.
+     * @return The prepared statement.
+     */
+    public PreparedStatement prepare(final Session session,
+                                     final String keyspace,
+                                     final String table,
+                                     final String kind,
+                                     final List<String> columns,
+                                     final Supplier<RegularStatement> builder) {
+        final Key key = new Key(keyspace, table, kind, columns);
+        final PreparedStatement cached = statements.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        final long observed = generation.get();
+        final PreparedStatement prepared = session.prepare(builder.get());
+        final PreparedStatement existing = statements.putIfAbsent(key, prepared);
+        if (existing != null) {
+            return existing;
+        }
+        if (generation.get() != observed) {
+            statements.remove(key, prepared);
+        }
+        return prepared;
+    }
+
+    /**
+     * Get the number of prepared statements in the cache.
+     *
+     * @return The number of statements.
+     */
+    public int size() {
+        return statements.size();
+    }
+
+    /**
+     * Discard all the prepared statements.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        statements.clear();
+    }
+
+    /**
+     * Discard the prepared statements for the tables in a keyspace.
+     *
+     * @param keyspace The keyspace.
+     */
+    public void invalidate(final String keyspace) {
+        generation.incrementAndGet();
+        statements.keySet().removeIf(key -> Objects.equals(key.keyspace, keyspace));
+    }
+
+    /**
+     * Discard the prepared statements for a table.
+     *
+     * @param keyspace The keyspace.
+     * @param table    The table.
+     */
+    public void invalidate(final String keyspace,
+                           final String table) {
+        generation.incrementAndGet();
+        statements.keySet().removeIf(key -> Objects.equals(key.keyspace, keyspace) && key.table.equals(table));
+    }
+
+    /**
+     * Identifies a prepared statement.
+     */
+    private static final class Key {
+
+        private final String keyspace;
+        private final String table;
+        private final String kind;
+        private final List<String> columns;
+        private final int hash;
+
+        Key(final String keyspace,
+            final String table,
+            final String kind,
+            final List<String> columns) {
+            this.keyspace = keyspace;
+            this.table = table;
+            this.kind = kind;
+            this.columns = ImmutableList.copyOf(columns);
+            hash = Objects.hash(keyspace, table, kind, this.columns);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return hash == other.hash
+                    && Objects.equals(keyspace, other.keyspace)
+                    && table.equals(other.table)
+                    && kind.equals(other.kind)
+                    && columns.equals(other.columns);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
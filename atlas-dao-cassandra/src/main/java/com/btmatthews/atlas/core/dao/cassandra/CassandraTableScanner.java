@@ -0,0 +1,410 @@
+package com.btmatthews.atlas.core.dao.cassandra;
+
+import com.btmatthews.atlas.core.dao.DataAccessException;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.exceptions.DriverException;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Scans a whole table by splitting the token ring into ranges and reading several ranges in parallel. The ring is
+ * read from the {@code tokens} columns of the {@code system.local} and {@code system.peers} tables, so every range
+ * lies within the range owned by a single node and never spans two replica sets, and each of those ranges is
+ * divided into {@link #getSplitsPerRange()} smaller ranges so the work is spread evenly between the threads. A range
+ * is read with {@code token(id) > ? AND token(id) <= ?} queries that are paged by the driver. The statements carry
+ * no routing key, so the coordinator is chosen by the cluster's load balancing policy and may have to forward the
+ * reads to a replica.
+ * <p>
+ * A range that fails is retried from the token of the last row that was read, up to {@link #getMaxRetries()} times.
+ * The delay before each retry starts at {@link #getRetryDelay()} milliseconds and doubles with every attempt, up to
+ * {@link #MAX_RETRY_DELAY} milliseconds.
+ * Progress is reported to a listener as each range completes and the number of rows read is published as a meter
+ * in the template's metric registry, from which the throughput of the scan can be read.
+ * <p>
+ * Only the {@code Murmur3Partitioner} and {@code RandomPartitioner} are supported.
+ *
+ * @param <ID> The identifier type.
+ * @param <I>  The interface that describes the persistent entity.
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class CassandraTableScanner<ID, I> {
+
+    /**
+     * The default number of ranges that are read in parallel.
+     */
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * The default number of ranges each node's range is divided into.
+     */
+    public static final int DEFAULT_SPLITS_PER_RANGE = 4;
+
+    /**
+     * The default number of times a range is retried.
+     */
+    public static final int DEFAULT_MAX_RETRIES = 3;
+
+    /**
+     * The default delay in milliseconds before the first retry of a range.
+     */
+    public static final long DEFAULT_RETRY_DELAY = 100;
+
+    /**
+     * The maximum delay in milliseconds between the retries of a range.
+     */
+    public static final long MAX_RETRY_DELAY = 10000;
+
+    private static final String MURMUR3_PARTITIONER = "Murmur3Partitioner";
+    private static final String RANDOM_PARTITIONER = "RandomPartitioner";
+
+    private final CassandraDAOImpl<ID, I> dao;
+    private final Session session;
+    private final Meter rows;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private int splitsPerRange = DEFAULT_SPLITS_PER_RANGE;
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+    private long retryDelay = DEFAULT_RETRY_DELAY;
+    private int fetchSize;
+
+    CassandraTableScanner(final CassandraDAOImpl<ID, I> dao,
+                          final Session session,
+                          final MetricRegistry metricRegistry,
+                          final String keyspace,
+                          final String table) {
+        this.dao = dao;
+        this.session = session;
+        rows = metricRegistry.meter(MetricRegistry.name(CassandraTableScanner.class, keyspace, table, "rows"));
+        fetchSize = dao.getFetchSize();
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(final int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+    }
+
+    public int getSplitsPerRange() {
+        return splitsPerRange;
+    }
+
+    public void setSplitsPerRange(final int splitsPerRange) {
+        if (splitsPerRange < 1) {
+            throw new IllegalArgumentException("splitsPerRange must be positive");
+        }
+        this.splitsPerRange = splitsPerRange;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(final int maxRetries) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("maxRetries must not be negative");
+        }
+        this.maxRetries = maxRetries;
+    }
+
+    public long getRetryDelay() {
+        return retryDelay;
+    }
+
+    /**
+     * Set the delay before the first retry of a range. The delay doubles with every further attempt.
+     *
+     * @param retryDelay The delay in milliseconds.
+     */
+    public void setRetryDelay(final long retryDelay) {
+        if (retryDelay < 0) {
+            throw new IllegalArgumentException("retryDelay must not be negative");
+        }
+        this.retryDelay = retryDelay;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(final int fetchSize) {
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException("fetchSize must be positive");
+        }
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Get the meter that counts the rows read by the scans of the table.
+     *
+     * @return The meter.
+     */
+    public Meter getRows() {
+        return rows;
+    }
+
+    /**
+     * Scan the table.
+     *
+     * @param consumer Receives each entity. It is called from several threads at once.
+     * @return The number of entities read.
+     * @throws DataAccessException If any range could not be read after retrying.
+     */
+    public long scan(final Consumer<? super I> consumer) {
+        return scan(consumer, (completedRanges, totalRanges, rowsRead) -> {
+        });
+    }
+
+    /**
+     * Scan the table, reporting progress as each range completes.
+     *
+     * @param consumer Receives each entity. It is called from several threads at once.
+     * @param listener Receives the progress of the scan. It is called from several threads at once.
+     * @return The number of entities read.
+     * @throws DataAccessException If any range could not be read after retrying.
+     */
+    public long scan(final Consumer<? super I> consumer,
+                     final ProgressListener listener) {
+        final Partitioner partitioner = partitioner();
+        final List<BigInteger[]> ranges = split(partitioner, ring());
+        final CassandraEntityCodec<? extends I> codec = dao.codec(session);
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicLong total = new AtomicLong();
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, ranges.size()));
+        try {
+            final List<Future<?>> futures = new ArrayList<>(ranges.size());
+            for (final BigInteger[] range : ranges) {
+                futures.add(executor.submit(() -> {
+                    final long count = scanRange(partitioner, codec, range[0], range[1], consumer);
+                    listener.onProgress(completed.incrementAndGet(), ranges.size(), total.addAndGet(count));
+                }));
+            }
+            final List<Throwable> failures = new ArrayList<>();
+            for (final Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (final ExecutionException e) {
+                    failures.add(e.getCause());
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new DataAccessException("Interrupted while scanning the table", e);
+                }
+            }
+            if (!failures.isEmpty()) {
+                final DataAccessException exception = new DataAccessException(
+                        failures.size() + " of " + ranges.size() + " token ranges failed", failures.get(0));
+                for (final Throwable failure : failures.subList(1, failures.size())) {
+                    exception.addSuppressed(failure);
+                }
+                throw exception;
+            }
+            return total.get();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Read the rows in a token range, resuming from the last token that was read if the range has to be retried.
+     *
+     * @return The number of rows read.
+     */
+    private long scanRange(final Partitioner partitioner,
+                           final CassandraEntityCodec<? extends I> codec,
+                           final BigInteger start,
+                           final BigInteger end,
+                           final Consumer<? super I> consumer) {
+        final int tokenIndex = codec.getColumns().size();
+        BigInteger after = start;
+        long count = 0;
+        int attempt = 0;
+        while (true) {
+            try {
+                final BoundStatement statement = dao.scanStatement(session, codec,
+                        partitioner.bind(after), partitioner.bind(end));
+                statement.setFetchSize(fetchSize);
+                final ResultSet results = dao.execute(session, statement);
+                for (final Row row : results) {
+                    consumer.accept(codec.decode(row));
+                    after = partitioner.token(row, tokenIndex);
+                    count++;
+                    rows.mark();
+                }
+                return count;
+            } catch (final DriverException e) {
+                if (++attempt > maxRetries) {
+                    throw e;
+                }
+                backOff(attempt, e);
+            }
+        }
+    }
+
+    /**
+     * Wait before retrying a range, doubling the delay with every attempt up to {@link #MAX_RETRY_DELAY}.
+     *
+     * @param attempt The number of the retry, starting at one.
+     * @param cause   The failure that is being retried.
+     * @throws DataAccessException If the thread is interrupted while waiting.
+     */
+    private void backOff(final int attempt,
+                         final DriverException cause) {
+        long delay = Math.min(retryDelay, MAX_RETRY_DELAY);
+        for (int i = 1; i < attempt && delay < MAX_RETRY_DELAY; i++) {
+            delay = Math.min(delay * 2, MAX_RETRY_DELAY);
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            final DataAccessException exception = new DataAccessException("Interrupted while retrying a token range",
+                    cause);
+            exception.addSuppressed(e);
+            throw exception;
+        }
+    }
+
+    private Partitioner partitioner() {
+        final String name = session.getCluster().getMetadata().getPartitioner();
+        if (name != null && name.endsWith(MURMUR3_PARTITIONER)) {
+            return Partitioner.MURMUR3;
+        } else if (name != null && name.endsWith(RANDOM_PARTITIONER)) {
+            return Partitioner.RANDOM;
+        }
+        throw new UnsupportedOperationException("Token range scans are not supported by " + name);
+    }
+
+    /**
+     * Read the tokens owned by the nodes in the cluster.
+     *
+     * @return The tokens in ascending order.
+     */
+    private TreeSet<BigInteger> ring() {
+        final TreeSet<BigInteger> tokens = new TreeSet<>();
+        for (final Row row : session.execute("SELECT tokens FROM system.local")) {
+            for (final String token : row.getSet("tokens", String.class)) {
+                tokens.add(new BigInteger(token));
+            }
+        }
+        for (final Row row : session.execute("SELECT tokens FROM system.peers")) {
+            for (final String token : row.getSet("tokens", String.class)) {
+                tokens.add(new BigInteger(token));
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Split the ring into ranges that each start after one token and end at the next, dividing the ranges that
+     * wrap around the ring at the minimum token and dividing every range into {@link #splitsPerRange} parts.
+     *
+     * @return The ranges as pairs of start and end tokens.
+     */
+    private List<BigInteger[]> split(final Partitioner partitioner,
+                                     final TreeSet<BigInteger> tokens) {
+        final List<BigInteger[]> ranges = new ArrayList<>();
+        BigInteger previous = partitioner.min;
+        for (final BigInteger token : tokens) {
+            divide(previous, token, ranges);
+            previous = token;
+        }
+        divide(previous, partitioner.max, ranges);
+        return ranges;
+    }
+
+    private void divide(final BigInteger start,
+                        final BigInteger end,
+                        final List<BigInteger[]> ranges) {
+        final BigInteger width = end.subtract(start);
+        if (width.signum() <= 0) {
+            return;
+        }
+        final BigInteger splits = BigInteger.valueOf(splitsPerRange).min(width);
+        BigInteger from = start;
+        for (int i = 1; i <= splits.intValue(); i++) {
+            final BigInteger to = i == splits.intValue()
+                    ? end
+                    : start.add(width.multiply(BigInteger.valueOf(i)).divide(splits));
+            ranges.add(new BigInteger[]{from, to});
+            from = to;
+        }
+    }
+
+    /**
+     * Receives the progress of a scan.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+
+        /**
+         * Called when a range has been read.
+         *
+         * @param completedRanges The number of ranges that have been read.
+         * @param totalRanges     The number of ranges in the scan.
+         * @param rowsRead        The number of rows read from the completed ranges.
+         */
+        void onProgress(int completedRanges, int totalRanges, long rowsRead);
+    }
+
+    /**
+     * The token ranges of the supported partitioners.
+     */
+    private enum Partitioner {
+
+        MURMUR3(BigInteger.valueOf(Long.MIN_VALUE), BigInteger.valueOf(Long.MAX_VALUE)) {
+            @Override
+            Object bind(final BigInteger token) {
+                return token.longValue();
+            }
+
+            @Override
+            BigInteger token(final Row row, final int index) {
+                return BigInteger.valueOf(row.getLong(index));
+            }
+        },
+
+        RANDOM(BigInteger.ONE.negate(), BigInteger.ONE.shiftLeft(127)) {
+            @Override
+            Object bind(final BigInteger token) {
+                return token;
+            }
+
+            @Override
+            BigInteger token(final Row row, final int index) {
+                return row.getVarint(index);
+            }
+        };
+
+        private final BigInteger min;
+        private final BigInteger max;
+
+        Partitioner(final BigInteger min,
+                    final BigInteger max) {
+            this.min = min;
+            this.max = max;
+        }
+
+        abstract Object bind(BigInteger token);
+
+        abstract BigInteger token(Row row, int index);
+    }
+}
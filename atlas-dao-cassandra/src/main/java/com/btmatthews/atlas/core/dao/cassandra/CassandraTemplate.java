@@ -1,39 +1,336 @@
 package com.btmatthews.atlas.core.dao.cassandra;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
 import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.Host;
 import com.datastax.driver.core.Session;
 
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
- * Created by bmatthews68 on 31/03/2014.
+ * Runs callbacks with long-lived sessions that are shared by all the threads using the template. A session is
+ * created for each keyspace the first time it is used and is kept open until the template is shut down. Sessions
+ * are thread-safe and own the connection pools to the hosts in the cluster, so they must not be closed by callbacks.
+ * <p>
+ * The number of open connections and in-flight queries of each session are published as gauges in the metric
+ * registry, both in total and for each connected host. The metric names include the name of the template, which is
+ * unique within the class loader, so templates can share a registry and each template only removes the metrics it
+ * registered itself.
+ * <p>
+ * When the template is declared as a Spring bean, {@link #shutdown()} or {@link #close()} should be used as the
+ * destroy method so the sessions are closed with the application context. The cluster itself is not closed because
+ * it may be shared with other templates.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
  */
-public class CassandraTemplate {
+public class CassandraTemplate implements AutoCloseable {
+
+    /**
+     * The name used in the metrics for the session that is not bound to a keyspace.
+     */
+    private static final String DEFAULT_SESSION = "default";
+
+    /**
+     * Used to name the templates.
+     */
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
 
-    private Cluster cluster;
+    private final String name = "template" + INSTANCES.incrementAndGet();
+    private final Cluster cluster;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final CassandraStatementCache statementCache = new CassandraStatementCache();
+    private final Map<String, Boolean> hostGauges = new ConcurrentHashMap<>();
+    private final Set<String> metricNames = ConcurrentHashMap.newKeySet();
+    private final MetricRegistry metricRegistry;
+    private final Host.StateListener hostListener = new HostListener();
+    private final AtomicBoolean listening = new AtomicBoolean();
+    private volatile boolean shutdown;
 
     public CassandraTemplate(final Cluster cluster) {
+        this(cluster, new MetricRegistry());
+    }
+
+    public CassandraTemplate(final Cluster cluster,
+                             final MetricRegistry metricRegistry) {
+        if (cluster == null) {
+            throw new IllegalArgumentException("cluster must not be null");
+        }
+        if (metricRegistry == null) {
+            throw new IllegalArgumentException("metricRegistry must not be null");
+        }
         this.cluster = cluster;
+        this.metricRegistry = metricRegistry;
     }
 
-    public void executeVoid(final VoidCallback callback) {
-        final Session session = cluster.connect();
-        if (session != null) {
-            try {
-                callback.doWithSession(session);
-            } finally {
-                session.close();
+    public MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
+    /**
+     * Get the name of the template that is used in the names of its metrics.
+     *
+     * @return The name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the cache of the statements prepared by the data access objects that share this template.
+     *
+     * @return The statement cache.
+     */
+    public CassandraStatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    /**
+     * Get the shared session that is not bound to a keyspace, creating it if necessary.
+     *
+     * @return The session.
+     */
+    public Session getSession() {
+        return getSession(null);
+    }
+
+    /**
+     * Get the shared session for a keyspace, creating it if necessary. Threads that ask for a new session at the same
+     * time may each connect, in which case the sessions that are not kept are closed.
+     *
+     * @param keyspace The keyspace or {@code null} for a session that is not bound to a keyspace.
+     * @return The session.
+     * @throws IllegalStateException If the template has been shut down.
+     */
+    public Session getSession(final String keyspace) {
+        if (shutdown) {
+            throw new IllegalStateException("The template has been shut down");
+        }
+        final String sessionName = keyspace == null ? DEFAULT_SESSION : keyspace;
+        Session session = sessions.get(sessionName);
+        if (session == null) {
+            final Session created = keyspace == null ? cluster.connect() : cluster.connect(keyspace);
+            session = sessions.putIfAbsent(sessionName, created);
+            if (session == null) {
+                session = created;
+                try {
+                    registerSessionGauges(sessionName, created);
+                } catch (final RuntimeException e) {
+                    sessions.remove(sessionName, created);
+                    removeSessionGauges(sessionName);
+                    created.close();
+                    throw e;
+                }
+            } else {
+                created.close();
             }
         }
+        if (shutdown) {
+            closeSessions();
+            throw new IllegalStateException("The template has been shut down");
+        }
+        return session;
+    }
+
+    public void executeVoid(final VoidCallback callback) {
+        callback.doWithSession(getSession());
+    }
+
+    public void executeVoid(final String keyspace,
+                            final VoidCallback callback) {
+        callback.doWithSession(getSession(keyspace));
     }
 
     public <T> T execute(final Callback<T> callback) {
-        final Session session = cluster.connect();
-        if (session != null) {
-            try {
-                return callback.doWithSession(session);
-            } finally {
+        return callback.doWithSession(getSession());
+    }
+
+    public <T> T execute(final String keyspace,
+                         final Callback<T> callback) {
+        return callback.doWithSession(getSession(keyspace));
+    }
+
+    /**
+     * Close all the sessions. Callbacks cannot be run once the template has been shut down.
+     */
+    public void shutdown() {
+        shutdown = true;
+        if (listening.compareAndSet(true, false)) {
+            cluster.unregister(hostListener);
+        }
+        closeSessions();
+        statementCache.invalidate();
+    }
+
+    /**
+     * Close all the sessions.
+     */
+    @Override
+    public void close() {
+        shutdown();
+    }
+
+    /**
+     * Register the gauges for the connections of a session.
+     *
+     * @param sessionName The name of the session.
+     * @param session     The session.
+     */
+    private void registerSessionGauges(final String sessionName,
+                                       final Session session) {
+        register(metricName(sessionName, "openConnections"),
+                (Gauge<Integer>) () -> {
+                    final Session.State state = session.getState();
+                    int total = 0;
+                    for (final Host host : state.getConnectedHosts()) {
+                        total += state.getOpenConnections(host);
+                    }
+                    return total;
+                });
+        register(metricName(sessionName, "inFlightQueries"),
+                (Gauge<Integer>) () -> {
+                    final Session.State state = session.getState();
+                    int total = 0;
+                    for (final Host host : state.getConnectedHosts()) {
+                        total += state.getInFlightQueries(host);
+                    }
+                    return total;
+                });
+        if (listening.compareAndSet(false, true)) {
+            cluster.register(hostListener);
+        }
+        for (final Host host : cluster.getMetadata().getAllHosts()) {
+            registerHostGauges(sessionName, session, host);
+        }
+    }
+
+    /**
+     * Register the gauges for the connections of a session to a host unless they have already been registered.
+     *
+     * @param sessionName The name of the session.
+     * @param session     The session.
+     * @param host        The host.
+     */
+    private void registerHostGauges(final String sessionName,
+                                    final Session session,
+                                    final Host host) {
+        final String address = host.getAddress().getHostAddress();
+        if (hostGauges.putIfAbsent(sessionName + '/' + address, Boolean.TRUE) == null) {
+            register(metricName(sessionName, address, "openConnections"),
+                    (Gauge<Integer>) () -> session.getState().getOpenConnections(host));
+            register(metricName(sessionName, address, "inFlightQueries"),
+                    (Gauge<Integer>) () -> session.getState().getInFlightQueries(host));
+        }
+    }
+
+    /**
+     * Remove the gauges for the connections of the sessions to a host that has left the cluster.
+     *
+     * @param host The host.
+     */
+    private void removeHostGauges(final Host host) {
+        final String address = host.getAddress().getHostAddress();
+        for (final String sessionName : sessions.keySet()) {
+            if (hostGauges.remove(sessionName + '/' + address) != null) {
+                remove(metricName(sessionName, address, "openConnections"));
+                remove(metricName(sessionName, address, "inFlightQueries"));
+            }
+        }
+    }
+
+    /**
+     * Remove all the gauges for a session, including those for its connections to each host.
+     *
+     * @param sessionName The name of the session.
+     */
+    private void removeSessionGauges(final String sessionName) {
+        final String prefix = metricName(sessionName) + '.';
+        for (final String metricName : metricNames) {
+            if (metricName.startsWith(prefix)) {
+                remove(metricName);
+            }
+        }
+        hostGauges.keySet().removeIf(key -> key.startsWith(sessionName + '/'));
+    }
+
+    /**
+     * Get the name of a metric of this template.
+     *
+     * @param names The components of the name that follow the name of the template.
+     * @return The name of the metric.
+     */
+    private String metricName(final String... names) {
+        return MetricRegistry.name(MetricRegistry.name(CassandraTemplate.class, name), names);
+    }
+
+    /**
+     * Register a metric and remember that it belongs to this template.
+     *
+     * @param metricName The name of the metric.
+     * @param metric     The metric.
+     */
+    private void register(final String metricName,
+                          final Metric metric) {
+        metricRegistry.register(metricName, metric);
+        metricNames.add(metricName);
+    }
+
+    /**
+     * Remove a metric if it was registered by this template.
+     *
+     * @param metricName The name of the metric.
+     */
+    private void remove(final String metricName) {
+        if (metricNames.remove(metricName)) {
+            metricRegistry.remove(metricName);
+        }
+    }
+
+    private void closeSessions() {
+        for (final String sessionName : sessions.keySet()) {
+            final Session session = sessions.remove(sessionName);
+            if (session != null) {
+                removeSessionGauges(sessionName);
                 session.close();
             }
         }
-        return null;
+        hostGauges.clear();
+    }
+
+    /**
+     * Registers the gauges for hosts that join the cluster after the sessions were created.
+     */
+    private final class HostListener implements Host.StateListener {
+
+        @Override
+        public void onAdd(final Host host) {
+            onUp(host);
+        }
+
+        @Override
+        public void onUp(final Host host) {
+            for (final Map.Entry<String, Session> entry : sessions.entrySet()) {
+                registerHostGauges(entry.getKey(), entry.getValue(), host);
+            }
+        }
+
+        @Override
+        public void onSuspected(final Host host) {
+        }
+
+        @Override
+        public void onDown(final Host host) {
+        }
+
+        @Override
+        public void onRemove(final Host host) {
+            removeHostGauges(host);
+        }
     }
 }
@@ -0,0 +1,206 @@
+package com.btmatthews.atlas.core.dao.cassandra;
+
+import com.btmatthews.atlas.core.dao.DataAccessException;
+import com.codahale.metrics.MetricRegistry;
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.ColumnDefinitions;
+import com.datastax.driver.core.PreparedId;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.exceptions.DriverException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test the {@link CassandraBatchWriter} grouping and limits. The entities written by the tests are the
+ * statements that the mock data access object binds for them.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class TestCassandraBatchWriter {
+
+    /**
+     * Used to collect test failures within a single test case.
+     */
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+    /**
+     * The statements sent by the batch writer being tested.
+     */
+    private final List<Statement> sent = new ArrayList<>();
+    /**
+     * Set to make the statements sent by the batch writer being tested fail.
+     */
+    private DriverException failure;
+    private MetricRegistry metricRegistry;
+    private CassandraBatchWriter<String, BoundStatement> writer;
+
+    /**
+     * Prepare for test case execution.
+     */
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        final Session session = mock(Session.class);
+        final CassandraDAOImpl<String, BoundStatement> dao = mock(CassandraDAOImpl.class);
+        when(dao.bindCreate(any(Session.class), anyString(), any(BoundStatement.class)))
+                .thenAnswer(invocation -> invocation.getArguments()[2]);
+        when(dao.executeAsync(any(Session.class), any(Statement.class))).thenAnswer(invocation -> {
+            sent.add((Statement) invocation.getArguments()[1]);
+            final CompletableFuture<ResultSet> result = new CompletableFuture<>();
+            if (failure == null) {
+                result.complete(null);
+            } else {
+                result.completeExceptionally(failure);
+            }
+            return result;
+        });
+        metricRegistry = new MetricRegistry();
+        writer = new CassandraBatchWriter<>(dao, session, metricRegistry, "atlas", "people");
+    }
+
+    @Test
+    public void statementsForTheSamePartitionAreBatchedTogether() {
+        writer.create("1", statement("a", 1));
+        writer.create("2", statement("b", 1));
+        writer.create("3", statement("a", 1));
+        writer.create("4", statement("b", 1));
+        writer.create("5", statement("a", 1));
+        collector.checkThat(writer.getPendingStatements(), is(equalTo(5)));
+        collector.checkThat(sent, is(empty()));
+        writer.flush();
+        collector.checkThat(writer.getPendingStatements(), is(equalTo(0)));
+        collector.checkThat(writer.getBatchesSent(), is(equalTo(2L)));
+        collector.checkThat(writer.getStatementsSent(), is(equalTo(5L)));
+        collector.checkThat(batchSizes(), contains(3, 2));
+    }
+
+    @Test
+    public void singleStatementIsNotBatched() {
+        final BoundStatement statement = statement("a", 1);
+        writer.create("1", statement);
+        writer.flush();
+        collector.checkThat(sent, contains((Statement) statement));
+    }
+
+    @Test
+    public void batchIsSentWhenStatementLimitIsReached() {
+        writer.setMaxBatchStatements(2);
+        for (int i = 0; i < 5; i++) {
+            writer.create(Integer.toString(i), statement("a", 1));
+        }
+        collector.checkThat(writer.getBatchesSent(), is(equalTo(2L)));
+        collector.checkThat(writer.getPendingStatements(), is(equalTo(1)));
+        writer.flush();
+        collector.checkThat(batchSizes(), contains(2, 2, 1));
+    }
+
+    @Test
+    public void batchIsSentWhenByteLimitIsReached() {
+        writer.setMaxBatchBytes(10);
+        writer.create("1", statement("a", 4));
+        writer.create("2", statement("a", 4));
+        writer.create("3", statement("a", 4));
+        collector.checkThat(writer.getBatchesSent(), is(equalTo(1L)));
+        writer.flush();
+        collector.checkThat(batchSizes(), contains(2, 1));
+        collector.checkThat(metricRegistry.getHistograms()
+                .get("com.btmatthews.atlas.core.dao.cassandra.CassandraBatchWriter.atlas.people.bytes")
+                .getSnapshot().getMax(), is(equalTo(8L)));
+    }
+
+    @Test
+    public void statementLargerThanByteLimitIsSentAlone() {
+        writer.setMaxBatchBytes(10);
+        writer.create("1", statement("a", 1));
+        writer.create("2", statement("a", 10));
+        collector.checkThat(writer.getBatchesSent(), is(equalTo(1L)));
+        collector.checkThat(writer.getPendingStatements(), is(equalTo(1)));
+        writer.flush();
+        collector.checkThat(batchSizes(), contains(1, 1));
+    }
+
+    @Test
+    public void statementWithoutRoutingKeyIsSentAlone() {
+        writer.create("1", statement(null, 1));
+        collector.checkThat(writer.getBatchesSent(), is(equalTo(1L)));
+        collector.checkThat(writer.getPendingStatements(), is(equalTo(0)));
+    }
+
+    @Test
+    public void pendingBatchesAreSentWhenPendingLimitIsExceeded() {
+        writer.setMaxPendingStatements(3);
+        writer.create("1", statement("a", 1));
+        writer.create("2", statement("b", 1));
+        writer.create("3", statement("c", 1));
+        collector.checkThat(sent, is(empty()));
+        writer.create("4", statement("a", 1));
+        collector.checkThat(writer.getPendingStatements(), is(equalTo(0)));
+        collector.checkThat(batchSizes(), contains(2, 1, 1));
+    }
+
+    @Test(expected = DataAccessException.class)
+    public void flushReportsFailedBatches() {
+        failure = new DriverException("Write failed");
+        writer.create("1", statement("a", 1));
+        writer.flush();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxBatchStatementsMustBePositive() {
+        writer.setMaxBatchStatements(0);
+    }
+
+    /**
+     * Get the number of statements in each statement that was sent.
+     *
+     * @return The number of statements.
+     */
+    private List<Integer> batchSizes() {
+        final List<Integer> sizes = new ArrayList<>();
+        for (final Statement statement : sent) {
+            sizes.add(statement instanceof BatchStatement ? ((BatchStatement) statement).getStatements().size() : 1);
+        }
+        return sizes;
+    }
+
+    /**
+     * Create a statement with a single variable.
+     *
+     * @param partition The routing key or {@code null} if the statement has none.
+     * @param bytes     The number of bytes bound to the variable.
+     * @return The bound statement.
+     */
+    private static BoundStatement statement(final String partition,
+                                            final int bytes) {
+        final PreparedStatement prepared = mock(PreparedStatement.class);
+        final ColumnDefinitions definitions = mock(ColumnDefinitions.class);
+        when(definitions.size()).thenReturn(1);
+        when(prepared.getVariables()).thenReturn(definitions);
+        when(prepared.getPreparedId()).thenReturn(mock(PreparedId.class));
+        if (partition != null) {
+            when(prepared.getRoutingKey()).thenReturn(ByteBuffer.wrap(partition.getBytes(StandardCharsets.UTF_8)));
+        }
+        final BoundStatement statement = new BoundStatement(prepared);
+        statement.setBytesUnsafe(0, ByteBuffer.allocate(bytes));
+        return statement;
+    }
+}
@@ -0,0 +1,307 @@
+package com.btmatthews.atlas.core.dao.cassandra;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.ColumnMetadata;
+import com.datastax.driver.core.Configuration;
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ProtocolOptions;
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.TableMetadata;
+import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test the {@link CassandraDAOImpl} paging state, the order of concurrent reads and the window of statements in
+ * flight.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class TestCassandraDAOImpl {
+
+    private static final int PROTOCOL_VERSION = 2;
+
+    /**
+     * Used to collect test failures within a single test case.
+     */
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+    /**
+     * The statements sent to the mock session that have not completed in the order they were sent.
+     */
+    private final List<PendingResult> pending = Collections.synchronizedList(new ArrayList<>());
+    private Session session;
+    private ExecutorService executor;
+    private CassandraDAOImpl<String, Object> dao;
+
+    /**
+     * Prepare for test case execution.
+     */
+    @Before
+    public void setup() {
+        session = mock(Session.class);
+        when(session.executeAsync(any(Statement.class))).thenAnswer(invocation -> {
+            final PendingResult result = new PendingResult();
+            pending.add(result);
+            return result;
+        });
+        executor = Executors.newSingleThreadExecutor();
+        dao = new CassandraDAOImpl<>(mock(Cluster.class), Object.class, "atlas", "people");
+    }
+
+    /**
+     * Stop the thread used to wait for statements.
+     */
+    @After
+    public void teardown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void pagingStateRoundTrips() {
+        final ByteBuffer id = ByteBuffer.wrap(new byte[]{0, 1, 2, (byte) 0xfb, (byte) 0xff});
+        final String pagingState = CassandraDAOImpl.encodePagingState(id);
+        collector.checkThat(CassandraDAOImpl.decodePagingState(pagingState), is(equalTo(id)));
+        collector.checkThat(id.remaining(), is(equalTo(5)));
+    }
+
+    @Test
+    public void pagingStateIsUrlSafeWithoutPadding() {
+        final String pagingState = CassandraDAOImpl.encodePagingState(
+                ByteBuffer.wrap(new byte[]{(byte) 0xfb, (byte) 0xff, (byte) 0xbf, 0}));
+        collector.checkThat(pagingState, is(equalTo("-_-_AA")));
+    }
+
+    @Test
+    public void pagingStateIsReadFromThePositionOfTheBuffer() {
+        final ByteBuffer buffer = ByteBuffer.wrap(new byte[]{9, 9, 1, 2, 3});
+        buffer.position(2);
+        collector.checkThat(CassandraDAOImpl.decodePagingState(CassandraDAOImpl.encodePagingState(buffer)),
+                is(equalTo(ByteBuffer.wrap(new byte[]{1, 2, 3}))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidPagingStateIsRejected() {
+        dao.find(10, "not a paging state");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pageSizeMustBePositive() {
+        dao.find(0, null);
+    }
+
+    @Test
+    public void readsAreSentConcurrentlyAndReturnedInTheOrderOfTheirIdentifiers() throws Exception {
+        final CassandraDAOImpl<String, Entity> entities = new CassandraDAOImpl<>(template(), Entity.class, "atlas",
+                "people");
+        final Future<List<Optional<Entity>>> read = executor.submit(() -> entities.read("1", "2", "3"));
+        awaitPending(3);
+        complete(2, row("3"));
+        complete(1, null);
+        complete(0, row("1"));
+        final List<Optional<Entity>> result = read.get(10, TimeUnit.SECONDS);
+        collector.checkThat(result, hasSize(3));
+        collector.checkThat(result.get(0).get().id, is(equalTo("1")));
+        collector.checkThat(result.get(1).isPresent(), is(false));
+        collector.checkThat(result.get(2).get().id, is(equalTo("3")));
+    }
+
+    @Test
+    public void windowLimitsTheStatementsInFlight() throws Exception {
+        dao.setMaxInFlight(2);
+        final CompletableFuture<ResultSet> first = dao.executeAsync(session, null);
+        dao.executeAsync(session, null);
+        collector.checkThat(dao.getInFlight(), is(equalTo(2)));
+        final Future<CompletableFuture<ResultSet>> third = executor.submit(() -> dao.executeAsync(session, null));
+        checkBlocked(third);
+        complete(0, null);
+        third.get(10, TimeUnit.SECONDS);
+        collector.checkThat(first.isDone(), is(true));
+        collector.checkThat(pending, hasSize(3));
+        collector.checkThat(dao.getInFlight(), is(equalTo(2)));
+    }
+
+    @Test
+    public void windowCanBeShrunkWhileStatementsAreInFlight() throws Exception {
+        dao.setMaxInFlight(3);
+        for (int i = 0; i < 3; i++) {
+            dao.executeAsync(session, null);
+        }
+        dao.setMaxInFlight(1);
+        collector.checkThat(dao.getInFlight(), is(equalTo(3)));
+        final Future<CompletableFuture<ResultSet>> fourth = executor.submit(() -> dao.executeAsync(session, null));
+        complete(0, null);
+        complete(1, null);
+        collector.checkThat(dao.getInFlight(), is(equalTo(1)));
+        checkBlocked(fourth);
+        complete(2, null);
+        fourth.get(10, TimeUnit.SECONDS);
+        collector.checkThat(dao.getInFlight(), is(equalTo(1)));
+        complete(3, null);
+        collector.checkThat(dao.getInFlight(), is(equalTo(0)));
+    }
+
+    @Test
+    public void windowCanBeGrownWhileStatementsAreWaiting() throws Exception {
+        dao.setMaxInFlight(1);
+        dao.executeAsync(session, null);
+        final Future<CompletableFuture<ResultSet>> second = executor.submit(() -> dao.executeAsync(session, null));
+        checkBlocked(second);
+        dao.setMaxInFlight(2);
+        second.get(10, TimeUnit.SECONDS);
+        collector.checkThat(dao.getInFlight(), is(equalTo(2)));
+        complete(0, null);
+        complete(1, null);
+        collector.checkThat(dao.getInFlight(), is(equalTo(0)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxInFlightMustBePositive() {
+        dao.setMaxInFlight(0);
+    }
+
+    /**
+     * Create a mock template whose session describes a table with a single {@code id} column.
+     *
+     * @return The template.
+     */
+    @SuppressWarnings("unchecked")
+    private CassandraTemplate template() {
+        final Cluster cluster = mock(Cluster.class);
+        final Metadata metadata = mock(Metadata.class);
+        final KeyspaceMetadata keyspaceMetadata = mock(KeyspaceMetadata.class);
+        final TableMetadata tableMetadata = mock(TableMetadata.class);
+        final Configuration configuration = mock(Configuration.class);
+        final ProtocolOptions protocolOptions = mock(ProtocolOptions.class);
+        final ColumnMetadata id = mock(ColumnMetadata.class);
+        when(session.getCluster()).thenReturn(cluster);
+        when(session.prepare(any(RegularStatement.class))).thenReturn(mock(PreparedStatement.class));
+        when(cluster.getMetadata()).thenReturn(metadata);
+        when(cluster.getConfiguration()).thenReturn(configuration);
+        when(configuration.getProtocolOptions()).thenReturn(protocolOptions);
+        when(protocolOptions.getProtocolVersion()).thenReturn(PROTOCOL_VERSION);
+        when(metadata.getKeyspace("atlas")).thenReturn(keyspaceMetadata);
+        when(keyspaceMetadata.getTable("people")).thenReturn(tableMetadata);
+        when(id.getName()).thenReturn("id");
+        when(id.getType()).thenReturn(DataType.text());
+        when(tableMetadata.getColumn("id")).thenReturn(id);
+        when(tableMetadata.getColumns()).thenReturn(Collections.singletonList(id));
+        when(tableMetadata.getPartitionKey()).thenReturn(Collections.singletonList(id));
+        when(tableMetadata.getPrimaryKey()).thenReturn(Collections.singletonList(id));
+        final CassandraTemplate template = mock(CassandraTemplate.class);
+        when(template.getStatementCache()).thenReturn(new CassandraStatementCache());
+        when(template.execute(eq("atlas"), any(Callback.class)))
+                .thenAnswer(invocation -> ((Callback<?>) invocation.getArguments()[1]).doWithSession(session));
+        return template;
+    }
+
+    private static Row row(final String id) {
+        final Row row = mock(Row.class);
+        when(row.getBytesUnsafe(0)).thenReturn(DataType.text().serialize(id, PROTOCOL_VERSION));
+        return row;
+    }
+
+    /**
+     * Complete a statement sent to the mock session.
+     *
+     * @param index The index of the statement in the order the statements were sent.
+     * @param row   The row returned by the statement or {@code null} if it did not return a row.
+     */
+    private void complete(final int index,
+                          final Row row) {
+        final ResultSet results = mock(ResultSet.class);
+        when(results.one()).thenReturn(row);
+        pending.get(index).complete(results);
+    }
+
+    private void awaitPending(final int count) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (pending.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        collector.checkThat(pending, hasSize(count));
+    }
+
+    /**
+     * Check that a statement is waiting for room in the window.
+     *
+     * @param future The future of the thread that sends the statement.
+     */
+    private void checkBlocked(final Future<?> future) throws InterruptedException, ExecutionException {
+        try {
+            future.get(100, TimeUnit.MILLISECONDS);
+            collector.addError(new AssertionError("Statement was sent while the window was full"));
+        } catch (final TimeoutException e) {
+            collector.checkThat(future.isDone(), is(false));
+        }
+    }
+
+    /**
+     * The result of a statement sent to the mock session that is completed by the test.
+     */
+    private static final class PendingResult extends AbstractFuture<ResultSet> implements ResultSetFuture {
+
+        void complete(final ResultSet results) {
+            set(results);
+        }
+
+        @Override
+        public ResultSet getUninterruptibly() {
+            try {
+                return Uninterruptibles.getUninterruptibly(this);
+            } catch (final ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        @Override
+        public ResultSet getUninterruptibly(final long timeout,
+                                            final TimeUnit unit) throws TimeoutException {
+            try {
+                return Uninterruptibles.getUninterruptibly(this, timeout, unit);
+            } catch (final ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    static final class Entity {
+
+        private String id;
+
+        Entity() {
+        }
+    }
+}
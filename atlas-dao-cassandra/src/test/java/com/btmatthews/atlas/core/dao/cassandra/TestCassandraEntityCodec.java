@@ -0,0 +1,258 @@
+package com.btmatthews.atlas.core.dao.cassandra;
+
+import com.btmatthews.atlas.core.dao.DataAccessException;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.ColumnDefinitions;
+import com.datastax.driver.core.ColumnMetadata;
+import com.datastax.driver.core.Configuration;
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.PreparedId;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ProtocolOptions;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.TableMetadata;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test the {@link CassandraEntityCodec} mapping plan.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class TestCassandraEntityCodec {
+
+    private static final int PROTOCOL_VERSION = 2;
+
+    /**
+     * Used to collect test failures within a single test case.
+     */
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+    private Session session;
+    private TableMetadata tableMetadata;
+    private final List<ColumnMetadata> columns = new ArrayList<>();
+
+    /**
+     * Prepare for test case execution by describing the {@code atlas.people} table to a mock session.
+     */
+    @Before
+    public void setup() {
+        session = mock(Session.class);
+        final Cluster cluster = mock(Cluster.class);
+        final Metadata metadata = mock(Metadata.class);
+        final KeyspaceMetadata keyspaceMetadata = mock(KeyspaceMetadata.class);
+        final Configuration configuration = mock(Configuration.class);
+        final ProtocolOptions protocolOptions = mock(ProtocolOptions.class);
+        tableMetadata = mock(TableMetadata.class);
+        when(session.getCluster()).thenReturn(cluster);
+        when(cluster.getMetadata()).thenReturn(metadata);
+        when(cluster.getConfiguration()).thenReturn(configuration);
+        when(configuration.getProtocolOptions()).thenReturn(protocolOptions);
+        when(protocolOptions.getProtocolVersion()).thenReturn(PROTOCOL_VERSION);
+        when(metadata.getKeyspace("atlas")).thenReturn(keyspaceMetadata);
+        when(keyspaceMetadata.getTable("people")).thenReturn(tableMetadata);
+        when(tableMetadata.getColumns()).thenReturn(columns);
+    }
+
+    @Test
+    public void columnsAreMappedIgnoringCaseAndUnderscores() {
+        final ColumnMetadata id = column("id", DataType.text());
+        table(id, column("full_name", DataType.text()), column("age", DataType.cint()),
+                column("unmapped", DataType.text()));
+        final CassandraEntityCodec<Person> codec = CassandraEntityCodec.create(session, "atlas", "people", "id",
+                Person.class);
+        collector.checkThat(codec.getColumns(), contains("id", "full_name", "age"));
+        collector.checkThat(codec.getUpdatedColumns(), contains("full_name", "age"));
+        collector.checkThat(codec.getKeyColumns(), contains("id"));
+        collector.checkThat(codec.getPartitionKeyColumns(), contains("id"));
+    }
+
+    /**
+     * A clustering column lets a partition hold many rows, which paging by the token of the {@code id} column would
+     * skip, so the table is rejected even though the column is mapped to a field.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void tableWithMultiRowPartitionsIsRejected() {
+        final ColumnMetadata id = column("id", DataType.text());
+        final ColumnMetadata age = column("age", DataType.cint());
+        table(Collections.singletonList(id), Arrays.asList(id, age), id, column("full_name", DataType.text()), age);
+        CassandraEntityCodec.create(session, "atlas", "people", "id", Person.class);
+    }
+
+    @Test
+    public void rowsAreDecoded() {
+        final ColumnMetadata id = column("id", DataType.text());
+        table(id, column("full_name", DataType.text()), column("age", DataType.cint()));
+        final CassandraEntityCodec<Person> codec = CassandraEntityCodec.create(session, "atlas", "people", "id",
+                Person.class);
+        final Row row = mock(Row.class);
+        when(row.getBytesUnsafe(0)).thenReturn(DataType.text().serialize("1", PROTOCOL_VERSION));
+        when(row.getBytesUnsafe(1)).thenReturn(DataType.text().serialize("Alice Smith", PROTOCOL_VERSION));
+        when(row.getBytesUnsafe(2)).thenReturn(DataType.cint().serialize(42, PROTOCOL_VERSION));
+        final Person person = codec.decode(row);
+        collector.checkThat(person.id, is(equalTo("1")));
+        collector.checkThat(person.fullName, is(equalTo("Alice Smith")));
+        collector.checkThat(person.age, is(equalTo(42)));
+    }
+
+    @Test
+    public void nullColumnsLeavePrimitiveFieldsUnchanged() {
+        final ColumnMetadata id = column("id", DataType.text());
+        table(id, column("full_name", DataType.text()), column("age", DataType.cint()));
+        final CassandraEntityCodec<Person> codec = CassandraEntityCodec.create(session, "atlas", "people", "id",
+                Person.class);
+        final Row row = mock(Row.class);
+        when(row.getBytesUnsafe(0)).thenReturn(DataType.text().serialize("1", PROTOCOL_VERSION));
+        final Person person = codec.decode(row);
+        collector.checkThat(person.fullName, is(nullValue()));
+        collector.checkThat(person.age, is(equalTo(-1)));
+    }
+
+    @Test
+    public void insertIsBoundInColumnOrder() {
+        final ColumnMetadata id = column("id", DataType.text());
+        table(id, column("full_name", DataType.text()), column("age", DataType.cint()));
+        final CassandraEntityCodec<Person> codec = CassandraEntityCodec.create(session, "atlas", "people", "id",
+                Person.class);
+        final BoundStatement statement = codec.bindInsert(statement(3), "1", new Person("Alice Smith", 42));
+        collector.checkThat(statement.getBytesUnsafe(0), is(equalTo(DataType.text().serialize("1", PROTOCOL_VERSION))));
+        collector.checkThat(statement.getBytesUnsafe(1),
+                is(equalTo(DataType.text().serialize("Alice Smith", PROTOCOL_VERSION))));
+        collector.checkThat(statement.getBytesUnsafe(2), is(equalTo(DataType.cint().serialize(42, PROTOCOL_VERSION))));
+    }
+
+    @Test
+    public void updateBindsKeyColumnsAfterUpdatedColumns() {
+        final ColumnMetadata id = column("id", DataType.text());
+        table(id, column("full_name", DataType.text()), column("age", DataType.cint()));
+        final CassandraEntityCodec<Person> codec = CassandraEntityCodec.create(session, "atlas", "people", "id",
+                Person.class);
+        final BoundStatement statement = codec.bindUpdate(statement(3), "1", new Person(null, 42));
+        collector.checkThat(statement.getBytesUnsafe(0), is(nullValue()));
+        collector.checkThat(statement.getBytesUnsafe(1), is(equalTo(DataType.cint().serialize(42, PROTOCOL_VERSION))));
+        collector.checkThat(statement.getBytesUnsafe(2), is(equalTo(DataType.text().serialize("1", PROTOCOL_VERSION))));
+    }
+
+    @Test(expected = DataAccessException.class)
+    public void missingTableIsRejected() {
+        CassandraEntityCodec.create(session, "atlas", "animals", "id", Person.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compositePartitionKeyIsRejected() {
+        final ColumnMetadata id = column("id", DataType.text());
+        final ColumnMetadata age = column("age", DataType.cint());
+        table(Arrays.asList(id, age), Arrays.asList(id, age), id, column("full_name", DataType.text()), age);
+        CassandraEntityCodec.create(session, "atlas", "people", "id", Person.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void partitionKeyOtherThanIdIsRejected() {
+        final ColumnMetadata id = column("id", DataType.text());
+        final ColumnMetadata fullName = column("full_name", DataType.text());
+        table(Collections.singletonList(fullName), Collections.singletonList(fullName), id, fullName);
+        CassandraEntityCodec.create(session, "atlas", "people", "id", Person.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mismatchedFieldTypeIsRejected() {
+        final ColumnMetadata id = column("id", DataType.text());
+        table(id, column("age", DataType.text()));
+        CassandraEntityCodec.create(session, "atlas", "people", "id", Person.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unmappedClusteringColumnIsRejected() {
+        final ColumnMetadata id = column("id", DataType.text());
+        final ColumnMetadata created = column("created", DataType.timestamp());
+        table(Collections.singletonList(id), Arrays.asList(id, created), id, created);
+        CassandraEntityCodec.create(session, "atlas", "people", "id", Person.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void entityWithoutNoArgumentConstructorIsRejected() {
+        final ColumnMetadata id = column("id", DataType.text());
+        table(id);
+        CassandraEntityCodec.create(session, "atlas", "people", "id", Immutable.class);
+    }
+
+    private ColumnMetadata column(final String name,
+                                  final DataType type) {
+        final ColumnMetadata column = mock(ColumnMetadata.class);
+        when(column.getName()).thenReturn(name);
+        when(column.getType()).thenReturn(type);
+        when(tableMetadata.getColumn(name)).thenReturn(column);
+        return column;
+    }
+
+    private void table(final ColumnMetadata id,
+                       final ColumnMetadata... columns) {
+        this.columns.add(id);
+        table(Collections.singletonList(id), Collections.singletonList(id), columns);
+    }
+
+    private void table(final List<ColumnMetadata> partitionKey,
+                       final List<ColumnMetadata> primaryKey,
+                       final ColumnMetadata... columns) {
+        this.columns.addAll(Arrays.asList(columns));
+        when(tableMetadata.getPartitionKey()).thenReturn(partitionKey);
+        when(tableMetadata.getPrimaryKey()).thenReturn(primaryKey);
+    }
+
+    /**
+     * Create an unbound statement with a number of variables.
+     *
+     * @param variables The number of variables.
+     * @return The bound statement.
+     */
+    private static BoundStatement statement(final int variables) {
+        final PreparedStatement prepared = mock(PreparedStatement.class);
+        final ColumnDefinitions definitions = mock(ColumnDefinitions.class);
+        when(definitions.size()).thenReturn(variables);
+        when(prepared.getVariables()).thenReturn(definitions);
+        when(prepared.getPreparedId()).thenReturn(mock(PreparedId.class));
+        return new BoundStatement(prepared);
+    }
+
+    static final class Person {
+
+        private String id;
+        private String fullName;
+        private int age = -1;
+        private transient String ignored;
+
+        Person() {
+        }
+
+        Person(final String fullName,
+               final int age) {
+            this.fullName = fullName;
+            this.age = age;
+        }
+    }
+
+    static final class Immutable {
+
+        private final String id;
+
+        Immutable(final String id) {
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.btmatthews.atlas.core.dao.cassandra;
+
+import com.btmatthews.atlas.core.dao.DataAccessException;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test the {@link CassandraIdentifierBlockAllocator}. The counter row is simulated by a mock session that
+ * applies the lightweight transactions to a single value.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class TestCassandraIdentifierBlockAllocator {
+
+    private static final String SELECT = "SELECT";
+    private static final String INSERT = "INSERT";
+    private static final String UPDATE = "UPDATE";
+    private static final Pattern ADVANCE = Pattern.compile("SET next=(\\d+) .* IF next=(\\d+)");
+
+    /**
+     * Used to collect test failures within a single test case.
+     */
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+    /**
+     * The kind of each statement sent by the allocator being tested.
+     */
+    private final List<String> sent = new ArrayList<>();
+    /**
+     * The value of the counter row or {@code null} if it does not exist.
+     */
+    private Long counter;
+    /**
+     * The number of conditional inserts or updates that will lose to a concurrent update of the counter row.
+     */
+    private int conflicts;
+    private CassandraIdentifierBlockAllocator allocator;
+
+    /**
+     * Prepare for test case execution.
+     */
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        final Session session = mock(Session.class);
+        when(session.execute(any(Statement.class))).thenAnswer(invocation -> {
+            final String query = invocation.getArguments()[0].toString();
+            final String kind = query.substring(0, query.indexOf(' '));
+            sent.add(kind);
+            if (kind.equals(SELECT)) {
+                return result(counter == null ? null : row(counter, false));
+            } else if (kind.equals(INSERT)) {
+                if (conflicts > 0) {
+                    conflicts--;
+                    counter = 10L;
+                }
+                if (counter != null) {
+                    return result(row(counter, false));
+                }
+                counter = 10L;
+                return result(row(0L, true));
+            } else {
+                final Matcher matcher = ADVANCE.matcher(query);
+                collector.checkThat(matcher.find(), is(true));
+                if (conflicts > 0 || counter != Long.parseLong(matcher.group(2))) {
+                    conflicts--;
+                    counter += 100L;
+                    return result(row(counter, false));
+                }
+                counter = Long.parseLong(matcher.group(1));
+                return result(row(0L, true));
+            }
+        });
+        final CassandraTemplate template = mock(CassandraTemplate.class);
+        when(template.execute(eq("atlas"), any(Callback.class)))
+                .thenAnswer(invocation -> ((Callback<?>) invocation.getArguments()[1]).doWithSession(session));
+        allocator = new CassandraIdentifierBlockAllocator(template, "atlas", "identifiers", "ids", 1L);
+        allocator.setRetryDelay(1L);
+    }
+
+    @Test
+    public void counterIsCreatedOnFirstUse() {
+        collector.checkThat(allocator.allocate(10), is(equalTo(1L)));
+        collector.checkThat(counter, is(equalTo(10L)));
+        collector.checkThat(sent, contains(SELECT, INSERT));
+    }
+
+    @Test
+    public void counterIsAdvanced() {
+        counter = 10L;
+        collector.checkThat(allocator.allocate(5), is(equalTo(11L)));
+        collector.checkThat(allocator.allocate(5), is(equalTo(16L)));
+        collector.checkThat(counter, is(equalTo(20L)));
+    }
+
+    @Test
+    public void lostUpdateIsRetried() {
+        counter = 10L;
+        conflicts = 3;
+        collector.checkThat(allocator.allocate(5), is(equalTo(311L)));
+        collector.checkThat(counter, is(equalTo(315L)));
+        collector.checkThat(sent, hasSize(8));
+    }
+
+    @Test
+    public void lostCreateIsRetried() {
+        conflicts = 1;
+        collector.checkThat(allocator.allocate(5), is(equalTo(11L)));
+        collector.checkThat(counter, is(equalTo(15L)));
+        collector.checkThat(sent, contains(SELECT, INSERT,
+                SELECT, UPDATE));
+    }
+
+    @Test
+    public void allocatorGivesUpAfterMaxAttempts() {
+        counter = 10L;
+        conflicts = Integer.MAX_VALUE;
+        allocator.setMaxAttempts(3);
+        try {
+            allocator.allocate(5);
+            collector.addError(new AssertionError("Expected DataAccessException"));
+        } catch (final DataAccessException e) {
+            collector.checkThat(sent, hasSize(6));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void counterNameMustNotBeEmpty() {
+        new CassandraIdentifierBlockAllocator(mock(CassandraTemplate.class), "atlas", "identifiers", "", 1L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sizeMustBePositive() {
+        allocator.allocate(0);
+    }
+
+    private static ResultSet result(final Row row) {
+        final ResultSet result = mock(ResultSet.class);
+        when(result.one()).thenReturn(row);
+        return result;
+    }
+
+    private static Row row(final long next,
+                           final boolean applied) {
+        final Row row = mock(Row.class);
+        when(row.getLong("next")).thenReturn(next);
+        when(row.getBool("[applied]")).thenReturn(applied);
+        return row;
+    }
+}
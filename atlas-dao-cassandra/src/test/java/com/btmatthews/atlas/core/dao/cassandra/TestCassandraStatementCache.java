@@ -0,0 +1,139 @@
+package com.btmatthews.atlas.core.dao.cassandra;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.Session;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.datastax.driver.core.querybuilder.QueryBuilder.select;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test the {@link CassandraStatementCache} against a mock session.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class TestCassandraStatementCache {
+
+    /**
+     * Used to collect test failures within a single test case.
+     */
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+    private Session session;
+    private CassandraStatementCache cache;
+
+    /**
+     * Prepare for test case execution with a session that prepares a new statement every time it is asked.
+     */
+    @Before
+    public void setup() {
+        session = mock(Session.class);
+        when(session.prepare(any(RegularStatement.class))).thenAnswer(invocation -> mock(PreparedStatement.class));
+        cache = new CassandraStatementCache();
+    }
+
+    @Test
+    public void statementIsPreparedOnce() {
+        final PreparedStatement statement = prepare("atlas", "people", "read");
+        collector.checkThat(prepare("atlas", "people", "read"), is(sameInstance(statement)));
+        collector.checkThat(cache.size(), is(equalTo(1)));
+        verify(session, times(1)).prepare(any(RegularStatement.class));
+    }
+
+    @Test
+    public void statementsAreKeyedByTheirColumns() {
+        final PreparedStatement statement = cache.prepare(session, "atlas", "people", "update",
+                Collections.singletonList("name"), () -> select().all().from("atlas", "people"));
+        collector.checkThat(cache.prepare(session, "atlas", "people", "update", Arrays.asList("name", "age"),
+                () -> select().all().from("atlas", "people")), is(not(sameInstance(statement))));
+        collector.checkThat(cache.size(), is(equalTo(2)));
+    }
+
+    @Test
+    public void invalidateTableOnlyDiscardsTheStatementsForThatTable() {
+        final PreparedStatement people = prepare("atlas", "people", "read");
+        final PreparedStatement animals = prepare("atlas", "animals", "read");
+        prepare("other", "people", "read");
+        cache.invalidate("atlas", "people");
+        collector.checkThat(cache.size(), is(equalTo(2)));
+        collector.checkThat(prepare("atlas", "people", "read"), is(not(sameInstance(people))));
+        collector.checkThat(prepare("atlas", "animals", "read"), is(sameInstance(animals)));
+    }
+
+    @Test
+    public void invalidateKeyspaceOnlyDiscardsTheStatementsForThatKeyspace() {
+        prepare("atlas", "people", "read");
+        prepare("atlas", "animals", "read");
+        final PreparedStatement other = prepare("other", "people", "read");
+        cache.invalidate("atlas");
+        collector.checkThat(cache.size(), is(equalTo(1)));
+        collector.checkThat(prepare("other", "people", "read"), is(sameInstance(other)));
+    }
+
+    @Test
+    public void invalidateDiscardsAllTheStatements() {
+        prepare("atlas", "people", "read");
+        prepare("other", "people", "read");
+        cache.invalidate();
+        collector.checkThat(cache.size(), is(equalTo(0)));
+    }
+
+    @Test
+    public void concurrentPreparesShareTheFirstStatementCached() throws Exception {
+        final CyclicBarrier barrier = new CyclicBarrier(2);
+        doAnswer(invocation -> {
+            final PreparedStatement statement = mock(PreparedStatement.class);
+            barrier.await(5, TimeUnit.SECONDS);
+            return statement;
+        }).when(session).prepare(any(RegularStatement.class));
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Callable<PreparedStatement> prepare = () -> prepare("atlas", "people", "read");
+            final Future<PreparedStatement> first = executor.submit(prepare);
+            final Future<PreparedStatement> second = executor.submit(prepare);
+            collector.checkThat(first.get(10, TimeUnit.SECONDS), is(sameInstance(second.get(10, TimeUnit.SECONDS))));
+            collector.checkThat(cache.size(), is(equalTo(1)));
+            verify(session, times(2)).prepare(any(RegularStatement.class));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void statementPreparedWhileTheCacheIsInvalidatedIsNotCached() {
+        doAnswer(invocation -> {
+            cache.invalidate("atlas", "people");
+            return mock(PreparedStatement.class);
+        }).when(session).prepare(any(RegularStatement.class));
+        final PreparedStatement statement = prepare("atlas", "people", "read");
+        collector.checkThat(statement, is(notNullValue()));
+        collector.checkThat(cache.size(), is(equalTo(0)));
+    }
+
+    private PreparedStatement prepare(final String keyspace,
+                                      final String table,
+                                      final String kind) {
+        return cache.prepare(session, keyspace, table, kind, Collections.emptyList(),
+                () -> select().all().from(keyspace, table));
+    }
+}
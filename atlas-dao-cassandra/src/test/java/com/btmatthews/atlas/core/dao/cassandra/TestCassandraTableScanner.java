@@ -0,0 +1,358 @@
+package com.btmatthews.atlas.core.dao.cassandra;
+
+import com.btmatthews.atlas.core.dao.DataAccessException;
+import com.codahale.metrics.MetricRegistry;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.ColumnDefinitions;
+import com.datastax.driver.core.ColumnMetadata;
+import com.datastax.driver.core.Configuration;
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.PreparedId;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ProtocolOptions;
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.TableMetadata;
+import com.datastax.driver.core.exceptions.DriverException;
+import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyVararg;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test the {@link CassandraTableScanner} splitting of the token ring and the retry of failed token ranges
+ * against a mock session that serves the rows of a table ordered by token.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class TestCassandraTableScanner {
+
+    private static final int PROTOCOL_VERSION = 2;
+    private static final long NODE_TOKEN = 1L << 62;
+
+    /**
+     * Used to collect test failures within a single test case.
+     */
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+    /**
+     * The identifiers of the rows in the table keyed by the tokens of the rows.
+     */
+    private final NavigableMap<Long, String> table = new TreeMap<>();
+    /**
+     * The number of times reading the row with a token fails before the row is returned.
+     */
+    private final Map<Long, AtomicInteger> failures = new ConcurrentHashMap<>();
+    /**
+     * The token ranges of the statements sent to the mock session in the order they were sent.
+     */
+    private final List<long[]> ranges = Collections.synchronizedList(new ArrayList<>());
+    /**
+     * The identifiers of the entities passed to the consumer.
+     */
+    private final List<String> scanned = Collections.synchronizedList(new ArrayList<>());
+    private Session session;
+    private CassandraTableScanner<String, Entity> scanner;
+
+    /**
+     * Prepare for test case execution with a ring of two nodes whose tokens are {@code 0} and {@code 2^62}.
+     */
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        session = mock(Session.class);
+        final Cluster cluster = mock(Cluster.class);
+        final Metadata metadata = mock(Metadata.class);
+        final KeyspaceMetadata keyspaceMetadata = mock(KeyspaceMetadata.class);
+        final TableMetadata tableMetadata = mock(TableMetadata.class);
+        final Configuration configuration = mock(Configuration.class);
+        final ProtocolOptions protocolOptions = mock(ProtocolOptions.class);
+        final ColumnMetadata id = mock(ColumnMetadata.class);
+        final PreparedStatement prepared = preparedStatement();
+        when(session.getCluster()).thenReturn(cluster);
+        when(cluster.getMetadata()).thenReturn(metadata);
+        when(cluster.getConfiguration()).thenReturn(configuration);
+        when(configuration.getProtocolOptions()).thenReturn(protocolOptions);
+        when(protocolOptions.getProtocolVersion()).thenReturn(PROTOCOL_VERSION);
+        when(metadata.getPartitioner()).thenReturn("org.apache.cassandra.dht.Murmur3Partitioner");
+        when(metadata.getKeyspace("atlas")).thenReturn(keyspaceMetadata);
+        when(keyspaceMetadata.getTable("people")).thenReturn(tableMetadata);
+        when(id.getName()).thenReturn("id");
+        when(id.getType()).thenReturn(DataType.text());
+        when(tableMetadata.getColumn("id")).thenReturn(id);
+        when(tableMetadata.getColumns()).thenReturn(Collections.singletonList(id));
+        when(tableMetadata.getPartitionKey()).thenReturn(Collections.singletonList(id));
+        when(tableMetadata.getPrimaryKey()).thenReturn(Collections.singletonList(id));
+        final ResultSet local = ring("0");
+        final ResultSet peers = ring(Long.toString(NODE_TOKEN));
+        when(session.execute("SELECT tokens FROM system.local")).thenReturn(local);
+        when(session.execute("SELECT tokens FROM system.peers")).thenReturn(peers);
+        when(session.prepare(any(RegularStatement.class))).thenReturn(prepared);
+        when(session.executeAsync(any(Statement.class)))
+                .thenAnswer(invocation -> read((RangeStatement) invocation.getArguments()[0]));
+        final CassandraTemplate template = mock(CassandraTemplate.class);
+        when(template.getStatementCache()).thenReturn(new CassandraStatementCache());
+        when(template.getSession("atlas")).thenReturn(session);
+        when(template.getMetricRegistry()).thenReturn(new MetricRegistry());
+        scanner = new CassandraDAOImpl<String, Entity>(template, Entity.class, "atlas", "people").newTableScanner();
+        scanner.setRetryDelay(0);
+    }
+
+    @Test
+    public void ringIsSplitAtTheNodeTokensIntoEqualRanges() {
+        scanner.setSplitsPerRange(2);
+        final List<Integer> progress = Collections.synchronizedList(new ArrayList<>());
+        collector.checkThat(scanner.scan(entity -> {
+        }, (completedRanges, totalRanges, rowsRead) -> progress.add(totalRanges)), is(equalTo(0L)));
+        final List<long[]> sorted = new ArrayList<>(ranges);
+        sorted.sort(Comparator.comparingLong(range -> range[0]));
+        collector.checkThat(sorted, hasSize(6));
+        collector.checkThat(progress, contains(6, 6, 6, 6, 6, 6));
+        final List<Long> ends = new ArrayList<>();
+        long previous = Long.MIN_VALUE;
+        for (final long[] range : sorted) {
+            collector.checkThat(range[0], is(equalTo(previous)));
+            ends.add(range[1]);
+            previous = range[1];
+        }
+        collector.checkThat(ends, contains(Long.MIN_VALUE / 2, 0L, NODE_TOKEN / 2, NODE_TOKEN,
+                NODE_TOKEN + (Long.MAX_VALUE - NODE_TOKEN) / 2, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void everyRowIsReadOnce() {
+        final List<String> ids = new ArrayList<>();
+        for (long token = Long.MIN_VALUE / 4 * 3; token < Long.MAX_VALUE / 4 * 3; token += Long.MAX_VALUE / 16) {
+            final String id = Long.toString(token);
+            table.put(token, id);
+            ids.add(id);
+        }
+        table.put(0L, "0");
+        ids.add("0");
+        table.put(NODE_TOKEN, "node");
+        ids.add("node");
+        table.put(Long.MAX_VALUE, "max");
+        ids.add("max");
+        scanner.setParallelism(3);
+        collector.checkThat(scanner.scan(entity -> scanned.add(entity.id)), is(equalTo((long) ids.size())));
+        collector.checkThat(scanned, containsInAnyOrder(ids.toArray()));
+        collector.checkThat(scanner.getRows().getCount(), is(equalTo((long) ids.size())));
+    }
+
+    @Test
+    public void failedRangeIsRetriedAfterTheLastRowRead() {
+        table.put(10L, "10");
+        table.put(20L, "20");
+        table.put(30L, "30");
+        failures.put(20L, new AtomicInteger(1));
+        scanner.setSplitsPerRange(1);
+        collector.checkThat(scanner.scan(entity -> scanned.add(entity.id)), is(equalTo(3L)));
+        collector.checkThat(scanned, contains("10", "20", "30"));
+        collector.checkThat(ranges, hasSize(4));
+        collector.checkThat(ranges, hasItem(new long[]{10L, NODE_TOKEN}));
+    }
+
+    @Test
+    public void retryDelayDoublesWithEveryAttempt() {
+        table.put(10L, "10");
+        failures.put(10L, new AtomicInteger(2));
+        scanner.setMaxRetries(2);
+        scanner.setRetryDelay(50);
+        final long started = System.nanoTime();
+        collector.checkThat(scanner.scan(entity -> scanned.add(entity.id)), is(equalTo(1L)));
+        collector.checkThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started),
+                is(greaterThanOrEqualTo(150L)));
+        collector.checkThat(scanned, contains("10"));
+    }
+
+    @Test
+    public void rangeThatKeepsFailingFailsTheScan() {
+        table.put(10L, "10");
+        table.put(20L, "20");
+        failures.put(20L, new AtomicInteger(Integer.MAX_VALUE));
+        scanner.setSplitsPerRange(1);
+        scanner.setMaxRetries(2);
+        try {
+            scanner.scan(entity -> scanned.add(entity.id));
+            collector.addError(new AssertionError("Expected DataAccessException"));
+        } catch (final DataAccessException e) {
+            collector.checkThat(e.getMessage(), is(equalTo("1 of 3 token ranges failed")));
+            collector.checkThat(e.getCause(), is(instanceOf(DriverException.class)));
+            collector.checkThat(scanned, contains("10"));
+            int attempts = 0;
+            for (final long[] range : ranges) {
+                if (range[1] == NODE_TOKEN) {
+                    attempts++;
+                }
+            }
+            collector.checkThat(attempts, is(equalTo(3)));
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void orderPreservingPartitionerIsNotSupported() {
+        when(session.getCluster().getMetadata().getPartitioner())
+                .thenReturn("org.apache.cassandra.dht.ByteOrderedPartitioner");
+        scanner.scan(entity -> {
+        });
+    }
+
+    /**
+     * Create a mock prepared statement whose bound statements record the token range they select.
+     *
+     * @return The prepared statement.
+     */
+    private static PreparedStatement preparedStatement() {
+        final PreparedStatement prepared = mock(PreparedStatement.class);
+        final ColumnDefinitions definitions = mock(ColumnDefinitions.class);
+        when(definitions.size()).thenReturn(2);
+        when(prepared.getVariables()).thenReturn(definitions);
+        when(prepared.getPreparedId()).thenReturn(mock(PreparedId.class));
+        when(prepared.bind(anyVararg())).thenAnswer(invocation -> new RangeStatement(prepared,
+                (Long) invocation.getArguments()[0], (Long) invocation.getArguments()[1]));
+        return prepared;
+    }
+
+    /**
+     * Create the result of a query of the tokens owned by a node.
+     *
+     * @param token The token.
+     * @return The results.
+     */
+    private static ResultSet ring(final String token) {
+        final Row row = mock(Row.class);
+        when(row.getSet("tokens", String.class)).thenReturn(Collections.singleton(token));
+        final ResultSet results = mock(ResultSet.class);
+        when(results.iterator()).thenAnswer(invocation -> Collections.singletonList(row).iterator());
+        return results;
+    }
+
+    /**
+     * Read the rows of the table in a token range, failing before any row that has failures left.
+     *
+     * @param statement The statement.
+     * @return The completed results.
+     */
+    private ResultSetFuture read(final RangeStatement statement) {
+        ranges.add(new long[]{statement.start, statement.end});
+        final List<Map.Entry<Long, String>> rows;
+        synchronized (table) {
+            rows = new ArrayList<>(table.subMap(statement.start, false, statement.end, true).entrySet());
+        }
+        final Iterator<Map.Entry<Long, String>> entries = rows.iterator();
+        final ResultSet results = mock(ResultSet.class);
+        when(results.iterator()).thenReturn(new Iterator<Row>() {
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @Override
+            public Row next() {
+                if (!entries.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final Map.Entry<Long, String> entry = entries.next();
+                final AtomicInteger remaining = failures.get(entry.getKey());
+                if (remaining != null && remaining.getAndDecrement() > 0) {
+                    throw new DriverException("Timed out fetching the next page");
+                }
+                return row(entry.getKey(), entry.getValue());
+            }
+        });
+        return new CompletedResult(results);
+    }
+
+    private static Row row(final long token,
+                           final String id) {
+        final Row row = mock(Row.class);
+        when(row.getBytesUnsafe(0)).thenReturn(DataType.text().serialize(id, PROTOCOL_VERSION));
+        when(row.getLong(1)).thenReturn(token);
+        return row;
+    }
+
+    /**
+     * A bound statement that records the token range it selects.
+     */
+    private static final class RangeStatement extends BoundStatement {
+
+        private final long start;
+        private final long end;
+
+        RangeStatement(final PreparedStatement statement,
+                       final long start,
+                       final long end) {
+            super(statement);
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * The result of a statement sent to the mock session.
+     */
+    private static final class CompletedResult extends AbstractFuture<ResultSet> implements ResultSetFuture {
+
+        CompletedResult(final ResultSet results) {
+            set(results);
+        }
+
+        @Override
+        public ResultSet getUninterruptibly() {
+            try {
+                return Uninterruptibles.getUninterruptibly(this);
+            } catch (final ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        @Override
+        public ResultSet getUninterruptibly(final long timeout,
+                                            final TimeUnit unit) throws TimeoutException {
+            try {
+                return Uninterruptibles.getUninterruptibly(this, timeout, unit);
+            } catch (final ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    static final class Entity {
+
+        private String id;
+
+        Entity() {
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.btmatthews.atlas.core.dao.cassandra;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.Session;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import org.mockito.ArgumentCaptor;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test the {@link CassandraTemplate} session management and metrics against a mock cluster.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class TestCassandraTemplate {
+
+    /**
+     * Used to collect test failures within a single test case.
+     */
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+    /**
+     * The sessions returned by the mock cluster in the order they were connected.
+     */
+    private final List<Session> connected = Collections.synchronizedList(new ArrayList<>());
+    private Cluster cluster;
+    private Host host;
+    private MetricRegistry metricRegistry;
+
+    /**
+     * Prepare for test case execution with a cluster of one host.
+     */
+    @Before
+    public void setup() {
+        cluster = mock(Cluster.class);
+        host = mock(Host.class);
+        final Metadata metadata = mock(Metadata.class);
+        when(host.getAddress()).thenReturn(InetAddress.getLoopbackAddress());
+        when(cluster.getMetadata()).thenReturn(metadata);
+        when(metadata.getAllHosts()).thenReturn(Collections.singleton(host));
+        when(cluster.connect("atlas")).thenAnswer(invocation -> session());
+        metricRegistry = new MetricRegistry();
+    }
+
+    @Test
+    public void sessionIsCreatedOnceAndReused() {
+        final CassandraTemplate template = new CassandraTemplate(cluster, metricRegistry);
+        final Session session = template.getSession("atlas");
+        collector.checkThat(template.getSession("atlas"), is(sameInstance(session)));
+        collector.checkThat(template.execute("atlas", s -> s), is(sameInstance(session)));
+        verify(cluster, times(1)).connect("atlas");
+    }
+
+    @Test
+    public void concurrentRequestsForANewSessionShareOneSession() throws Exception {
+        final CyclicBarrier barrier = new CyclicBarrier(2);
+        doAnswer(invocation -> {
+            final Session session = session();
+            barrier.await(5, TimeUnit.SECONDS);
+            return session;
+        }).when(cluster).connect("atlas");
+        final CassandraTemplate template = new CassandraTemplate(cluster, metricRegistry);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Callable<Session> getSession = () -> template.getSession("atlas");
+            final Future<Session> first = executor.submit(getSession);
+            final Future<Session> second = executor.submit(getSession);
+            final Session session = first.get(10, TimeUnit.SECONDS);
+            collector.checkThat(second.get(10, TimeUnit.SECONDS), is(sameInstance(session)));
+            collector.checkThat(connected, hasSize(2));
+            for (final Session candidate : connected) {
+                verify(candidate, times(candidate == session ? 0 : 1)).close();
+            }
+            collector.checkThat(metricRegistry.getGauges().keySet(), hasSize(4));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void gaugesReportTheConnectionsOfTheSession() {
+        final CassandraTemplate template = new CassandraTemplate(cluster, metricRegistry);
+        template.getSession("atlas");
+        final String prefix = MetricRegistry.name(CassandraTemplate.class, template.getName(), "atlas");
+        final String address = InetAddress.getLoopbackAddress().getHostAddress();
+        collector.checkThat(metricRegistry.getGauges().keySet(), containsInAnyOrder(
+                prefix + ".openConnections",
+                prefix + ".inFlightQueries",
+                MetricRegistry.name(prefix, address, "openConnections"),
+                MetricRegistry.name(prefix, address, "inFlightQueries")));
+        collector.checkThat(metricRegistry.getGauges().get(prefix + ".openConnections").getValue(),
+                is(equalTo((Object) 2)));
+        collector.checkThat(metricRegistry.getGauges().get(MetricRegistry.name(prefix, address, "inFlightQueries"))
+                .getValue(), is(equalTo((Object) 5)));
+    }
+
+    @Test
+    public void templatesSharingARegistryKeepTheirOwnMetrics() {
+        final CassandraTemplate first = new CassandraTemplate(cluster, metricRegistry);
+        final CassandraTemplate second = new CassandraTemplate(cluster, metricRegistry);
+        collector.checkThat(first.getName(), is(not(equalTo(second.getName()))));
+        first.getSession("atlas");
+        second.getSession("atlas");
+        collector.checkThat(metricRegistry.getGauges().keySet(), hasSize(8));
+        final Gauge<?> gauge = metricRegistry.getGauges()
+                .get(MetricRegistry.name(CassandraTemplate.class, second.getName(), "atlas", "openConnections"));
+        first.shutdown();
+        collector.checkThat(metricRegistry.getGauges().keySet(), hasSize(4));
+        collector.checkThat(metricRegistry.getGauges()
+                        .get(MetricRegistry.name(CassandraTemplate.class, second.getName(), "atlas", "openConnections")),
+                is(sameInstance((Object) gauge)));
+    }
+
+    @Test
+    public void hostGaugesAreRemovedWhenTheHostLeavesTheCluster() {
+        final CassandraTemplate template = new CassandraTemplate(cluster, metricRegistry);
+        template.getSession("atlas");
+        final ArgumentCaptor<Host.StateListener> listener = ArgumentCaptor.forClass(Host.StateListener.class);
+        verify(cluster).register(listener.capture());
+        listener.getValue().onRemove(host);
+        collector.checkThat(metricRegistry.getGauges().keySet(), hasSize(2));
+        listener.getValue().onAdd(host);
+        collector.checkThat(metricRegistry.getGauges().keySet(), hasSize(4));
+    }
+
+    @Test
+    public void shutdownClosesTheSessionsAndRemovesTheMetrics() {
+        final CassandraTemplate template = new CassandraTemplate(cluster, metricRegistry);
+        final Session session = template.getSession("atlas");
+        template.shutdown();
+        verify(session).close();
+        verify(cluster).unregister(any(Host.StateListener.class));
+        collector.checkThat(metricRegistry.getMetrics().keySet(), is(empty()));
+        try {
+            template.getSession("atlas");
+            collector.addError(new AssertionError("Expected IllegalStateException"));
+        } catch (final IllegalStateException e) {
+            verify(cluster, times(1)).connect("atlas");
+        }
+    }
+
+    @Test
+    public void dataAccessObjectClosesTheTemplateItCreated() {
+        final CassandraDAOImpl<String, Object> dao = new CassandraDAOImpl<>(cluster, Object.class, "atlas", "people");
+        dao.close();
+        try {
+            dao.count();
+            collector.addError(new AssertionError("Expected IllegalStateException"));
+        } catch (final IllegalStateException e) {
+            verify(cluster, never()).connect("atlas");
+        }
+    }
+
+    @Test
+    public void dataAccessObjectLeavesASharedTemplateOpen() {
+        final CassandraTemplate template = mock(CassandraTemplate.class);
+        new CassandraDAOImpl<>(template, Object.class, "atlas", "people").close();
+        new CassandraIdentifierBlockAllocator(template, "atlas", "identifiers", "people", 1L).close();
+        verify(template, never()).shutdown();
+        verify(template, never()).close();
+    }
+
+    @Test
+    public void allocatorClosesTheTemplateItCreated() {
+        final CassandraIdentifierBlockAllocator allocator =
+                new CassandraIdentifierBlockAllocator(cluster, "atlas", "identifiers", "people");
+        allocator.close();
+        try {
+            allocator.allocate(10);
+            collector.addError(new AssertionError("Expected IllegalStateException"));
+        } catch (final IllegalStateException e) {
+            verify(cluster, never()).connect("atlas");
+        }
+    }
+
+    /**
+     * Create a mock session with two open connections and five queries in flight to the host.
+     *
+     * @return The session.
+     */
+    private Session session() {
+        final Session session = mock(Session.class);
+        final Session.State state = mock(Session.State.class);
+        when(session.getState()).thenReturn(state);
+        when(state.getConnectedHosts()).thenReturn(Collections.singleton(host));
+        when(state.getOpenConnections(host)).thenReturn(2);
+        when(state.getInFlightQueries(host)).thenReturn(5);
+        connected.add(session);
+        return session;
+    }
+}
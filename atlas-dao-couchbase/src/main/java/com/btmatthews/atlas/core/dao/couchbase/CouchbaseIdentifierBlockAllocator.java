@@ -0,0 +1,71 @@
+package com.btmatthews.atlas.core.dao.couchbase;
+
+import com.btmatthews.atlas.core.dao.DataAccessException;
+import com.btmatthews.atlas.core.id.IdentifierBlockAllocator;
+import com.couchbase.client.CouchbaseClientIF;
+
+/**
+ * Reserves blocks of identifiers by atomically incrementing a counter document. The counter document is created
+ * the first time a block is reserved.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class CouchbaseIdentifierBlockAllocator implements IdentifierBlockAllocator {
+
+    private final CouchbaseClientIF client;
+
+    private final String key;
+
+    private final long initialValue;
+
+    /**
+     * Initialise the allocator so that the first identifier is {@code 1}.
+     *
+     * @param client The Couchbase client.
+     * @param key    The key of the counter document.
+     */
+    public CouchbaseIdentifierBlockAllocator(final CouchbaseClientIF client,
+                                             final String key) {
+        this(client, key, 1L);
+    }
+
+    /**
+     * Initialise the allocator.
+     *
+     * @param client       The Couchbase client.
+     * @param key          The key of the counter document.
+     * @param initialValue The first identifier.
+     */
+    public CouchbaseIdentifierBlockAllocator(final CouchbaseClientIF client,
+                                             final String key,
+                                             final long initialValue) {
+        if (client == null) {
+            throw new IllegalArgumentException("client must not be null");
+        }
+        if (key == null || key.length() == 0) {
+            throw new IllegalArgumentException("key must not be null or empty");
+        }
+        this.client = client;
+        this.key = key;
+        this.initialValue = initialValue;
+    }
+
+    /**
+     * Reserve a block of identifiers.
+     *
+     * @param size The number of identifiers to reserve.
+     * @return The first identifier in the block.
+     */
+    @Override
+    public long allocate(final int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        final long next = client.incr(key, size, size);
+        if (next < 0) {
+            throw new DataAccessException("Could not reserve identifiers from counter: " + key);
+        }
+        return initialValue + next - size;
+    }
+}
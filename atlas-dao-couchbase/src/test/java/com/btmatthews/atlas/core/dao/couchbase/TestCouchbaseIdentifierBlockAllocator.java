@@ -0,0 +1,73 @@
+package com.btmatthews.atlas.core.dao.couchbase;
+
+import com.btmatthews.atlas.core.dao.DataAccessException;
+import com.couchbase.client.CouchbaseClientIF;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import org.mockito.Mock;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+/**
+ * Unit test the {@link CouchbaseIdentifierBlockAllocator}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class TestCouchbaseIdentifierBlockAllocator {
+
+    /**
+     * Used to collect test failures within a single test case.
+     */
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+    @Mock
+    private CouchbaseClientIF client;
+
+    /**
+     * Prepare for test case execution.
+     */
+    @Before
+    public void setup() {
+        initMocks(this);
+    }
+
+    @Test
+    public void blocksAreReservedFromTheCounter() {
+        when(client.incr("ids", 10, 10)).thenReturn(10L, 20L);
+        when(client.incr("ids", 5, 5)).thenReturn(25L);
+        final CouchbaseIdentifierBlockAllocator allocator = new CouchbaseIdentifierBlockAllocator(client, "ids");
+        collector.checkThat(allocator.allocate(10), is(equalTo(1L)));
+        collector.checkThat(allocator.allocate(10), is(equalTo(11L)));
+        collector.checkThat(allocator.allocate(5), is(equalTo(21L)));
+    }
+
+    @Test
+    public void blocksStartFromTheInitialValue() {
+        when(client.incr("ids", 10, 10)).thenReturn(10L, 20L);
+        final CouchbaseIdentifierBlockAllocator allocator = new CouchbaseIdentifierBlockAllocator(client, "ids", 1000L);
+        collector.checkThat(allocator.allocate(10), is(equalTo(1000L)));
+        collector.checkThat(allocator.allocate(10), is(equalTo(1010L)));
+    }
+
+    @Test(expected = DataAccessException.class)
+    public void failedIncrementIsReported() {
+        when(client.incr("ids", 10, 10)).thenReturn(-1L);
+        new CouchbaseIdentifierBlockAllocator(client, "ids").allocate(10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sizeMustBePositive() {
+        new CouchbaseIdentifierBlockAllocator(client, "ids").allocate(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void keyMustNotBeEmpty() {
+        new CouchbaseIdentifierBlockAllocator(client, "");
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.dao.mongo;
+
+/**
+ * Describes why an individual document in a bulk write failed. A document is either rejected by the server, in which
+ * case it was not written, or its outcome is unknown because the connection failed after the write may have been
+ * sent. A document with an unknown outcome may have been written.
+ *
+ * @param <ID> The identifier class.
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public final class BulkWriteFailure<ID> {
+
+    private final ID id;
+    private final int code;
+    private final String message;
+    private final boolean rejected;
+
+    /**
+     * Initialise the failure of a document that was rejected by the server.
+     *
+     * @param id      The identifier of the rejected document.
+     * @param code    The error code reported by the server.
+     * @param message The error message reported by the server.
+     */
+    public BulkWriteFailure(final ID id,
+                            final int code,
+                            final String message) {
+        this(id, code, message, true);
+    }
+
+    /**
+     * Initialise the failure.
+     *
+     * @param id       The identifier of the document.
+     * @param code     The error code.
+     * @param message  The error message.
+     * @param rejected {@code true} if the document was rejected by the server or {@code false} if it may have been
+     *                 written.
+     */
+    public BulkWriteFailure(final ID id,
+                            final int code,
+                            final String message,
+                            final boolean rejected) {
+        this.id = id;
+        this.code = code;
+        this.message = message;
+        this.rejected = rejected;
+    }
+
+    /**
+     * Get the identifier of the document.
+     *
+     * @return The identifier.
+     */
+    public ID getId() {
+        return id;
+    }
+
+    /**
+     * Get the error code.
+     *
+     * @return The error code.
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Get the error message.
+     *
+     * @return The error message.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Determine if the document was rejected by the server.
+     *
+     * @return {@code true} if the document was not written or {@code false} if it may have been written.
+     */
+    public boolean isRejected() {
+        return rejected;
+    }
+
+    @Override
+    public String toString() {
+        return id + ": " + code + " " + message;
+    }
+}
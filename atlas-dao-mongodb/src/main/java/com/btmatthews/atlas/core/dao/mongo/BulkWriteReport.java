@@ -0,0 +1,120 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.dao.mongo;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * Summarises the outcome of a bulk write. Bulk writes are unordered so a rejected document does not prevent the
+ * remaining documents from being written.
+ *
+ * @param <ID> The identifier class.
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public final class BulkWriteReport<ID> {
+
+    private final int insertedCount;
+    private final int matchedCount;
+    private final int removedCount;
+    private final List<BulkWriteFailure<ID>> failures;
+
+    /**
+     * Initialise the report.
+     *
+     * @param insertedCount The number of documents inserted.
+     * @param matchedCount  The number of documents matched by updates.
+     * @param removedCount  The number of documents removed.
+     * @param failures      The documents that were rejected.
+     */
+    public BulkWriteReport(final int insertedCount,
+                           final int matchedCount,
+                           final int removedCount,
+                           final List<BulkWriteFailure<ID>> failures) {
+        this.insertedCount = insertedCount;
+        this.matchedCount = matchedCount;
+        this.removedCount = removedCount;
+        this.failures = ImmutableList.copyOf(failures);
+    }
+
+    /**
+     * Get the number of documents inserted.
+     *
+     * @return The number of documents.
+     */
+    public int getInsertedCount() {
+        return insertedCount;
+    }
+
+    /**
+     * Get the number of documents matched by updates.
+     *
+     * @return The number of documents.
+     */
+    public int getMatchedCount() {
+        return matchedCount;
+    }
+
+    /**
+     * Get the number of documents removed.
+     *
+     * @return The number of documents.
+     */
+    public int getRemovedCount() {
+        return removedCount;
+    }
+
+    /**
+     * Get the documents that were rejected.
+     *
+     * @return The failures in the order the documents were submitted.
+     */
+    public List<BulkWriteFailure<ID>> getFailures() {
+        return failures;
+    }
+
+    /**
+     * Determine if every document was written.
+     *
+     * @return {@code true} if no documents were rejected. Otherwise, {@code false}.
+     */
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+
+    /**
+     * Combine this report with the report for another chunk of the same bulk write.
+     *
+     * @param other The other report.
+     * @return The combined report.
+     */
+    BulkWriteReport<ID> combine(final BulkWriteReport<ID> other) {
+        return new BulkWriteReport<>(
+                insertedCount + other.insertedCount,
+                matchedCount + other.matchedCount,
+                removedCount + other.removedCount,
+                ImmutableList.<BulkWriteFailure<ID>>builder().addAll(failures).addAll(other.failures).build());
+    }
+
+    @Override
+    public String toString() {
+        return "inserted=" + insertedCount + ", matched=" + matchedCount + ", removed=" + removedCount
+                + ", failures=" + failures.size();
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.dao.mongo;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.mongojack.DBQuery;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Describes an aggregation that a {@link MongoDAO} pushes down to the MongoDB aggregation framework. The matching
+ * documents are grouped by zero or more fields and each group is summarised by accumulators such as counts, sums,
+ * minimums and maximums. Use {@link MongoAggregationBuilder} to create aggregations.
+ * <p>
+ * Each group is returned as a row whose properties are the group-by fields and the accumulator aliases.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public final class MongoAggregation {
+
+    /**
+     * Selects the documents that are aggregated or {@code null} to aggregate all documents.
+     */
+    private final DBQuery.Query criteria;
+    /**
+     * The fields used to group the documents.
+     */
+    private final ImmutableList<String> groupBy;
+    /**
+     * The accumulators keyed by the alias of their output property.
+     */
+    private final ImmutableMap<String, DBObject> accumulators;
+    /**
+     * The output properties used to sort the rows and their directions.
+     */
+    private final ImmutableMap<String, Integer> sort;
+    /**
+     * The maximum number of rows or {@code 0} if there is no limit.
+     */
+    private final int limit;
+
+    /**
+     * Initialise the aggregation.
+     *
+     * @param criteria     Selects the documents that are aggregated or {@code null} to aggregate all documents.
+     * @param groupBy      The fields used to group the documents.
+     * @param accumulators The accumulators keyed by the alias of their output property.
+     * @param sort         The output properties used to sort the rows and their directions.
+     * @param limit        The maximum number of rows or {@code 0} if there is no limit.
+     */
+    MongoAggregation(final DBQuery.Query criteria,
+                     final List<String> groupBy,
+                     final Map<String, DBObject> accumulators,
+                     final Map<String, Integer> sort,
+                     final int limit) {
+        this.criteria = criteria;
+        this.groupBy = ImmutableList.copyOf(groupBy);
+        this.accumulators = ImmutableMap.copyOf(accumulators);
+        this.sort = ImmutableMap.copyOf(sort);
+        this.limit = limit;
+    }
+
+    /**
+     * Get the criteria that select the documents that are aggregated.
+     *
+     * @return The criteria or {@code null} if all documents are aggregated.
+     */
+    public DBQuery.Query getCriteria() {
+        return criteria;
+    }
+
+    /**
+     * Get the fields used to group the documents.
+     *
+     * @return The group-by fields.
+     */
+    public List<String> getGroupBy() {
+        return groupBy;
+    }
+
+    /**
+     * Build the aggregation pipeline.
+     *
+     * @param match The serialised criteria or {@code null} if all documents are aggregated.
+     * @return The pipeline stages.
+     */
+    List<DBObject> toPipeline(final DBObject match) {
+        final List<DBObject> pipeline = new ArrayList<>();
+        if (match != null) {
+            pipeline.add(new BasicDBObject("$match", match));
+        }
+        final BasicDBObject group = new BasicDBObject("_id", groupKey());
+        for (final Map.Entry<String, DBObject> accumulator : accumulators.entrySet()) {
+            group.append(accumulator.getKey(), accumulator.getValue());
+        }
+        pipeline.add(new BasicDBObject("$group", group));
+        if (!sort.isEmpty()) {
+            final BasicDBObject order = new BasicDBObject();
+            for (final Map.Entry<String, Integer> field : sort.entrySet()) {
+                order.append(outputPath(field.getKey()), field.getValue());
+            }
+            pipeline.add(new BasicDBObject("$sort", order));
+        }
+        if (limit > 0) {
+            pipeline.add(new BasicDBObject("$limit", limit));
+        }
+        return pipeline;
+    }
+
+    /**
+     * Convert a document produced by the pipeline into a row by moving the group-by fields out of the {@code _id}
+     * field.
+     *
+     * @param result The document produced by the pipeline.
+     * @return The row.
+     */
+    DBObject toRow(final DBObject result) {
+        final BasicDBObject row = new BasicDBObject();
+        final Object id = result.get("_id");
+        if (groupBy.size() == 1) {
+            row.append(groupBy.get(0), id);
+        } else if (id instanceof DBObject) {
+            for (final String field : groupBy) {
+                row.append(field, ((DBObject) id).get(field));
+            }
+        }
+        for (final String alias : accumulators.keySet()) {
+            row.append(alias, result.get(alias));
+        }
+        return row;
+    }
+
+    private Object groupKey() {
+        if (groupBy.isEmpty()) {
+            return null;
+        }
+        if (groupBy.size() == 1) {
+            return "$" + groupBy.get(0);
+        }
+        final BasicDBObject key = new BasicDBObject();
+        for (final String field : groupBy) {
+            key.append(field, "$" + field);
+        }
+        return key;
+    }
+
+    private String outputPath(final String property) {
+        if (!groupBy.contains(property)) {
+            return property;
+        }
+        return groupBy.size() == 1 ? "_id" : "_id." + property;
+    }
+}
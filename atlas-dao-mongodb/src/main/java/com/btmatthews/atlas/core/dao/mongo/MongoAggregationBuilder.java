@@ -0,0 +1,213 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.dao.mongo;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.mongojack.DBQuery;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A builder for creating {@link MongoAggregation} objects.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public final class MongoAggregationBuilder {
+
+    /**
+     * Selects the documents that are aggregated.
+     */
+    private DBQuery.Query criteria;
+    /**
+     * The fields used to group the documents.
+     */
+    private final List<String> groupBy = new ArrayList<>();
+    /**
+     * The accumulators keyed by the alias of their output property.
+     */
+    private final Map<String, DBObject> accumulators = new LinkedHashMap<>();
+    /**
+     * The output properties used to sort the rows and their directions.
+     */
+    private final Map<String, Integer> sort = new LinkedHashMap<>();
+    /**
+     * The maximum number of rows.
+     */
+    private int limit;
+
+    /**
+     * Set the criteria that select the documents that are aggregated.
+     *
+     * @param criteria The criteria.
+     * @return The builder.
+     */
+    public MongoAggregationBuilder setCriteria(final DBQuery.Query criteria) {
+        this.criteria = criteria;
+        return this;
+    }
+
+    /**
+     * Add fields used to group the documents.
+     *
+     * @param fields The field names.
+     * @return The builder.
+     */
+    public MongoAggregationBuilder groupBy(final String... fields) {
+        for (final String field : fields) {
+            checkName(field);
+            groupBy.add(field);
+        }
+        return this;
+    }
+
+    /**
+     * Count the documents in each group.
+     *
+     * @param alias The name of the output property.
+     * @return The builder.
+     */
+    public MongoAggregationBuilder count(final String alias) {
+        return addAccumulator(alias, "$sum", 1);
+    }
+
+    /**
+     * Sum a field over the documents in each group.
+     *
+     * @param alias The name of the output property.
+     * @param field The field name.
+     * @return The builder.
+     */
+    public MongoAggregationBuilder sum(final String alias,
+                                       final String field) {
+        return addAccumulator(alias, "$sum", fieldPath(field));
+    }
+
+    /**
+     * Find the minimum value of a field over the documents in each group.
+     *
+     * @param alias The name of the output property.
+     * @param field The field name.
+     * @return The builder.
+     */
+    public MongoAggregationBuilder min(final String alias,
+                                       final String field) {
+        return addAccumulator(alias, "$min", fieldPath(field));
+    }
+
+    /**
+     * Find the maximum value of a field over the documents in each group.
+     *
+     * @param alias The name of the output property.
+     * @param field The field name.
+     * @return The builder.
+     */
+    public MongoAggregationBuilder max(final String alias,
+                                       final String field) {
+        return addAccumulator(alias, "$max", fieldPath(field));
+    }
+
+    /**
+     * Average a field over the documents in each group.
+     *
+     * @param alias The name of the output property.
+     * @param field The field name.
+     * @return The builder.
+     */
+    public MongoAggregationBuilder avg(final String alias,
+                                       final String field) {
+        return addAccumulator(alias, "$avg", fieldPath(field));
+    }
+
+    /**
+     * Sort the rows in ascending order of an output property.
+     *
+     * @param property A group-by field or accumulator alias.
+     * @return The builder.
+     */
+    public MongoAggregationBuilder sortAscending(final String property) {
+        checkName(property);
+        sort.put(property, 1);
+        return this;
+    }
+
+    /**
+     * Sort the rows in descending order of an output property.
+     *
+     * @param property A group-by field or accumulator alias.
+     * @return The builder.
+     */
+    public MongoAggregationBuilder sortDescending(final String property) {
+        checkName(property);
+        sort.put(property, -1);
+        return this;
+    }
+
+    /**
+     * Limit the number of rows.
+     *
+     * @param limit The maximum number of rows or {@code 0} if there is no limit.
+     * @return The builder.
+     */
+    public MongoAggregationBuilder setLimit(final int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Construct the aggregation.
+     *
+     * @return The {@link MongoAggregation} object.
+     */
+    public MongoAggregation build() {
+        for (final String property : sort.keySet()) {
+            if (!groupBy.contains(property) && !accumulators.containsKey(property)) {
+                throw new IllegalStateException("Cannot sort by unknown property: " + property);
+            }
+        }
+        return new MongoAggregation(criteria, groupBy, accumulators, sort, limit);
+    }
+
+    private MongoAggregationBuilder addAccumulator(final String alias,
+                                                   final String operator,
+                                                   final Object expression) {
+        checkName(alias);
+        if ("_id".equals(alias) || groupBy.contains(alias)) {
+            throw new IllegalArgumentException("alias must not be _id or a group-by field: " + alias);
+        }
+        accumulators.put(alias, new BasicDBObject(operator, expression));
+        return this;
+    }
+
+    private static String fieldPath(final String field) {
+        checkName(field);
+        return "$" + field;
+    }
+
+    private static void checkName(final String name) {
+        if (name == null || name.length() == 0) {
+            throw new IllegalArgumentException("name must not be null or empty");
+        }
+    }
+}
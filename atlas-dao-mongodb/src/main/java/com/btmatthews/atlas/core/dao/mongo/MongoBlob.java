@@ -0,0 +1,306 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.btmatthews.atlas.core.dao.mongo;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.bson.types.ObjectId;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.function.Supplier;
+
+/**
+ * A large binary property of an entity that is stored in GridFS. The property must be annotated with
+ * {@link MongoLargeBinary}.
+ * <p>
+ * A new blob is created from its content and is uploaded when the entity is created or updated. A blob read from the
+ * data store is a reference to a GridFS file and its content is only fetched when {@link #openStream()} or
+ * {@link #openChannel()} is called.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+@JsonSerialize(using = MongoBlob.Serializer.class)
+@JsonDeserialize(using = MongoBlob.Deserializer.class)
+public final class MongoBlob {
+
+    /**
+     * Supplies the content of a blob that was created by the application or {@code null} if it was read from the
+     * data store.
+     */
+    private final Supplier<? extends InputStream> source;
+
+    /**
+     * The number of bytes of content supplied by {@link #source} or {@code -1} if not known.
+     */
+    private final long sourceLength;
+
+    /**
+     * The identifier of the GridFS file or {@code null} if the blob has not been stored.
+     */
+    private volatile ObjectId fileId;
+
+    /**
+     * The number of bytes of content or {@code -1} if not known until the blob has been stored.
+     */
+    private volatile long length;
+
+    /**
+     * The number of bytes in each GridFS chunk.
+     */
+    private volatile int chunkSize;
+
+    /**
+     * The store used to read the content of a blob read from the data store.
+     */
+    private volatile MongoBlobStore store;
+
+    /**
+     * Initialise a blob that has not been stored.
+     *
+     * @param source Supplies the content.
+     * @param length The number of bytes of content or {@code -1} if not known.
+     */
+    private MongoBlob(final Supplier<? extends InputStream> source,
+                      final long length) {
+        this.source = source;
+        this.sourceLength = length;
+        this.length = length;
+    }
+
+    /**
+     * Initialise a reference to a stored blob.
+     *
+     * @param fileId    The identifier of the GridFS file.
+     * @param length    The number of bytes of content.
+     * @param chunkSize The number of bytes in each GridFS chunk.
+     */
+    MongoBlob(final ObjectId fileId,
+              final long length,
+              final int chunkSize) {
+        this.source = null;
+        this.sourceLength = length;
+        this.fileId = fileId;
+        this.length = length;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Create a blob from an array of bytes. The array is not copied and must not be modified until the blob has
+     * been stored.
+     *
+     * @param content The content.
+     * @return The blob.
+     */
+    public static MongoBlob of(final byte[] content) {
+        if (content == null) {
+            throw new IllegalArgumentException("content must not be null");
+        }
+        return new MongoBlob(() -> new ByteArrayInputStream(content), content.length);
+    }
+
+    /**
+     * Create a blob whose content is read from a stream when it is stored.
+     *
+     * @param source Opens the stream. It may be called more than once if the content is read again before the blob
+     *               has been read back from the data store.
+     * @return The blob.
+     */
+    public static MongoBlob of(final Supplier<? extends InputStream> source) {
+        if (source == null) {
+            throw new IllegalArgumentException("source must not be null");
+        }
+        return new MongoBlob(source, -1L);
+    }
+
+    /**
+     * Determine if the content has been stored in GridFS.
+     *
+     * @return {@code true} if the blob has been stored. Otherwise, {@code false}.
+     */
+    public boolean isStored() {
+        return fileId != null;
+    }
+
+    /**
+     * Get the number of bytes of content.
+     *
+     * @return The length or {@code -1} if the content was supplied as a stream and has not been stored.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Open a stream that reads the content. The chunks of a stored blob are fetched as the stream is read.
+     *
+     * @return The stream. It must be closed by the caller.
+     * @throws IllegalStateException If the blob is a reference that was not read by a {@link MongoDAO}.
+     */
+    public InputStream openStream() {
+        final MongoBlobStore currentStore = store;
+        if (currentStore != null) {
+            return currentStore.open(this);
+        }
+        if (source != null) {
+            return source.get();
+        }
+        throw new IllegalStateException("The blob was not read by a data access object");
+    }
+
+    /**
+     * Open a channel that reads the content. The chunks of a stored blob are fetched as the channel is read.
+     *
+     * @return The channel. It must be closed by the caller.
+     * @throws IllegalStateException If the blob is a reference that was not read by a {@link MongoDAO}.
+     */
+    public ReadableByteChannel openChannel() {
+        return Channels.newChannel(openStream());
+    }
+
+    /**
+     * Open the stream that supplies the content of a blob that has not been stored.
+     *
+     * @return The stream.
+     */
+    InputStream openSource() {
+        return source.get();
+    }
+
+    /**
+     * Get the identifier of the GridFS file.
+     *
+     * @return The identifier or {@code null} if the blob has not been stored.
+     */
+    ObjectId getFileId() {
+        return fileId;
+    }
+
+    /**
+     * Get the number of bytes in each GridFS chunk.
+     *
+     * @return The chunk size.
+     */
+    int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Record that the content has been stored in GridFS.
+     *
+     * @param fileId    The identifier of the GridFS file.
+     * @param length    The number of bytes of content.
+     * @param chunkSize The number of bytes in each GridFS chunk.
+     */
+    void stored(final ObjectId fileId,
+                final long length,
+                final int chunkSize) {
+        this.length = length;
+        this.chunkSize = chunkSize;
+        this.fileId = fileId;
+    }
+
+    /**
+     * Forget the GridFS file of a blob whose upload was rolled back because the entity that referenced it was not
+     * written, so that the content is uploaded again if the entity is written again.
+     */
+    void unstored() {
+        fileId = null;
+        store = null;
+        chunkSize = 0;
+        length = sourceLength;
+    }
+
+    /**
+     * Bind a blob read from the data store to the store that reads its content.
+     *
+     * @param store The store.
+     */
+    void bind(final MongoBlobStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Writes the reference to the GridFS file.
+     */
+    static final class Serializer extends JsonSerializer<MongoBlob> {
+
+        @Override
+        public void serialize(final MongoBlob value,
+                              final JsonGenerator generator,
+                              final SerializerProvider provider)
+                throws IOException {
+            final ObjectId id = value.fileId;
+            if (id == null) {
+                throw new JsonMappingException("The blob has not been stored. MongoBlob properties must be annotated with @MongoLargeBinary");
+            }
+            generator.writeStartObject();
+            generator.writeStringField("file", id.toHexString());
+            generator.writeNumberField("length", value.length);
+            generator.writeNumberField("chunkSize", value.chunkSize);
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * Reads the reference to the GridFS file.
+     */
+    static final class Deserializer extends JsonDeserializer<MongoBlob> {
+
+        @Override
+        public MongoBlob deserialize(final JsonParser parser,
+                                     final DeserializationContext context)
+                throws IOException {
+            if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+                throw context.mappingException(MongoBlob.class, parser.getCurrentToken());
+            }
+            String file = null;
+            long length = 0L;
+            int chunkSize = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.getCurrentName();
+                parser.nextToken();
+                if ("file".equals(name)) {
+                    file = parser.getText();
+                } else if ("length".equals(name)) {
+                    length = parser.getLongValue();
+                } else if ("chunkSize".equals(name)) {
+                    chunkSize = parser.getIntValue();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (file == null || !ObjectId.isValid(file) || chunkSize <= 0) {
+                throw context.mappingException("Invalid reference to a GridFS file");
+            }
+            return new MongoBlob(new ObjectId(file), length, chunkSize);
+        }
+    }
+}
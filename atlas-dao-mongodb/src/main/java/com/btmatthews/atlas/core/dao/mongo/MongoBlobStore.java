@@ -0,0 +1,544 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.btmatthews.atlas.core.dao.mongo;
+
+import com.btmatthews.atlas.core.dao.DataAccessException;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.BaseEncoding;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import com.mongodb.WriteConcern;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Stores the {@link MongoBlob} properties of the entities of a {@link MongoDAO} in a GridFS bucket named after the
+ * collection. The files use the standard GridFS layout so they can be read by other GridFS clients.
+ * <p>
+ * Up to {@link #parallelism} chunks of a file are written or read concurrently by {@link #executor}. The file
+ * document is written after all the chunks so that a partially uploaded file is never visible.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+final class MongoBlobStore {
+
+    /**
+     * The default number of bytes in each chunk. This matches the GridFS default.
+     */
+    static final int DEFAULT_CHUNK_SIZE = 255 * 1024;
+
+    /**
+     * The default number of chunks that are written or read concurrently.
+     */
+    static final int DEFAULT_PARALLELISM = 4;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MongoBlobStore.class);
+
+    /**
+     * The accessors of the {@link MongoLargeBinary} properties keyed by their names in the entity document.
+     */
+    private final ImmutableMap<String, AnnotatedMember> properties;
+
+    /**
+     * The collection that holds the entity documents.
+     */
+    private final DBCollection entities;
+
+    /**
+     * The collection that holds the GridFS file documents.
+     */
+    private final DBCollection files;
+
+    /**
+     * The collection that holds the GridFS chunks.
+     */
+    private final DBCollection chunks;
+
+    private volatile Executor executor = Runnable::run;
+    private volatile int chunkSize = DEFAULT_CHUNK_SIZE;
+    private volatile int parallelism = DEFAULT_PARALLELISM;
+
+    /**
+     * Initialise the store for an entity class.
+     *
+     * @param objectMapper The object mapper used to find the entity properties.
+     * @param objectClass  The entity class.
+     * @param db           The database.
+     * @param entities     The collection that holds the entity documents.
+     */
+    MongoBlobStore(final ObjectMapper objectMapper,
+                   final Class<?> objectClass,
+                   final DB db,
+                   final DBCollection entities) {
+        this.properties = findProperties(objectMapper, objectClass);
+        this.entities = entities;
+        this.files = db.getCollection(entities.getName() + ".files");
+        this.chunks = db.getCollection(entities.getName() + ".chunks");
+    }
+
+    /**
+     * Determine if the entity class has any {@link MongoLargeBinary} properties.
+     *
+     * @return {@code true} if there are properties stored in GridFS. Otherwise, {@code false}.
+     */
+    boolean hasProperties() {
+        return !properties.isEmpty();
+    }
+
+    void setExecutor(final Executor executor) {
+        this.executor = executor == null ? Runnable::run : executor;
+    }
+
+    void setChunkSize(final int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    void setParallelism(final int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Create the index on the chunks collection used to read the chunks of a file in order.
+     */
+    void ensureIndexes() {
+        chunks.createIndex(
+                new BasicDBObject("files_id", 1).append("n", 1),
+                new BasicDBObject("unique", Boolean.TRUE));
+    }
+
+    /**
+     * Bind the blobs of an entity read from the data store so their content can be read.
+     *
+     * @param entity The entity.
+     * @param <E>    The entity class.
+     * @return The entity.
+     */
+    <E> E bind(final E entity) {
+        for (final AnnotatedMember accessor : properties.values()) {
+            final Object value = accessor.getValue(entity);
+            if (value instanceof MongoBlob) {
+                ((MongoBlob) value).bind(this);
+            }
+        }
+        return entity;
+    }
+
+    /**
+     * Get the identifiers of the GridFS files referenced by an entity.
+     *
+     * @param entity The entity.
+     * @return The file identifiers.
+     */
+    Set<ObjectId> getFiles(final Object entity) {
+        final Set<ObjectId> ids = new HashSet<>();
+        for (final AnnotatedMember accessor : properties.values()) {
+            final Object value = accessor.getValue(entity);
+            if (value instanceof MongoBlob && ((MongoBlob) value).isStored()) {
+                ids.add(((MongoBlob) value).getFileId());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Get the identifiers of the GridFS files referenced by the entity documents that match a query.
+     *
+     * @param query The query.
+     * @return The file identifiers keyed by the result of {@link #key(Object)} for the document identifiers.
+     */
+    Map<Object, Set<ObjectId>> getFiles(final DBObject query) {
+        final DBObject fields = new BasicDBObject();
+        for (final String name : properties.keySet()) {
+            fields.put(name, 1);
+        }
+        final Map<Object, Set<ObjectId>> references = new HashMap<>();
+        final DBCursor cursor = entities.find(query, fields);
+        try {
+            while (cursor.hasNext()) {
+                final DBObject document = cursor.next();
+                final Set<ObjectId> ids = new HashSet<>();
+                for (final String name : properties.keySet()) {
+                    final Object value = document.get(name);
+                    if (value instanceof DBObject) {
+                        final Object file = ((DBObject) value).get("file");
+                        if (file instanceof String && ObjectId.isValid((String) file)) {
+                            ids.add(new ObjectId((String) file));
+                        }
+                    }
+                }
+                references.put(key(document.get("_id")), ids);
+            }
+        } finally {
+            cursor.close();
+        }
+        return references;
+    }
+
+    /**
+     * Upload the content of the blobs of some entities that have not been stored.
+     *
+     * @param values       The entities.
+     * @param writeConcern The write concern.
+     * @return The identifiers of the GridFS files that were created.
+     */
+    Set<ObjectId> upload(final Collection<?> values,
+                         final WriteConcern writeConcern) {
+        final Set<ObjectId> uploaded = new HashSet<>();
+        try {
+            for (final Object entity : values) {
+                for (final AnnotatedMember accessor : properties.values()) {
+                    final Object value = accessor.getValue(entity);
+                    if (value instanceof MongoBlob && !((MongoBlob) value).isStored()) {
+                        uploaded.add(upload((MongoBlob) value, writeConcern));
+                    }
+                }
+            }
+        } catch (final RuntimeException e) {
+            rollback(values, uploaded, writeConcern);
+            throw e;
+        }
+        return uploaded;
+    }
+
+    /**
+     * Roll back the upload of blobs whose entities were not written. The GridFS files are deleted and the blobs that
+     * referenced them are marked as not stored so they are uploaded again if their entities are written again.
+     *
+     * @param values       The entities that were not written.
+     * @param ids          The identifiers of the GridFS files to delete.
+     * @param writeConcern The write concern.
+     */
+    void rollback(final Collection<?> values,
+                  final Set<ObjectId> ids,
+                  final WriteConcern writeConcern) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        for (final Object entity : values) {
+            for (final AnnotatedMember accessor : properties.values()) {
+                final Object value = accessor.getValue(entity);
+                if (value instanceof MongoBlob && ids.contains(((MongoBlob) value).getFileId())) {
+                    ((MongoBlob) value).unstored();
+                }
+            }
+        }
+        delete(ids, writeConcern);
+    }
+
+    /**
+     * Delete GridFS files. Failures are logged rather than thrown because the files are no longer referenced.
+     *
+     * @param ids          The file identifiers.
+     * @param writeConcern The write concern.
+     */
+    void delete(final Collection<ObjectId> ids,
+                final WriteConcern writeConcern) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try {
+            files.remove(new BasicDBObject("_id", new BasicDBObject("$in", ids)), writeConcern);
+            chunks.remove(new BasicDBObject("files_id", new BasicDBObject("$in", ids)), writeConcern);
+        } catch (final MongoException e) {
+            LOGGER.warn("Could not delete GridFS files: {} from bucket: {}", ids, entities.getFullName(), e);
+        }
+    }
+
+    /**
+     * Open a stream that reads the content of a stored blob.
+     *
+     * @param blob The blob.
+     * @return The stream.
+     */
+    InputStream open(final MongoBlob blob) {
+        return new ChunkInputStream(blob.getFileId(), blob.getLength(), blob.getChunkSize());
+    }
+
+    /**
+     * Convert a document identifier to a value that can be used as a map key. Binary identifiers are compared by
+     * content.
+     *
+     * @param id The document identifier.
+     * @return The key.
+     */
+    static Object key(final Object id) {
+        return id instanceof byte[] ? ByteBuffer.wrap((byte[]) id) : id;
+    }
+
+    /**
+     * Upload the content of a blob as a new GridFS file.
+     *
+     * @param blob         The blob.
+     * @param writeConcern The write concern.
+     * @return The identifier of the GridFS file.
+     */
+    private ObjectId upload(final MongoBlob blob,
+                            final WriteConcern writeConcern) {
+        final ObjectId fileId = new ObjectId();
+        final int size = chunkSize;
+        final int window = parallelism;
+        final Executor chunkExecutor = executor;
+        final MessageDigest digest = md5();
+        final Deque<CompletableFuture<Void>> pending = new ArrayDeque<>();
+        long length = 0L;
+        int n = 0;
+        try (InputStream in = blob.openSource()) {
+            byte[] data;
+            while ((data = readChunk(in, size)) != null) {
+                digest.update(data);
+                length += data.length;
+                final DBObject chunk = new BasicDBObject("files_id", fileId).append("n", n++).append("data", data);
+                pending.add(CompletableFuture.runAsync(() -> chunks.insert(chunk, writeConcern), chunkExecutor));
+                if (pending.size() >= window) {
+                    pending.poll().join();
+                }
+            }
+            while (!pending.isEmpty()) {
+                pending.poll().join();
+            }
+            files.insert(new BasicDBObject("_id", fileId)
+                    .append("length", length)
+                    .append("chunkSize", size)
+                    .append("uploadDate", new Date())
+                    .append("md5", BaseEncoding.base16().lowerCase().encode(digest.digest())), writeConcern);
+        } catch (final IOException | RuntimeException e) {
+            for (final CompletableFuture<Void> chunk : pending) {
+                chunk.exceptionally(ignored -> null).join();
+            }
+            delete(Collections.singleton(fileId), writeConcern);
+            final Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            throw new DataAccessException("Could not upload GridFS file to bucket: " + entities.getFullName(), cause);
+        }
+        blob.stored(fileId, length, size);
+        blob.bind(this);
+        return fileId;
+    }
+
+    /**
+     * Read up to {@code size} bytes from a stream.
+     *
+     * @param in   The stream.
+     * @param size The maximum number of bytes.
+     * @return The bytes or {@code null} if the end of the stream has been reached.
+     * @throws IOException If the stream could not be read.
+     */
+    private static byte[] readChunk(final InputStream in,
+                                    final int size) throws IOException {
+        final byte[] buffer = new byte[size];
+        int count = 0;
+        int read;
+        while (count < size && (read = in.read(buffer, count, size - count)) != -1) {
+            count += read;
+        }
+        if (count == 0) {
+            return null;
+        }
+        if (count < size) {
+            final byte[] data = new byte[count];
+            System.arraycopy(buffer, 0, data, 0, count);
+            return data;
+        }
+        return buffer;
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Find the {@link MongoLargeBinary} properties of an entity class.
+     *
+     * @param objectMapper The object mapper.
+     * @param objectClass  The entity class.
+     * @return The property accessors keyed by their names in the entity document.
+     */
+    private static ImmutableMap<String, AnnotatedMember> findProperties(final ObjectMapper objectMapper,
+                                                                       final Class<?> objectClass) {
+        final BeanDescription description = objectMapper.getSerializationConfig()
+                .introspect(objectMapper.constructType(objectClass));
+        final ImmutableMap.Builder<String, AnnotatedMember> builder = ImmutableMap.builder();
+        for (final BeanPropertyDefinition property : description.findProperties()) {
+            if (isLargeBinary(objectClass, property)) {
+                final AnnotatedMember accessor = property.getAccessor();
+                if (accessor == null || !MongoBlob.class.equals(accessor.getRawType())) {
+                    throw new IllegalArgumentException("@MongoLargeBinary property " + property.getName() + " of "
+                            + objectClass.getName() + " must be a readable MongoBlob");
+                }
+                accessor.fixAccess();
+                builder.put(property.getName(), accessor);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Determine if the field or getter of a property is annotated with {@link MongoLargeBinary}. The field is found
+     * by name because fields that are not visible to Jackson are not part of the property definition.
+     *
+     * @param objectClass The entity class.
+     * @param property    The property.
+     * @return {@code true} if the property is annotated. Otherwise, {@code false}.
+     */
+    private static boolean isLargeBinary(final Class<?> objectClass,
+                                         final BeanPropertyDefinition property) {
+        if (property.hasGetter() && property.getGetter().getAnnotated().isAnnotationPresent(MongoLargeBinary.class)) {
+            return true;
+        }
+        for (Class<?> type = objectClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            try {
+                return type.getDeclaredField(property.getInternalName()).isAnnotationPresent(MongoLargeBinary.class);
+            } catch (final NoSuchFieldException e) {
+                // Try the superclass
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the chunks of a GridFS file, fetching up to {@link #parallelism} chunks ahead of the reader. No chunks are
+     * fetched until the stream is first read.
+     */
+    private final class ChunkInputStream extends InputStream {
+
+        private final ObjectId fileId;
+        private final int chunkCount;
+        private final int window = parallelism;
+        private final Executor chunkExecutor = executor;
+        private final Deque<CompletableFuture<byte[]>> fetching = new ArrayDeque<>();
+        private int nextChunk;
+        private byte[] current;
+        private int position;
+        private boolean closed;
+
+        ChunkInputStream(final ObjectId fileId,
+                         final long length,
+                         final int chunkSize) {
+            this.fileId = fileId;
+            this.chunkCount = (int) ((length + chunkSize - 1) / chunkSize);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return current[position++] & 0xff;
+        }
+
+        @Override
+        public int read(final byte[] buffer,
+                        final int offset,
+                        final int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            final int count = Math.min(length, current.length - position);
+            System.arraycopy(current, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return current == null ? 0 : current.length - position;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            fetching.clear();
+            current = null;
+        }
+
+        /**
+         * Make sure there are unread bytes in the current chunk, waiting for the next chunk if necessary.
+         *
+         * @return {@code true} if there are unread bytes. Otherwise, {@code false} at the end of the file.
+         * @throws IOException If the stream is closed or a chunk could not be read.
+         */
+        private boolean fill() throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            while (current == null || position >= current.length) {
+                fetchAhead();
+                final CompletableFuture<byte[]> next = fetching.poll();
+                if (next == null) {
+                    return false;
+                }
+                try {
+                    current = next.join();
+                } catch (final CompletionException e) {
+                    throw new IOException("Could not read GridFS file: " + fileId, e.getCause());
+                }
+                position = 0;
+            }
+            return true;
+        }
+
+        private void fetchAhead() {
+            while (fetching.size() < window && nextChunk < chunkCount) {
+                final int n = nextChunk++;
+                fetching.add(CompletableFuture.supplyAsync(() -> fetch(n), chunkExecutor));
+            }
+        }
+
+        private byte[] fetch(final int n) {
+            final DBObject chunk = chunks.findOne(new BasicDBObject("files_id", fileId).append("n", n));
+            if (chunk == null || !(chunk.get("data") instanceof byte[])) {
+                throw new DataAccessException("Missing chunk: " + n + " of GridFS file: " + fileId);
+            }
+            return (byte[]) chunk.get("data");
+        }
+    }
+}
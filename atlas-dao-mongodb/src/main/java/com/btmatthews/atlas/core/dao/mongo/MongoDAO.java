@@ -18,23 +18,91 @@ package com.btmatthews.atlas.core.dao.mongo;
 
 import com.btmatthews.atlas.core.common.Paging;
 import com.btmatthews.atlas.core.dao.DAO;
+import com.btmatthews.atlas.core.dao.DataAccessException;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableSet;
+import com.mongodb.AggregationOptions;
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteError;
+import com.mongodb.BulkWriteException;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.BulkWriteResult;
+import com.mongodb.CommandResult;
+import com.mongodb.Cursor;
 import com.mongodb.DB;
 import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
 import com.mongodb.MongoClient;
+import com.mongodb.MongoException;
+import com.mongodb.MongoInternalException;
+import com.mongodb.MongoInterruptedException;
+import com.mongodb.MongoSocketException;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
+import com.mongodb.WriteConcernException;
+import org.bson.types.ObjectId;
 import org.mongojack.DBCursor;
+import org.mongojack.DBQuery;
 import org.mongojack.JacksonDBCollection;
 import org.mongojack.WriteResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Abstract base class that implements common features of data access objects that
  * use MongoDB for persistence.
+ * <p>
+ * The write concern, read preference and maximum execution time used by each operation are taken from a named
+ * {@link MongoOperationProfile}. The default profile is used unless another profile is named when the operation is
+ * invoked. The duration of each operation is recorded by a {@link Timer} named after the collection, profile and
+ * operation.
+ * <p>
+ * The indexes used by lookups can be declared with {@link #setIndexes(Collection)} and created by
+ * {@link #ensureIndexes()} when the application starts. A {@link MongoQueryPlanCheck} can be configured so that the
+ * first lookup on each key reports lookups that are not supported by an index.
+ * <p>
+ * Every cursor opened by the data access object is closed once the results have been read. The number of open
+ * cursors, and the number of documents read and additional batches fetched by each cursor, are recorded in the
+ * metric registry.
+ * <p>
+ * Documents read by cursors are parsed by the object mapper directly from the BSON returned by the server. Objects
+ * are converted to an intermediate {@link DBObject} before they are written unless the direct codec is enabled with
+ * {@link #setDirectCodec(boolean)}.
+ * <p>
+ * Properties annotated with {@link MongoLargeBinary} are stored in a GridFS bucket named after the collection and the
+ * documents only hold references to the files. The files are uploaded before a document is written and the files
+ * that are no longer referenced are deleted after it has been updated or deleted. The files uploaded for a document
+ * that the server rejected are deleted and its blobs are uploaded again if it is written again. The files are kept if
+ * the outcome of a write is unknown, for example because the connection failed or the write concern timed out,
+ * because the document may have been written.
  *
  * @param <ID> The identifier class.
  * @param <I>  The interface class.
@@ -43,10 +111,32 @@ import java.util.Optional;
 public class MongoDAO<ID, I, T extends I> implements DAO<ID, I> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MongoDAO.class);
+    /**
+     * The error codes reported when a write was applied but the write concern could not be satisfied.
+     */
+    private static final Set<Integer> WRITE_CONCERN_ERROR_CODES = ImmutableSet.of(64, 79, 100);
+
+    /**
+     * The default maximum number of documents sent to the server in a single bulk write. This matches the maximum
+     * batch size of the write commands so the driver does not have to split the chunks again.
+     */
+    public static final int DEFAULT_BULK_CHUNK_SIZE = 1000;
 
     private final String databaseName;
     private final String collectionName;
     private final JacksonDBCollection<I, ID> collection;
+    private final ObjectMapper objectMapper;
+    private final Map<String, ProfileBinding> profiles = new ConcurrentHashMap<>();
+    private volatile String defaultProfile = MongoOperationProfile.DEFAULT_NAME;
+    private volatile MetricRegistry metricRegistry = new MetricRegistry();
+    private volatile CursorMetrics cursorMetrics;
+    private int findBatchSize;
+    private final Map<String, Boolean> checkedLookupKeys = new ConcurrentHashMap<>();
+    private volatile List<MongoIndex> indexes = Collections.emptyList();
+    private volatile MongoQueryPlanCheck queryPlanCheck = MongoQueryPlanCheck.NONE;
+    private int bulkChunkSize = DEFAULT_BULK_CHUNK_SIZE;
+    private Executor bulkExecutor;
+    private final MongoBlobStore blobs;
 
     /**
      * Initialise the Mongo data access object setting concrete class to
@@ -79,10 +169,252 @@ public class MongoDAO<ID, I, T extends I> implements DAO<ID, I> {
 
         this.databaseName = databaseName;
         this.collectionName = collectionName;
+        this.objectMapper = objectMapper;
 
         final DB db = mongoClient.getDB(databaseName);
         final DBCollection collection = db.getCollection(collectionName);
         this.collection = (JacksonDBCollection<I, ID>) JacksonDBCollection.wrap(collection, objectClass, keyClass, objectMapper);
+        blobs = new MongoBlobStore(objectMapper, objectClass, db, collection);
+        cursorMetrics = new CursorMetrics();
+        addProfile(new MongoOperationProfileBuilder().build());
+    }
+
+    /**
+     * Set the number of documents fetched in each batch by the cursors used by {@link #find(Paging)} and
+     * {@link #lookupAll(String, Object)}.
+     *
+     * @param findBatchSize The batch size or {@code 0} to use the server default.
+     */
+    public final void setFindBatchSize(final int findBatchSize) {
+        if (findBatchSize < 0) {
+            throw new IllegalArgumentException("findBatchSize must not be negative");
+        }
+        this.findBatchSize = findBatchSize;
+    }
+
+    /**
+     * Enable or disable the direct codec. When enabled, objects that are created or updated are serialized by the
+     * object mapper directly to BSON without building an intermediate {@link DBObject}. The {@link MongoJSR310Module}
+     * and {@link MongoUUIDModule} types are written as native BSON dates and binaries either way.
+     * <p>
+     * The direct codec relies on the driver encoding the documents so it must be disabled when using an in-memory
+     * replacement for the server that stores the {@link DBObject} instead.
+     *
+     * @param directCodec {@code true} to write BSON directly. Otherwise, {@code false} to write an intermediate
+     *                    {@link DBObject}.
+     */
+    public final void setDirectCodec(final boolean directCodec) {
+        if (directCodec) {
+            collection.enable(JacksonDBCollection.Feature.USE_STREAM_SERIALIZATION);
+        } else {
+            collection.disable(JacksonDBCollection.Feature.USE_STREAM_SERIALIZATION);
+        }
+    }
+
+    /**
+     * Determine if objects are written directly to BSON.
+     *
+     * @return {@code true} if the direct codec is enabled. Otherwise, {@code false}.
+     */
+    public final boolean isDirectCodec() {
+        return collection.isEnabled(JacksonDBCollection.Feature.USE_STREAM_SERIALIZATION);
+    }
+
+    /**
+     * Add a profile or replace an existing profile with the same name.
+     *
+     * @param profile The profile.
+     */
+    public final void addProfile(final MongoOperationProfile profile) {
+        if (profile == null) {
+            throw new IllegalArgumentException("profile must not be null");
+        }
+        profiles.put(profile.getName(), new ProfileBinding(profile));
+    }
+
+    /**
+     * Add profiles or replace existing profiles with the same names.
+     *
+     * @param profiles The profiles.
+     */
+    public final void setProfiles(final Collection<MongoOperationProfile> profiles) {
+        if (profiles == null) {
+            throw new IllegalArgumentException("profiles must not be null");
+        }
+        for (final MongoOperationProfile profile : profiles) {
+            addProfile(profile);
+        }
+    }
+
+    /**
+     * Get a profile.
+     *
+     * @param name The profile name.
+     * @return The profile.
+     */
+    public final MongoOperationProfile getProfile(final String name) {
+        return getProfileBinding(name).profile;
+    }
+
+    /**
+     * Set the profile used when a profile is not named.
+     *
+     * @param name The name of a profile that has already been added.
+     */
+    public final void setDefaultProfile(final String name) {
+        getProfileBinding(name);
+        defaultProfile = name;
+    }
+
+    /**
+     * Get the registry in which the operation timers are kept.
+     *
+     * @return The metric registry.
+     */
+    public final MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
+    /**
+     * Set the registry in which the operation timers are kept. By default each data access object has its own
+     * registry.
+     *
+     * @param metricRegistry The metric registry.
+     */
+    public final void setMetricRegistry(final MetricRegistry metricRegistry) {
+        if (metricRegistry == null) {
+            throw new IllegalArgumentException("metricRegistry must not be null");
+        }
+        this.metricRegistry = metricRegistry;
+        cursorMetrics = new CursorMetrics();
+        for (final ProfileBinding binding : profiles.values()) {
+            addProfile(binding.profile);
+        }
+    }
+
+    /**
+     * Set the maximum number of documents sent to the server in a single bulk write.
+     *
+     * @param bulkChunkSize The maximum number of documents.
+     */
+    public final void setBulkChunkSize(final int bulkChunkSize) {
+        if (bulkChunkSize < 1) {
+            throw new IllegalArgumentException("bulkChunkSize must be positive");
+        }
+        this.bulkChunkSize = bulkChunkSize;
+    }
+
+    /**
+     * Set the executor used to send the chunks of a bulk write concurrently. If no executor is set the chunks are
+     * sent one after another by the calling thread.
+     *
+     * @param bulkExecutor The executor or {@code null}.
+     */
+    public final void setBulkExecutor(final Executor bulkExecutor) {
+        this.bulkExecutor = bulkExecutor;
+    }
+
+    /**
+     * Set the executor used to write and read the chunks of {@link MongoLargeBinary} properties concurrently. If no
+     * executor is set the chunks are written and read one after another by the calling thread.
+     *
+     * @param blobExecutor The executor or {@code null}.
+     */
+    public final void setBlobExecutor(final Executor blobExecutor) {
+        blobs.setExecutor(blobExecutor);
+    }
+
+    /**
+     * Set the number of bytes in each GridFS chunk of newly stored {@link MongoLargeBinary} properties.
+     *
+     * @param blobChunkSize The chunk size. The default is 255KB.
+     */
+    public final void setBlobChunkSize(final int blobChunkSize) {
+        if (blobChunkSize < 1) {
+            throw new IllegalArgumentException("blobChunkSize must be positive");
+        }
+        blobs.setChunkSize(blobChunkSize);
+    }
+
+    /**
+     * Set the maximum number of GridFS chunks that are written concurrently or fetched ahead of the reader.
+     *
+     * @param blobParallelism The number of chunks. The default is 4.
+     */
+    public final void setBlobParallelism(final int blobParallelism) {
+        if (blobParallelism < 1) {
+            throw new IllegalArgumentException("blobParallelism must be positive");
+        }
+        blobs.setParallelism(blobParallelism);
+    }
+
+    /**
+     * Declare the indexes that {@link #ensureIndexes()} creates.
+     *
+     * @param indexes The index declarations.
+     */
+    public final void setIndexes(final Collection<MongoIndex> indexes) {
+        if (indexes == null) {
+            throw new IllegalArgumentException("indexes must not be null");
+        }
+        this.indexes = new ArrayList<>(indexes);
+    }
+
+    /**
+     * Set what happens when the query plan for the first lookup on a key is a collection scan.
+     *
+     * @param queryPlanCheck The query plan check.
+     */
+    public final void setQueryPlanCheck(final MongoQueryPlanCheck queryPlanCheck) {
+        if (queryPlanCheck == null) {
+            throw new IllegalArgumentException("queryPlanCheck must not be null");
+        }
+        this.queryPlanCheck = queryPlanCheck;
+        checkedLookupKeys.clear();
+    }
+
+    /**
+     * Create the declared indexes that do not already exist using the common fork/join pool.
+     *
+     * @return Completes when all the indexes exist or completes exceptionally if an index could not be created.
+     */
+    public final CompletableFuture<Void> ensureIndexes() {
+        return ensureIndexes(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create the declared indexes that do not already exist. The indexes are created by the executor and are built in
+     * the background by the server so that the application can start while they are being built. The index on the
+     * GridFS chunks is also created if there are {@link MongoLargeBinary} properties.
+     *
+     * @param executor The executor.
+     * @return Completes when all the indexes exist or completes exceptionally if an index could not be created.
+     */
+    public final CompletableFuture<Void> ensureIndexes(final Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor must not be null");
+        }
+        final List<MongoIndex> declared = indexes;
+        return CompletableFuture.runAsync(() -> {
+            for (final MongoIndex index : declared) {
+                LOGGER.info("Ensure index on collection: {}.{} {}", databaseName, collectionName, index);
+                try {
+                    collection.getDbCollection().createIndex(index.toKeys(), index.toOptions());
+                } catch (final MongoException e) {
+                    LOGGER.error("Could not create index on collection: {}.{} {}", databaseName, collectionName, index, e);
+                    throw new DataAccessException("Could not create index on collection: " + databaseName + "."
+                            + collectionName + " " + index, e);
+                }
+            }
+            if (blobs.hasProperties()) {
+                try {
+                    blobs.ensureIndexes();
+                } catch (final MongoException e) {
+                    throw new DataAccessException("Could not create index on GridFS bucket: " + databaseName + "."
+                            + collectionName, e);
+                }
+            }
+        }, executor);
     }
 
     /**
@@ -92,10 +424,230 @@ public class MongoDAO<ID, I, T extends I> implements DAO<ID, I> {
      */
     @Override
     public final long count() {
+        return count(defaultProfile);
+    }
+
+    /**
+     * Count the objects of the specified type in the data store using a named profile.
+     *
+     * @param profile The profile name.
+     * @return The number of objects.
+     */
+    public final long count(final String profile) {
+        return count(null, profile);
+    }
+
+    /**
+     * Count the objects that match the criteria.
+     *
+     * @param criteria The criteria or {@code null} to count all objects.
+     * @return The number of matching objects.
+     */
+    public final long count(final DBQuery.Query criteria) {
+        return count(criteria, defaultProfile);
+    }
+
+    /**
+     * Count the objects that match the criteria using a named profile.
+     *
+     * @param criteria The criteria or {@code null} to count all objects.
+     * @param profile  The profile name.
+     * @return The number of matching objects.
+     */
+    public final long count(final DBQuery.Query criteria,
+                            final String profile) {
+        final ProfileBinding binding = getProfileBinding(profile);
         LOGGER.debug("Count objects in collection: {}.{}", databaseName, collectionName);
-        final long count = collection.count();
-        LOGGER.debug("Counted {} objects in collection: {}.{}", count, databaseName, collectionName);
-        return count;
+        final Timer.Context timer = binding.time(Operation.COUNT);
+        try {
+            final DBObject query = criteria == null ? new BasicDBObject() : collection.serializeQuery(criteria);
+            final long count = binding.apply(collection.getDbCollection().find(query)).count();
+            LOGGER.debug("Counted {} objects in collection: {}.{}", count, databaseName, collectionName);
+            return count;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Estimate the number of objects in the data store from the collection statistics without scanning the
+     * collection or an index. The estimate may be inaccurate after an unclean shutdown or while documents are being
+     * migrated between shards. The objects are counted if the statistics are not available.
+     *
+     * @return The estimated number of objects.
+     */
+    public final long estimatedCount() {
+        LOGGER.debug("Estimate object count in collection: {}.{}", databaseName, collectionName);
+        final Timer.Context timer = getProfileBinding(defaultProfile).time(Operation.ESTIMATED_COUNT);
+        try {
+            final CommandResult stats = collection.getDbCollection().getStats();
+            if (stats.ok() && stats.get("count") instanceof Number) {
+                return ((Number) stats.get("count")).longValue();
+            }
+            LOGGER.debug("Statistics not available for collection: {}.{}", databaseName, collectionName);
+        } catch (final MongoException e) {
+            LOGGER.debug("Statistics not available for collection: {}.{}", databaseName, collectionName, e);
+        } finally {
+            timer.stop();
+        }
+        return count();
+    }
+
+    /**
+     * Run an aggregation on the server and convert each group into a row.
+     *
+     * @param aggregation The aggregation.
+     * @param rowClass    The class of the rows.
+     * @param <R>         The row type.
+     * @return The rows.
+     */
+    public final <R> List<R> aggregate(final MongoAggregation aggregation,
+                                       final Class<R> rowClass) {
+        return aggregate(aggregation, rowClass, defaultProfile);
+    }
+
+    /**
+     * Run an aggregation on the server using a named profile and convert each group into a row. The rows are
+     * converted by the object mapper so they can be POJOs or maps.
+     *
+     * @param aggregation The aggregation.
+     * @param rowClass    The class of the rows.
+     * @param profile     The profile name.
+     * @param <R>         The row type.
+     * @return The rows.
+     */
+    public final <R> List<R> aggregate(final MongoAggregation aggregation,
+                                       final Class<R> rowClass,
+                                       final String profile) {
+        if (aggregation == null) {
+            throw new IllegalArgumentException("aggregation must not be null");
+        }
+        if (rowClass == null) {
+            throw new IllegalArgumentException("rowClass must not be null");
+        }
+        LOGGER.debug("Aggregate objects in collection: {}.{}", databaseName, collectionName);
+        final ProfileBinding binding = getProfileBinding(profile);
+        final DBQuery.Query criteria = aggregation.getCriteria();
+        final List<DBObject> pipeline = aggregation.toPipeline(criteria == null ? null : collection.serializeQuery(criteria));
+        final Timer.Context timer = binding.time(Operation.AGGREGATE);
+        try {
+            final List<R> rows = new ArrayList<>();
+            for (final DBObject result : runPipeline(pipeline, binding)) {
+                rows.add(collection.convertFromDbObject(aggregation.toRow(result), rowClass));
+            }
+            return rows;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Count the matching objects for each distinct value of one or more fields.
+     *
+     * @param criteria The criteria or {@code null} to count all objects.
+     * @param fields   The fields.
+     * @return The counts for each field keyed by value in descending order of count.
+     */
+    public final Map<String, Map<Object, Long>> countFacets(final DBQuery.Query criteria,
+                                                            final Collection<String> fields) {
+        return countFacets(criteria, fields, defaultProfile);
+    }
+
+    /**
+     * Count the matching objects for each distinct value of one or more fields using a named profile. Each field is
+     * counted by its own aggregation on the server.
+     *
+     * @param criteria The criteria or {@code null} to count all objects.
+     * @param fields   The fields.
+     * @param profile  The profile name.
+     * @return The counts for each field keyed by value in descending order of count.
+     */
+    public final Map<String, Map<Object, Long>> countFacets(final DBQuery.Query criteria,
+                                                            final Collection<String> fields,
+                                                            final String profile) {
+        if (fields == null) {
+            throw new IllegalArgumentException("fields must not be null");
+        }
+        LOGGER.debug("Count facets {} in collection: {}.{}", fields, databaseName, collectionName);
+        final ProfileBinding binding = getProfileBinding(profile);
+        final DBObject match = criteria == null ? null : collection.serializeQuery(criteria);
+        final Map<String, Map<Object, Long>> facets = new LinkedHashMap<>();
+        final Timer.Context timer = binding.time(Operation.AGGREGATE);
+        try {
+            for (final String field : fields) {
+                final MongoAggregation aggregation = new MongoAggregationBuilder()
+                        .groupBy(field)
+                        .count("count")
+                        .sortDescending("count")
+                        .build();
+                final Map<Object, Long> counts = new LinkedHashMap<>();
+                for (final DBObject result : runPipeline(aggregation.toPipeline(match), binding)) {
+                    counts.put(result.get("_id"), ((Number) result.get("count")).longValue());
+                }
+                facets.put(field, counts);
+            }
+            return facets;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Get the distinct values of a field in the matching objects.
+     *
+     * @param field      The field.
+     * @param criteria   The criteria or {@code null} to include all objects.
+     * @param valueClass The class of the values.
+     * @param <V>        The value type.
+     * @return The distinct values.
+     */
+    public final <V> List<V> distinct(final String field,
+                                      final DBQuery.Query criteria,
+                                      final Class<V> valueClass) {
+        return distinct(field, criteria, valueClass, defaultProfile);
+    }
+
+    /**
+     * Get the distinct values of a field in the matching objects using a named profile. The values are collected by
+     * an aggregation rather than the {@code distinct} command so that the maximum execution time of the profile
+     * applies and the result is not limited to the size of a single document. Unlike the {@code distinct} command,
+     * array values are not unwound. Objects without the field are ignored. Values that are not already instances of
+     * the value class are converted by the object mapper.
+     *
+     * @param field      The field.
+     * @param criteria   The criteria or {@code null} to include all objects.
+     * @param valueClass The class of the values.
+     * @param profile    The profile name.
+     * @param <V>        The value type.
+     * @return The distinct values.
+     */
+    public final <V> List<V> distinct(final String field,
+                                      final DBQuery.Query criteria,
+                                      final Class<V> valueClass,
+                                      final String profile) {
+        if (field == null) {
+            throw new IllegalArgumentException("field must not be null");
+        }
+        if (valueClass == null) {
+            throw new IllegalArgumentException("valueClass must not be null");
+        }
+        LOGGER.debug("Distinct values of {} in collection: {}.{}", field, databaseName, collectionName);
+        final ProfileBinding binding = getProfileBinding(profile);
+        final DBObject match = criteria == null ? null : collection.serializeQuery(criteria);
+        final List<DBObject> pipeline = new MongoAggregationBuilder().groupBy(field).build().toPipeline(match);
+        final Timer.Context timer = binding.time(Operation.DISTINCT);
+        try {
+            final List<V> values = new ArrayList<>();
+            for (final DBObject result : runPipeline(pipeline, binding)) {
+                final Object value = result.get("_id");
+                if (value != null) {
+                    values.add(valueClass.isInstance(value) ? valueClass.cast(value) : objectMapper.convertValue(value, valueClass));
+                }
+            }
+            return values;
+        } finally {
+            timer.stop();
+        }
     }
 
     /**
@@ -106,33 +658,109 @@ public class MongoDAO<ID, I, T extends I> implements DAO<ID, I> {
      */
     @Override
     public final List<I> find(final Paging paging) {
+        return find(paging, defaultProfile);
+    }
+
+    /**
+     * Retrieve a subset of the matching objects of the specified type from the data store using a named profile.
+     *
+     * @param paging  Describes the portion of the result set to return.
+     * @param profile The profile name.
+     * @return The subset of the matching objects.
+     */
+    public final List<I> find(final Paging paging,
+                              final String profile) {
         LOGGER.debug("Find object in collection: {}.{}", databaseName, collectionName);
         if (paging == null) {
             throw new IllegalArgumentException("paging must not be null");
         }
-        final DBCursor<I> cursor = collection
-                .find()
-                .skip(paging.getPageNumber() * paging.getPageSize())
-                .limit(paging.getPageSize());
-        final List<I> entities = new ArrayList<>();
-        while (cursor.hasNext()) {
-            entities.add(cursor.next());
+        final ProfileBinding binding = getProfileBinding(profile);
+        final Timer.Context timer = binding.time(Operation.FIND);
+        try {
+            final DBCursor<I> cursor = openCursor(binding);
+            try {
+                cursor.skip(paging.getPageNumber() * paging.getPageSize()).limit(paging.getPageSize());
+                if (findBatchSize > 0) {
+                    cursor.batchSize(findBatchSize);
+                }
+                final List<I> entities = new ArrayList<>(paging.getPageSize());
+                while (cursor.hasNext()) {
+                    entities.add(blobs.bind(cursor.next()));
+                }
+                return entities;
+            } finally {
+                closeCursor(cursor);
+            }
+        } finally {
+            timer.stop();
         }
-        return entities;
     }
 
     @Override
     public final Optional<I> lookup(final String key,
                                     final Object value) {
+        return lookup(key, value, defaultProfile);
+    }
+
+    /**
+     * Lookup an object using a named profile.
+     *
+     * @param key     The name of the lookup key.
+     * @param value   The value of the lookup key.
+     * @param profile The profile name.
+     * @return The matching object, if found.
+     */
+    public final Optional<I> lookup(final String key,
+                                    final Object value,
+                                    final String profile) {
         LOGGER.debug("Lookup object in collection: {}.{} with key: {}={}", databaseName, collectionName, key, value);
-        final DBCursor<I> cursor = collection.find().is(key, value);
-        if (cursor.hasNext()) {
-            return Optional.of(cursor.next());
-        } else {
-            return Optional.empty();
+        final ProfileBinding binding = getProfileBinding(profile);
+        checkQueryPlan(key, value, binding);
+        final Timer.Context timer = binding.time(Operation.LOOKUP);
+        try {
+            return findFirst(openCursor(binding).is(key, value));
+        } finally {
+            timer.stop();
         }
     }
 
+    /**
+     * Lookup all the objects with a matching key.
+     *
+     * @param key   The name of the lookup key.
+     * @param value The value of the lookup key.
+     * @return The matching objects. The stream must be closed to release the cursor.
+     */
+    public final Stream<I> lookupAll(final String key,
+                                     final Object value) {
+        return lookupAll(key, value, defaultProfile);
+    }
+
+    /**
+     * Lookup all the objects with a matching key using a named profile. The objects are fetched from the server in
+     * batches as the stream is consumed.
+     *
+     * @param key     The name of the lookup key.
+     * @param value   The value of the lookup key.
+     * @param profile The profile name.
+     * @return The matching objects. The stream must be closed to release the cursor.
+     */
+    public final Stream<I> lookupAll(final String key,
+                                     final Object value,
+                                     final String profile) {
+        LOGGER.debug("Lookup all objects in collection: {}.{} with key: {}={}", databaseName, collectionName, key, value);
+        final ProfileBinding binding = getProfileBinding(profile);
+        checkQueryPlan(key, value, binding);
+        final DBCursor<I> cursor = openCursor(binding).is(key, value);
+        if (findBatchSize > 0) {
+            cursor.batchSize(findBatchSize);
+        }
+        return StreamSupport
+                .stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .map(blobs::bind)
+                .onClose(() -> closeCursor(cursor));
+    }
+
     /**
      * Persist a newly created object.
      *
@@ -141,6 +769,20 @@ public class MongoDAO<ID, I, T extends I> implements DAO<ID, I> {
     @Override
     public final void create(final ID id,
                              final I entity) {
+        create(id, entity, defaultProfile);
+    }
+
+    /**
+     * Persist a newly created object using a named profile. Failures are only detected if the write concern of the
+     * profile is acknowledged.
+     *
+     * @param id      The persistent object identifier.
+     * @param entity  The newly created object.
+     * @param profile The profile name.
+     */
+    public final void create(final ID id,
+                             final I entity,
+                             final String profile) {
         if (id == null) {
             throw new IllegalArgumentException("id must not be null");
         }
@@ -148,11 +790,156 @@ public class MongoDAO<ID, I, T extends I> implements DAO<ID, I> {
             throw new IllegalArgumentException("entity must not be null");
         }
         LOGGER.debug("Create object in collection: {}.{} with id: {}", databaseName, collectionName, id);
-        final WriteResult<I, ID> result = collection.insert(entity);
-        if (!result.getLastError().ok()) {
+        final ProfileBinding binding = getProfileBinding(profile);
+        final WriteConcern writeConcern = getWriteConcern(binding);
+        final Timer.Context timer = binding.time(Operation.CREATE);
+        try {
+            final Set<ObjectId> uploaded = blobs.upload(Collections.singleton(entity), writeConcern);
+            try {
+                final WriteResult<I, ID> result = collection.insert(entity, writeConcern);
+                if (writeConcern.callGetLastError()) {
+                    final CommandResult lastError = result.getLastError();
+                    if (!lastError.ok()) {
+                        throw new DataAccessException("Could not create object in collection: " + databaseName + "."
+                                + collectionName + " with id: " + id + ": " + lastError.getErrorMessage(),
+                                lastError.getException());
+                    }
+                }
+            } catch (final RuntimeException e) {
+                rollbackBlobs(entity, uploaded, e, writeConcern);
+                throw e;
+            }
+        } finally {
+            timer.stop();
         }
     }
 
+    /**
+     * Persist newly created objects using unordered bulk writes. A document that is rejected by the server does not
+     * prevent the remaining documents from being written and is reported in the result.
+     *
+     * @param entities The newly created objects keyed by their persistent object identifiers.
+     * @return Summarises the outcome of the bulk write.
+     */
+    public final BulkWriteReport<ID> createAll(final Map<ID, ? extends I> entities) {
+        return createAll(entities, defaultProfile);
+    }
+
+    /**
+     * Persist newly created objects using unordered bulk writes and a named profile.
+     *
+     * @param entities The newly created objects keyed by their persistent object identifiers.
+     * @param profile  The profile name.
+     * @return Summarises the outcome of the bulk write.
+     */
+    public final BulkWriteReport<ID> createAll(final Map<ID, ? extends I> entities,
+                                               final String profile) {
+        if (entities == null) {
+            throw new IllegalArgumentException("entities must not be null");
+        }
+        LOGGER.debug("Create {} objects in collection: {}.{}", entities.size(), databaseName, collectionName);
+        final List<ID> ids = new ArrayList<>(entities.keySet());
+        final List<I> values = new ArrayList<>(entities.values());
+        final ProfileBinding binding = getProfileBinding(profile);
+        final WriteConcern writeConcern = getWriteConcern(binding);
+        final Set<ObjectId> uploaded = blobs.upload(values, writeConcern);
+        final Set<ID> unwritten = ConcurrentHashMap.newKeySet();
+        unwritten.addAll(ids);
+        final BulkWriteReport<ID> report;
+        try {
+            report = bulkWrite(ids, unwritten, binding, BulkWriteType.INSERT,
+                    (bulk, index) -> bulk.insert(collection.convertToDbObject(values.get(index))),
+                    index -> collection.getDbCollection()
+                            .insert(collection.convertToDbObject(values.get(index)), writeConcern));
+        } catch (final RuntimeException e) {
+            rollbackBlobs(ids, values, uploaded, unwritten, writeConcern);
+            throw e;
+        }
+        releaseBlobs(ids, values, Collections.emptyMap(), uploaded, report, writeConcern);
+        return report;
+    }
+
+    /**
+     * Replace existing objects in the data store using unordered bulk writes.
+     *
+     * @param entities The existing objects keyed by their persistent object identifiers.
+     * @return Summarises the outcome of the bulk write.
+     */
+    public final BulkWriteReport<ID> updateAll(final Map<ID, ? extends I> entities) {
+        return updateAll(entities, defaultProfile);
+    }
+
+    /**
+     * Replace existing objects in the data store using unordered bulk writes and a named profile.
+     *
+     * @param entities The existing objects keyed by their persistent object identifiers.
+     * @param profile  The profile name.
+     * @return Summarises the outcome of the bulk write.
+     */
+    public final BulkWriteReport<ID> updateAll(final Map<ID, ? extends I> entities,
+                                               final String profile) {
+        if (entities == null) {
+            throw new IllegalArgumentException("entities must not be null");
+        }
+        LOGGER.debug("Update {} objects in collection: {}.{}", entities.size(), databaseName, collectionName);
+        final List<ID> ids = new ArrayList<>(entities.keySet());
+        final List<I> values = new ArrayList<>(entities.values());
+        final ProfileBinding binding = getProfileBinding(profile);
+        final WriteConcern writeConcern = getWriteConcern(binding);
+        final Map<Object, Set<ObjectId>> previous = getBlobFiles(ids);
+        final Set<ObjectId> uploaded = blobs.upload(values, writeConcern);
+        final Set<ID> unwritten = ConcurrentHashMap.newKeySet();
+        unwritten.addAll(ids);
+        final BulkWriteReport<ID> report;
+        try {
+            report = bulkWrite(ids, unwritten, binding, BulkWriteType.UPDATE,
+                    (bulk, index) -> bulk.find(createIdQuery(ids.get(index)))
+                            .replaceOne(collection.convertToDbObject(values.get(index))),
+                    index -> collection.getDbCollection().update(createIdQuery(ids.get(index)),
+                            collection.convertToDbObject(values.get(index)), false, false, writeConcern));
+        } catch (final RuntimeException e) {
+            rollbackBlobs(ids, values, uploaded, unwritten, writeConcern);
+            throw e;
+        }
+        releaseBlobs(ids, values, previous, uploaded, report, writeConcern);
+        return report;
+    }
+
+    /**
+     * Delete objects from the data store using unordered bulk writes.
+     *
+     * @param ids The persistent object identifiers.
+     * @return Summarises the outcome of the bulk write.
+     */
+    public final BulkWriteReport<ID> destroyAll(final Collection<? extends ID> ids) {
+        return destroyAll(ids, defaultProfile);
+    }
+
+    /**
+     * Delete objects from the data store using unordered bulk writes and a named profile.
+     *
+     * @param ids     The persistent object identifiers.
+     * @param profile The profile name.
+     * @return Summarises the outcome of the bulk write.
+     */
+    public final BulkWriteReport<ID> destroyAll(final Collection<? extends ID> ids,
+                                                final String profile) {
+        if (ids == null) {
+            throw new IllegalArgumentException("ids must not be null");
+        }
+        LOGGER.debug("Delete {} objects from collection: {}.{}", ids.size(), databaseName, collectionName);
+        final List<ID> idList = new ArrayList<>(ids);
+        final ProfileBinding binding = getProfileBinding(profile);
+        final WriteConcern writeConcern = getWriteConcern(binding);
+        final Map<Object, Set<ObjectId>> previous = getBlobFiles(idList);
+        final BulkWriteReport<ID> report = bulkWrite(idList, ConcurrentHashMap.newKeySet(), binding,
+                BulkWriteType.REMOVE,
+                (bulk, index) -> bulk.find(createIdQuery(idList.get(index))).removeOne(),
+                index -> collection.getDbCollection().remove(createIdQuery(idList.get(index)), writeConcern));
+        releaseBlobs(idList, null, previous, Collections.emptySet(), report, writeConcern);
+        return report;
+    }
+
     /**
      * Retrieve a persisted object using its identified.
      *
@@ -161,11 +948,29 @@ public class MongoDAO<ID, I, T extends I> implements DAO<ID, I> {
      */
     @Override
     public final Optional<I> read(final ID id) {
+        return read(id, defaultProfile);
+    }
+
+    /**
+     * Retrieve a persisted object using its identifier and a named profile.
+     *
+     * @param id      The identifier.
+     * @param profile The profile name.
+     * @return The matching object.
+     */
+    public final Optional<I> read(final ID id,
+                                  final String profile) {
         if (id == null) {
             throw new IllegalArgumentException("id must not be null");
         }
         LOGGER.debug("Read object from collection: {}.{} with id: {}", databaseName, collectionName, id);
-        return Optional.ofNullable(collection.findOneById(id));
+        final ProfileBinding binding = getProfileBinding(profile);
+        final Timer.Context timer = binding.time(Operation.READ);
+        try {
+            return findFirst(openCursor(binding).is("_id", id));
+        } finally {
+            timer.stop();
+        }
     }
 
     /**
@@ -177,6 +982,19 @@ public class MongoDAO<ID, I, T extends I> implements DAO<ID, I> {
     @Override
     public final void update(final ID id,
                              final I entity) {
+        update(id, entity, defaultProfile);
+    }
+
+    /**
+     * Update an existing object in the data store using a named profile.
+     *
+     * @param id      The persistent object identifier.
+     * @param entity  The existing object.
+     * @param profile The profile name.
+     */
+    public final void update(final ID id,
+                             final I entity,
+                             final String profile) {
         if (id == null) {
             throw new IllegalArgumentException("id must not be null");
         }
@@ -184,7 +1002,23 @@ public class MongoDAO<ID, I, T extends I> implements DAO<ID, I> {
             throw new IllegalArgumentException("entity must not be null");
         }
         LOGGER.debug("Update object in collection: {}.{} with id: {}", databaseName, collectionName, id);
-        collection.updateById(id, entity);
+        final ProfileBinding binding = getProfileBinding(profile);
+        final WriteConcern writeConcern = getWriteConcern(binding);
+        final Timer.Context timer = binding.time(Operation.UPDATE);
+        try {
+            final List<ID> ids = Collections.singletonList(id);
+            final Map<Object, Set<ObjectId>> previous = getBlobFiles(ids);
+            final Set<ObjectId> uploaded = blobs.upload(Collections.singleton(entity), writeConcern);
+            try {
+                collection.update(DBQuery.is("_id", id), entity, false, false, writeConcern);
+            } catch (final RuntimeException e) {
+                rollbackBlobs(entity, uploaded, e, writeConcern);
+                throw e;
+            }
+            releaseBlobs(ids, Collections.singletonList(entity), previous, uploaded, noFailures(), writeConcern);
+        } finally {
+            timer.stop();
+        }
     }
 
     /**
@@ -194,11 +1028,616 @@ public class MongoDAO<ID, I, T extends I> implements DAO<ID, I> {
      */
     @Override
     public final void destroy(final ID id) {
+        destroy(id, defaultProfile);
+    }
+
+    /**
+     * Delete a object from the data store using a named profile.
+     *
+     * @param id      The persistent object identifier.
+     * @param profile The profile name.
+     */
+    public final void destroy(final ID id,
+                              final String profile) {
         if (id == null) {
             throw new IllegalArgumentException("id must not be null");
         }
         LOGGER.debug("Delete object from collection: {}.{} with id: {}", databaseName, collectionName, id);
-        collection.removeById(id);
+        final ProfileBinding binding = getProfileBinding(profile);
+        final WriteConcern writeConcern = getWriteConcern(binding);
+        final Timer.Context timer = binding.time(Operation.DESTROY);
+        try {
+            final List<ID> ids = Collections.singletonList(id);
+            final Map<Object, Set<ObjectId>> previous = getBlobFiles(ids);
+            collection.remove(DBQuery.is("_id", id), writeConcern);
+            releaseBlobs(ids, null, previous, Collections.emptySet(), noFailures(), writeConcern);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Split a bulk write into chunks of at most {@link #bulkChunkSize} documents and send them to the server either
+     * sequentially or, if an executor has been set, concurrently. When the chunks are sent concurrently a chunk that
+     * fails does not abandon the others: the failure is only thrown once every chunk has completed, with the
+     * failures of any other chunks added to it as suppressed exceptions.
+     *
+     * @param ids       The persistent object identifiers of the documents being written.
+     * @param unwritten The persistent object identifiers of the documents that are known not to have been written.
+     *                  Documents are removed when their chunk is sent and added back if the server rejects them.
+     * @param binding   The profile used for the bulk write.
+     * @param type      The type of write.
+     * @param request   Adds the write request for the document at an index to a bulk write operation.
+     * @param single    Writes the document at an index on its own.
+     * @return The combined outcome of the chunks.
+     */
+    private BulkWriteReport<ID> bulkWrite(final List<ID> ids,
+                                          final Set<ID> unwritten,
+                                          final ProfileBinding binding,
+                                          final BulkWriteType type,
+                                          final ObjIntConsumer<BulkWriteOperation> request,
+                                          final IntFunction<com.mongodb.WriteResult> single) {
+        BulkWriteReport<ID> report = new BulkWriteReport<>(0, 0, 0, Collections.emptyList());
+        final int chunkSize = bulkChunkSize;
+        final Executor executor = bulkExecutor;
+        final WriteConcern writeConcern = getWriteConcern(binding);
+        final Timer.Context timer = binding.time(Operation.BULK_WRITE);
+        try {
+            if (executor == null || ids.size() <= chunkSize) {
+                for (int from = 0; from < ids.size(); from += chunkSize) {
+                    final int to = Math.min(from + chunkSize, ids.size());
+                    report = report.combine(writeChunk(ids, unwritten, from, to, writeConcern, type,
+                            request, single));
+                }
+            } else {
+                final List<CompletableFuture<BulkWriteReport<ID>>> chunks = new ArrayList<>();
+                for (int from = 0; from < ids.size(); from += chunkSize) {
+                    final int chunkFrom = from;
+                    final int chunkTo = Math.min(from + chunkSize, ids.size());
+                    chunks.add(CompletableFuture.supplyAsync(
+                            () -> writeChunk(ids, unwritten, chunkFrom, chunkTo, writeConcern, type, request, single),
+                            executor));
+                }
+                RuntimeException failure = null;
+                for (final CompletableFuture<BulkWriteReport<ID>> chunk : chunks) {
+                    try {
+                        report = report.combine(chunk.join());
+                    } catch (final CompletionException e) {
+                        final RuntimeException cause = e.getCause() instanceof RuntimeException
+                                ? (RuntimeException) e.getCause()
+                                : new DataAccessException("Bulk write to collection: " + databaseName + "."
+                                + collectionName + " failed", e.getCause());
+                        if (failure == null) {
+                            failure = cause;
+                        } else if (failure != cause) {
+                            failure.addSuppressed(cause);
+                        }
+                    }
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+            }
+        } finally {
+            timer.stop();
+        }
+        LOGGER.debug("Bulk write to collection: {}.{} completed with {}", databaseName, collectionName, report);
+        return report;
+    }
+
+    /**
+     * Send one chunk of a bulk write to the server.
+     *
+     * @param ids          The persistent object identifiers of the documents being written.
+     * @param unwritten    The persistent object identifiers of the documents that are known not to have been written.
+     * @param from         The index of the first document in the chunk.
+     * @param to           The index after the last document in the chunk.
+     * @param writeConcern The write concern.
+     * @param type         The type of write.
+     * @param request      Adds the write request for the document at an index to a bulk write operation.
+     * @param single       Writes the document at an index on its own.
+     * @return The outcome of the chunk.
+     */
+    private BulkWriteReport<ID> writeChunk(final List<ID> ids,
+                                           final Set<ID> unwritten,
+                                           final int from,
+                                           final int to,
+                                           final WriteConcern writeConcern,
+                                           final BulkWriteType type,
+                                           final ObjIntConsumer<BulkWriteOperation> request,
+                                           final IntFunction<com.mongodb.WriteResult> single) {
+        final BulkWriteOperation bulk = collection.getDbCollection().initializeUnorderedBulkOperation();
+        for (int index = from; index < to; ++index) {
+            request.accept(bulk, index);
+        }
+        unwritten.removeAll(ids.subList(from, to));
+        try {
+            final BulkWriteResult result = bulk.execute(writeConcern);
+            if (result == null) {
+                return writeSingly(ids, unwritten, from, to, type, single);
+            }
+            return toReport(result, Collections.emptyList());
+        } catch (final BulkWriteException e) {
+            final List<BulkWriteFailure<ID>> failures = new ArrayList<>(e.getWriteErrors().size());
+            for (final BulkWriteError error : e.getWriteErrors()) {
+                final ID id = ids.get(from + error.getIndex());
+                unwritten.add(id);
+                failures.add(new BulkWriteFailure<>(id, error.getCode(), error.getMessage()));
+            }
+            if (e.getWriteConcernError() != null) {
+                throw new DataAccessException("Bulk write to collection: " + databaseName + "." + collectionName
+                        + " did not satisfy the write concern: " + e.getWriteConcernError().getMessage(), e);
+            }
+            return toReport(e.getWriteResult(), failures);
+        } catch (final MongoException e) {
+            LOGGER.warn("Bulk write to collection: {}.{} failed", databaseName, collectionName, e);
+            final boolean rejected = isRejected(e);
+            final List<BulkWriteFailure<ID>> failures = new ArrayList<>(to - from);
+            for (int index = from; index < to; ++index) {
+                if (rejected) {
+                    unwritten.add(ids.get(index));
+                }
+                failures.add(new BulkWriteFailure<>(ids.get(index), e.getCode(), e.getMessage(), rejected));
+            }
+            return new BulkWriteReport<>(0, 0, 0, failures);
+        }
+    }
+
+    /**
+     * Write the documents in a chunk one at a time. This is only used when the collection does not return a result
+     * for a bulk write, which is the case for in-memory test doubles that do not implement bulk writes.
+     *
+     * @param ids       The persistent object identifiers of the documents being written.
+     * @param unwritten The persistent object identifiers of the documents that are known not to have been written.
+     * @param from      The index of the first document in the chunk.
+     * @param to        The index after the last document in the chunk.
+     * @param type      The type of write.
+     * @param single    Writes the document at an index on its own.
+     * @return The outcome of the chunk.
+     */
+    private BulkWriteReport<ID> writeSingly(final List<ID> ids,
+                                            final Set<ID> unwritten,
+                                            final int from,
+                                            final int to,
+                                            final BulkWriteType type,
+                                            final IntFunction<com.mongodb.WriteResult> single) {
+        int count = 0;
+        final List<BulkWriteFailure<ID>> failures = new ArrayList<>();
+        for (int index = from; index < to; ++index) {
+            try {
+                final com.mongodb.WriteResult result = single.apply(index);
+                count += type == BulkWriteType.INSERT ? 1 : result.getN();
+            } catch (final MongoException e) {
+                final boolean rejected = isRejected(e);
+                if (rejected) {
+                    unwritten.add(ids.get(index));
+                }
+                failures.add(new BulkWriteFailure<>(ids.get(index), e.getCode(), e.getMessage(), rejected));
+            }
+        }
+        switch (type) {
+            case INSERT:
+                return new BulkWriteReport<>(count, 0, 0, failures);
+            case UPDATE:
+                return new BulkWriteReport<>(0, count, 0, failures);
+            default:
+                return new BulkWriteReport<>(0, 0, count, failures);
+        }
+    }
+
+    private BulkWriteReport<ID> toReport(final BulkWriteResult result,
+                                         final List<BulkWriteFailure<ID>> failures) {
+        if (!result.isAcknowledged()) {
+            return new BulkWriteReport<>(0, 0, 0, failures);
+        }
+        return new BulkWriteReport<>(result.getInsertedCount(), result.getMatchedCount(), result.getRemovedCount(), failures);
+    }
+
+    /**
+     * Create a query that matches a document using its persistent object identifier, serialising the identifier the
+     * same way as the rest of the document.
+     *
+     * @param id The persistent object identifier.
+     * @return The query.
+     */
+    private DBObject createIdQuery(final ID id) {
+        return collection.serializeFields(new BasicDBObject("_id", id));
+    }
+
+    /**
+     * Get the GridFS files referenced by the {@link MongoLargeBinary} properties of some stored objects.
+     *
+     * @param ids The persistent object identifiers.
+     * @return The file identifiers keyed by {@link #getBlobKey(Object)}.
+     */
+    private Map<Object, Set<ObjectId>> getBlobFiles(final Collection<? extends ID> ids) {
+        if (!blobs.hasProperties() || ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        final List<Object> serializedIds = new ArrayList<>(ids.size());
+        for (final ID id : ids) {
+            serializedIds.add(createIdQuery(id).get("_id"));
+        }
+        return blobs.getFiles(new BasicDBObject("_id", new BasicDBObject("$in", serializedIds)));
+    }
+
+    /**
+     * Get the key used by {@link #getBlobFiles(Collection)} for a persistent object identifier.
+     *
+     * @param id The persistent object identifier.
+     * @return The key.
+     */
+    private Object getBlobKey(final ID id) {
+        return MongoBlobStore.key(createIdQuery(id).get("_id"));
+    }
+
+    /**
+     * Delete the GridFS files that are no longer referenced after a write. These are the files previously referenced
+     * by the objects that were written and the files uploaded for the objects that the server rejected. The files of
+     * objects whose outcome is unknown are kept because the objects may have been written.
+     *
+     * @param ids          The persistent object identifiers.
+     * @param values       The objects that were written or {@code null} if they were deleted.
+     * @param previous     The files referenced before the write keyed by {@link #getBlobKey(Object)}.
+     * @param uploaded     The files uploaded for the write.
+     * @param report       The outcome of the write.
+     * @param writeConcern The write concern.
+     */
+    private void releaseBlobs(final List<ID> ids,
+                              final List<? extends I> values,
+                              final Map<Object, Set<ObjectId>> previous,
+                              final Set<ObjectId> uploaded,
+                              final BulkWriteReport<ID> report,
+                              final WriteConcern writeConcern) {
+        if (!blobs.hasProperties()) {
+            return;
+        }
+        final Set<ID> failed = new HashSet<>();
+        final Set<ID> rejected = new HashSet<>();
+        for (final BulkWriteFailure<ID> failure : report.getFailures()) {
+            failed.add(failure.getId());
+            if (failure.isRejected()) {
+                rejected.add(failure.getId());
+            }
+        }
+        if (values != null) {
+            rollbackBlobs(ids, values, uploaded, rejected, writeConcern);
+        }
+        final Set<ObjectId> unreferenced = new HashSet<>();
+        for (int index = 0; index < ids.size(); ++index) {
+            if (!failed.contains(ids.get(index))) {
+                final Set<ObjectId> current = values == null ? new HashSet<>() : blobs.getFiles(values.get(index));
+                final Set<ObjectId> files = previous.get(getBlobKey(ids.get(index)));
+                if (files != null) {
+                    for (final ObjectId file : files) {
+                        if (!current.contains(file)) {
+                            unreferenced.add(file);
+                        }
+                    }
+                }
+            }
+        }
+        blobs.delete(unreferenced, writeConcern);
+    }
+
+    /**
+     * Roll back the GridFS files uploaded for objects that were not written. Files that are also referenced by an
+     * object that may have been written are kept.
+     *
+     * @param ids          The persistent object identifiers.
+     * @param values       The objects.
+     * @param uploaded     The files uploaded for the write.
+     * @param unwritten    The persistent object identifiers of the objects that are known not to have been written.
+     * @param writeConcern The write concern.
+     */
+    private void rollbackBlobs(final List<ID> ids,
+                               final List<? extends I> values,
+                               final Set<ObjectId> uploaded,
+                               final Set<ID> unwritten,
+                               final WriteConcern writeConcern) {
+        if (uploaded.isEmpty() || unwritten.isEmpty()) {
+            return;
+        }
+        final List<I> rolledBack = new ArrayList<>();
+        final Set<ObjectId> files = new HashSet<>();
+        final Set<ObjectId> referenced = new HashSet<>();
+        for (int index = 0; index < ids.size(); ++index) {
+            final Set<ObjectId> current = blobs.getFiles(values.get(index));
+            current.retainAll(uploaded);
+            if (unwritten.contains(ids.get(index))) {
+                rolledBack.add(values.get(index));
+                files.addAll(current);
+            } else {
+                referenced.addAll(current);
+            }
+        }
+        files.removeAll(referenced);
+        blobs.rollback(rolledBack, files, writeConcern);
+    }
+
+    /**
+     * Roll back the GridFS files uploaded for a single object that could not be written. The files are only deleted
+     * if the server rejected the write.
+     *
+     * @param entity       The object.
+     * @param uploaded     The files uploaded for the write.
+     * @param failure      The reason the write failed.
+     * @param writeConcern The write concern.
+     */
+    private void rollbackBlobs(final I entity,
+                               final Set<ObjectId> uploaded,
+                               final RuntimeException failure,
+                               final WriteConcern writeConcern) {
+        if (isRejected(failure)) {
+            blobs.rollback(Collections.singleton(entity), uploaded, writeConcern);
+        } else if (!uploaded.isEmpty()) {
+            LOGGER.warn("Kept {} GridFS files for a write to collection: {}.{} whose outcome is unknown",
+                    uploaded.size(), databaseName, collectionName);
+        }
+    }
+
+    /**
+     * Determine if a write failed because the server rejected it, in which case nothing was written. Network
+     * failures, interrupts and client errors may happen after the write was sent and write concern errors are
+     * reported after the write was applied, so the write may have succeeded.
+     *
+     * @param failure The reason the write failed.
+     * @return {@code true} if the write was rejected or {@code false} if its outcome is unknown.
+     */
+    private static boolean isRejected(final Throwable failure) {
+        if (failure instanceof DataAccessException && failure.getCause() != null) {
+            return isRejected(failure.getCause());
+        }
+        if (failure instanceof MongoSocketException
+                || failure instanceof MongoInterruptedException
+                || failure instanceof MongoInternalException) {
+            return false;
+        }
+        if (failure instanceof BulkWriteException) {
+            return ((BulkWriteException) failure).getWriteConcernError() == null;
+        }
+        if (failure instanceof WriteConcernException) {
+            final CommandResult result = ((WriteConcernException) failure).getCommandResult();
+            return !(result.containsField("wtimeout")
+                    || result.containsField("wnote")
+                    || result.containsField("jnote")
+                    || WRITE_CONCERN_ERROR_CODES.contains(result.getInt("code", 0)));
+        }
+        return true;
+    }
+
+    /**
+     * Get the outcome of a single write that succeeded.
+     *
+     * @return The outcome.
+     */
+    private BulkWriteReport<ID> noFailures() {
+        return new BulkWriteReport<>(0, 0, 0, Collections.emptyList());
+    }
+
+    /**
+     * The types of write that can be sent in bulk.
+     */
+    private enum BulkWriteType {
+        INSERT, UPDATE, REMOVE
+    }
+
+    /**
+     * Get a profile and the timers used to record its use.
+     *
+     * @param name The profile name.
+     * @return The profile binding.
+     */
+    private ProfileBinding getProfileBinding(final String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("profile must not be null");
+        }
+        final ProfileBinding binding = profiles.get(name);
+        if (binding == null) {
+            throw new IllegalArgumentException("Unknown profile: " + name);
+        }
+        return binding;
+    }
+
+    /**
+     * Check the query plan of the first lookup on a key. The result is remembered so later lookups on the same key
+     * are not explained again. The lookup is explained before the result is remembered so that concurrent lookups are
+     * not held up by the query, and a lookup that could not be explained is not remembered so the next lookup on the
+     * key tries again.
+     *
+     * @param key     The name of the lookup key.
+     * @param value   The value of the lookup key.
+     * @param binding The profile binding.
+     */
+    private void checkQueryPlan(final String key,
+                                final Object value,
+                                final ProfileBinding binding) {
+        final MongoQueryPlanCheck check = queryPlanCheck;
+        if (check == MongoQueryPlanCheck.NONE) {
+            return;
+        }
+        Boolean collectionScan = checkedLookupKeys.get(key);
+        if (collectionScan == null) {
+            try {
+                collectionScan = MongoQueryPlanCheck.isCollectionScan(find(binding).is(key, value).limit(1).explain());
+            } catch (final RuntimeException e) {
+                LOGGER.debug("Could not explain lookup on collection: {}.{} with key: {}", databaseName, collectionName, key, e);
+                return;
+            }
+            if (checkedLookupKeys.putIfAbsent(key, collectionScan) == null && collectionScan) {
+                LOGGER.warn("Lookup on collection: {}.{} with key: {} is a collection scan", databaseName, collectionName, key);
+            }
+        }
+        if (collectionScan && check == MongoQueryPlanCheck.FAIL) {
+            throw new DataAccessException("Lookup on collection: " + databaseName + "." + collectionName
+                    + " with key: " + key + " is a collection scan");
+        }
+    }
+
+    /**
+     * Get the write concern for a profile, falling back to the collection default.
+     *
+     * @param binding The profile binding.
+     * @return The write concern.
+     */
+    private WriteConcern getWriteConcern(final ProfileBinding binding) {
+        final WriteConcern writeConcern = binding.profile.getWriteConcern();
+        return writeConcern == null ? collection.getDbCollection().getWriteConcern() : writeConcern;
+    }
+
+    /**
+     * Get the read preference for a profile, falling back to the collection default.
+     *
+     * @param binding The profile binding.
+     * @return The read preference.
+     */
+    private ReadPreference getReadPreference(final ProfileBinding binding) {
+        final ReadPreference readPreference = binding.profile.getReadPreference();
+        return readPreference == null ? collection.getDbCollection().getReadPreference() : readPreference;
     }
 
+    /**
+     * Run an aggregation pipeline on the server and read all the results.
+     *
+     * @param pipeline The pipeline stages.
+     * @param binding  The profile binding.
+     * @return The results.
+     */
+    private List<DBObject> runPipeline(final List<DBObject> pipeline,
+                                       final ProfileBinding binding) {
+        final AggregationOptions.Builder options = AggregationOptions.builder()
+                .outputMode(AggregationOptions.OutputMode.CURSOR);
+        if (binding.profile.getMaxTimeMillis() > 0) {
+            options.maxTime(binding.profile.getMaxTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (findBatchSize > 0) {
+            options.batchSize(findBatchSize);
+        }
+        final List<DBObject> results = new ArrayList<>();
+        final Cursor cursor = collection.getDbCollection().aggregate(pipeline, options.build(), getReadPreference(binding));
+        try {
+            while (cursor.hasNext()) {
+                results.add(cursor.next());
+            }
+        } finally {
+            cursor.close();
+        }
+        return results;
+    }
+
+    /**
+     * Create a cursor that uses the read preference and maximum execution time of a profile.
+     *
+     * @param binding The profile binding.
+     * @return The cursor.
+     */
+    private DBCursor<I> find(final ProfileBinding binding) {
+        return new DBCursor<>(collection, binding.apply(collection.getDbCollection().find()));
+    }
+
+    /**
+     * Open a cursor that uses the read preference and maximum execution time of a profile. The cursor must be
+     * closed with {@link #closeCursor(DBCursor)}.
+     *
+     * @param binding The profile binding.
+     * @return The cursor.
+     */
+    private DBCursor<I> openCursor(final ProfileBinding binding) {
+        final DBCursor<I> cursor = find(binding);
+        final CursorMetrics metrics = cursorMetrics;
+        metrics.opened.mark();
+        metrics.open.inc();
+        return cursor;
+    }
+
+    /**
+     * Close a cursor and record the number of documents read and the number of additional batches fetched.
+     *
+     * @param cursor The cursor.
+     */
+    private void closeCursor(final DBCursor<I> cursor) {
+        final CursorMetrics metrics = cursorMetrics;
+        try {
+            metrics.documents.update(cursor.numSeen());
+            metrics.getMores.update(cursor.numGetMores());
+        } finally {
+            metrics.open.dec();
+            cursor.close();
+        }
+    }
+
+    /**
+     * Read the first object from a cursor that is limited to a single document and close the cursor.
+     *
+     * @param cursor The cursor.
+     * @return The first object, if any.
+     */
+    private Optional<I> findFirst(final DBCursor<I> cursor) {
+        try {
+            cursor.limit(1);
+            if (cursor.hasNext()) {
+                return Optional.of(blobs.bind(cursor.next()));
+            } else {
+                return Optional.empty();
+            }
+        } finally {
+            closeCursor(cursor);
+        }
+    }
+
+    /**
+     * The metrics that describe the cursors opened by the data access object.
+     */
+    private final class CursorMetrics {
+
+        private final Counter open;
+        private final Meter opened;
+        private final Histogram documents;
+        private final Histogram getMores;
+
+        CursorMetrics() {
+            open = metricRegistry.counter(MetricRegistry.name(MongoDAO.class, databaseName, collectionName, "cursors", "open"));
+            opened = metricRegistry.meter(MetricRegistry.name(MongoDAO.class, databaseName, collectionName, "cursors", "opened"));
+            documents = metricRegistry.histogram(MetricRegistry.name(MongoDAO.class, databaseName, collectionName, "cursors", "documents"));
+            getMores = metricRegistry.histogram(MetricRegistry.name(MongoDAO.class, databaseName, collectionName, "cursors", "getMores"));
+        }
+    }
+
+    /**
+     * The operations that are timed.
+     */
+    private enum Operation {
+        COUNT, ESTIMATED_COUNT, FIND, LOOKUP, CREATE, READ, UPDATE, DESTROY, BULK_WRITE, AGGREGATE, DISTINCT
+    }
+
+    /**
+     * Associates a profile with the timers used to record its use.
+     */
+    private final class ProfileBinding {
+
+        private final MongoOperationProfile profile;
+        private final Map<Operation, Timer> timers = new EnumMap<>(Operation.class);
+
+        ProfileBinding(final MongoOperationProfile profile) {
+            this.profile = profile;
+            for (final Operation operation : Operation.values()) {
+                timers.put(operation, metricRegistry.timer(MetricRegistry.name(MongoDAO.class, databaseName,
+                        collectionName, profile.getName(), operation.name().toLowerCase())));
+            }
+        }
+
+        Timer.Context time(final Operation operation) {
+            return timers.get(operation).time();
+        }
+
+        com.mongodb.DBCursor apply(final com.mongodb.DBCursor cursor) {
+            if (profile.getReadPreference() != null) {
+                cursor.setReadPreference(profile.getReadPreference());
+            }
+            if (profile.getMaxTimeMillis() > 0) {
+                cursor.maxTime(profile.getMaxTimeMillis(), TimeUnit.MILLISECONDS);
+            }
+            return cursor;
+        }
+    }
 }
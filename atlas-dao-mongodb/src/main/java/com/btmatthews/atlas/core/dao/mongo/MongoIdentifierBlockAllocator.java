@@ -0,0 +1,124 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.dao.mongo;
+
+import com.btmatthews.atlas.core.dao.DataAccessException;
+import com.btmatthews.atlas.core.id.IdentifierBlockAllocator;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoClient;
+import com.mongodb.MongoException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reserves blocks of identifiers from a counter document in a MongoDB collection. The counter is advanced with a
+ * single {@code findAndModify} that applies {@code $inc} to the document, which is created the first time a block
+ * is reserved.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class MongoIdentifierBlockAllocator implements IdentifierBlockAllocator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MongoIdentifierBlockAllocator.class);
+
+    /**
+     * The name of the field that holds the number of identifiers that have been reserved.
+     */
+    private static final String NEXT = "next";
+
+    private final DBCollection collection;
+    private final String counterName;
+    private final long initialValue;
+
+    /**
+     * Initialise the allocator so that the first identifier is {@code 1}.
+     *
+     * @param mongoClient    The MongoDB client.
+     * @param databaseName   The database that contains the counters.
+     * @param collectionName The collection that contains the counters.
+     * @param counterName    The identifier of the counter document.
+     */
+    public MongoIdentifierBlockAllocator(final MongoClient mongoClient,
+                                         final String databaseName,
+                                         final String collectionName,
+                                         final String counterName) {
+        this(mongoClient, databaseName, collectionName, counterName, 1L);
+    }
+
+    /**
+     * Initialise the allocator.
+     *
+     * @param mongoClient    The MongoDB client.
+     * @param databaseName   The database that contains the counters.
+     * @param collectionName The collection that contains the counters.
+     * @param counterName    The identifier of the counter document.
+     * @param initialValue   The first identifier.
+     */
+    public MongoIdentifierBlockAllocator(final MongoClient mongoClient,
+                                         final String databaseName,
+                                         final String collectionName,
+                                         final String counterName,
+                                         final long initialValue) {
+        if (mongoClient == null) {
+            throw new IllegalArgumentException("mongoClient must not be null");
+        }
+        if (databaseName == null || databaseName.length() == 0) {
+            throw new IllegalArgumentException("databaseName must not be null or empty");
+        }
+        if (collectionName == null || collectionName.length() == 0) {
+            throw new IllegalArgumentException("collectionName must not be null or empty");
+        }
+        if (counterName == null || counterName.length() == 0) {
+            throw new IllegalArgumentException("counterName must not be null or empty");
+        }
+        this.collection = mongoClient.getDB(databaseName).getCollection(collectionName);
+        this.counterName = counterName;
+        this.initialValue = initialValue;
+    }
+
+    /**
+     * Reserve a block of identifiers.
+     *
+     * @param size The number of identifiers to reserve.
+     * @return The first identifier in the block.
+     */
+    @Override
+    public long allocate(final int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        LOGGER.debug("Reserve {} identifiers from counter: {}.{}", size, collection.getFullName(), counterName);
+        final DBObject counter;
+        try {
+            counter = collection.findAndModify(
+                    new BasicDBObject("_id", counterName),
+                    null,
+                    null,
+                    false,
+                    new BasicDBObject("$inc", new BasicDBObject(NEXT, (long) size)),
+                    true,
+                    true);
+        } catch (final MongoException e) {
+            throw new DataAccessException("Could not reserve identifiers from counter: " + counterName, e);
+        }
+        final long next = ((Number) counter.get(NEXT)).longValue();
+        return initialValue + next - size;
+    }
+}
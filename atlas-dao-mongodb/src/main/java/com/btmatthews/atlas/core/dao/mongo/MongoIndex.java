@@ -0,0 +1,162 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.dao.mongo;
+
+import com.google.common.collect.ImmutableMap;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+import java.util.Map;
+
+/**
+ * Declares an index that a {@link MongoDAO} ensures exists on its collection. Use {@link MongoIndexBuilder} to
+ * create declarations.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public final class MongoIndex {
+
+    /**
+     * The index name or {@code null} if the server should generate the name.
+     */
+    private final String name;
+    /**
+     * The indexed fields and their directions in index order.
+     */
+    private final ImmutableMap<String, Integer> keys;
+    /**
+     * Indicates whether the index rejects duplicate values.
+     */
+    private final boolean unique;
+    /**
+     * Indicates whether documents without the indexed fields are omitted from the index.
+     */
+    private final boolean sparse;
+    /**
+     * The number of seconds after the indexed date at which documents expire or {@code -1} if they do not expire.
+     */
+    private final long expireAfterSeconds;
+
+    /**
+     * Initialise the index declaration.
+     *
+     * @param name               The index name or {@code null} if the server should generate the name.
+     * @param keys               The indexed fields and their directions in index order.
+     * @param unique             Indicates whether the index rejects duplicate values.
+     * @param sparse             Indicates whether documents without the indexed fields are omitted.
+     * @param expireAfterSeconds The number of seconds after the indexed date at which documents expire or
+     *                           {@code -1} if they do not expire.
+     */
+    MongoIndex(final String name,
+               final Map<String, Integer> keys,
+               final boolean unique,
+               final boolean sparse,
+               final long expireAfterSeconds) {
+        this.name = name;
+        this.keys = ImmutableMap.copyOf(keys);
+        this.unique = unique;
+        this.sparse = sparse;
+        this.expireAfterSeconds = expireAfterSeconds;
+    }
+
+    /**
+     * Get the index name.
+     *
+     * @return The index name or {@code null} if the server should generate the name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the indexed fields and their directions, {@code 1} for ascending and {@code -1} for descending.
+     *
+     * @return The indexed fields in index order.
+     */
+    public Map<String, Integer> getKeys() {
+        return keys;
+    }
+
+    /**
+     * Determine whether the index rejects duplicate values.
+     *
+     * @return {@code true} if the index is unique. Otherwise, {@code false}.
+     */
+    public boolean isUnique() {
+        return unique;
+    }
+
+    /**
+     * Determine whether documents without the indexed fields are omitted from the index.
+     *
+     * @return {@code true} if the index is sparse. Otherwise, {@code false}.
+     */
+    public boolean isSparse() {
+        return sparse;
+    }
+
+    /**
+     * Get the number of seconds after the indexed date at which documents expire.
+     *
+     * @return The number of seconds or {@code -1} if documents do not expire.
+     */
+    public long getExpireAfterSeconds() {
+        return expireAfterSeconds;
+    }
+
+    /**
+     * Get the key document used to create the index.
+     *
+     * @return The key document.
+     */
+    DBObject toKeys() {
+        final BasicDBObject document = new BasicDBObject();
+        for (final Map.Entry<String, Integer> key : keys.entrySet()) {
+            document.append(key.getKey(), key.getValue());
+        }
+        return document;
+    }
+
+    /**
+     * Get the options document used to create the index. Indexes are always built in the background so that
+     * ensuring them does not block other operations on the database.
+     *
+     * @return The options document.
+     */
+    DBObject toOptions() {
+        final BasicDBObject document = new BasicDBObject("background", true);
+        if (name != null) {
+            document.append("name", name);
+        }
+        if (unique) {
+            document.append("unique", true);
+        }
+        if (sparse) {
+            document.append("sparse", true);
+        }
+        if (expireAfterSeconds >= 0) {
+            document.append("expireAfterSeconds", expireAfterSeconds);
+        }
+        return document;
+    }
+
+    @Override
+    public String toString() {
+        return (name == null ? "" : name) + toKeys() + toOptions();
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.dao.mongo;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A builder for creating {@link MongoIndex} declarations. Fields are indexed in the order they are added.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public final class MongoIndexBuilder {
+
+    /**
+     * The index name.
+     */
+    private String name;
+    /**
+     * The indexed fields and their directions.
+     */
+    private final Map<String, Integer> keys = new LinkedHashMap<>();
+    /**
+     * Indicates whether the index rejects duplicate values.
+     */
+    private boolean unique;
+    /**
+     * Indicates whether documents without the indexed fields are omitted from the index.
+     */
+    private boolean sparse;
+    /**
+     * The number of seconds after the indexed date at which documents expire.
+     */
+    private long expireAfterSeconds = -1L;
+
+    /**
+     * Set the index name. If the name is not set the server will generate it from the keys.
+     *
+     * @param name The index name.
+     * @return The builder.
+     */
+    public MongoIndexBuilder setName(final String name) {
+        this.name = name;
+        return this;
+    }
+
+    /**
+     * Add a field to the index in ascending order.
+     *
+     * @param field The field name.
+     * @return The builder.
+     */
+    public MongoIndexBuilder ascending(final String field) {
+        return addKey(field, 1);
+    }
+
+    /**
+     * Add a field to the index in descending order.
+     *
+     * @param field The field name.
+     * @return The builder.
+     */
+    public MongoIndexBuilder descending(final String field) {
+        return addKey(field, -1);
+    }
+
+    /**
+     * Indicate whether the index rejects duplicate values.
+     *
+     * @param unique {@code true} if the index is unique.
+     * @return The builder.
+     */
+    public MongoIndexBuilder setUnique(final boolean unique) {
+        this.unique = unique;
+        return this;
+    }
+
+    /**
+     * Indicate whether documents without the indexed fields are omitted from the index.
+     *
+     * @param sparse {@code true} if the index is sparse.
+     * @return The builder.
+     */
+    public MongoIndexBuilder setSparse(final boolean sparse) {
+        this.sparse = sparse;
+        return this;
+    }
+
+    /**
+     * Make the index a TTL index so that documents expire a fixed time after the date in the indexed field.
+     *
+     * @param expireAfter The time after the indexed date at which documents expire.
+     * @param unit        The unit of {@code expireAfter}.
+     * @return The builder.
+     */
+    public MongoIndexBuilder setExpireAfter(final long expireAfter,
+                                            final TimeUnit unit) {
+        if (expireAfter < 0) {
+            throw new IllegalArgumentException("expireAfter must not be negative");
+        }
+        this.expireAfterSeconds = unit.toSeconds(expireAfter);
+        return this;
+    }
+
+    /**
+     * Construct the index declaration.
+     *
+     * @return The {@link MongoIndex} object.
+     */
+    public MongoIndex build() {
+        if (keys.isEmpty()) {
+            throw new IllegalStateException("An index must have at least one field");
+        }
+        if (expireAfterSeconds >= 0 && keys.size() > 1) {
+            throw new IllegalStateException("A TTL index must have exactly one field");
+        }
+        return new MongoIndex(name, keys, unique, sparse, expireAfterSeconds);
+    }
+
+    private MongoIndexBuilder addKey(final String field,
+                                     final int direction) {
+        if (field == null || field.length() == 0) {
+            throw new IllegalArgumentException("field must not be null or empty");
+        }
+        keys.put(field, direction);
+        return this;
+    }
+}
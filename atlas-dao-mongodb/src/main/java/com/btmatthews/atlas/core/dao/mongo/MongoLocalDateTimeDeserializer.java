@@ -16,31 +16,70 @@
 
 package com.btmatthews.atlas.core.dao.mongo;
 
+import com.btmatthews.atlas.core.domain.jsr310.InstantDeserializer;
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
 
 import java.io.IOException;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.ZoneOffset;
+import java.util.Date;
 
 /**
+ * Deserializes a {@link LocalDateTime} in UTC from a native BSON date when reading from MongoDB. Values in MongoDB
+ * extended JSON format ({@code {"$date": ...}}), ISO-8601 strings and numbers of milliseconds since the epoch
+ * are also accepted.
+ *
  * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
  * @since 1.0.2
  */
 public class MongoLocalDateTimeDeserializer extends JsonDeserializer<LocalDateTime> {
 
-    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+    /**
+     * Used to read ISO-8601 strings and numbers of milliseconds.
+     */
+    private static final InstantDeserializer INSTANT_DESERIALIZER = new InstantDeserializer();
 
     @Override
     public LocalDateTime deserialize(final JsonParser parser,
                                      final DeserializationContext context)
             throws IOException {
-        final ObjectCodec codec = parser.getCodec();
-        final JsonNode node = codec.readTree(parser);
-        final JsonNode dateNode = node.get("$date");
-        return LocalDateTime.parse(dateNode.asText(), DATE_TIME_FORMATTER);
+        final JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.VALUE_EMBEDDED_OBJECT) {
+            final Object embedded = parser.getEmbeddedObject();
+            if (embedded instanceof Date) {
+                return fromEpochMillis(((Date) embedded).getTime());
+            }
+            throw context.mappingException(LocalDateTime.class, token);
+        }
+        if (token == JsonToken.START_OBJECT) {
+            if (parser.nextToken() != JsonToken.FIELD_NAME || !"$date".equals(parser.getCurrentName())) {
+                throw context.mappingException(LocalDateTime.class, parser.getCurrentToken());
+            }
+            parser.nextToken();
+            final LocalDateTime value = deserialize(parser, context);
+            if (parser.nextToken() != JsonToken.END_OBJECT) {
+                throw context.mappingException(LocalDateTime.class, parser.getCurrentToken());
+            }
+            return value;
+        }
+        final Instant instant = INSTANT_DESERIALIZER.deserialize(parser, context);
+        return LocalDateTime.ofEpochSecond(instant.getEpochSecond(), instant.getNano(), ZoneOffset.UTC);
+    }
+
+    /**
+     * Convert a number of milliseconds since the epoch to a {@link LocalDateTime} in UTC.
+     *
+     * @param millis The number of milliseconds.
+     * @return The local date and time.
+     */
+    private static LocalDateTime fromEpochMillis(final long millis) {
+        return LocalDateTime.ofEpochSecond(
+                Math.floorDiv(millis, 1000L),
+                (int) Math.floorMod(millis, 1000L) * 1000000,
+                ZoneOffset.UTC);
     }
 }
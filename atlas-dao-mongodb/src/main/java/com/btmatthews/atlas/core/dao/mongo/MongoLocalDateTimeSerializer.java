@@ -16,29 +16,57 @@
 
 package com.btmatthews.atlas.core.dao.mongo;
 
+import com.btmatthews.atlas.core.domain.jsr310.InstantSerializer;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializerProvider;
+import de.undercouch.bson4jackson.BsonGenerator;
+import org.mongojack.internal.object.BsonObjectGenerator;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.ZoneOffset;
+import java.util.Date;
 
 /**
+ * Serializes a {@link LocalDateTime}, interpreted as UTC, as a native BSON date when writing to MongoDB. When
+ * writing to any other generator the value is written in MongoDB extended JSON format as
+ * {@code {"$date": "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'"}}.
+ *
  * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
  * @since 1.0.2
  */
 public class MongoLocalDateTimeSerializer extends JsonSerializer<LocalDateTime> {
 
-    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+    /**
+     * Used to write the extended JSON format.
+     */
+    private static final InstantSerializer INSTANT_SERIALIZER = new InstantSerializer();
 
     @Override
     public void serialize(final LocalDateTime value,
                           final JsonGenerator generator,
                           final SerializerProvider provider) throws
             IOException {
-        generator.writeStartObject();
-        generator.writeStringField("$date", value.format(DATE_TIME_FORMATTER));
-        generator.writeEndObject();
+        if (generator instanceof BsonObjectGenerator) {
+            generator.writeObject(toDate(value));
+        } else if (generator instanceof BsonGenerator) {
+            ((BsonGenerator) generator).writeDateTime(toDate(value));
+        } else {
+            generator.writeStartObject();
+            generator.writeFieldName("$date");
+            INSTANT_SERIALIZER.serialize(value.toInstant(ZoneOffset.UTC), generator, provider);
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * Convert a {@link LocalDateTime} in UTC to a {@link Date} with millisecond precision.
+     *
+     * @param value The local date and time.
+     * @return The date.
+     */
+    private static Date toDate(final LocalDateTime value) {
+        return new Date(value.toEpochSecond(ZoneOffset.UTC) * 1000L + value.getNano() / 1000000);
     }
 }
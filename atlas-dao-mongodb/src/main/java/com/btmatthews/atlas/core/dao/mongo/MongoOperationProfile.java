@@ -0,0 +1,125 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.dao.mongo;
+
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A named set of options that control how a {@link MongoDAO} reads from and writes to the data store. Options that
+ * are not set fall back to the defaults of the collection.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public final class MongoOperationProfile {
+
+    /**
+     * The name of the profile used when a profile is not specified.
+     */
+    public static final String DEFAULT_NAME = "default";
+
+    /**
+     * The profile name.
+     */
+    private final String name;
+    /**
+     * The write concern used for writes or {@code null} to use the collection default.
+     */
+    private final WriteConcern writeConcern;
+    /**
+     * The read preference used for reads or {@code null} to use the collection default.
+     */
+    private final ReadPreference readPreference;
+    /**
+     * The maximum execution time for reads in milliseconds or {@code 0} if there is no limit.
+     */
+    private final long maxTimeMillis;
+
+    /**
+     * Initialise the profile.
+     *
+     * @param name           The profile name.
+     * @param writeConcern   The write concern used for writes or {@code null} to use the collection default.
+     * @param readPreference The read preference used for reads or {@code null} to use the collection default.
+     * @param maxTime        The maximum execution time for reads or {@code 0} if there is no limit.
+     * @param unit           The unit of {@code maxTime}.
+     */
+    public MongoOperationProfile(final String name,
+                                 final WriteConcern writeConcern,
+                                 final ReadPreference readPreference,
+                                 final long maxTime,
+                                 final TimeUnit unit) {
+        if (name == null || name.length() == 0) {
+            throw new IllegalArgumentException("name must not be null or empty");
+        }
+        if (maxTime < 0) {
+            throw new IllegalArgumentException("maxTime must not be negative");
+        }
+        if (unit == null) {
+            throw new IllegalArgumentException("unit must not be null");
+        }
+        this.name = name;
+        this.writeConcern = writeConcern;
+        this.readPreference = readPreference;
+        this.maxTimeMillis = unit.toMillis(maxTime);
+    }
+
+    /**
+     * Get the profile name.
+     *
+     * @return The profile name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the write concern used for writes.
+     *
+     * @return The write concern or {@code null} to use the collection default.
+     */
+    public WriteConcern getWriteConcern() {
+        return writeConcern;
+    }
+
+    /**
+     * Get the read preference used for reads.
+     *
+     * @return The read preference or {@code null} to use the collection default.
+     */
+    public ReadPreference getReadPreference() {
+        return readPreference;
+    }
+
+    /**
+     * Get the maximum execution time for reads.
+     *
+     * @return The maximum execution time in milliseconds or {@code 0} if there is no limit.
+     */
+    public long getMaxTimeMillis() {
+        return maxTimeMillis;
+    }
+
+    @Override
+    public String toString() {
+        return name + "[writeConcern=" + writeConcern + ", readPreference=" + readPreference
+                + ", maxTimeMillis=" + maxTimeMillis + "]";
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.dao.mongo;
+
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A builder for creating {@link MongoOperationProfile} objects. The write concern and read preference can be given
+ * by name so that profiles can be defined in deployment configuration.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public final class MongoOperationProfileBuilder {
+
+    /**
+     * The profile name.
+     */
+    private String name = MongoOperationProfile.DEFAULT_NAME;
+    /**
+     * The write concern.
+     */
+    private WriteConcern writeConcern;
+    /**
+     * The read preference.
+     */
+    private ReadPreference readPreference;
+    /**
+     * The maximum execution time for reads in milliseconds.
+     */
+    private long maxTimeMillis;
+
+    /**
+     * Set the profile name.
+     *
+     * @param name The profile name.
+     * @return The builder.
+     */
+    public MongoOperationProfileBuilder setName(final String name) {
+        this.name = name;
+        return this;
+    }
+
+    /**
+     * Set the write concern.
+     *
+     * @param writeConcern The write concern or {@code null} to use the collection default.
+     * @return The builder.
+     */
+    public MongoOperationProfileBuilder setWriteConcern(final WriteConcern writeConcern) {
+        this.writeConcern = writeConcern;
+        return this;
+    }
+
+    /**
+     * Set the write concern by name, for example {@code UNACKNOWLEDGED} or {@code MAJORITY}.
+     *
+     * @param writeConcern The name of the write concern.
+     * @return The builder.
+     */
+    public MongoOperationProfileBuilder setWriteConcern(final String writeConcern) {
+        final WriteConcern value = WriteConcern.valueOf(writeConcern);
+        if (value == null) {
+            throw new IllegalArgumentException("Unknown write concern: " + writeConcern);
+        }
+        return setWriteConcern(value);
+    }
+
+    /**
+     * Set the read preference.
+     *
+     * @param readPreference The read preference or {@code null} to use the collection default.
+     * @return The builder.
+     */
+    public MongoOperationProfileBuilder setReadPreference(final ReadPreference readPreference) {
+        this.readPreference = readPreference;
+        return this;
+    }
+
+    /**
+     * Set the read preference by name, for example {@code secondaryPreferred}.
+     *
+     * @param readPreference The name of the read preference.
+     * @return The builder.
+     */
+    public MongoOperationProfileBuilder setReadPreference(final String readPreference) {
+        return setReadPreference(ReadPreference.valueOf(readPreference));
+    }
+
+    /**
+     * Set the maximum execution time for reads.
+     *
+     * @param maxTime The maximum execution time or {@code 0} if there is no limit.
+     * @param unit    The unit of {@code maxTime}.
+     * @return The builder.
+     */
+    public MongoOperationProfileBuilder setMaxTime(final long maxTime,
+                                                   final TimeUnit unit) {
+        this.maxTimeMillis = unit.toMillis(maxTime);
+        return this;
+    }
+
+    /**
+     * Construct the profile.
+     *
+     * @return The {@link MongoOperationProfile} object.
+     */
+    public MongoOperationProfile build() {
+        return new MongoOperationProfile(name, writeConcern, readPreference, maxTimeMillis, TimeUnit.MILLISECONDS);
+    }
+}
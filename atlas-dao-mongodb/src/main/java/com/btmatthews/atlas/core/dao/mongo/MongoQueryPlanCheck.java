@@ -0,0 +1,83 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.dao.mongo;
+
+import com.mongodb.DBObject;
+
+import java.util.List;
+
+/**
+ * Determines what a {@link MongoDAO} does when the query plan for the first lookup on a key is a collection scan.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public enum MongoQueryPlanCheck {
+
+    /**
+     * Query plans are not checked.
+     */
+    NONE,
+
+    /**
+     * A warning is logged.
+     */
+    WARN,
+
+    /**
+     * The lookup fails with a {@link com.btmatthews.atlas.core.dao.DataAccessException}.
+     */
+    FAIL;
+
+    /**
+     * Determine whether the output of {@code explain()} describes a collection scan. The cursor type reported by
+     * MongoDB 2.x and the stages of the winning plan reported by later versions are both recognised. Rejected plans
+     * are ignored.
+     *
+     * @param explain The output of {@code explain()}.
+     * @return {@code true} if the winning plan is a collection scan. Otherwise, {@code false}.
+     */
+    static boolean isCollectionScan(final DBObject explain) {
+        if (explain == null) {
+            return false;
+        }
+        if (explain instanceof List) {
+            for (final Object element : (List<?>) explain) {
+                if (element instanceof DBObject && isCollectionScan((DBObject) element)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        final Object cursor = explain.get("cursor");
+        if (cursor instanceof String && ((String) cursor).startsWith("BasicCursor")) {
+            return true;
+        }
+        if ("COLLSCAN".equals(explain.get("stage"))) {
+            return true;
+        }
+        for (final String key : explain.keySet()) {
+            if (!"rejectedPlans".equals(key) && !"allPlans".equals(key) && !"oldPlan".equals(key)) {
+                final Object value = explain.get(key);
+                if (value instanceof DBObject && isCollectionScan((DBObject) value)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.dao.mongo;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import org.bson.types.Binary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Deserializes a {@link UUID} that was stored as BSON binary data by {@link MongoUUIDSerializer}. UUIDs stored by
+ * the MongoDB driver with the legacy UUID subtype, binary data with any other subtype and UUIDs stored as strings are
+ * also accepted.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class MongoUUIDDeserializer extends JsonDeserializer<UUID> {
+
+    @Override
+    public UUID deserialize(final JsonParser parser,
+                            final DeserializationContext context)
+            throws IOException {
+        final JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.VALUE_EMBEDDED_OBJECT) {
+            final Object embedded = parser.getEmbeddedObject();
+            if (embedded instanceof UUID) {
+                return (UUID) embedded;
+            }
+            if (embedded instanceof Binary) {
+                return fromBytes(((Binary) embedded).getData(), context);
+            }
+            if (embedded instanceof byte[]) {
+                return fromBytes((byte[]) embedded, context);
+            }
+            throw context.mappingException(UUID.class, token);
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            try {
+                return UUID.fromString(parser.getText());
+            } catch (final IllegalArgumentException e) {
+                throw context.weirdStringException(parser.getText(), UUID.class, e.getMessage());
+            }
+        }
+        throw context.mappingException(UUID.class, token);
+    }
+
+    /**
+     * Convert 16 bytes in big-endian order to a {@link UUID}.
+     *
+     * @param bytes   The bytes.
+     * @param context The deserialization context.
+     * @return The UUID.
+     * @throws IOException If there are not exactly 16 bytes.
+     */
+    private static UUID fromBytes(final byte[] bytes, final DeserializationContext context) throws IOException {
+        if (bytes.length != 16) {
+            throw context.mappingException("Expected 16 bytes for a UUID but found " + bytes.length);
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
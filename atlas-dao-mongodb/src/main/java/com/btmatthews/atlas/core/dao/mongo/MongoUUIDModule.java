@@ -0,0 +1,38 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.dao.mongo;
+
+import com.fasterxml.jackson.core.Version;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+import java.util.UUID;
+
+/**
+ * Jackson module that stores {@link UUID} properties and identifiers as BSON binary data in big-endian order so that
+ * time-ordered identifiers are inserted at the end of the index.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class MongoUUIDModule extends SimpleModule {
+
+    public MongoUUIDModule() {
+        super("MongoUUIDModule", new Version(1, 0, 0, null));
+        addDeserializer(UUID.class, new MongoUUIDDeserializer());
+        addSerializer(UUID.class, new MongoUUIDSerializer());
+    }
+}
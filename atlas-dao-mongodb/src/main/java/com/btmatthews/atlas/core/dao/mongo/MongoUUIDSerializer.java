@@ -0,0 +1,64 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.dao.mongo;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import de.undercouch.bson4jackson.BsonGenerator;
+import org.mongojack.internal.object.BsonObjectGenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Serializes a {@link UUID} as BSON binary data when writing to MongoDB. The 16 bytes are written in big-endian order
+ * so time-ordered UUIDs such as version 7 UUIDs and ULIDs keep their order in the index. The generic binary subtype
+ * is used because MongoJack only passes byte arrays through unchanged when it serializes queries. When writing to
+ * any other generator the value is written as a string.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class MongoUUIDSerializer extends JsonSerializer<UUID> {
+
+    @Override
+    public void serialize(final UUID value,
+                          final JsonGenerator generator,
+                          final SerializerProvider provider)
+            throws IOException {
+        if (generator instanceof BsonObjectGenerator || generator instanceof BsonGenerator) {
+            generator.writeBinary(toBytes(value));
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+
+    /**
+     * Convert a {@link UUID} to 16 bytes in big-endian order.
+     *
+     * @param value The UUID.
+     * @return The bytes.
+     */
+    static byte[] toBytes(final UUID value) {
+        return ByteBuffer.allocate(16)
+                .putLong(value.getMostSignificantBits())
+                .putLong(value.getLeastSignificantBits())
+                .array();
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.btmatthews.atlas.core.dao.mongo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * A cursor returned by {@link ReactiveMongoDAO} that only reads documents when the caller requests them. Each
+ * request is an operation of the owning data access object and counts towards its in-flight limit. The underlying
+ * Mongo cursor is opened by the first request and closed once the last document has been read or when the cursor
+ * is closed.
+ *
+ * @param <I> The interface class.
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public final class ReactiveMongoCursor<I> implements AutoCloseable {
+
+    /**
+     * The data access object that runs the requests.
+     */
+    private final ReactiveMongoDAO<?, ?, ?> owner;
+
+    /**
+     * Opens the underlying Mongo cursor.
+     */
+    private final Supplier<Stream<I>> opener;
+
+    /**
+     * The stream over the underlying Mongo cursor or {@code null} if it has not been opened.
+     */
+    private Stream<I> stream;
+
+    /**
+     * Iterates over {@link #stream}.
+     */
+    private Iterator<I> iterator;
+
+    /**
+     * Set when all the documents have been read or the cursor has been closed.
+     */
+    private volatile boolean exhausted;
+
+    /**
+     * Initialise the cursor.
+     *
+     * @param owner  The data access object that runs the requests.
+     * @param opener Opens the underlying Mongo cursor.
+     */
+    ReactiveMongoCursor(final ReactiveMongoDAO<?, ?, ?> owner,
+                        final Supplier<Stream<I>> opener) {
+        this.owner = owner;
+        this.opener = opener;
+    }
+
+    /**
+     * Determine if all the documents have been read or the cursor has been closed.
+     *
+     * @return {@code true} if no more documents can be read. Otherwise, {@code false}.
+     */
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    /**
+     * Request the next documents.
+     *
+     * @param demand The maximum number of documents to read.
+     * @return Completed with up to {@code demand} documents. An empty list indicates that the cursor is exhausted.
+     */
+    public CompletableFuture<List<I>> request(final int demand) {
+        if (demand <= 0) {
+            throw new IllegalArgumentException("demand must be greater than zero");
+        }
+        if (exhausted) {
+            return CompletableFuture.completedFuture(Collections.<I>emptyList());
+        }
+        return owner.submit(() -> next(demand));
+    }
+
+    /**
+     * Pass every remaining document to a consumer. The next batch is only requested after the consumer has accepted
+     * all the documents in the previous batch.
+     *
+     * @param batchSize The maximum number of documents to request at a time.
+     * @param consumer  The consumer.
+     * @return Completed once all the documents have been consumed. If the consumer throws an exception the cursor
+     * is closed and the future is completed with that exception.
+     */
+    public CompletableFuture<Void> forEach(final int batchSize,
+                                           final Consumer<? super I> consumer) {
+        if (consumer == null) {
+            throw new IllegalArgumentException("consumer must not be null");
+        }
+        return request(batchSize).thenCompose(batch -> {
+            if (batch.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            try {
+                batch.forEach(consumer);
+            } catch (final RuntimeException | Error e) {
+                close();
+                throw e;
+            }
+            return forEach(batchSize, consumer);
+        });
+    }
+
+    /**
+     * Close the underlying Mongo cursor. Any later requests return an empty list.
+     */
+    @Override
+    public synchronized void close() {
+        exhausted = true;
+        if (stream != null) {
+            stream.close();
+            stream = null;
+            iterator = null;
+        }
+    }
+
+    /**
+     * Read the next documents, opening the underlying Mongo cursor if necessary and closing it once exhausted.
+     *
+     * @param demand The maximum number of documents to read.
+     * @return The documents.
+     */
+    private synchronized List<I> next(final int demand) {
+        if (exhausted) {
+            return Collections.emptyList();
+        }
+        try {
+            if (stream == null) {
+                stream = opener.get();
+                iterator = stream.iterator();
+            }
+            final List<I> batch = new ArrayList<>(Math.min(demand, 1024));
+            while (batch.size() < demand && iterator.hasNext()) {
+                batch.add(iterator.next());
+            }
+            if (!iterator.hasNext()) {
+                close();
+            }
+            return batch;
+        } catch (final RuntimeException | Error e) {
+            close();
+            throw e;
+        }
+    }
+}
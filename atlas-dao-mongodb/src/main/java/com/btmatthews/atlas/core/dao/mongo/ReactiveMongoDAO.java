@@ -0,0 +1,295 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.btmatthews.atlas.core.dao.mongo;
+
+import com.btmatthews.atlas.core.common.Paging;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * A data access object for MongoDB that returns a {@link CompletableFuture} for each operation instead of blocking
+ * the caller. The 2.x driver only has a blocking API, so each operation is run by a {@link MongoDAO} on a thread of
+ * the executor and that thread is blocked until the server has responded. The blocking data access object supplies
+ * the object mapper, including the {@link MongoJSR310Module} and {@link MongoUUIDModule} configuration, and the
+ * operation profiles, indexes and metrics.
+ * <p>
+ * At most {@code maxInFlight} operations are sent to the server at the same time. Further operations are queued
+ * and started in order as earlier operations complete, so a burst of requests cannot exhaust the connection pool or
+ * overload the server. Because every in-flight operation holds an executor thread, the executor needs
+ * {@code maxInFlight} threads to reach the limit and should not be shared with work that must not wait behind the
+ * server, but it can still be much smaller than the number of concurrent callers.
+ * <p>
+ * Cursors returned by {@link #lookupAll(String, Object)} only read documents when the caller asks for them, so a
+ * slow consumer does not cause unread documents to accumulate in memory.
+ *
+ * @param <ID> The identifier class.
+ * @param <I>  The interface class.
+ * @param <T>  The concrete class.
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public final class ReactiveMongoDAO<ID, I, T extends I> {
+
+    /**
+     * The blocking data access object that runs the operations.
+     */
+    private final MongoDAO<ID, I, T> dao;
+
+    /**
+     * The executor used to run the operations.
+     */
+    private final Executor executor;
+
+    /**
+     * The maximum number of operations that can be in-flight.
+     */
+    private final int maxInFlight;
+
+    /**
+     * A permit is held for each in-flight operation.
+     */
+    private final Semaphore permits;
+
+    /**
+     * The operations waiting for a permit.
+     */
+    private final Queue<QueuedOperation<?>> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Initialise the non-blocking data access object.
+     *
+     * @param dao         The blocking data access object that runs the operations.
+     * @param executor    The executor used to run the operations.
+     * @param maxInFlight The maximum number of operations that can be in-flight.
+     */
+    public ReactiveMongoDAO(final MongoDAO<ID, I, T> dao,
+                            final Executor executor,
+                            final int maxInFlight) {
+        if (dao == null) {
+            throw new IllegalArgumentException("dao must not be null");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("executor must not be null");
+        }
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be greater than zero");
+        }
+        this.dao = dao;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        permits = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Get the blocking data access object that runs the operations.
+     *
+     * @return The blocking data access object.
+     */
+    public MongoDAO<ID, I, T> getDAO() {
+        return dao;
+    }
+
+    /**
+     * Get the number of operations that are currently in-flight.
+     *
+     * @return The number of in-flight operations.
+     */
+    public int getInFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    /**
+     * Get the number of operations waiting for an earlier operation to complete.
+     *
+     * @return The number of queued operations.
+     */
+    public int getPending() {
+        return pending.size();
+    }
+
+    /**
+     * Count the number of objects in the collection.
+     *
+     * @return Completed with the number of objects.
+     */
+    public CompletableFuture<Long> count() {
+        return submit(dao::count);
+    }
+
+    /**
+     * Retrieve a page of objects.
+     *
+     * @param paging Describes the portion of the result set to return.
+     * @return Completed with the objects.
+     */
+    public CompletableFuture<List<I>> find(final Paging paging) {
+        return submit(() -> dao.find(paging));
+    }
+
+    /**
+     * Lookup an object.
+     *
+     * @param key   The name of the lookup key.
+     * @param value The value of the lookup key.
+     * @return Completed with the matching object, if found.
+     */
+    public CompletableFuture<Optional<I>> lookup(final String key,
+                                                 final Object value) {
+        return submit(() -> dao.lookup(key, value));
+    }
+
+    /**
+     * Lookup all the objects with a matching key. No documents are read until they are requested from the cursor.
+     *
+     * @param key   The name of the lookup key.
+     * @param value The value of the lookup key.
+     * @return The cursor. It must be closed unless all the matching objects are read.
+     */
+    public ReactiveMongoCursor<I> lookupAll(final String key,
+                                            final Object value) {
+        return new ReactiveMongoCursor<>(this, () -> dao.lookupAll(key, value));
+    }
+
+    /**
+     * Persist a newly created object.
+     *
+     * @param id     The object identifier.
+     * @param entity The newly created object.
+     * @return Completed when the object has been persisted.
+     */
+    public CompletableFuture<Void> create(final ID id,
+                                          final I entity) {
+        return submit(() -> {
+            dao.create(id, entity);
+            return null;
+        });
+    }
+
+    /**
+     * Retrieve an object.
+     *
+     * @param id The object identifier.
+     * @return Completed with the object, if found.
+     */
+    public CompletableFuture<Optional<I>> read(final ID id) {
+        return submit(() -> dao.read(id));
+    }
+
+    /**
+     * Update an object.
+     *
+     * @param id     The object identifier.
+     * @param entity The object.
+     * @return Completed when the object has been updated.
+     */
+    public CompletableFuture<Void> update(final ID id,
+                                          final I entity) {
+        return submit(() -> {
+            dao.update(id, entity);
+            return null;
+        });
+    }
+
+    /**
+     * Delete an object.
+     *
+     * @param id The object identifier.
+     * @return Completed when the object has been deleted.
+     */
+    public CompletableFuture<Void> destroy(final ID id) {
+        return submit(() -> {
+            dao.destroy(id);
+            return null;
+        });
+    }
+
+    /**
+     * Queue an operation and start it once fewer than {@code maxInFlight} operations are in-flight.
+     *
+     * @param operation The operation.
+     * @param <R>       The result class.
+     * @return Completed with the result of the operation.
+     */
+    <R> CompletableFuture<R> submit(final Supplier<R> operation) {
+        final QueuedOperation<R> queued = new QueuedOperation<>(operation);
+        pending.add(queued);
+        dispatch();
+        return queued.future;
+    }
+
+    /**
+     * Start queued operations while permits are available. The queue is checked again after a permit is released
+     * so an operation queued while the permits were taken is not left behind. An operation rejected by the executor
+     * is completed exceptionally.
+     */
+    private void dispatch() {
+        while (!pending.isEmpty() && permits.tryAcquire()) {
+            final QueuedOperation<?> task = pending.poll();
+            if (task == null) {
+                permits.release();
+            } else {
+                try {
+                    executor.execute(() -> {
+                        try {
+                            task.run();
+                        } finally {
+                            permits.release();
+                            dispatch();
+                        }
+                    });
+                } catch (final RejectedExecutionException e) {
+                    permits.release();
+                    task.future.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * An operation waiting to be started. Anything thrown by the operation, including errors, completes the future
+     * exceptionally so the caller is never left waiting.
+     *
+     * @param <R> The result class.
+     */
+    private static final class QueuedOperation<R> implements Runnable {
+
+        private final Supplier<R> operation;
+        private final CompletableFuture<R> future = new CompletableFuture<>();
+
+        QueuedOperation(final Supplier<R> operation) {
+            this.operation = operation;
+        }
+
+        @Override
+        public void run() {
+            try {
+                future.complete(operation.get());
+            } catch (final Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
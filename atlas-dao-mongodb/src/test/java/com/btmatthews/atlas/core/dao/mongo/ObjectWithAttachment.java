@@ -0,0 +1,60 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.btmatthews.atlas.core.dao.mongo;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.mongojack.Id;
+
+/**
+ * An object with a large binary attachment used to test the {@link MongoLargeBinary} support of {@link MongoDAO}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class ObjectWithAttachment {
+
+    @Id
+    private String id;
+
+    private String name;
+
+    @MongoLargeBinary
+    private MongoBlob attachment;
+
+    @JsonCreator
+    public ObjectWithAttachment(@Id @JsonProperty("id") final String id,
+                                @JsonProperty("name") final String name,
+                                @JsonProperty("attachment") final MongoBlob attachment) {
+        this.id = id;
+        this.name = name;
+        this.attachment = attachment;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public MongoBlob getAttachment() {
+        return attachment;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.dao.mongo;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.mongojack.Id;
+
+import java.util.UUID;
+
+/**
+ * An object with a {@link UUID} identifier used to test the {@link MongoUUIDModule}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class ObjectWithUUID {
+
+    @Id
+    private UUID id;
+
+    private UUID parent;
+
+    @JsonCreator
+    public ObjectWithUUID(@Id @JsonProperty("id") final UUID id,
+                          @JsonProperty("parent") final UUID parent) {
+        this.id = id;
+        this.parent = parent;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public UUID getParent() {
+        return parent;
+    }
+}
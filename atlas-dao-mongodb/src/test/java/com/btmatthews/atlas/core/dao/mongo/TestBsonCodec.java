@@ -0,0 +1,99 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.btmatthews.atlas.core.dao.mongo;
+
+import com.btmatthews.atlas.core.domain.i18n.I18NModule;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fakemongo.Fongo;
+import de.undercouch.bson4jackson.BsonFactory;
+import org.bson.BSONObject;
+import org.bson.BasicBSONDecoder;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import org.mongojack.internal.MongoJackModule;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit test the {@link MongoJSR310Module} and {@link MongoUUIDModule} with the BSON generator and parser used by
+ * the direct codec of the {@link MongoDAO} data access object.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class TestBsonCodec {
+
+    private static final LocalDateTime VALID_FROM = LocalDateTime.of(1900, 1, 1, 0, 0, 0, 0);
+    private static final LocalDateTime VALID_TO = LocalDateTime.of(9999, 12, 31, 23, 59, 59, 999000000);
+    private static final UUID ID = UUID.fromString("01489f4c-2a6b-7abc-8123-456789abcdef");
+    private static final UUID PARENT = UUID.fromString("ee749160-c6a0-11e2-8b8b-0800200c9a66");
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+    private ObjectMapper objectMapper;
+
+    @Before
+    public void setup() {
+        objectMapper = new ObjectMapper(new BsonFactory());
+        MongoJackModule.configure(objectMapper);
+        objectMapper.registerModule(new I18NModule());
+        objectMapper.registerModule(new MongoJSR310Module());
+        objectMapper.registerModule(new MongoUUIDModule());
+    }
+
+    @Test
+    public void datesAreEncodedAsNativeBSONDates() throws Exception {
+        final byte[] bson = objectMapper.writeValueAsBytes(new PersonImpl("1", "Brian Matthews", VALID_FROM, VALID_TO));
+        final BSONObject document = new BasicBSONDecoder().readObject(bson);
+        collector.checkThat(document.get("validFrom"), is(instanceOf(Date.class)));
+        collector.checkThat(((Date) document.get("validTo")).getTime(), is(equalTo(VALID_TO.toInstant(ZoneOffset.UTC).toEpochMilli())));
+        final PersonImpl person = objectMapper.readValue(bson, PersonImpl.class);
+        collector.checkThat(person.getName(), is(equalTo("Brian Matthews")));
+        collector.checkThat(person.getValidFrom(), is(equalTo(VALID_FROM)));
+        collector.checkThat(person.getValidTo(), is(equalTo(VALID_TO)));
+    }
+
+    @Test
+    public void uuidsAreEncodedAsBigEndianBinary() throws Exception {
+        final byte[] bson = objectMapper.writeValueAsBytes(new ObjectWithUUID(ID, PARENT));
+        final BSONObject document = new BasicBSONDecoder().readObject(bson);
+        collector.checkThat(document.get("_id"), is(instanceOf(byte[].class)));
+        collector.checkThat(((byte[]) document.get("_id"))[0], is(equalTo((byte) 0x01)));
+        final ObjectWithUUID result = objectMapper.readValue(bson, ObjectWithUUID.class);
+        collector.checkThat(result.getId(), is(equalTo(ID)));
+        collector.checkThat(result.getParent(), is(equalTo(PARENT)));
+    }
+
+    @Test
+    public void directCodecCanBeToggled() {
+        final ObjectMapper daoObjectMapper = new ObjectMapper();
+        MongoJackModule.configure(daoObjectMapper);
+        final MongoDAO<String, Person, PersonImpl> dao = new MongoDAO<>(new Fongo("localhost").getMongo(), daoObjectMapper, String.class, PersonImpl.class, "db", "people");
+        collector.checkThat(dao.isDirectCodec(), is(false));
+        dao.setDirectCodec(true);
+        collector.checkThat(dao.isDirectCodec(), is(true));
+        dao.setDirectCodec(false);
+        collector.checkThat(dao.isDirectCodec(), is(false));
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.btmatthews.atlas.core.dao.mongo;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fakemongo.Fongo;
+import com.google.common.io.ByteStreams;
+import com.mongodb.DB;
+import com.mongodb.DBObject;
+import com.mongodb.gridfs.GridFS;
+import com.mongodb.gridfs.GridFSDBFile;
+import org.bson.types.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import org.mongojack.internal.MongoJackModule;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit test the storage of {@link MongoLargeBinary} properties in GridFS by the {@link MongoDAO} data access object.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class TestMongoBlob {
+
+    private static final int CHUNK_SIZE = 256;
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+    private Fongo fongo = new Fongo("localhost");
+    private ObjectMapper objectMapper;
+    private ExecutorService executor;
+    private MongoDAO<String, ObjectWithAttachment, ObjectWithAttachment> dao;
+
+    @Before
+    public void setup() {
+        objectMapper = new ObjectMapper();
+        MongoJackModule.configure(objectMapper);
+        executor = Executors.newFixedThreadPool(2);
+        dao = new MongoDAO<>(fongo.getMongo(), objectMapper, String.class, ObjectWithAttachment.class, "db", "attachments");
+        dao.setBlobChunkSize(CHUNK_SIZE);
+        dao.setBlobParallelism(2);
+        dao.setBlobExecutor(executor);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void attachmentsAreStoredInGridFS() throws Exception {
+        final byte[] content = content(1000, 1);
+        dao.create("1", new ObjectWithAttachment("1", "first", MongoBlob.of(content)));
+        final DBObject document = db().getCollection("attachments").findOne();
+        collector.checkThat(document.get("attachment"), is(instanceOf(DBObject.class)));
+        collector.checkThat(((DBObject) document.get("attachment")).get("length"), is(equalTo((Object) 1000L)));
+        collector.checkThat(db().getCollection("attachments.files").count(), is(equalTo(1L)));
+        collector.checkThat(db().getCollection("attachments.chunks").count(), is(equalTo(4L)));
+        final MongoBlob attachment = dao.read("1").get().getAttachment();
+        collector.checkThat(attachment.isStored(), is(true));
+        collector.checkThat(attachment.getLength(), is(equalTo(1000L)));
+        collector.checkThat(read(attachment.openStream()), is(equalTo(content)));
+        collector.checkThat(read(dao.lookup("name", "first").get().getAttachment().openStream()), is(equalTo(content)));
+    }
+
+    @Test
+    public void attachmentsCanBeReadAsChannels() throws Exception {
+        final byte[] content = content(CHUNK_SIZE * 2, 7);
+        dao.create("1", new ObjectWithAttachment("1", "first", MongoBlob.of(() -> new ByteArrayInputStream(content))));
+        final ByteBuffer buffer = ByteBuffer.allocate(content.length + 1);
+        try (ReadableByteChannel channel = dao.read("1").get().getAttachment().openChannel()) {
+            while (channel.read(buffer) != -1) {
+                // Keep reading
+            }
+        }
+        buffer.flip();
+        collector.checkThat(buffer.remaining(), is(equalTo(content.length)));
+        collector.checkThat(Arrays.copyOf(buffer.array(), buffer.remaining()), is(equalTo(content)));
+    }
+
+    @Test
+    public void filesUseTheStandardGridFSLayout() throws Exception {
+        final byte[] content = content(600, 3);
+        final ObjectWithAttachment object = new ObjectWithAttachment("1", "first", MongoBlob.of(content));
+        dao.create("1", object);
+        final GridFSDBFile file = new GridFS(db(), "attachments").findOne(object.getAttachment().getFileId());
+        collector.checkThat(file.getLength(), is(equalTo(600L)));
+        collector.checkThat(file.getChunkSize(), is(equalTo((long) CHUNK_SIZE)));
+        collector.checkThat(read(file.getInputStream()), is(equalTo(content)));
+    }
+
+    @Test
+    public void replacedAttachmentsAreDeleted() {
+        dao.create("1", new ObjectWithAttachment("1", "first", MongoBlob.of(content(300, 1))));
+        final ObjectId original = dao.read("1").get().getAttachment().getFileId();
+        final ObjectWithAttachment renamed = new ObjectWithAttachment("1", "renamed", dao.read("1").get().getAttachment());
+        dao.update("1", renamed);
+        collector.checkThat(fileIds(), contains(original));
+        dao.update("1", new ObjectWithAttachment("1", "replaced", MongoBlob.of(content(10, 2))));
+        collector.checkThat(fileIds(), not(contains(original)));
+        collector.checkThat(db().getCollection("attachments.files").count(), is(equalTo(1L)));
+        collector.checkThat(db().getCollection("attachments.chunks").count(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void attachmentsAreDeletedWithTheirObjects() {
+        dao.create("1", new ObjectWithAttachment("1", "first", MongoBlob.of(content(300, 1))));
+        dao.destroy("1");
+        collector.checkThat(db().getCollection("attachments.files").count(), is(equalTo(0L)));
+        collector.checkThat(db().getCollection("attachments.chunks").count(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void bulkWritesStoreAndDeleteAttachments() throws Exception {
+        final Map<String, ObjectWithAttachment> objects = new LinkedHashMap<>();
+        for (int i = 0; i < 3; ++i) {
+            objects.put("object-" + i, new ObjectWithAttachment("object-" + i, "name", MongoBlob.of(content(500, i))));
+        }
+        collector.checkThat(dao.createAll(objects).isSuccessful(), is(true));
+        collector.checkThat(db().getCollection("attachments.files").count(), is(equalTo(3L)));
+        collector.checkThat(read(dao.read("object-2").get().getAttachment().openStream()), is(equalTo(content(500, 2))));
+        collector.checkThat(dao.destroyAll(objects.keySet()).isSuccessful(), is(true));
+        collector.checkThat(db().getCollection("attachments.files").count(), is(equalTo(0L)));
+        collector.checkThat(db().getCollection("attachments.chunks").count(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void attachmentsAreUploadedOnlyOnce() {
+        final MongoBlob attachment = MongoBlob.of(content(10, 1));
+        collector.checkThat(attachment.isStored(), is(false));
+        dao.create("1", new ObjectWithAttachment("1", "first", attachment));
+        collector.checkThat(attachment.isStored(), is(true));
+        dao.update("1", new ObjectWithAttachment("1", "renamed", attachment));
+        collector.checkThat(db().getCollection("attachments.files").count(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void attachmentOfRejectedCreateIsDeletedAndUploadedAgainOnRetry() throws Exception {
+        dao.create("1", new ObjectWithAttachment("1", "first", MongoBlob.of(content(300, 1))));
+        final ObjectId original = dao.read("1").get().getAttachment().getFileId();
+        final MongoBlob attachment = MongoBlob.of(content(300, 2));
+        try {
+            dao.create("1", new ObjectWithAttachment("1", "duplicate", attachment));
+            collector.addError(new AssertionError("Expected the duplicate to be rejected"));
+        } catch (final RuntimeException e) {
+            collector.checkThat(attachment.isStored(), is(false));
+            collector.checkThat(attachment.getFileId(), is(nullValue()));
+            collector.checkThat(fileIds(), contains(original));
+        }
+        dao.create("2", new ObjectWithAttachment("2", "retry", attachment));
+        collector.checkThat(attachment.isStored(), is(true));
+        collector.checkThat(db().getCollection("attachments.files").count(), is(equalTo(2L)));
+        collector.checkThat(read(dao.read("2").get().getAttachment().openStream()), is(equalTo(content(300, 2))));
+        collector.checkThat(read(dao.read("1").get().getAttachment().openStream()), is(equalTo(content(300, 1))));
+    }
+
+    @Test
+    public void bulkWriteOnlyDeletesTheAttachmentsOfRejectedObjects() throws Exception {
+        dao.create("1", new ObjectWithAttachment("1", "first", MongoBlob.of(content(300, 1))));
+        final Map<String, ObjectWithAttachment> objects = new LinkedHashMap<>();
+        objects.put("1", new ObjectWithAttachment("1", "duplicate", MongoBlob.of(content(300, 2))));
+        objects.put("2", new ObjectWithAttachment("2", "second", MongoBlob.of(content(300, 3))));
+        final BulkWriteReport<String> report = dao.createAll(objects);
+        collector.checkThat(report.getFailures(), hasSize(1));
+        collector.checkThat(report.getFailures().get(0).getId(), is(equalTo("1")));
+        collector.checkThat(report.getFailures().get(0).isRejected(), is(true));
+        collector.checkThat(objects.get("1").getAttachment().isStored(), is(false));
+        collector.checkThat(objects.get("2").getAttachment().isStored(), is(true));
+        collector.checkThat(db().getCollection("attachments.files").count(), is(equalTo(2L)));
+        collector.checkThat(read(dao.read("1").get().getAttachment().openStream()), is(equalTo(content(300, 1))));
+        collector.checkThat(read(dao.read("2").get().getAttachment().openStream()), is(equalTo(content(300, 3))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void largeBinaryPropertiesMustBeBlobs() {
+        new MongoDAO<>(fongo.getMongo(), objectMapper, String.class, ObjectWithInlineBinary.class, "db", "inline");
+    }
+
+    private DB db() {
+        return fongo.getMongo().getDB("db");
+    }
+
+    private List<ObjectId> fileIds() {
+        final List<ObjectId> ids = new ArrayList<>();
+        for (final DBObject file : db().getCollection("attachments.files").find()) {
+            ids.add((ObjectId) file.get("_id"));
+        }
+        return ids;
+    }
+
+    private static byte[] content(final int length, final int seed) {
+        final byte[] content = new byte[length];
+        for (int i = 0; i < length; ++i) {
+            content[i] = (byte) (i * 31 + seed);
+        }
+        return content;
+    }
+
+    private static byte[] read(final InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            return ByteStreams.toByteArray(stream);
+        }
+    }
+
+    /**
+     * An object with a {@link MongoLargeBinary} property that is not a {@link MongoBlob}.
+     */
+    public static class ObjectWithInlineBinary {
+
+        @MongoLargeBinary
+        public byte[] content;
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.dao.mongo;
+
+import com.btmatthews.atlas.core.dao.DataAccessException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteError;
+import com.mongodb.BulkWriteException;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.BulkWriteResult;
+import com.mongodb.CommandResult;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoClient;
+import com.mongodb.MongoException;
+import com.mongodb.WriteConcern;
+import com.mongodb.WriteConcernError;
+import com.mongodb.WriteConcernException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import org.mongojack.internal.MongoJackModule;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test the roll back of the GridFS files uploaded for writes that failed against mock collections. The files
+ * must only be deleted if the server rejected the documents that reference them.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class TestMongoBlobRollback {
+
+    /**
+     * Used to collect test failures within a single test case.
+     */
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+    /**
+     * The identifiers of the GridFS files that were uploaded in the order they were uploaded.
+     */
+    private final List<Object> uploaded = new ArrayList<>();
+    /**
+     * The identifiers of the GridFS files that were deleted.
+     */
+    private final List<Object> deleted = new ArrayList<>();
+    /**
+     * Executes each chunk of a bulk write given the identifiers of the documents in the chunk.
+     */
+    private Function<List<Object>, BulkWriteResult> server;
+    private DBCollection collection;
+    private MongoDAO<String, ObjectWithAttachment, ObjectWithAttachment> dao;
+
+    /**
+     * Prepare for test case execution.
+     */
+    @Before
+    public void setup() {
+        final ObjectMapper objectMapper = new ObjectMapper();
+        MongoJackModule.configure(objectMapper);
+        final MongoClient client = mock(MongoClient.class);
+        final DB db = mock(DB.class);
+        collection = mock(DBCollection.class);
+        final DBCollection files = mock(DBCollection.class);
+        when(client.getDB("db")).thenReturn(db);
+        when(db.getCollection(anyString())).thenReturn(mock(DBCollection.class));
+        when(db.getCollection("attachments")).thenReturn(collection);
+        when(db.getCollection("attachments.files")).thenReturn(files);
+        when(collection.getName()).thenReturn("attachments");
+        when(collection.getFullName()).thenReturn("db.attachments");
+        when(collection.getWriteConcern()).thenReturn(WriteConcern.ACKNOWLEDGED);
+        when(collection.initializeUnorderedBulkOperation()).thenAnswer(invocation -> bulkOperation());
+        doAnswer(invocation -> {
+            uploaded.add(((DBObject) invocation.getArguments()[0]).get("_id"));
+            return null;
+        }).when(files).insert(any(DBObject.class), any(WriteConcern.class));
+        doAnswer(invocation -> {
+            final DBObject query = (DBObject) invocation.getArguments()[0];
+            deleted.addAll((Collection<?>) ((DBObject) query.get("_id")).get("$in"));
+            return null;
+        }).when(files).remove(any(DBObject.class), any(WriteConcern.class));
+        dao = new MongoDAO<>(client, objectMapper, String.class, ObjectWithAttachment.class, "db", "attachments");
+        dao.setBulkChunkSize(2);
+    }
+
+    @Test
+    public void rejectedCreateDeletesTheAttachment() {
+        final WriteConcernException duplicateKey = new WriteConcernException(commandResult("code", 11000));
+        when(collection.insert(any(DBObject.class), any(WriteConcern.class))).thenThrow(duplicateKey);
+        final MongoBlob attachment = MongoBlob.of(new byte[10]);
+        try {
+            dao.create("1", new ObjectWithAttachment("1", "first", attachment));
+            collector.addError(new AssertionError("Expected WriteConcernException"));
+        } catch (final WriteConcernException e) {
+            collector.checkThat(deleted, is(equalTo(uploaded)));
+            collector.checkThat(attachment.isStored(), is(false));
+        }
+    }
+
+    @Test
+    public void createWithWriteConcernTimeoutKeepsTheAttachment() {
+        final WriteConcernException timeout = new WriteConcernException(commandResult("wtimeout", true));
+        when(collection.insert(any(DBObject.class), any(WriteConcern.class))).thenThrow(timeout);
+        final MongoBlob attachment = MongoBlob.of(new byte[10]);
+        try {
+            dao.create("1", new ObjectWithAttachment("1", "first", attachment));
+            collector.addError(new AssertionError("Expected WriteConcernException"));
+        } catch (final WriteConcernException e) {
+            collector.checkThat(deleted, is(empty()));
+            collector.checkThat(attachment.isStored(), is(true));
+        }
+    }
+
+    @Test
+    public void createWithNetworkErrorKeepsTheAttachment() {
+        when(collection.insert(any(DBObject.class), any(WriteConcern.class)))
+                .thenThrow(new MongoException.Network(new IOException("Connection reset")));
+        final MongoBlob attachment = MongoBlob.of(new byte[10]);
+        try {
+            dao.create("1", new ObjectWithAttachment("1", "first", attachment));
+            collector.addError(new AssertionError("Expected MongoException"));
+        } catch (final MongoException e) {
+            collector.checkThat(deleted, is(empty()));
+            collector.checkThat(attachment.isStored(), is(true));
+        }
+    }
+
+    @Test
+    public void bulkCreateWithNetworkErrorKeepsTheAttachments() {
+        server = ids -> {
+            throw new MongoException.Network(new IOException("Connection reset"));
+        };
+        final Map<String, ObjectWithAttachment> objects = objects(2);
+        final BulkWriteReport<String> report = dao.createAll(objects);
+        collector.checkThat(report.getFailures(), hasSize(2));
+        collector.checkThat(report.getFailures().get(0).isRejected(), is(false));
+        collector.checkThat(report.getFailures().get(1).isRejected(), is(false));
+        collector.checkThat(deleted, is(empty()));
+        collector.checkThat(objects.get("0").getAttachment().isStored(), is(true));
+        collector.checkThat(objects.get("1").getAttachment().isStored(), is(true));
+    }
+
+    @Test
+    public void bulkCreateWithWriteConcernErrorOnlyDeletesTheAttachmentsOfRejectedObjects() {
+        server = ids -> {
+            throw bulkWriteException(result(1), new WriteConcernError(64, "waiting for replication timed out",
+                    new BasicDBObject()), new BulkWriteError(11000, "duplicate key", new BasicDBObject(), 1));
+        };
+        final Map<String, ObjectWithAttachment> objects = objects(2);
+        try {
+            dao.createAll(objects);
+            collector.addError(new AssertionError("Expected DataAccessException"));
+        } catch (final DataAccessException e) {
+            collector.checkThat(deleted, contains(uploaded.get(1)));
+            collector.checkThat(objects.get("0").getAttachment().isStored(), is(true));
+            collector.checkThat(objects.get("1").getAttachment().isStored(), is(false));
+        }
+    }
+
+    @Test
+    public void bulkCreateThatFailsDeletesTheAttachmentsOfChunksThatWereNotSent() {
+        server = ids -> {
+            throw bulkWriteException(result(ids.size()), new WriteConcernError(64, "waiting for replication timed out",
+                    new BasicDBObject()));
+        };
+        final Map<String, ObjectWithAttachment> objects = objects(3);
+        try {
+            dao.createAll(objects);
+            collector.addError(new AssertionError("Expected DataAccessException"));
+        } catch (final DataAccessException e) {
+            collector.checkThat(deleted, contains(uploaded.get(2)));
+            collector.checkThat(objects.get("0").getAttachment().isStored(), is(true));
+            collector.checkThat(objects.get("1").getAttachment().isStored(), is(true));
+            collector.checkThat(objects.get("2").getAttachment().isStored(), is(false));
+        }
+    }
+
+    /**
+     * Create a mock bulk write operation that records the identifiers of the documents inserted and passes them to
+     * {@link #server} when it is executed.
+     *
+     * @return The bulk write operation.
+     */
+    private BulkWriteOperation bulkOperation() {
+        final List<Object> ids = new ArrayList<>();
+        final BulkWriteOperation bulk = mock(BulkWriteOperation.class);
+        doAnswer(invocation -> ids.add(((DBObject) invocation.getArguments()[0]).get("_id")))
+                .when(bulk).insert(any(DBObject.class));
+        when(bulk.execute(any(WriteConcern.class))).thenAnswer(invocation -> server.apply(ids));
+        return bulk;
+    }
+
+    /**
+     * Create a mock result of a write that failed. The result of a real write cannot be created outside the driver.
+     *
+     * @param field The field that describes the failure.
+     * @param value The value of the field.
+     * @return The result.
+     */
+    private static CommandResult commandResult(final String field,
+                                               final Object value) {
+        final CommandResult result = mock(CommandResult.class);
+        when(result.containsField(field)).thenReturn(true);
+        when(result.get(field)).thenReturn(value);
+        if (value instanceof Integer) {
+            when(result.getInt(field, 0)).thenReturn((Integer) value);
+        }
+        return result;
+    }
+
+    private static BulkWriteResult result(final int inserted) {
+        final BulkWriteResult result = mock(BulkWriteResult.class);
+        when(result.isAcknowledged()).thenReturn(true);
+        when(result.getInsertedCount()).thenReturn(inserted);
+        return result;
+    }
+
+    private static BulkWriteException bulkWriteException(final BulkWriteResult result,
+                                                         final WriteConcernError writeConcernError,
+                                                         final BulkWriteError... errors) {
+        final BulkWriteException exception = mock(BulkWriteException.class);
+        when(exception.getWriteResult()).thenReturn(result);
+        when(exception.getWriteErrors()).thenReturn(Arrays.asList(errors));
+        when(exception.getWriteConcernError()).thenReturn(writeConcernError);
+        return exception;
+    }
+
+    private static Map<String, ObjectWithAttachment> objects(final int count) {
+        final Map<String, ObjectWithAttachment> objects = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            final String id = Integer.toString(i);
+            objects.put(id, new ObjectWithAttachment(id, "Object " + id, MongoBlob.of(new byte[10])));
+        }
+        return objects;
+    }
+}
@@ -18,21 +18,36 @@ package com.btmatthews.atlas.core.dao.mongo;
 
 import com.btmatthews.atlas.core.common.Paging;
 import com.btmatthews.atlas.core.common.PagingBuilder;
-import com.btmatthews.atlas.core.dao.DAO;
 import com.btmatthews.atlas.core.domain.i18n.I18NModule;
 import com.btmatthews.atlas.core.domain.jsr310.JSR310Module;
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.fakemongo.Fongo;
 import com.jayway.jsonassert.JsonAssert;
+import com.mongodb.DBObject;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
 import org.hamcrest.Matchers;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ErrorCollector;
+import org.mongojack.DBQuery;
 import org.mongojack.internal.MongoJackModule;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static org.fest.assertions.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -56,7 +71,7 @@ public class TestMongoDAO {
     /**
      * The data access object being tested.
      */
-    private DAO<String, Person> dao;
+    private MongoDAO<String, Person, PersonImpl> dao;
     /**
      * Used to mock the Mongo data store.
      */
@@ -148,6 +163,21 @@ public class TestMongoDAO {
         collector.checkThat(dao.find(paging).size(), is(equalTo(0)));
     }
 
+    /**
+     * Make sure {@link LocalDateTime} properties are stored as native BSON dates in UTC and read back unchanged.
+     */
+    @Test
+    public void datesAreStoredAsNativeBSONDates() {
+        final Person person = new PersonImpl("ee749160-c6a0-11e2-8b8b-0800200c9a66", "Brian Matthews", VALID_FROM, VALID_TO);
+        dao.create("ee749160-c6a0-11e2-8b8b-0800200c9a66", person);
+        final DBObject document = fongo.getMongo().getDB("db").getCollection("people").findOne();
+        collector.checkThat(document.get("validFrom"), is(instanceOf(Date.class)));
+        collector.checkThat(((Date) document.get("validTo")).getTime(), is(equalTo(VALID_TO.toInstant(ZoneOffset.UTC).toEpochMilli())));
+        final Optional<Person> result = dao.read("ee749160-c6a0-11e2-8b8b-0800200c9a66");
+        collector.checkThat(result.get(), hasProperty("validFrom", is(equalTo(VALID_FROM))));
+        collector.checkThat(result.get(), hasProperty("validTo", is(equalTo(VALID_TO))));
+    }
+
     /**
      * Make sure the {@link MongoDAO#create(Object, Object)} method throws an {@link IllegalArgumentException} if {@code null} is
      * passed as the {@code entity} parameter.
@@ -190,4 +220,251 @@ public class TestMongoDAO {
         final Optional<Person> result = dao.read("2c6c4910-c69f-11e2-8b8b-0800200c9a66");
         collector.checkThat(result.isPresent(), is(false));
     }
+
+    /**
+     * Make sure {@link MongoDAO#createAll(Map)} splits the documents into chunks and writes all of them.
+     */
+    @Test
+    public void createAllWritesEveryChunk() {
+        dao.setBulkChunkSize(7);
+        final BulkWriteReport<String> report = dao.createAll(people(0, 50));
+        collector.checkThat(report.isSuccessful(), is(true));
+        collector.checkThat(report.getInsertedCount(), is(equalTo(50)));
+        collector.checkThat(dao.count(), is(equalTo(50L)));
+        collector.checkThat(dao.read("person-42").get(), hasProperty("name", is(equalTo("Person 42"))));
+    }
+
+    /**
+     * Make sure {@link MongoDAO#createAll(Map)} reports the documents that were rejected.
+     */
+    @Test
+    public void createAllReportsRejectedDocuments() {
+        dao.create("person-3", new PersonImpl("person-3", "Existing", VALID_FROM, VALID_TO));
+        final BulkWriteReport<String> report = dao.createAll(people(0, 5));
+        collector.checkThat(report.isSuccessful(), is(false));
+        collector.checkThat(report.getFailures().size(), is(equalTo(1)));
+        collector.checkThat(report.getFailures().get(0).getId(), is(equalTo("person-3")));
+        collector.checkThat(dao.count(), is(equalTo(5L)));
+        collector.checkThat(dao.read("person-3").get(), hasProperty("name", is(equalTo("Existing"))));
+    }
+
+    /**
+     * Make sure {@link MongoDAO#updateAll(Map)} and {@link MongoDAO#destroyAll(java.util.Collection)} can send
+     * chunks concurrently.
+     */
+    @Test
+    public void bulkWritesCanUseParallelChunks() {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            dao.setBulkChunkSize(10);
+            dao.setBulkExecutor(executor);
+            collector.checkThat(dao.createAll(people(0, 100)).getInsertedCount(), is(equalTo(100)));
+            final Map<String, Person> renamed = new LinkedHashMap<>();
+            for (final Person person : people(0, 100).values()) {
+                renamed.put(person.getId(), new PersonImpl(person.getId(), person.getName().toUpperCase(), VALID_FROM, VALID_TO));
+            }
+            collector.checkThat(dao.updateAll(renamed).getMatchedCount(), is(equalTo(100)));
+            collector.checkThat(dao.read("person-99").get(), hasProperty("name", is(equalTo("PERSON 99"))));
+            final List<String> ids = new ArrayList<>(renamed.keySet()).subList(0, 60);
+            collector.checkThat(dao.destroyAll(ids).getRemovedCount(), is(equalTo(60)));
+            collector.checkThat(dao.count(), is(equalTo(40L)));
+            collector.checkThat(dao.destroyAll(Arrays.asList("person-0")).getRemovedCount(), is(equalTo(0)));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private Map<String, Person> people(final int from, final int to) {
+        final Map<String, Person> people = new LinkedHashMap<>();
+        for (int i = from; i < to; ++i) {
+            people.put("person-" + i, new PersonImpl("person-" + i, "Person " + i, VALID_FROM, VALID_TO));
+        }
+        return people;
+    }
+
+    /**
+     * Make sure operations can be invoked with a named profile and that their use is recorded.
+     */
+    @Test
+    public void operationsUseNamedProfiles() {
+        dao.addProfile(new MongoOperationProfileBuilder()
+                .setName("telemetry")
+                .setWriteConcern(WriteConcern.UNACKNOWLEDGED)
+                .build());
+        dao.addProfile(new MongoOperationProfileBuilder()
+                .setName("analytics")
+                .setReadPreference(ReadPreference.secondaryPreferred())
+                .setMaxTime(5, TimeUnit.SECONDS)
+                .build());
+        final Paging paging = new PagingBuilder().setPageNumber(0).setPageSize(100).build();
+        dao.create("person-1", new PersonImpl("person-1", "Person 1", VALID_FROM, VALID_TO), "telemetry");
+        dao.update("person-1", new PersonImpl("person-1", "Person One", VALID_FROM, VALID_TO), "telemetry");
+        collector.checkThat(dao.count("analytics"), is(equalTo(1L)));
+        collector.checkThat(dao.find(paging, "analytics").size(), is(equalTo(1)));
+        collector.checkThat(dao.read("person-1", "analytics").get(), hasProperty("name", is(equalTo("Person One"))));
+        collector.checkThat(dao.lookup("name", "Person One", "analytics").isPresent(), is(true));
+        dao.destroy("person-1", "telemetry");
+        collector.checkThat(dao.read("person-1").isPresent(), is(false));
+        collector.checkThat(timerCount("telemetry", "create"), is(equalTo(1L)));
+        collector.checkThat(timerCount("telemetry", "destroy"), is(equalTo(1L)));
+        collector.checkThat(timerCount("analytics", "read"), is(equalTo(1L)));
+        collector.checkThat(timerCount("default", "read"), is(equalTo(1L)));
+    }
+
+    /**
+     * Make sure the default profile can be replaced.
+     */
+    @Test
+    public void defaultProfileCanBeChanged() {
+        dao.addProfile(new MongoOperationProfileBuilder().setName("analytics").setReadPreference("secondary").build());
+        dao.setDefaultProfile("analytics");
+        dao.count();
+        collector.checkThat(timerCount("analytics", "count"), is(equalTo(1L)));
+        collector.checkThat(timerCount("default", "count"), is(equalTo(0L)));
+    }
+
+    /**
+     * Make sure an {@link IllegalArgumentException} is thrown if an unknown profile is named.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownProfileShouldFail() {
+        dao.read("person-1", "unknown");
+    }
+
+    /**
+     * Make sure the declared indexes are created by {@link MongoDAO#ensureIndexes()} and are enforced.
+     */
+    @Test
+    public void ensureIndexesCreatesDeclaredIndexes() {
+        dao.setIndexes(Arrays.asList(
+                new MongoIndexBuilder().setName("name").ascending("name").setUnique(true).build(),
+                new MongoIndexBuilder().ascending("validFrom").descending("validTo").setSparse(true).build(),
+                new MongoIndexBuilder().setName("expiry").ascending("validTo").setExpireAfter(1, TimeUnit.DAYS).build()));
+        dao.ensureIndexes().join();
+        final List<DBObject> indexes = fongo.getMongo().getDB("db").getCollection("people").getIndexInfo();
+        final List<Object> names = new ArrayList<>();
+        for (final DBObject index : indexes) {
+            names.add(index.get("name"));
+        }
+        collector.checkThat(names, hasItems("name", "validFrom_1_validTo_-1", "expiry"));
+        dao.create("person-1", new PersonImpl("person-1", "Person", VALID_FROM, VALID_TO));
+        final BulkWriteReport<String> report = dao.createAll(people(2, 3));
+        collector.checkThat(report.isSuccessful(), is(true));
+        final Map<String, Person> duplicate = new LinkedHashMap<>();
+        duplicate.put("person-9", new PersonImpl("person-9", "Person", VALID_FROM, VALID_TO));
+        collector.checkThat(dao.createAll(duplicate).getFailures().size(), is(equalTo(1)));
+    }
+
+    /**
+     * Make sure lookups still work when the query plan is checked but cannot be explained.
+     */
+    @Test
+    public void lookupWithQueryPlanCheck() {
+        dao.setQueryPlanCheck(MongoQueryPlanCheck.FAIL);
+        dao.create("person-1", new PersonImpl("person-1", "Person", VALID_FROM, VALID_TO));
+        collector.checkThat(dao.lookup("name", "Person").isPresent(), is(true));
+        collector.checkThat(dao.lookup("name", "Nobody").isPresent(), is(false));
+    }
+
+    /**
+     * Make sure {@link MongoDAO#lookupAll(String, Object)} returns every match and releases its cursor when closed.
+     */
+    @Test
+    public void lookupAllStreamsMatchesAndClosesCursor() {
+        dao.setFindBatchSize(3);
+        dao.createAll(people(0, 10));
+        dao.create("twin", new PersonImpl("twin", "Person 4", VALID_FROM, VALID_TO));
+        final List<String> ids = new ArrayList<>();
+        try (final Stream<Person> people = dao.lookupAll("name", "Person 4")) {
+            people.forEach(person -> ids.add(person.getId()));
+            collector.checkThat(cursorCounter("open"), is(equalTo(1L)));
+        }
+        collector.checkThat(ids, containsInAnyOrder("person-4", "twin"));
+        collector.checkThat(cursorCounter("open"), is(equalTo(0L)));
+    }
+
+    /**
+     * Make sure the cursors used by find, lookup and read are closed.
+     */
+    @Test
+    public void cursorsAreClosed() {
+        dao.setFindBatchSize(4);
+        dao.createAll(people(0, 10));
+        final Paging paging = new PagingBuilder().setPageNumber(0).setPageSize(100).build();
+        collector.checkThat(dao.find(paging).size(), is(equalTo(10)));
+        collector.checkThat(dao.lookup("name", "Person 7").get(), hasProperty("id", is(equalTo("person-7"))));
+        collector.checkThat(dao.read("person-3").isPresent(), is(true));
+        collector.checkThat(dao.read("person-99").isPresent(), is(false));
+        collector.checkThat(cursorCounter("open"), is(equalTo(0L)));
+        collector.checkThat(dao.getMetricRegistry().meter(MetricRegistry.name(MongoDAO.class, "db", "people", "cursors", "opened")).getCount(), is(equalTo(4L)));
+    }
+
+    /**
+     * Make sure {@link MongoDAO#aggregate(MongoAggregation, Class)} groups on the server and returns typed rows.
+     */
+    @Test
+    public void aggregateReturnsTypedRows() {
+        createNamedPeople();
+        final MongoAggregation aggregation = new MongoAggregationBuilder()
+                .groupBy("name")
+                .count("total")
+                .min("earliest", "validFrom")
+                .sortDescending("total")
+                .build();
+        final List<NameCount> rows = dao.aggregate(aggregation, NameCount.class);
+        collector.checkThat(rows.size(), is(equalTo(2)));
+        collector.checkThat(rows.get(0).name, is(equalTo("Alice")));
+        collector.checkThat(rows.get(0).total, is(equalTo(3L)));
+        collector.checkThat(rows.get(1).name, is(equalTo("Bob")));
+        collector.checkThat(rows.get(1).total, is(equalTo(2L)));
+        final List<Map> filtered = dao.aggregate(new MongoAggregationBuilder()
+                .setCriteria(DBQuery.is("name", "Bob"))
+                .count("total")
+                .build(), Map.class);
+        collector.checkThat(filtered.size(), is(equalTo(1)));
+        collector.checkThat(((Number) filtered.get(0).get("total")).intValue(), is(equalTo(2)));
+    }
+
+    /**
+     * Make sure counts, facets and distinct values are calculated on the server.
+     */
+    @Test
+    public void countsFacetsAndDistinctValues() {
+        createNamedPeople();
+        collector.checkThat(dao.count(DBQuery.is("name", "Alice")), is(equalTo(3L)));
+        collector.checkThat(dao.count((DBQuery.Query) null), is(equalTo(5L)));
+        collector.checkThat(dao.estimatedCount(), is(equalTo(5L)));
+        final Map<String, Map<Object, Long>> facets = dao.countFacets(null, Arrays.asList("name"));
+        collector.checkThat(facets.get("name").get("Alice"), is(equalTo(3L)));
+        collector.checkThat(facets.get("name").get("Bob"), is(equalTo(2L)));
+        collector.checkThat(new ArrayList<>(facets.get("name").keySet()), is(equalTo(Arrays.<Object>asList("Alice", "Bob"))));
+        collector.checkThat(dao.distinct("name", null, String.class), containsInAnyOrder("Alice", "Bob"));
+        collector.checkThat(dao.distinct("name", DBQuery.notEquals("name", "Alice"), String.class), contains("Bob"));
+    }
+
+    private void createNamedPeople() {
+        final Map<String, Person> people = new LinkedHashMap<>();
+        for (int i = 0; i < 5; ++i) {
+            final String name = i < 3 ? "Alice" : "Bob";
+            people.put("person-" + i, new PersonImpl("person-" + i, name, VALID_FROM.plusDays(i), VALID_TO));
+        }
+        dao.createAll(people);
+    }
+
+    private long timerCount(final String profile, final String operation) {
+        return dao.getMetricRegistry().timer(MetricRegistry.name(MongoDAO.class, "db", "people", profile, operation)).getCount();
+    }
+
+    private long cursorCounter(final String name) {
+        return dao.getMetricRegistry().counter(MetricRegistry.name(MongoDAO.class, "db", "people", "cursors", name)).getCount();
+    }
+
+    /**
+     * A row produced by aggregating people by name.
+     */
+    public static class NameCount {
+        public String name;
+        public long total;
+        public LocalDateTime earliest;
+    }
 }
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.dao.mongo;
+
+import com.btmatthews.atlas.core.dao.DataAccessException;
+import com.btmatthews.atlas.core.domain.i18n.I18NModule;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteError;
+import com.mongodb.BulkWriteException;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.BulkWriteResult;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoClient;
+import com.mongodb.MongoException;
+import com.mongodb.WriteConcern;
+import com.mongodb.WriteConcernError;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import org.mongojack.internal.MongoJackModule;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test the bulk writes of the {@link MongoDAO} against a mock collection. Unlike the in-memory test double used
+ * by {@link TestMongoDAO}, the mock collection returns results from bulk writes so the reports are built from the
+ * results and errors returned by the driver.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class TestMongoDAOBulkWrite {
+
+    /**
+     * Used to collect test failures within a single test case.
+     */
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+    /**
+     * Executes each chunk of a bulk write given the identifiers of the documents in the chunk.
+     */
+    private volatile Function<List<Object>, BulkWriteResult> server;
+    private ExecutorService executor;
+    private MongoDAO<String, Person, PersonImpl> dao;
+
+    /**
+     * Prepare for test case execution.
+     */
+    @Before
+    public void setup() {
+        final ObjectMapper objectMapper = new ObjectMapper();
+        MongoJackModule.configure(objectMapper);
+        objectMapper.registerModule(new I18NModule());
+        objectMapper.registerModule(new MongoJSR310Module());
+        final MongoClient client = mock(MongoClient.class);
+        final DB db = mock(DB.class);
+        final DBCollection collection = mock(DBCollection.class);
+        when(client.getDB("db")).thenReturn(db);
+        when(db.getCollection(anyString())).thenReturn(mock(DBCollection.class));
+        when(db.getCollection("people")).thenReturn(collection);
+        when(collection.getName()).thenReturn("people");
+        when(collection.getWriteConcern()).thenReturn(WriteConcern.ACKNOWLEDGED);
+        when(collection.initializeUnorderedBulkOperation()).thenAnswer(invocation -> bulkOperation());
+        executor = Executors.newFixedThreadPool(2);
+        dao = new MongoDAO<>(client, objectMapper, String.class, PersonImpl.class, "db", "people");
+        dao.setBulkChunkSize(2);
+    }
+
+    /**
+     * Stop the executor used for parallel chunks.
+     */
+    @After
+    public void teardown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void reportIsBuiltFromTheBulkWriteResults() {
+        server = ids -> result(ids.size());
+        final BulkWriteReport<String> report = dao.createAll(people(5));
+        collector.checkThat(report.getInsertedCount(), is(equalTo(5)));
+        collector.checkThat(report.isSuccessful(), is(true));
+    }
+
+    @Test
+    public void writeErrorsAreReportedForTheDocumentsThatFailed() {
+        server = ids -> {
+            if (ids.contains("2")) {
+                throw writeErrors(result(1), new BulkWriteError(11000, "duplicate key", new BasicDBObject(), 1));
+            }
+            return result(ids.size());
+        };
+        final BulkWriteReport<String> report = dao.createAll(people(5));
+        collector.checkThat(report.getInsertedCount(), is(equalTo(4)));
+        collector.checkThat(report.getFailures(), hasSize(1));
+        collector.checkThat(report.getFailures().get(0).getId(), is(equalTo("3")));
+        collector.checkThat(report.getFailures().get(0).getCode(), is(equalTo(11000)));
+        collector.checkThat(report.getFailures().get(0).getMessage(), is(equalTo("duplicate key")));
+    }
+
+    @Test
+    public void failedChunkIsReportedForEveryDocumentInTheChunk() {
+        server = ids -> {
+            if (ids.contains("0")) {
+                throw new MongoException(6, "host unreachable");
+            }
+            return result(ids.size());
+        };
+        final BulkWriteReport<String> report = dao.createAll(people(3));
+        collector.checkThat(report.getInsertedCount(), is(equalTo(1)));
+        collector.checkThat(report.getFailures(), hasSize(2));
+    }
+
+    @Test
+    public void unacknowledgedWritesAreNotCounted() {
+        server = ids -> {
+            final BulkWriteResult result = mock(BulkWriteResult.class);
+            when(result.isAcknowledged()).thenReturn(false);
+            return result;
+        };
+        final BulkWriteReport<String> report = dao.createAll(people(3));
+        collector.checkThat(report.getInsertedCount(), is(equalTo(0)));
+        collector.checkThat(report.isSuccessful(), is(true));
+    }
+
+    @Test(expected = DataAccessException.class)
+    public void writeConcernErrorIsThrown() {
+        server = ids -> {
+            throw writeConcernError(result(ids.size()));
+        };
+        dao.createAll(people(3));
+    }
+
+    @Test
+    public void parallelChunksAreAllCompletedBeforeAFailureIsThrown() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch completed = new CountDownLatch(1);
+        server = ids -> {
+            if (ids.contains("0")) {
+                throw writeConcernError(result(ids.size()));
+            }
+            try {
+                release.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            completed.countDown();
+            return result(ids.size());
+        };
+        dao.setBulkExecutor(executor);
+        final CompletableFuture<BulkWriteReport<String>> write = CompletableFuture.supplyAsync(
+                () -> dao.createAll(people(4)));
+        try {
+            write.get(200, TimeUnit.MILLISECONDS);
+            collector.addError(new AssertionError("Bulk write completed before every chunk was written"));
+        } catch (final TimeoutException e) {
+            collector.checkThat(completed.getCount(), is(equalTo(1L)));
+        } catch (final ExecutionException e) {
+            collector.addError(new AssertionError("Bulk write failed before every chunk was written", e));
+        }
+        release.countDown();
+        try {
+            write.get(10, TimeUnit.SECONDS);
+            collector.addError(new AssertionError("Expected DataAccessException"));
+        } catch (final ExecutionException e) {
+            collector.checkThat(e.getCause(), is(instanceOf(DataAccessException.class)));
+            collector.checkThat(completed.getCount(), is(equalTo(0L)));
+        }
+    }
+
+    @Test
+    public void parallelChunkFailuresAreSuppressed() {
+        server = ids -> {
+            throw writeConcernError(result(ids.size()));
+        };
+        dao.setBulkExecutor(executor);
+        try {
+            dao.createAll(people(6));
+            collector.addError(new AssertionError("Expected DataAccessException"));
+        } catch (final DataAccessException e) {
+            collector.checkThat(e.getSuppressed().length, is(equalTo(2)));
+        }
+    }
+
+    /**
+     * Create a mock bulk write operation that records the identifiers of the documents inserted and passes them to
+     * {@link #server} when it is executed.
+     *
+     * @return The bulk write operation.
+     */
+    private BulkWriteOperation bulkOperation() {
+        final List<Object> ids = Collections.synchronizedList(new ArrayList<>());
+        final BulkWriteOperation bulk = mock(BulkWriteOperation.class);
+        doAnswer(invocation -> ids.add(((DBObject) invocation.getArguments()[0]).get("_id")))
+                .when(bulk).insert(any(DBObject.class));
+        when(bulk.execute(any(WriteConcern.class))).thenAnswer(invocation -> server.apply(ids));
+        return bulk;
+    }
+
+    private static BulkWriteResult result(final int inserted) {
+        final BulkWriteResult result = mock(BulkWriteResult.class);
+        when(result.isAcknowledged()).thenReturn(true);
+        when(result.getInsertedCount()).thenReturn(inserted);
+        return result;
+    }
+
+    private static BulkWriteException writeErrors(final BulkWriteResult result,
+                                                  final BulkWriteError... errors) {
+        final BulkWriteException exception = mock(BulkWriteException.class);
+        when(exception.getWriteResult()).thenReturn(result);
+        when(exception.getWriteErrors()).thenReturn(Arrays.asList(errors));
+        return exception;
+    }
+
+    private static BulkWriteException writeConcernError(final BulkWriteResult result) {
+        final BulkWriteException exception = mock(BulkWriteException.class);
+        when(exception.getWriteResult()).thenReturn(result);
+        when(exception.getWriteErrors()).thenReturn(Collections.emptyList());
+        when(exception.getWriteConcernError()).thenReturn(new WriteConcernError(64, "waiting for replication timed out",
+                new BasicDBObject()));
+        return exception;
+    }
+
+    private static Map<String, PersonImpl> people(final int count) {
+        final Map<String, PersonImpl> people = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            final String id = Integer.toString(i);
+            people.put(id, new PersonImpl(id, "Person " + id, LocalDateTime.of(1900, 1, 1, 0, 0),
+                    LocalDateTime.of(9999, 12, 31, 23, 59)));
+        }
+        return people;
+    }
+}
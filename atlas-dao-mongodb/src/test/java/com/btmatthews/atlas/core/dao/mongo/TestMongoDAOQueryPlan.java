@@ -0,0 +1,118 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.dao.mongo;
+
+import com.btmatthews.atlas.core.dao.DataAccessException;
+import com.btmatthews.atlas.core.domain.i18n.I18NModule;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.MongoClient;
+import com.mongodb.MongoException;
+import com.mongodb.util.JSON;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import org.mongojack.internal.MongoJackModule;
+
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test the query plan checks of the {@link MongoDAO} lookups against a mock collection that can explain them.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class TestMongoDAOQueryPlan {
+
+    private static final DBObject INDEX_SCAN = (DBObject) JSON.parse(
+            "{queryPlanner: {winningPlan: {stage: 'FETCH', inputStage: {stage: 'IXSCAN', indexName: 'name_1'}}}}");
+    private static final DBObject COLLECTION_SCAN = (DBObject) JSON.parse(
+            "{queryPlanner: {winningPlan: {stage: 'COLLSCAN'}}}");
+
+    /**
+     * Used to collect test failures within a single test case.
+     */
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+    private DBCursor cursor;
+    private MongoDAO<String, Person, PersonImpl> dao;
+
+    /**
+     * Prepare for test case execution.
+     */
+    @Before
+    public void setup() {
+        final ObjectMapper objectMapper = new ObjectMapper();
+        MongoJackModule.configure(objectMapper);
+        objectMapper.registerModule(new I18NModule());
+        objectMapper.registerModule(new MongoJSR310Module());
+        final MongoClient client = mock(MongoClient.class);
+        final DB db = mock(DB.class);
+        final DBCollection collection = mock(DBCollection.class);
+        cursor = mock(DBCursor.class);
+        when(client.getDB("db")).thenReturn(db);
+        when(db.getCollection(anyString())).thenReturn(mock(DBCollection.class));
+        when(db.getCollection("people")).thenReturn(collection);
+        when(collection.getName()).thenReturn("people");
+        when(collection.find()).thenReturn(cursor);
+        when(cursor.getQuery()).thenReturn(new BasicDBObject());
+        when(cursor.limit(1)).thenReturn(cursor);
+        dao = new MongoDAO<>(client, objectMapper, String.class, PersonImpl.class, "db", "people");
+        dao.setQueryPlanCheck(MongoQueryPlanCheck.FAIL);
+    }
+
+    @Test
+    public void planIsOnlyExplainedForTheFirstLookup() {
+        when(cursor.explain()).thenReturn(INDEX_SCAN);
+        collector.checkThat(dao.lookup("name", "Alice").isPresent(), is(false));
+        collector.checkThat(dao.lookup("name", "Bob").isPresent(), is(false));
+        verify(cursor, times(1)).explain();
+    }
+
+    @Test
+    public void collectionScanIsRememberedAndRejected() {
+        when(cursor.explain()).thenReturn(COLLECTION_SCAN);
+        for (int i = 0; i < 2; ++i) {
+            try {
+                dao.lookup("name", "Alice");
+                collector.addError(new AssertionError("Expected DataAccessException"));
+            } catch (final DataAccessException e) {
+                collector.checkThat(e.getMessage().contains("collection scan"), is(true));
+            }
+        }
+        verify(cursor, times(1)).explain();
+    }
+
+    @Test
+    public void planThatCannotBeExplainedIsExplainedAgain() {
+        when(cursor.explain()).thenThrow(new MongoException("not master")).thenReturn(INDEX_SCAN);
+        collector.checkThat(dao.lookup("name", "Alice").isPresent(), is(false));
+        collector.checkThat(dao.lookup("name", "Bob").isPresent(), is(false));
+        collector.checkThat(dao.lookup("name", "Carol").isPresent(), is(false));
+        verify(cursor, times(2)).explain();
+    }
+}
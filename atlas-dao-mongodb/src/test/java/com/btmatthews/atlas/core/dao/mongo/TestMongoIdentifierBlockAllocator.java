@@ -0,0 +1,71 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.dao.mongo;
+
+import com.btmatthews.atlas.core.id.HiLoIdentifierGenerator;
+import com.btmatthews.atlas.core.id.IdentifierBlockAllocator;
+import com.github.fakemongo.Fongo;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Unit test the {@link MongoIdentifierBlockAllocator} object.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class TestMongoIdentifierBlockAllocator {
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+    private Fongo fongo = new Fongo("localhost");
+    private IdentifierBlockAllocator allocator;
+
+    @Before
+    public void setup() {
+        allocator = new MongoIdentifierBlockAllocator(fongo.getMongo(), "db", "counters", "people");
+    }
+
+    @Test
+    public void blocksDoNotOverlap() {
+        collector.checkThat(allocator.allocate(10), is(equalTo(1L)));
+        collector.checkThat(allocator.allocate(5), is(equalTo(11L)));
+        collector.checkThat(allocator.allocate(1), is(equalTo(16L)));
+        collector.checkThat(((Number) fongo.getMongo().getDB("db").getCollection("counters").findOne().get("next")).longValue(), is(equalTo(16L)));
+    }
+
+    @Test
+    public void countersAreIndependent() {
+        final IdentifierBlockAllocator other = new MongoIdentifierBlockAllocator(fongo.getMongo(), "db", "counters", "places", 1000L);
+        collector.checkThat(allocator.allocate(10), is(equalTo(1L)));
+        collector.checkThat(other.allocate(10), is(equalTo(1000L)));
+        collector.checkThat(allocator.allocate(10), is(equalTo(11L)));
+    }
+
+    @Test
+    public void generatorUsesBlocks() {
+        final HiLoIdentifierGenerator generator = new HiLoIdentifierGenerator(allocator, 4);
+        for (long i = 1; i <= 10; ++i) {
+            collector.checkThat(generator.generateLong(), is(equalTo(i)));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.dao.mongo;
+
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit test the {@link MongoOperationProfileBuilder} object.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class TestMongoOperationProfileBuilder {
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+
+    @Test
+    public void defaultProfileUsesCollectionDefaults() {
+        final MongoOperationProfile profile = new MongoOperationProfileBuilder().build();
+        collector.checkThat(profile.getName(), is(equalTo(MongoOperationProfile.DEFAULT_NAME)));
+        collector.checkThat(profile.getWriteConcern(), is(nullValue()));
+        collector.checkThat(profile.getReadPreference(), is(nullValue()));
+        collector.checkThat(profile.getMaxTimeMillis(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void optionsCanBeGivenByName() {
+        final MongoOperationProfile profile = new MongoOperationProfileBuilder()
+                .setName("analytics")
+                .setWriteConcern("UNACKNOWLEDGED")
+                .setReadPreference("secondaryPreferred")
+                .setMaxTime(2, TimeUnit.SECONDS)
+                .build();
+        collector.checkThat(profile.getName(), is(equalTo("analytics")));
+        collector.checkThat(profile.getWriteConcern(), is(equalTo(WriteConcern.UNACKNOWLEDGED)));
+        collector.checkThat(profile.getReadPreference(), is(equalTo(ReadPreference.secondaryPreferred())));
+        collector.checkThat(profile.getMaxTimeMillis(), is(equalTo(2000L)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownWriteConcernShouldFail() {
+        new MongoOperationProfileBuilder().setWriteConcern("SOMETIMES");
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.dao.mongo;
+
+import com.mongodb.DBObject;
+import com.mongodb.util.JSON;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Unit test the recognition of collection scans by {@link MongoQueryPlanCheck}.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class TestMongoQueryPlanCheck {
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+
+    @Test
+    public void legacyCursorTypesAreRecognised() {
+        collector.checkThat(isCollectionScan("{cursor: 'BasicCursor', n: 1, nscanned: 1000}"), is(true));
+        collector.checkThat(isCollectionScan("{cursor: 'BtreeCursor name_1', n: 1, nscanned: 1}"), is(false));
+        collector.checkThat(isCollectionScan("{clauses: [{cursor: 'BtreeCursor name_1'}, {cursor: 'BasicCursor'}]}"), is(true));
+    }
+
+    @Test
+    public void winningPlanStagesAreRecognised() {
+        collector.checkThat(isCollectionScan("{queryPlanner: {winningPlan: {stage: 'COLLSCAN', filter: {name: {$eq: 'x'}}}}}"), is(true));
+        collector.checkThat(isCollectionScan("{queryPlanner: {winningPlan: {stage: 'FETCH', inputStage: {stage: 'IXSCAN', indexName: 'name_1'}}}}"), is(false));
+        collector.checkThat(isCollectionScan("{queryPlanner: {winningPlan: {stage: 'SHARD_MERGE', shards: [{winningPlan: {stage: 'COLLSCAN'}}]}}}"), is(true));
+    }
+
+    @Test
+    public void rejectedPlansAreIgnored() {
+        collector.checkThat(isCollectionScan("{queryPlanner: {winningPlan: {stage: 'FETCH', inputStage: {stage: 'IXSCAN'}}, rejectedPlans: [{stage: 'COLLSCAN'}]}}"), is(false));
+        collector.checkThat(isCollectionScan("{cursor: 'BtreeCursor name_1', allPlans: [{cursor: 'BasicCursor'}]}"), is(false));
+        collector.checkThat(MongoQueryPlanCheck.isCollectionScan(null), is(false));
+    }
+
+    private static boolean isCollectionScan(final String explain) {
+        return MongoQueryPlanCheck.isCollectionScan((DBObject) JSON.parse(explain));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmatthews.atlas.core.dao.mongo;
+
+import com.btmatthews.atlas.core.dao.DAO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fakemongo.Fongo;
+import com.mongodb.DBObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import org.mongojack.internal.MongoJackModule;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit test the {@link MongoUUIDModule} with the {@link MongoDAO} data access object.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class TestMongoUUIDModule {
+
+    private static final UUID ID = UUID.fromString("01489f4c-2a6b-7abc-8123-456789abcdef");
+    private static final UUID PARENT = UUID.fromString("ee749160-c6a0-11e2-8b8b-0800200c9a66");
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+    private Fongo fongo = new Fongo("localhost");
+    private ObjectMapper objectMapper;
+    private DAO<UUID, ObjectWithUUID> dao;
+
+    @Before
+    public void setup() {
+        objectMapper = new ObjectMapper();
+        MongoJackModule.configure(objectMapper);
+        objectMapper.registerModule(new MongoUUIDModule());
+        dao = new MongoDAO<UUID, ObjectWithUUID, ObjectWithUUID>(fongo.getMongo(), objectMapper, UUID.class, ObjectWithUUID.class, "db", "objects");
+    }
+
+    @Test
+    public void uuidsAreStoredAsBigEndianBinary() {
+        dao.create(ID, new ObjectWithUUID(ID, PARENT));
+        final DBObject document = fongo.getMongo().getDB("db").getCollection("objects").findOne();
+        collector.checkThat(document.get("_id"), is(instanceOf(byte[].class)));
+        final byte[] bytes = (byte[]) document.get("_id");
+        collector.checkThat(bytes.length, is(equalTo(16)));
+        collector.checkThat(bytes[0], is(equalTo((byte) 0x01)));
+        collector.checkThat(bytes[15], is(equalTo((byte) 0xef)));
+    }
+
+    @Test
+    public void uuidsCanBeReadById() {
+        dao.create(ID, new ObjectWithUUID(ID, PARENT));
+        final Optional<ObjectWithUUID> result = dao.read(ID);
+        collector.checkThat(result.isPresent(), is(true));
+        collector.checkThat(result.get().getId(), is(equalTo(ID)));
+        collector.checkThat(result.get().getParent(), is(equalTo(PARENT)));
+    }
+
+    @Test
+    public void uuidsAreWrittenAsStringsInJSON() throws Exception {
+        final String json = objectMapper.writeValueAsString(new ObjectWithUUID(ID, PARENT));
+        collector.checkThat(json, containsString("\"ee749160-c6a0-11e2-8b8b-0800200c9a66\""));
+        final ObjectWithUUID result = objectMapper.readValue(json, ObjectWithUUID.class);
+        collector.checkThat(result.getId(), is(equalTo(ID)));
+        collector.checkThat(result.getParent(), is(equalTo(PARENT)));
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2011-2013 Brian Thomas Matthews
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.btmatthews.atlas.core.dao.mongo;
+
+import com.btmatthews.atlas.core.domain.i18n.I18NModule;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fakemongo.Fongo;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import org.mongojack.internal.MongoJackModule;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit test the {@link ReactiveMongoDAO} data access object implementation.
+ *
+ * @author <a href="mailto:brian@btmatthews.com">Brian Thomas Matthews</a>
+ * @since 1.0.2
+ */
+public class TestReactiveMongoDAO {
+
+    private final static LocalDateTime VALID_FROM = LocalDateTime.of(1900, 1, 1, 0, 0, 0, 0);
+    private final static LocalDateTime VALID_TO = LocalDateTime.of(9999, 12, 31, 23, 59, 59, 999000000);
+
+    /**
+     * Used to collect test failures within a single test case.
+     */
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+    /**
+     * The blocking data access object used by the data access object being tested.
+     */
+    private MongoDAO<String, Person, PersonImpl> blockingDAO;
+    /**
+     * Holds the operations started by the data access object being tested until they are run by the test case.
+     */
+    private final LinkedList<Runnable> started = new LinkedList<>();
+    /**
+     * The data access object being tested.
+     */
+    private ReactiveMongoDAO<String, Person, PersonImpl> dao;
+
+    /**
+     * Prepare for test case execution.
+     */
+    @Before
+    public void setup() {
+        final ObjectMapper objectMapper = new ObjectMapper();
+        MongoJackModule.configure(objectMapper);
+        objectMapper.registerModule(new I18NModule());
+        objectMapper.registerModule(new MongoJSR310Module());
+        blockingDAO = new MongoDAO<>(new Fongo("localhost").getMongo(), objectMapper, String.class, PersonImpl.class, "db", "people");
+        dao = new ReactiveMongoDAO<>(blockingDAO, started::add, 2);
+    }
+
+    @Test
+    public void operationsCompleteWithResults() throws Exception {
+        final CompletableFuture<Void> created = dao.create("1", new PersonImpl("1", "Alice", VALID_FROM, VALID_TO));
+        collector.checkThat(created.isDone(), is(false));
+        runAll();
+        collector.checkThat(created.isDone(), is(true));
+        final CompletableFuture<Optional<Person>> read = dao.read("1");
+        final CompletableFuture<Long> count = dao.count();
+        runAll();
+        collector.checkThat(read.get().get().getName(), is(equalTo("Alice")));
+        collector.checkThat(count.get(), is(equalTo(1L)));
+        dao.update("1", new PersonImpl("1", "Alicia", VALID_FROM, VALID_TO));
+        runAll();
+        final CompletableFuture<Optional<Person>> lookup = dao.lookup("name", "Alicia");
+        runAll();
+        collector.checkThat(lookup.get().isPresent(), is(true));
+        dao.destroy("1");
+        runAll();
+        collector.checkThat(blockingDAO.count(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void operationsBeyondTheInFlightLimitAreQueued() {
+        final List<CompletableFuture<Long>> counts = new ArrayList<>();
+        for (int i = 0; i < 3; ++i) {
+            counts.add(dao.count());
+        }
+        collector.checkThat(started.size(), is(equalTo(2)));
+        collector.checkThat(dao.getInFlight(), is(equalTo(2)));
+        collector.checkThat(dao.getPending(), is(equalTo(1)));
+        started.removeFirst().run();
+        collector.checkThat(counts.get(0).isDone(), is(true));
+        collector.checkThat(started.size(), is(equalTo(2)));
+        collector.checkThat(dao.getPending(), is(equalTo(0)));
+        runAll();
+        collector.checkThat(dao.getInFlight(), is(equalTo(0)));
+        collector.checkThat(counts.get(2).isDone(), is(true));
+    }
+
+    @Test
+    public void failuresCompleteExceptionally() throws Exception {
+        final CompletableFuture<List<Person>> find = dao.find(null);
+        runAll();
+        collector.checkThat(find.isCompletedExceptionally(), is(true));
+        dao = new ReactiveMongoDAO<>(blockingDAO, command -> {
+            throw new RejectedExecutionException();
+        }, 2);
+        final CompletableFuture<Long> count = dao.count();
+        collector.checkThat(count.isCompletedExceptionally(), is(true));
+        collector.checkThat(dao.getInFlight(), is(equalTo(0)));
+    }
+
+    @Test
+    public void errorsCompleteExceptionally() throws Exception {
+        final CompletableFuture<Long> failed = dao.submit(() -> {
+            throw new AssertionError("Operation failed");
+        });
+        final CompletableFuture<Long> count = dao.count();
+        runAll();
+        collector.checkThat(failed.isCompletedExceptionally(), is(true));
+        collector.checkThat(count.get(), is(equalTo(0L)));
+        collector.checkThat(dao.getInFlight(), is(equalTo(0)));
+    }
+
+    @Test
+    public void cursorReadsDocumentsOnDemand() throws Exception {
+        for (int i = 0; i < 5; ++i) {
+            blockingDAO.create("person-" + i, new PersonImpl("person-" + i, "Alice", VALID_FROM.plusDays(i), VALID_TO));
+        }
+        final ReactiveMongoCursor<Person> cursor = dao.lookupAll("name", "Alice");
+        collector.checkThat(started.isEmpty(), is(true));
+        collector.checkThat(cursorCount(cursor.request(2)), is(equalTo(2)));
+        collector.checkThat(cursorCount(cursor.request(2)), is(equalTo(2)));
+        collector.checkThat(cursor.isExhausted(), is(false));
+        collector.checkThat(cursorCount(cursor.request(2)), is(equalTo(1)));
+        collector.checkThat(cursor.isExhausted(), is(true));
+        collector.checkThat(cursorCount(cursor.request(2)), is(equalTo(0)));
+    }
+
+    @Test
+    public void cursorForEachConsumesAllDocuments() throws Exception {
+        for (int i = 0; i < 5; ++i) {
+            blockingDAO.create("person-" + i, new PersonImpl("person-" + i, i < 3 ? "Alice" : "Bob", VALID_FROM, VALID_TO));
+        }
+        final List<String> ids = new ArrayList<>();
+        final CompletableFuture<Void> done = dao.lookupAll("name", "Alice").forEach(2, person -> ids.add(person.getId()));
+        runAll();
+        collector.checkThat(done.isDone(), is(true));
+        collector.checkThat(ids, containsInAnyOrder("person-0", "person-1", "person-2"));
+    }
+
+    @Test
+    public void cursorForEachClosesCursorWhenConsumerFails() throws Exception {
+        for (int i = 0; i < 5; ++i) {
+            blockingDAO.create("person-" + i, new PersonImpl("person-" + i, "Alice", VALID_FROM, VALID_TO));
+        }
+        final ReactiveMongoCursor<Person> cursor = dao.lookupAll("name", "Alice");
+        final IllegalStateException failure = new IllegalStateException();
+        final CompletableFuture<Void> done = cursor.forEach(2, person -> {
+            throw failure;
+        });
+        runAll();
+        collector.checkThat(done.isCompletedExceptionally(), is(true));
+        collector.checkThat(cursor.isExhausted(), is(true));
+        try {
+            done.get();
+        } catch (final ExecutionException e) {
+            collector.checkThat(e.getCause(), is(sameInstance((Throwable) failure)));
+        }
+        collector.checkThat(cursorCount(cursor.request(2)), is(equalTo(0)));
+    }
+
+    @Test
+    public void closedCursorReturnsNoDocuments() throws Exception {
+        blockingDAO.create("1", new PersonImpl("1", "Alice", VALID_FROM, VALID_TO));
+        final ReactiveMongoCursor<Person> cursor = dao.lookupAll("name", "Alice");
+        cursor.close();
+        collector.checkThat(cursorCount(cursor.request(1)), is(equalTo(0)));
+    }
+
+    private int cursorCount(final CompletableFuture<List<Person>> request) throws ExecutionException, InterruptedException {
+        runAll();
+        return request.get().size();
+    }
+
+    private void runAll() {
+        while (!started.isEmpty()) {
+            started.removeFirst().run();
+        }
+    }
+}